@@ -1,6 +1,7 @@
 package com.agri.mapapp.audit;
 
 import com.agri.mapapp.auth.AppUser;
+import com.agri.mapapp.common.PooledSequence;
 import jakarta.persistence.*;
 import lombok.*;
 
@@ -14,7 +15,7 @@ import java.time.Instant;
 @Getter @Setter @NoArgsConstructor @AllArgsConstructor @Builder
 public class AuditLog {
 
-    @Id @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Id @PooledSequence("audit_log_seq")
     private Long id;
 
     /** LOGIN_SUCCESS, REFRESH_ROTATE, REFRESH_REUSE, LOGOUT, SESSION_REVOKE, SESSION_REJECTED */
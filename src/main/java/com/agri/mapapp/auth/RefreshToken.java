@@ -1,5 +1,6 @@
 package com.agri.mapapp.auth;
 
+import com.agri.mapapp.common.PooledSequence;
 import jakarta.persistence.*;
 import lombok.*;
 
@@ -19,7 +20,7 @@ import java.time.Instant;
 public class RefreshToken {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @PooledSequence("refresh_token_seq")
     private Long id;
 
     /** Legacy raw token (no longer used). Keep nullable for backward-compat */
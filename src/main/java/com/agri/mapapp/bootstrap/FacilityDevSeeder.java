@@ -1,6 +1,7 @@
 // src/main/java/com/agri/mapapp/bootstrap/FacilityDevSeeder.java
 package com.agri.mapapp.bootstrap;
 
+import com.agri.mapapp.common.SearchNormalizer;
 import com.agri.mapapp.facility.*;
 import com.agri.mapapp.org.OrganizationUnit;
 import com.agri.mapapp.org.OrganizationUnitRepository;
@@ -14,6 +15,7 @@ import org.springframework.core.annotation.Order;
 import org.springframework.stereotype.Component;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Random;
 
@@ -25,6 +27,7 @@ public class FacilityDevSeeder implements ApplicationRunner {
 
     private final OrganizationUnitRepository orgs;
     private final FacilityRepository facilities;
+    private final FacilityNameWords nameWords;
     private final ObjectMapper om;
     private final Random rnd = new Random(72);
 
@@ -53,7 +56,8 @@ public class FacilityDevSeeder implements ApplicationRunner {
                 .filter(o -> !orgs.existsByParent(o))   // bolasi yo‘q => leaf
                 .toList();
 
-        long created = 0;
+        // Bitta saveAll: id'lar pooled sequence'dan, INSERT'lar JDBC paketida
+        List<Facility> batch = new ArrayList<>();
         for (OrganizationUnit leaf : leaves) {
             int n = 5 + rnd.nextInt(5); // 5..9 ta obyekt
             for (int i = 0; i < n; i++) {
@@ -131,11 +135,12 @@ public class FacilityDevSeeder implements ApplicationRunner {
                 f.setCreatedAt(LocalDateTime.now().minusDays(rnd.nextInt(45)));
                 f.setUpdatedAt(LocalDateTime.now().minusDays(rnd.nextInt(15)));
 
-                facilities.save(f);
-                created++;
+                batch.add(f);
             }
         }
-        System.out.println("FacilityDevSeeder: " + created + " ta demo obyekt yaratildi.");
+        facilities.saveAll(batch);
+        nameWords.add(batch.stream().map(f -> SearchNormalizer.normalize(f.getName())).toList());
+        System.out.println("FacilityDevSeeder: " + batch.size() + " ta demo obyekt yaratildi.");
     }
 
     private double round1(double v) {
@@ -0,0 +1,19 @@
+package com.agri.mapapp.common;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/** Keyset paginatsiya sahifasi: keyingi sahifa nextCursor bilan; totalElements faqat so‘ralganda (withTotal=true) */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CursorPage<T> {
+    private List<T> content;
+    private int size;
+    private String nextCursor;   // null => oxirgi sahifa
+    private boolean hasNext;
+    private Long totalElements;
+}
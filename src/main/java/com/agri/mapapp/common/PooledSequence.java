@@ -0,0 +1,23 @@
+package com.agri.mapapp.common;
+
+import org.hibernate.annotations.IdGeneratorType;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+import static java.lang.annotation.ElementType.FIELD;
+import static java.lang.annotation.ElementType.METHOD;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+/**
+ * @GeneratedValue(IDENTITY) o‘rniga: sequence + pooled-lo optimizer.
+ * Hibernate bir nextval bilan app.jpa.id-allocation-size ta id oladi — INSERT’lar JDBC batch’ga tushadi.
+ */
+@IdGeneratorType(PooledSequenceGenerator.class)
+@Retention(RUNTIME)
+@Target({FIELD, METHOD})
+public @interface PooledSequence {
+
+    /** Sequence nomi (V8 migratsiyasi bilan bir xil) */
+    String value();
+}
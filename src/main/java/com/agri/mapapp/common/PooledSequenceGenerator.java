@@ -0,0 +1,40 @@
+package com.agri.mapapp.common;
+
+import org.hibernate.MappingException;
+import org.hibernate.engine.config.spi.ConfigurationService;
+import org.hibernate.engine.config.spi.StandardConverters;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+import org.hibernate.id.factory.spi.CustomIdGeneratorCreationContext;
+import org.hibernate.service.ServiceRegistry;
+import org.hibernate.type.Type;
+
+import java.lang.reflect.Member;
+import java.util.Properties;
+
+/**
+ * {@link PooledSequence} generatori: SequenceStyleGenerator, optimizer = pooled-lo.
+ * nextval qiymati v => [v, v + allocationSize) oralig‘i shu instansiyaniki (sequence INCREMENT BY = allocationSize).
+ * allocationSize Hibernate sozlamasidan ({@link #ALLOCATION_SIZE}; JpaConfig uni app.jpa.id-allocation-size’dan beradi).
+ * DB’dagi INCREMENT BY boshqacha bo‘lsa Hibernate ishga tushmaydi (increment mismatch — standart xatti-harakat).
+ */
+public class PooledSequenceGenerator extends SequenceStyleGenerator {
+
+    public static final String ALLOCATION_SIZE = "app.jpa.id-allocation-size";
+    public static final int DEFAULT_ALLOCATION_SIZE = 50;
+
+    private final String sequenceName;
+
+    public PooledSequenceGenerator(PooledSequence config, Member member, CustomIdGeneratorCreationContext context) {
+        this.sequenceName = config.value();
+    }
+
+    @Override
+    public void configure(Type type, Properties params, ServiceRegistry serviceRegistry) throws MappingException {
+        int allocationSize = serviceRegistry.requireService(ConfigurationService.class)
+                .getSetting(ALLOCATION_SIZE, StandardConverters.INTEGER, DEFAULT_ALLOCATION_SIZE);
+        params.setProperty(SEQUENCE_PARAM, sequenceName);
+        params.setProperty(INCREMENT_PARAM, Integer.toString(allocationSize));
+        params.setProperty(OPT_PARAM, "pooled-lo");
+        super.configure(type, params, serviceRegistry);
+    }
+}
@@ -0,0 +1,64 @@
+package com.agri.mapapp.common;
+
+import java.util.Locale;
+
+/**
+ * Qidiruv uchun matnni bir xil ko‘rinishga keltirish (trigram indeksli *_norm ustunlar va so‘rov q uchun):
+ *  - kichik harf;
+ *  - o‘zbek apostrof variantlari (o‘ / o' / oʻ / o’ / o`) olib tashlanadi: "O‘zbekiston" → "ozbekiston";
+ *  - kirill → lotin (o‘zbek alifbosi; ў → o, ғ → g, қ → q, ҳ → h, ш → sh, ч → ch ...): "Ўзбекистон" → "ozbekiston";
+ *  - qolgan belgilar (a-z, 0-9 dan boshqasi) bitta bo‘shliqqa — DB locale’iga bog‘liq bo‘lmasin.
+ * Migratsiyadagi backfill funksiyasi (V9) shu qoidalarni takrorlaydi — o‘zgartirilsa ikkalasi birga.
+ */
+public final class SearchNormalizer {
+    private SearchNormalizer() {}
+
+    public static String normalize(String s) {
+        if (s == null) return "";
+        String lower = s.toLowerCase(Locale.ROOT);
+        StringBuilder out = new StringBuilder(lower.length() + 8);
+        boolean space = true; // boshidagi bo‘shliqlar tashlanadi
+        for (int i = 0; i < lower.length(); i++) {
+            char c = lower.charAt(i);
+            if (isApostrophe(c)) continue;
+            String t = cyrillic(c);
+            if (t == null) {
+                if ((c >= 'a' && c <= 'z') || (c >= '0' && c <= '9')) {
+                    out.append(c);
+                    space = false;
+                } else if (!space) {
+                    out.append(' ');
+                    space = true;
+                }
+            } else if (!t.isEmpty()) {
+                out.append(t);
+                space = false;
+            }
+        }
+        int n = out.length();
+        if (n > 0 && out.charAt(n - 1) == ' ') out.setLength(n - 1);
+        return out.toString();
+    }
+
+    private static boolean isApostrophe(char c) {
+        return switch (c) {
+            case '\'', '`', '´', '‘', '’', 'ʻ', 'ʼ' -> true;
+            default -> false;
+        };
+    }
+
+    /** Kirill harfi → lotin; kirill emas => null, ъ/ь => "" */
+    private static String cyrillic(char c) {
+        return switch (c) {
+            case 'а' -> "a";  case 'б' -> "b";  case 'в' -> "v";  case 'г' -> "g";  case 'д' -> "d";
+            case 'е' -> "e";  case 'ё' -> "yo"; case 'ж' -> "j";  case 'з' -> "z";  case 'и' -> "i";
+            case 'й' -> "y";  case 'к' -> "k";  case 'л' -> "l";  case 'м' -> "m";  case 'н' -> "n";
+            case 'о' -> "o";  case 'п' -> "p";  case 'р' -> "r";  case 'с' -> "s";  case 'т' -> "t";
+            case 'у' -> "u";  case 'ф' -> "f";  case 'х' -> "x";  case 'ц' -> "ts"; case 'ч' -> "ch";
+            case 'ш' -> "sh"; case 'щ' -> "sh"; case 'ы' -> "i";  case 'э' -> "e";  case 'ю' -> "yu";
+            case 'я' -> "ya"; case 'ў' -> "o";  case 'қ' -> "q";  case 'ғ' -> "g";  case 'ҳ' -> "h";
+            case 'ъ', 'ь' -> "";
+            default -> null;
+        };
+    }
+}
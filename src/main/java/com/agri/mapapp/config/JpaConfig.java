@@ -0,0 +1,18 @@
+package com.agri.mapapp.config;
+
+import com.agri.mapapp.common.PooledSequenceGenerator;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class JpaConfig {
+
+    /** @PooledSequence generatorlari uchun allocationSize (sequence INCREMENT BY bilan bir xil bo‘lishi shart) */
+    @Bean
+    public HibernatePropertiesCustomizer idAllocationSizeCustomizer(
+            @Value("${app.jpa.id-allocation-size:50}") int allocationSize) {
+        return props -> props.put(PooledSequenceGenerator.ALLOCATION_SIZE, allocationSize);
+    }
+}
@@ -2,6 +2,7 @@
 package com.agri.mapapp.config;
 
 import com.agri.mapapp.auth.JwtAuthFilter;
+import jakarta.servlet.DispatcherType;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
 import org.springframework.context.annotation.Bean;
@@ -36,6 +37,9 @@ public class SecurityConfig {
                         // --- CORS preflight ---
                         .requestMatchers(HttpMethod.OPTIONS, "/**").permitAll()
 
+                        // --- Async dispatch (StreamingResponseBody) — asl REQUEST allaqachon tekshirilgan ---
+                        .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
+
                         // --- PUBLIC endpoints ---
                         .requestMatchers("/auth/login", "/auth/refresh", "/auth/logout").permitAll()
                         .requestMatchers("/captcha/**").permitAll()
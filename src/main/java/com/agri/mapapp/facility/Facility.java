@@ -1,5 +1,7 @@
 package com.agri.mapapp.facility;
 
+import com.agri.mapapp.common.PooledSequence;
+import com.agri.mapapp.common.SearchNormalizer;
 import com.agri.mapapp.org.OrganizationUnit;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.vladmihalcea.hibernate.type.json.JsonType;
@@ -14,11 +16,17 @@ import java.time.LocalDateTime;
         indexes = {
                 @Index(name = "idx_facility_org", columnList = "org_id"),
                 @Index(name = "idx_facility_type", columnList = "type"),
-                @Index(name = "idx_facility_lat_lng", columnList = "lat,lng")
+                @Index(name = "idx_facility_lat_lng", columnList = "lat,lng"),
+                @Index(name = "idx_facility_expected_revenue", columnList = "expected_revenue"),
+                @Index(name = "idx_facility_net_profit", columnList = "net_profit"),
+                // keyset paginatsiya: (saralash kaliti, id)
+                @Index(name = "idx_facility_created_id", columnList = "created_at,id"),
+                @Index(name = "idx_facility_org_created_id", columnList = "org_id,created_at,id"),
+                @Index(name = "idx_facility_name_id", columnList = "name,id")
         })
 @Getter @Setter @NoArgsConstructor @AllArgsConstructor @Builder
 public class Facility {
-    @Id @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Id @PooledSequence("facility_seq")
     private Long id;
 
     @ManyToOne(fetch = FetchType.LAZY)
@@ -53,17 +61,64 @@ public class Facility {
     @Column(columnDefinition = "jsonb")
     private JsonNode geometry;   // ixtiyoriy: null bo'lishi mumkin
 
+    @Column(nullable = false)
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
 
+    // attributes’dan olingan statistik ko‘rsatkichlar (FacilityMetrics qoidalari bilan).
+    // Faqat yozishda (prePersist/preUpdate) to‘ldiriladi — tashqaridan o‘rnatilmaydi.
+    @Setter(AccessLevel.NONE)
+    @Column(name = "expected_revenue", nullable = false)
+    private double expectedRevenue;
+
+    @Setter(AccessLevel.NONE)
+    @Column(name = "net_profit", nullable = false)
+    private double netProfit;
+
+    @Setter(AccessLevel.NONE)
+    @Column(name = "current_amount", nullable = false)
+    private double currentAmount;
+
+    @Setter(AccessLevel.NONE)
+    @Column(name = "capacity", nullable = false)
+    private double capacity;
+
+    @Setter(AccessLevel.NONE)
+    @Column(name = "product_amount", nullable = false)
+    private double productAmount;
+
+    @Setter(AccessLevel.NONE)
+    @Column(name = "area_m2", nullable = false)
+    private double areaM2;
+
+    // Qidiruv uchun normallashtirilgan nom (SearchNormalizer): trigram va so‘zlar GIN indekslari shu ustunda (V9).
+    // Faqat yozishda to‘ldiriladi.
+    @Setter(AccessLevel.NONE)
+    @Column(name = "name_norm", nullable = false, columnDefinition = "text")
+    private String nameNorm;
+
     @PrePersist
     public void prePersist() {
         this.createdAt = LocalDateTime.now();
         this.updatedAt = this.createdAt;
         if (this.status == null) this.status = FacilityStatus.ACTIVE;
+        refreshMetrics();
+        this.nameNorm = SearchNormalizer.normalize(name);
     }
     @PreUpdate
     public void preUpdate() {
         this.updatedAt = LocalDateTime.now();
+        refreshMetrics();
+        this.nameNorm = SearchNormalizer.normalize(name);
+    }
+
+    private void refreshMetrics() {
+        FacilityMetrics m = FacilityMetrics.of(attributes);
+        this.expectedRevenue = m.expectedRevenue();
+        this.netProfit = m.netProfit();
+        this.currentAmount = m.current();
+        this.capacity = m.capacity();
+        this.productAmount = m.productAmount();
+        this.areaM2 = m.areaM2();
     }
 }
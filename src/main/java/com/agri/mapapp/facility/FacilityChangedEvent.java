@@ -0,0 +1,28 @@
+package com.agri.mapapp.facility;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Facility yozuvlari o‘zgardi (create/update/delete). Tranzaksiya ichida e’lon qilinadi.
+ * before == null => yangi yaratildi, after == null => o‘chirildi.
+ */
+public record FacilityChangedEvent(List<Change> changes) {
+
+    public record Change(FacilitySnapshot before, FacilitySnapshot after) {}
+
+    public static FacilityChangedEvent of(FacilitySnapshot before, FacilitySnapshot after) {
+        return new FacilityChangedEvent(List.of(new Change(before, after)));
+    }
+
+    /** O‘zgarish tegadigan barcha orgId’lar (eski va yangi) */
+    public Set<Long> orgIds() {
+        Set<Long> ids = new HashSet<>();
+        for (Change c : changes) {
+            if (c.before() != null && c.before().orgId() != null) ids.add(c.before().orgId());
+            if (c.after() != null && c.after().orgId() != null) ids.add(c.after().orgId());
+        }
+        return ids;
+    }
+}
@@ -1,10 +1,12 @@
 package com.agri.mapapp.facility;
 
+import com.agri.mapapp.common.CursorPage;
 import com.agri.mapapp.common.PageResponse;
 import com.agri.mapapp.facility.dto.FacilityCreateReq;
 import com.agri.mapapp.facility.dto.FacilityPatchReq;
 import com.agri.mapapp.facility.dto.FacilityPutReq;
 import com.agri.mapapp.facility.dto.FacilityRes;
+import com.agri.mapapp.facility.dto.FacilitySummaryRes;
 import com.agri.mapapp.org.AccessService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
@@ -32,14 +34,16 @@ public class FacilityController {
     /**
      * Paginatsiyadagi ro‘yxat.
      * Foydalanuvchi scope’i (ADMIN => hammasi, USER => subtree) majburan qo‘llanadi.
+     * view=summary: faqat id, name, type, status, lat/lng, org (attributes/geometry o‘qilmaydi) — xarita paneli uchun.
      */
     @GetMapping
-    public PageResponse<FacilityRes> list(
+    public PageResponse<?> list(
             Authentication auth,
             @RequestParam(required = false) Long orgId,
             @RequestParam(required = false) FacilityType type,
             @RequestParam(required = false) FacilityStatus status,
             @RequestParam(required = false) String q,
+            @RequestParam(required = false) String view,
             @PageableDefault(size = 10, sort = "createdAt", direction = Sort.Direction.DESC) Pageable pageable
     ) {
         Set<Long> allowed = accessService.allowedOrgIds(auth); // ADMIN -> null, USER -> subtree ids
@@ -47,33 +51,116 @@ public class FacilityController {
         if (orgId != null && allowed != null && !allowed.contains(orgId)) {
             throw new AccessDeniedException("Siz ushbu bo‘lim obyektlarini ko‘ra olmaysiz.");
         }
+        if (FacilityView.of(view) == FacilityView.SUMMARY) {
+            return service.getFacilitiesSummaryPage(orgId, type, status, q, pageable, allowed);
+        }
         return service.getFacilitiesPage(orgId, type, status, q, pageable, allowed);
     }
 
+    /**
+     * Keyset (cursor) varianti: cursor parametri bo‘lsa shu handler ishlaydi (birinchi sahifa: cursor= bo‘sh).
+     * sort: createdAt | name | id (bitta kalit, yo‘nalish bilan); page e’tiborga olinmaydi; count faqat withTotal=true.
+     */
+    @GetMapping(params = "cursor")
+    public CursorPage<?> scroll(
+            Authentication auth,
+            @RequestParam(required = false) Long orgId,
+            @RequestParam(required = false) FacilityType type,
+            @RequestParam(required = false) FacilityStatus status,
+            @RequestParam(required = false) String q,
+            @RequestParam String cursor,
+            @RequestParam(required = false, defaultValue = "false") boolean withTotal,
+            @RequestParam(required = false) String view,
+            @PageableDefault(size = 10, sort = "createdAt", direction = Sort.Direction.DESC) Pageable pageable
+    ) {
+        Set<Long> allowed = accessService.allowedOrgIds(auth);
+        if (orgId != null && allowed != null && !allowed.contains(orgId)) {
+            throw new AccessDeniedException("Siz ushbu bo‘lim obyektlarini ko‘ra olmaysiz.");
+        }
+        if (FacilityView.of(view) == FacilityView.SUMMARY) {
+            return service.scrollFacilitiesSummary(orgId, type, status, q, pageable.getSort(), pageable.getPageSize(),
+                    cursor, withTotal, allowed);
+        }
+        return service.scrollFacilities(orgId, type, status, q, pageable.getSort(), pageable.getPageSize(),
+                cursor, withTotal, allowed);
+    }
+
     /**
      * Vaqt oraliqli va ko‘p turli filtrlash (paginatsiya bilan).
      * Foydalanuvchi scope’i majburan qo‘llanadi.
      *
      * Query misollar:
      *   /api/facilities/all?types=GREENHOUSE,POULTRY_EGG&status=ACTIVE&from=2025-01-01T00:00:00&to=2025-08-01T00:00:00
+     *   /api/facilities/all?view=summary&size=500
      */
     @GetMapping("/all")
-    public PageResponse<FacilityRes> listAll(
+    public PageResponse<?> listAll(
             Authentication auth,
             @RequestParam(required = false) Long orgId,
             @RequestParam(required = false) List<FacilityType> types,
             @RequestParam(required = false) FacilityStatus status,
             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) String view,
             @PageableDefault(size = 20, sort = "createdAt", direction = Sort.Direction.DESC) Pageable pageable
     ) {
         Set<Long> allowed = accessService.allowedOrgIds(auth);
         if (orgId != null && allowed != null && !allowed.contains(orgId)) {
             throw new AccessDeniedException("Siz ushbu bo‘lim obyektlarini ko‘ra olmaysiz.");
         }
+        if (FacilityView.of(view) == FacilityView.SUMMARY) {
+            return service.getAllFacilitiesSummary(orgId, types, status, from, to, pageable, allowed);
+        }
         return service.getAllFacilities(orgId, types, status, from, to, pageable, allowed);
     }
 
+    /** /all’ning keyset varianti (cursor parametri bilan; qoidalar scroll() bilan bir xil) */
+    @GetMapping(value = "/all", params = "cursor")
+    public CursorPage<?> scrollAll(
+            Authentication auth,
+            @RequestParam(required = false) Long orgId,
+            @RequestParam(required = false) List<FacilityType> types,
+            @RequestParam(required = false) FacilityStatus status,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam String cursor,
+            @RequestParam(required = false, defaultValue = "false") boolean withTotal,
+            @RequestParam(required = false) String view,
+            @PageableDefault(size = 20, sort = "createdAt", direction = Sort.Direction.DESC) Pageable pageable
+    ) {
+        Set<Long> allowed = accessService.allowedOrgIds(auth);
+        if (orgId != null && allowed != null && !allowed.contains(orgId)) {
+            throw new AccessDeniedException("Siz ushbu bo‘lim obyektlarini ko‘ra olmaysiz.");
+        }
+        if (FacilityView.of(view) == FacilityView.SUMMARY) {
+            return service.scrollAllFacilitiesSummary(orgId, types, status, from, to, pageable.getSort(),
+                    pageable.getPageSize(), cursor, withTotal, allowed);
+        }
+        return service.scrollAllFacilities(orgId, types, status, from, to, pageable.getSort(), pageable.getPageSize(),
+                cursor, withTotal, allowed);
+    }
+
+    /**
+     * Nom bo‘yicha qidiruv (xarita qidiruv oynasi): o‘xshashlik bo‘yicha tartiblangan, xatoga chidamli
+     * ("isxona" → "issiqxona"), apostrof va kirill/lotin farqisiz. Natija — view=summary qatorlari + score.
+     *   /api/facilities/search?q=parranda&type=POULTRY_EGG&limit=20
+     */
+    @GetMapping("/search")
+    public List<FacilitySummaryRes> search(
+            Authentication auth,
+            @RequestParam String q,
+            @RequestParam(required = false) Long orgId,
+            @RequestParam(required = false) FacilityType type,
+            @RequestParam(required = false) FacilityStatus status,
+            @RequestParam(required = false, defaultValue = "20") int limit
+    ) {
+        Set<Long> allowed = accessService.allowedOrgIds(auth);
+        if (orgId != null && allowed != null && !allowed.contains(orgId)) {
+            throw new AccessDeniedException("Siz ushbu bo‘lim obyektlarini ko‘ra olmaysiz.");
+        }
+        return service.search(q, orgId, type, status, limit, allowed);
+    }
+
     /* ====== CRUD (o‘zgarmagan) ====== */
 
     @GetMapping("/{id}")
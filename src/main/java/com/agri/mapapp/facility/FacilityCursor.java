@@ -0,0 +1,120 @@
+package com.agri.mapapp.facility;
+
+import com.agri.mapapp.facility.dto.FacilitySummaryRes;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.Iterator;
+
+/**
+ * Keyset (seek) paginatsiya kursori: sahifadagi oxirgi qatorning (saralash kaliti, id) qiymati.
+ * Token shaffof emas (base64url) va saralashni ham saqlaydi — boshqa sort bilan kelsa 400.
+ * Saralash faqat oq ro‘yxatdagi kalitlar bo‘yicha: har biriga (kalit, id) kompozit indeks mos keladi.
+ */
+public record FacilityCursor(Order order, Comparable<?> value, long id) {
+
+    private static final String VERSION = "v1";
+    private static final char SEP = '\u001f';
+
+    /** Oq ro‘yxat: API’dagi property → entity maydoni */
+    public enum SortKey {
+        CREATED_AT("createdAt"), NAME("name"), ID("id");
+
+        public final String property;
+
+        SortKey(String property) {
+            this.property = property;
+        }
+
+        static SortKey of(String property) {
+            for (SortKey k : values()) if (k.property.equals(property)) return k;
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Cursor pagination supports sort by createdAt, name or id; got: " + property);
+        }
+    }
+
+    /** Saralash: kalit + yo‘nalish; id doim shu yo‘nalishda ikkinchi kalit (yagona tartib) */
+    public record Order(SortKey key, Sort.Direction direction) {
+
+        /** sort=createdAt,desc | name,asc | id,desc (ixtiyoriy ", id" bilan) */
+        public static Order of(Sort sort) {
+            Iterator<Sort.Order> it = sort.iterator();
+            if (!it.hasNext()) return new Order(SortKey.CREATED_AT, Sort.Direction.DESC);
+            Sort.Order first = it.next();
+            Order order = new Order(SortKey.of(first.getProperty()), first.getDirection());
+            if (it.hasNext()) {
+                Sort.Order second = it.next();
+                if (it.hasNext() || !"id".equals(second.getProperty()) || second.getDirection() != first.getDirection()
+                        || order.key() == SortKey.ID) {
+                    throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                            "Cursor pagination supports a single sort key (id is added as a tie-breaker)");
+                }
+            }
+            return order;
+        }
+
+        public Sort sort() {
+            return key == SortKey.ID ? Sort.by(direction, "id") : Sort.by(direction, key.property, "id");
+        }
+    }
+
+    /** Sahifadagi oxirgi qator → keyingi sahifa kursori */
+    public static FacilityCursor after(Facility last, Order order) {
+        Comparable<?> value = switch (order.key()) {
+            case CREATED_AT -> last.getCreatedAt();
+            case NAME -> last.getName();
+            case ID -> null;
+        };
+        return new FacilityCursor(order, value, last.getId());
+    }
+
+    /** view=summary qatori uchun (createdAt DTO’da ISO matn ko‘rinishida) */
+    public static FacilityCursor after(FacilitySummaryRes last, Order order) {
+        Comparable<?> value = switch (order.key()) {
+            case CREATED_AT -> LocalDateTime.parse(last.getCreatedAt());
+            case NAME -> last.getName();
+            case ID -> null;
+        };
+        return new FacilityCursor(order, value, last.getId());
+    }
+
+    public String encode() {
+        String raw = VERSION + SEP + order.key().name() + SEP + order.direction().name() + SEP + id
+                + SEP + (value == null ? "" : value.toString());
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /** Bo‘sh token => birinchi sahifa (null) */
+    public static FacilityCursor decode(String token, Order order) {
+        if (token == null || token.isBlank()) return null;
+        String[] p;
+        try {
+            p = new String(Base64.getUrlDecoder().decode(token.trim()), StandardCharsets.UTF_8).split(String.valueOf(SEP), 5);
+        } catch (IllegalArgumentException e) {
+            throw invalid();
+        }
+        if (p.length != 5 || !VERSION.equals(p[0])) throw invalid();
+        if (!order.key().name().equals(p[1]) || !order.direction().name().equals(p[2])) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Cursor was issued for a different sort");
+        }
+        try {
+            long id = Long.parseLong(p[3]);
+            Comparable<?> value = switch (order.key()) {
+                case CREATED_AT -> LocalDateTime.parse(p[4]);
+                case NAME -> p[4];
+                case ID -> null;
+            };
+            return new FacilityCursor(order, value, id);
+        } catch (RuntimeException e) {
+            throw invalid();
+        }
+    }
+
+    private static ResponseStatusException invalid() {
+        return new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid cursor");
+    }
+}
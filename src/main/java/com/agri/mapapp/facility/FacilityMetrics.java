@@ -0,0 +1,68 @@
+package com.agri.mapapp.facility;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Facility attributes’idan olinadigan statistik ko‘rsatkichlar (alias-aware).
+ * Qoida: ro‘yxatdagi birinchi mavjud (null bo‘lmagan) kalit qiymatni belgilaydi;
+ * son -> double, matn -> {@link MetricDefinition#NUMERIC_TEXT}ga mos bo‘lsa parse (bo‘lmasa 0), boshqa turlar -> 0.
+ * Matn qoidasi V3 backfill va SQL yig‘ish bilan bir xil — ilova yozgan va migratsiya to‘ldirgan qatorlar farq qilmaydi.
+ * Ta’riflar {@link #DEFINITIONS}da — metrika registri ham shularni o‘rnatilgan metrikalar sifatida oladi.
+ */
+public record FacilityMetrics(double expectedRevenue, double netProfit,
+                              double current, double capacity,
+                              double productAmount, double areaM2) {
+
+    // 🔑 Alias kalitlar (moslashuvchan o‘qish)
+    public static final List<String> REV_KEYS   = List.of("expectedRevenue", "revenue");
+    public static final List<String> PROF_KEYS  = List.of("netProfit", "profit");
+    public static final List<String> PROD_KEYS  = List.of("productAmount", "product_kg", "yieldAmount", "yield_amount", "eggs_per_day");
+    public static final List<String> AREA_KEYS  = List.of("areaM2", "area_m2"); // + totalAreaHa (maxsus)
+    public static final String TOTAL_AREA_HA = "totalAreaHa";
+    public static final String CURRENT_KEY  = "current";
+    public static final String CAPACITY_KEY = "capacity";
+
+    // O‘rnatilgan metrikalar: nom, birlik, alias’lar, tiplangan ustun (V3)
+    public static final MetricDefinition EXPECTED_REVENUE = builtin("expectedRevenue", "UZS", aliases(REV_KEYS), "expected_revenue");
+    public static final MetricDefinition NET_PROFIT       = builtin("netProfit", "UZS", aliases(PROF_KEYS), "net_profit");
+    public static final MetricDefinition CURRENT          = builtin("current", null, aliases(List.of(CURRENT_KEY)), "current_amount");
+    public static final MetricDefinition CAPACITY         = builtin("capacity", null, aliases(List.of(CAPACITY_KEY)), "capacity");
+    public static final MetricDefinition PRODUCT_AMOUNT   = builtin("productAmount", null, aliases(PROD_KEYS), "product_amount");
+    public static final MetricDefinition AREA_M2          = builtin("areaM2", "m2", Stream.concat(
+            aliases(AREA_KEYS).stream(), Stream.of(new MetricDefinition.Alias(TOTAL_AREA_HA, 10_000.0))).toList(), "area_m2");
+
+    public static final List<MetricDefinition> DEFINITIONS =
+            List.of(EXPECTED_REVENUE, NET_PROFIT, CURRENT, CAPACITY, PRODUCT_AMOUNT, AREA_M2);
+
+    private static final MetricDefinition.Extractor REV  = EXPECTED_REVENUE.compile();
+    private static final MetricDefinition.Extractor PROF = NET_PROFIT.compile();
+    private static final MetricDefinition.Extractor CUR  = CURRENT.compile();
+    private static final MetricDefinition.Extractor CAP  = CAPACITY.compile();
+    private static final MetricDefinition.Extractor PROD = PRODUCT_AMOUNT.compile();
+    private static final MetricDefinition.Extractor AREA = AREA_M2.compile();
+
+    public static final FacilityMetrics ZERO = new FacilityMetrics(0, 0, 0, 0, 0, 0);
+
+    public static FacilityMetrics of(JsonNode attrs) {
+        if (attrs == null || attrs.isNull()) return ZERO;
+        return new FacilityMetrics(
+                REV.applyAsDouble(attrs),
+                PROF.applyAsDouble(attrs),
+                CUR.applyAsDouble(attrs),
+                CAP.applyAsDouble(attrs),
+                PROD.applyAsDouble(attrs),
+                AREA.applyAsDouble(attrs)
+        );
+    }
+
+    private static MetricDefinition builtin(String name, String unit, List<MetricDefinition.Alias> aliases, String column) {
+        return new MetricDefinition(name, unit, aliases, null, column);
+    }
+
+    private static List<MetricDefinition.Alias> aliases(List<String> keys) {
+        return keys.stream().map(MetricDefinition.Alias::of).toList();
+    }
+}
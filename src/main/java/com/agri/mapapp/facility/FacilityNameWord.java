@@ -0,0 +1,23 @@
+package com.agri.mapapp.facility;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+/**
+ * Facility nomlaridagi so‘zlar lug‘ati (SearchNormalizer bilan normallashgan, kamida 3 belgi) — qidiruvda so‘rov
+ * so‘zlari shu kichik jadvalda kengaytiriladi ("issiq" → "issiqxona") va tuzatiladi ("isiqxona" → "issiqxona").
+ * Yozuvlar faqat FacilityNameWords orqali qo‘shiladi; eskirgan so‘zlar zararsiz (hech narsaga mos kelmaydi).
+ */
+@Entity
+@Table(name = "facility_name_word")
+@Getter @Setter @NoArgsConstructor @AllArgsConstructor
+public class FacilityNameWord {
+
+    @Id
+    @Column(columnDefinition = "text")
+    private String word;
+
+    /** Nomida shu so‘z bor obyektlar soni — taxminiy (davriy qayta sanaladi), yangi so‘z uchun 0 */
+    @Column(name = "facility_count", nullable = false)
+    private long facilityCount;
+}
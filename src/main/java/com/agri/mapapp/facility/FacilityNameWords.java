@@ -0,0 +1,110 @@
+package com.agri.mapapp.facility;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Repository;
+
+import java.util.*;
+
+/**
+ * facility_name_word — facility.name_norm’dagi barcha so‘zlar lug‘ati (kamida 3 belgi; trigram indeksli kichik jadval).
+ * Qidiruvda so‘rov so‘zi shu yerda kengaytiriladi: uni o‘z ichiga olgan so‘zlar (aniq) va o‘xshash so‘zlar (xato).
+ *  - nom yozilganda (create/put/patch, import, seeder) yangi so‘zlar facility_count = 0 bilan qo‘shiladi;
+ *  - recount() facility’dan sonlarni qayta hisoblaydi va yetishmagan so‘zlarni ham qo‘shadi (ishga tushgach
+ *    va davriy). Sonlar faqat qidiruv rejasini tanlash uchun — eskirgani natijaga ta’sir qilmaydi.
+ * So‘zlar o‘chirilmaydi: ortiqcha so‘z faqat bo‘sh natija beradi, yetishmagan so‘z esa natijani yo‘qotadi.
+ */
+@Slf4j
+@Repository
+@RequiredArgsConstructor
+public class FacilityNameWords {
+
+    public static final int MIN_LENGTH = 3;
+
+    /** Lug‘atdagi so‘z va uni nomida tutgan obyektlar soni (taxminiy) */
+    public record Match(String word, long facilityCount) {}
+
+    private static final RowMapper<Match> MATCH = (rs, i) -> new Match(rs.getString("word"), rs.getLong("facility_count"));
+
+    private static final String INSERT_SQL = """
+            INSERT INTO facility_name_word (word, facility_count)
+            SELECT unnest(CAST(:words AS text[])), 0
+            ON CONFLICT DO NOTHING
+            """;
+
+    private static final String RECOUNT_SQL = """
+            INSERT INTO facility_name_word (word, facility_count)
+            SELECT w, count(*) FROM facility f, unnest(string_to_array(f.name_norm, ' ')) AS w
+            WHERE length(w) >= 3
+            GROUP BY w
+            ON CONFLICT (word) DO UPDATE SET facility_count = EXCLUDED.facility_count
+            WHERE facility_name_word.facility_count <> EXCLUDED.facility_count
+            """;
+
+    private final NamedParameterJdbcTemplate jdbc;
+
+    /** Normallashgan nomlar so‘zlari (chaqiruvchi tranzaksiyasida, bitta so‘rov bilan) */
+    public void add(Collection<String> normalizedNames) {
+        Set<String> words = new LinkedHashSet<>();
+        for (String name : normalizedNames) {
+            if (name == null) continue;
+            for (String w : name.split(" ")) if (w.length() >= MIN_LENGTH) words.add(w);
+        }
+        if (words.isEmpty()) return;
+        jdbc.update(INSERT_SQL, new MapSqlParameterSource("words", words.toArray(String[]::new)));
+    }
+
+    /** token’ni o‘z ichiga olgan so‘zlar (LIKE '%token%'); max+1 ta qaytsa — token juda umumiy */
+    public List<Match> containing(String token, int max) {
+        return jdbc.query("""
+                SELECT word, facility_count FROM facility_name_word
+                WHERE word LIKE :pattern
+                LIMIT :n
+                """, new MapSqlParameterSource()
+                .addValue("pattern", "%" + token + "%")
+                .addValue("n", max + 1), MATCH);
+    }
+
+    /** Har bir token uchun eng o‘xshash n ta so‘z (similarity ≥ threshold), o‘zidan tashqari */
+    public Map<String, List<Match>> similar(Collection<String> tokens, double threshold, int n) {
+        MapSqlParameterSource p = new MapSqlParameterSource()
+                .addValue("threshold", Double.toString(threshold))
+                .addValue("n", n);
+        // % operatori chegarani GUC’dan oladi — faqat shu tranzaksiya uchun
+        jdbc.queryForObject("SELECT set_config('pg_trgm.similarity_threshold', :threshold, true)", p, String.class);
+
+        Map<String, List<Match>> out = new LinkedHashMap<>();
+        for (String t : tokens) {
+            p.addValue("t", t);
+            List<Match> words = jdbc.query("""
+                    SELECT word, facility_count FROM facility_name_word
+                    WHERE word % :t
+                    ORDER BY similarity(word, :t) DESC, word
+                    LIMIT :n
+                    """, p, MATCH);
+            out.put(t, words.stream().filter(m -> !m.word().equals(t)).toList());
+        }
+        return out;
+    }
+
+    @Scheduled(fixedDelayString = "${app.facility.search.recount-ms:3600000}",
+               initialDelayString = "${app.facility.search.recount-initial-delay-ms:30000}")
+    public void scheduledRecount() {
+        try {
+            long t0 = System.nanoTime();
+            int rows = recount();
+            log.debug("facility_name_word qayta sanaldi: {} so‘z yangilandi, {} ms", rows, (System.nanoTime() - t0) / 1_000_000);
+        } catch (Exception e) {
+            log.warn("facility_name_word’ni qayta sanab bo‘lmadi: {}", e.getMessage());
+        }
+    }
+
+    /** So‘zlar sonini facility’dan qayta hisoblaydi (yetishmagan so‘zlar qo‘shiladi); o‘zgargan qatorlar soni */
+    public int recount() {
+        return jdbc.getJdbcOperations().update(RECOUNT_SQL);
+    }
+}
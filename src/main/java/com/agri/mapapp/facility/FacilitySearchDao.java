@@ -0,0 +1,226 @@
+package com.agri.mapapp.facility;
+
+import com.agri.mapapp.facility.dto.FacilitySummaryRes;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * Nom bo‘yicha reytingli qidiruv. Har bir so‘rov so‘zi nomda (qism-satr sifatida) uchrashi kerak, tartibi farqsiz.
+ * So‘z avval facility_name_word lug‘atida kengaytiriladi (uni o‘z ichiga olgan so‘zlar + ularning soni), keyin:
+ *  - eng kam uchraydigan so‘z rare-rows’dan kam obyektda bo‘lsa — so‘zlar massivi GIN indeksi (&&) bilan:
+ *    indeks ishi shu so‘zli qatorlar soniga proporsional (trigram LIKE’da esa har trigramning hamma qatorlariga);
+ *  - hamma so‘zlar umumiy bo‘lsa — eng qisqa nomli probe-rows qator (idx_facility_name_norm_length) oddiy filtr bilan
+ *    ko‘riladi (mos qatorlar ko‘p, tez topiladi); yetmasa — yana indeks bilan (so‘zlar birga kam uchraydigan holat);
+ *  - lug‘atga sig‘maydigan so‘zlar (qisqa yoki expansions’dan ko‘p so‘zga mos) — faqat filtr, shu probe’dan keyin.
+ * Natija limit’dan kam bo‘lsa — xatoga chidamli bosqich: so‘zlarga lug‘atdan o‘xshash so‘zlar qo‘shiladi.
+ * Reyting: mos qatorlar arzon belgi bo‘yicha saralanib candidates tasi olinadi — so‘rov so‘zlaridan nechtasi nomda
+ * butun so‘z (word_similarity’da 1.0 ga eng yaqin), keyin qisqa nom, id; shu nomzodlar word_similarity(q, nom),
+ * qisqa nom, id bo‘yicha tartiblanadi. Taxminiylik: probe’da faqat eng qisqa nomlar ko‘riladi, nomzodlar chegarasidan
+ * keyin esa belgisi past, lekin o‘xshashligi yuqori (so‘zlar nomda ketma-ket kelgan) qator qolib ketishi mumkin.
+ */
+@Repository
+@RequiredArgsConstructor
+public class FacilitySearchDao {
+
+    private final NamedParameterJdbcTemplate jdbc;
+    private final FacilityNameWords words;
+
+    public record Options(double threshold, int corrections, int expansions, long rareRows, int probeRows,
+                          int candidates, int limit) {}
+
+    /**
+     * So‘rov so‘zi: patterns — nomda qism-satr sifatida qidiriladi (biri yetarli); words — lug‘atdagi mos so‘zlar
+     * (GIN indeksi uchun), null => indekssiz; rows — shu so‘zlar uchraydigan obyektlar soni (taxminiy).
+     */
+    private record Term(List<String> patterns, List<String> words, long rows) {
+        boolean indexed() {
+            return words != null;
+        }
+    }
+
+    private record Filter(Long orgId, FacilityType type, FacilityStatus status, Set<Long> allowedOrgIds) {}
+
+    private enum Mode { INDEX, PROBE, SCAN }
+
+    /** q — SearchNormalizer bilan normallashtirilgan; allowedOrgIds == null => cheklanmagan (ADMIN) */
+    @Transactional(readOnly = true)
+    public List<FacilitySummaryRes> search(String q, Long orgId, FacilityType type, FacilityStatus status,
+                                           Set<Long> allowedOrgIds, Options opt) {
+        if (allowedOrgIds != null && allowedOrgIds.isEmpty()) return List.of();
+        Filter filter = new Filter(orgId, type, status, allowedOrgIds);
+        List<String> tokens = List.copyOf(new LinkedHashSet<>(Arrays.asList(q.split(" "))));
+
+        // 1) aniq: lug‘atda mos so‘zi yo‘q so‘rov so‘zi bo‘lsa — aniq natija yo‘q
+        List<Term> exact = new ArrayList<>(tokens.size());
+        for (String t : tokens) {
+            if (t.length() < FacilityNameWords.MIN_LENGTH) {
+                exact.add(new Term(List.of(t), null, Long.MAX_VALUE));
+                continue;
+            }
+            List<FacilityNameWords.Match> found = words.containing(t, opt.expansions());
+            exact.add(found.size() > opt.expansions()
+                    ? new Term(List.of(t), null, Long.MAX_VALUE)
+                    : new Term(List.of(t), wordsOf(found), rowsOf(found)));
+        }
+        List<FacilitySummaryRes> hits = find(q, exact, filter, Set.of(), opt, opt.limit());
+        if (hits.size() >= opt.limit()) return hits;
+
+        // 2) xatoga chidamli: lug‘atdagi (harfli) so‘zlarga o‘xshash so‘zlar qo‘shiladi
+        List<String> fuzzyTokens = new ArrayList<>();
+        for (int i = 0; i < tokens.size(); i++) {
+            if (exact.get(i).indexed() && hasLetter(tokens.get(i))) fuzzyTokens.add(tokens.get(i));
+        }
+        if (fuzzyTokens.isEmpty()) return hits;
+        Map<String, List<FacilityNameWords.Match>> similar =
+                words.similar(fuzzyTokens, opt.threshold(), opt.corrections());
+        if (similar.values().stream().allMatch(List::isEmpty)) return hits;
+
+        List<Term> fuzzy = new ArrayList<>(tokens.size());
+        for (int i = 0; i < tokens.size(); i++) {
+            Term t = exact.get(i);
+            List<FacilityNameWords.Match> extra = similar.getOrDefault(tokens.get(i), List.of());
+            if (extra.isEmpty()) {
+                fuzzy.add(t);
+                continue;
+            }
+            List<String> patterns = new ArrayList<>(t.patterns());
+            patterns.addAll(wordsOf(extra));
+            Set<String> all = new LinkedHashSet<>(t.words());
+            all.addAll(wordsOf(extra));
+            fuzzy.add(new Term(patterns, List.copyOf(all), t.rows() + rowsOf(extra)));
+        }
+        Set<Long> seen = new HashSet<>();
+        for (FacilitySummaryRes r : hits) seen.add(r.getId());
+        hits.addAll(find(q, fuzzy, filter, seen, opt, opt.limit() - hits.size()));
+        return hits;
+    }
+
+    /** Reja tanlash: kam uchraydigan so‘z => indeks; hammasi umumiy yoki indekssiz => probe, yetmasa indeks/scan */
+    private List<FacilitySummaryRes> find(String q, List<Term> terms, Filter filter, Set<Long> excludeIds,
+                                          Options opt, int limit) {
+        if (terms.stream().anyMatch(t -> t.indexed() && t.words().isEmpty())) return new ArrayList<>();
+        long rarest = terms.stream().filter(Term::indexed).mapToLong(Term::rows).min().orElse(-1);
+        if (rarest < 0 || rarest > opt.rareRows()) {
+            List<FacilitySummaryRes> probe = query(Mode.PROBE, q, terms, filter, excludeIds, opt, limit);
+            if (probe.size() >= limit) return probe;
+        }
+        return query(rarest < 0 ? Mode.SCAN : Mode.INDEX, q, terms, filter, excludeIds, opt, limit);
+    }
+
+    private List<FacilitySummaryRes> query(Mode mode, String q, List<Term> terms, Filter filter,
+                                           Set<Long> excludeIds, Options opt, int limit) {
+        MapSqlParameterSource p = new MapSqlParameterSource()
+                .addValue("q", q)
+                .addValue("probe", opt.probeRows())
+                .addValue("candidates", Math.max(opt.candidates(), limit))
+                .addValue("limit", limit);
+        StringJoiner where = new StringJoiner(" AND ");
+        StringJoiner wholeWords = new StringJoiner(" + ");
+        for (int i = 0; i < terms.size(); i++) {
+            Term t = terms.get(i);
+            // birinchi pattern — so‘rovdagi so‘zning o‘zi (fuzzy qo‘shimchalar undan keyin)
+            p.addValue("x" + i, t.patterns().get(0));
+            wholeWords.add("(CASE WHEN :x" + i + " = ANY(string_to_array(f.name_norm, ' ')) THEN 1 ELSE 0 END)");
+            if (mode == Mode.INDEX && t.indexed()) {
+                p.addValue("w" + i, t.words().toArray(String[]::new));
+                where.add("string_to_array(f.name_norm, ' ') && CAST(:w" + i + " AS text[])");
+                continue;
+            }
+            StringJoiner any = new StringJoiner(" OR ", "(", ")");
+            for (int j = 0; j < t.patterns().size(); j++) {
+                String name = "t" + i + "_" + j;
+                if (mode == Mode.SCAN) {
+                    // indeksli so‘z yo‘q — trigram indeksi yoki seq scan’ni planner tanlaydi
+                    p.addValue(name, "%" + t.patterns().get(j) + "%");
+                    any.add("f.name_norm LIKE :" + name);
+                } else {
+                    // indeksga tushmaydigan arzon tekshiruv
+                    p.addValue(name, t.patterns().get(j));
+                    any.add("strpos(f.name_norm, :" + name + ") > 0");
+                }
+            }
+            where.add(any.toString());
+        }
+        if (filter.allowedOrgIds() != null) {
+            p.addValue("allowed", filter.allowedOrgIds());
+            where.add("f.org_id IN (:allowed)");
+        }
+        if (filter.orgId() != null) {
+            p.addValue("orgId", filter.orgId());
+            where.add("f.org_id = :orgId");
+        }
+        if (filter.type() != null) {
+            p.addValue("type", filter.type().name());
+            where.add("f.type = :type");
+        }
+        if (filter.status() != null) {
+            p.addValue("status", filter.status().name());
+            where.add("f.status = :status");
+        }
+        if (!excludeIds.isEmpty()) {
+            p.addValue("exclude", excludeIds);
+            where.add("f.id NOT IN (:exclude)");
+        }
+        // INDEX: planner so‘zlarni mustaqil deb hisoblab LIMIT bilan seq scan tanlashi mumkin — so‘zlar birga kam
+        // uchrasa butun jadval o‘qiladi; GIN esa kesishmani eng kam uchraydigan so‘zdan boshlab hisoblaydi
+        p.addValue("seqscan", mode == Mode.INDEX ? "off" : "on");
+        jdbc.queryForObject("SELECT set_config('enable_seqscan', :seqscan, true)", p, String.class);
+        String source = mode == Mode.PROBE
+                ? "(SELECT * FROM facility ORDER BY length(name_norm), id LIMIT :probe)"
+                : "facility";
+        // nomzodlar arzon belgi bo‘yicha (trigram hisobisiz) saralanib kesiladi: top-N heapsort, xotira candidates ta
+        String sql = """
+                SELECT c.id, c.org_id, o.name AS org_name, c.name, c.type, c.status, c.lat, c.lng, c.created_at,
+                       word_similarity(:q, c.name_norm) AS score
+                FROM (
+                    SELECT f.id, f.org_id, f.name, f.name_norm, f.type, f.status, f.lat, f.lng, f.created_at
+                    FROM %s f
+                    WHERE %s
+                    ORDER BY %s DESC, length(f.name_norm), f.id
+                    LIMIT :candidates
+                ) c
+                JOIN org_unit o ON o.id = c.org_id
+                ORDER BY score DESC, length(c.name_norm), c.id
+                LIMIT :limit
+                """.formatted(source, where, wholeWords);
+
+        return jdbc.query(sql, p, (rs, i) -> {
+            FacilitySummaryRes r = new FacilitySummaryRes(
+                    rs.getLong("id"),
+                    rs.getLong("org_id"),
+                    rs.getString("org_name"),
+                    rs.getString("name"),
+                    FacilityType.valueOf(rs.getString("type")),
+                    FacilityStatus.valueOf(rs.getString("status")),
+                    (Double) rs.getObject("lat"),
+                    (Double) rs.getObject("lng"),
+                    rs.getObject("created_at", LocalDateTime.class));
+            r.setScore(rs.getDouble("score"));
+            return r;
+        });
+    }
+
+    private static List<String> wordsOf(List<FacilityNameWords.Match> matches) {
+        return matches.stream().map(FacilityNameWords.Match::word).toList();
+    }
+
+    private static long rowsOf(List<FacilityNameWords.Match> matches) {
+        long sum = 0;
+        for (FacilityNameWords.Match m : matches) sum += m.facilityCount();
+        return sum;
+    }
+
+    private static boolean hasLetter(String s) {
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c >= 'a' && c <= 'z') return true;
+        }
+        return false;
+    }
+}
@@ -1,22 +1,33 @@
 package com.agri.mapapp.facility;
 
+import com.agri.mapapp.common.CursorPage;
 import com.agri.mapapp.common.PageResponse;
+import com.agri.mapapp.common.SearchNormalizer;
 import com.agri.mapapp.facility.dto.FacilityCreateReq;
 import com.agri.mapapp.facility.dto.FacilityPatchReq;
 import com.agri.mapapp.facility.dto.FacilityPutReq;
 import com.agri.mapapp.facility.dto.FacilityRes;
+import com.agri.mapapp.facility.dto.FacilitySummaryRes;
 import com.agri.mapapp.facility.validation.FacilityAttributesValidator;
 import com.agri.mapapp.org.OrganizationUnitRepository;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.domain.Specification;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.server.ResponseStatusException;
 
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 @Service
@@ -26,6 +37,30 @@ public class FacilityService {
     private final FacilityRepository repo;
     private final OrganizationUnitRepository orgRepo;
     private final FacilityAttributesValidator validator;
+    private final ApplicationEventPublisher events;
+    private final FacilitySearchDao searchDao;
+    private final FacilityNameWords nameWords;
+
+    @Value("${app.facility.search.expansions:100}")
+    private int searchExpansions;
+
+    @Value("${app.facility.search.threshold:0.4}")
+    private double searchThreshold;
+
+    @Value("${app.facility.search.corrections:5}")
+    private int searchCorrections;
+
+    @Value("${app.facility.search.rare-rows:5000}")
+    private long searchRareRows;
+
+    @Value("${app.facility.search.probe-rows:20000}")
+    private int searchProbeRows;
+
+    @Value("${app.facility.search.candidates:100}")
+    private int searchCandidates;
+
+    @Value("${app.facility.search.max-limit:100}")
+    private int searchMaxLimit;
 
     /* ==================== LIST (OLD) ==================== */
 
@@ -57,18 +92,76 @@ public class FacilityService {
             Pageable pageable,
             Set<Long> allowedOrgIds
     ) {
-        Specification<Facility> spec = Specification
-                .where(FacilitySpecs.orgEq(orgId))             // aniq orgId bo‘lsa
-                .and(FacilitySpecs.orgIn(allowedOrgIds))       // foydalanuvchi scope’i
-                .and(FacilitySpecs.typeEq(type))
-                .and(FacilitySpecs.statusEq(status))
-                .and(FacilitySpecs.nameLike(q));
-
-        Page<Facility> page = repo.findAll(spec, pageable);
+        Page<Facility> page = repo.findAll(listSpec(orgId, type, status, q, allowedOrgIds), pageable);
         Page<FacilityRes> mapped = page.map(this::toRes);
         return PageResponse.of(mapped);
     }
 
+    // Keyset varianti (scope bilan): OFFSET va count(*) yo‘q — sahifa narxi sahifa hajmiga bog‘liq
+    public CursorPage<FacilityRes> scrollFacilities(
+            Long orgId,
+            FacilityType type,
+            FacilityStatus status,
+            String q,
+            Sort sort,
+            int size,
+            String cursor,
+            boolean withTotal,
+            Set<Long> allowedOrgIds
+    ) {
+        return scroll(listSpec(orgId, type, status, q, allowedOrgIds), sort, size, cursor, withTotal);
+    }
+
+    // view=summary: DTO projeksiyasi (jsonb’siz, org nomi JOIN bilan)
+    public PageResponse<FacilitySummaryRes> getFacilitiesSummaryPage(
+            Long orgId,
+            FacilityType type,
+            FacilityStatus status,
+            String q,
+            Pageable pageable,
+            Set<Long> allowedOrgIds
+    ) {
+        return PageResponse.of(repo.findSummaries(listSpec(orgId, type, status, q, allowedOrgIds), pageable));
+    }
+
+    public CursorPage<FacilitySummaryRes> scrollFacilitiesSummary(
+            Long orgId,
+            FacilityType type,
+            FacilityStatus status,
+            String q,
+            Sort sort,
+            int size,
+            String cursor,
+            boolean withTotal,
+            Set<Long> allowedOrgIds
+    ) {
+        return scrollSummary(listSpec(orgId, type, status, q, allowedOrgIds), sort, size, cursor, withTotal);
+    }
+
+    private static Specification<Facility> listSpec(Long orgId, FacilityType type, FacilityStatus status,
+                                                    String q, Set<Long> allowedOrgIds) {
+        return Specification.allOf(
+                FacilitySpecs.orgEq(orgId),                    // aniq orgId bo‘lsa
+                FacilitySpecs.orgIn(allowedOrgIds),            // foydalanuvchi scope’i
+                FacilitySpecs.typeEq(type),
+                FacilitySpecs.statusEq(status),
+                FacilitySpecs.nameLike(q));
+    }
+
+    /* -------- nom bo‘yicha qidiruv (reytingli, xatoga chidamli) -------- */
+
+    public List<FacilitySummaryRes> search(String q, Long orgId, FacilityType type, FacilityStatus status,
+                                           int limit, Set<Long> allowedOrgIds) {
+        String norm = SearchNormalizer.normalize(q);
+        if (norm.length() < 2) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "q must contain at least 2 letters or digits");
+        }
+        int n = Math.max(1, Math.min(limit, searchMaxLimit));
+        return searchDao.search(norm, orgId, type, status, allowedOrgIds,
+                new FacilitySearchDao.Options(searchThreshold, searchCorrections, searchExpansions,
+                searchRareRows, searchProbeRows, searchCandidates, n));
+    }
+
     /* -------- all (time window, types) -------- */
 
     // Eski varianti (scope’siz) — orqaga moslik uchun qoldirildi
@@ -99,18 +192,97 @@ public class FacilityService {
                                                       Pageable pageable,
                                                       Set<Long> allowedOrgIds) {
 
-        Specification<Facility> spec = Specification.where(
-                        FacilitySpecs.orgEq(orgId))              // aniq orgId bo‘lsa
-                .and(FacilitySpecs.orgIn(allowedOrgIds))        // foydalanuvchi scope’i
-                .and(FacilitySpecs.typeIn(types))
-                .and(FacilitySpecs.statusEq(status))
-                .and(FacilitySpecs.createdBetween(from, to));
-
-        Page<Facility> page = repo.findAll(spec, pageable);
+        Page<Facility> page = repo.findAll(allSpec(orgId, types, status, from, to, allowedOrgIds), pageable);
         Page<FacilityRes> mapped = page.map(this::toRes);
         return PageResponse.of(mapped);
     }
 
+    // Keyset varianti (scope bilan)
+    public CursorPage<FacilityRes> scrollAllFacilities(Long orgId,
+                                                       Collection<FacilityType> types,
+                                                       FacilityStatus status,
+                                                       LocalDateTime from,
+                                                       LocalDateTime to,
+                                                       Sort sort,
+                                                       int size,
+                                                       String cursor,
+                                                       boolean withTotal,
+                                                       Set<Long> allowedOrgIds) {
+        return scroll(allSpec(orgId, types, status, from, to, allowedOrgIds), sort, size, cursor, withTotal);
+    }
+
+    // view=summary variantlari
+    public PageResponse<FacilitySummaryRes> getAllFacilitiesSummary(Long orgId,
+                                                                    Collection<FacilityType> types,
+                                                                    FacilityStatus status,
+                                                                    LocalDateTime from,
+                                                                    LocalDateTime to,
+                                                                    Pageable pageable,
+                                                                    Set<Long> allowedOrgIds) {
+        return PageResponse.of(repo.findSummaries(allSpec(orgId, types, status, from, to, allowedOrgIds), pageable));
+    }
+
+    public CursorPage<FacilitySummaryRes> scrollAllFacilitiesSummary(Long orgId,
+                                                                     Collection<FacilityType> types,
+                                                                     FacilityStatus status,
+                                                                     LocalDateTime from,
+                                                                     LocalDateTime to,
+                                                                     Sort sort,
+                                                                     int size,
+                                                                     String cursor,
+                                                                     boolean withTotal,
+                                                                     Set<Long> allowedOrgIds) {
+        return scrollSummary(allSpec(orgId, types, status, from, to, allowedOrgIds), sort, size, cursor, withTotal);
+    }
+
+    private static Specification<Facility> allSpec(Long orgId, Collection<FacilityType> types, FacilityStatus status,
+                                                   LocalDateTime from, LocalDateTime to, Set<Long> allowedOrgIds) {
+        return Specification.allOf(
+                FacilitySpecs.orgEq(orgId),                    // aniq orgId bo‘lsa
+                FacilitySpecs.orgIn(allowedOrgIds),            // foydalanuvchi scope’i
+                FacilitySpecs.typeIn(types),
+                FacilitySpecs.statusEq(status),
+                FacilitySpecs.createdBetween(from, to));
+    }
+
+    /* -------- keyset (seek) -------- */
+
+    /**
+     * size + 1 qator o‘qiladi (keyingi sahifa bormi — count’siz); org bitta JOIN bilan (N+1 yo‘q).
+     * withTotal=true bo‘lsagina count(*) — UI "jami" ko‘rsatishi kerak bo‘lganda.
+     */
+    private CursorPage<FacilityRes> scroll(Specification<Facility> filter, Sort sort, int size,
+                                           String cursor, boolean withTotal) {
+        FacilityCursor.Order order = FacilityCursor.Order.of(sort);
+        FacilityCursor after = FacilityCursor.decode(cursor, order);
+
+        List<Facility> rows = repo.findBy(filter.and(FacilitySpecs.seekAfter(after)),
+                q -> q.sortBy(order.sort()).limit(size + 1).project("org").all());
+        return cursorPage(rows, size, last -> FacilityCursor.after(last, order), this::toRes,
+                withTotal ? () -> repo.count(filter) : null);
+    }
+
+    /** scroll() bilan bir xil qoidalar, lekin qatorlar DTO projeksiyasidan */
+    private CursorPage<FacilitySummaryRes> scrollSummary(Specification<Facility> filter, Sort sort, int size,
+                                                         String cursor, boolean withTotal) {
+        FacilityCursor.Order order = FacilityCursor.Order.of(sort);
+        FacilityCursor after = FacilityCursor.decode(cursor, order);
+
+        List<FacilitySummaryRes> rows = repo.findSummaries(filter.and(FacilitySpecs.seekAfter(after)),
+                order.sort(), size + 1);
+        return cursorPage(rows, size, last -> FacilityCursor.after(last, order), Function.identity(),
+                withTotal ? () -> repo.count(filter) : null);
+    }
+
+    private static <T, R> CursorPage<R> cursorPage(List<T> rows, int size, Function<T, FacilityCursor> cursorOf,
+                                                   Function<T, R> mapper, Supplier<Long> total) {
+        boolean hasNext = rows.size() > size;
+        if (hasNext) rows = rows.subList(0, size);
+        String next = hasNext ? cursorOf.apply(rows.get(rows.size() - 1)).encode() : null;
+        return new CursorPage<>(rows.stream().map(mapper).toList(), size, next, hasNext,
+                total == null ? null : total.get());
+    }
+
     /* ==================== CRUD ==================== */
 
     public FacilityRes get(Long id) {
@@ -118,6 +290,7 @@ public class FacilityService {
         return toRes(f);
     }
 
+    @Transactional
     public FacilityRes create(FacilityCreateReq req) {
         var org = orgRepo.findById(req.getOrgId())
                 .orElseThrow(() -> new IllegalArgumentException("Org not found: " + req.getOrgId()));
@@ -137,11 +310,15 @@ public class FacilityService {
 
         validator.validate(f.getType(), f.getAttributes());
         repo.save(f);
+        nameWords.add(List.of(SearchNormalizer.normalize(f.getName())));
+        events.publishEvent(FacilityChangedEvent.of(null, FacilitySnapshot.of(f)));
         return toRes(f);
     }
 
+    @Transactional
     public FacilityRes put(Long id, FacilityPutReq req) {
         Facility f = repo.findById(id).orElseThrow(() -> new IllegalArgumentException("Facility not found: " + id));
+        FacilitySnapshot before = FacilitySnapshot.of(f);
         var org = orgRepo.findById(req.getOrgId())
                 .orElseThrow(() -> new IllegalArgumentException("Org not found: " + req.getOrgId()));
 
@@ -158,11 +335,15 @@ public class FacilityService {
 
         validator.validate(f.getType(), f.getAttributes());
         repo.save(f);
+        nameWords.add(List.of(SearchNormalizer.normalize(f.getName())));
+        events.publishEvent(FacilityChangedEvent.of(before, FacilitySnapshot.of(f)));
         return toRes(f);
     }
 
+    @Transactional
     public FacilityRes patch(Long id, FacilityPatchReq req) {
         Facility f = repo.findById(id).orElseThrow(() -> new IllegalArgumentException("Facility not found: " + id));
+        FacilitySnapshot before = FacilitySnapshot.of(f);
 
         if (req.getOrgId() != null) {
             var org = orgRepo.findById(req.getOrgId())
@@ -184,12 +365,17 @@ public class FacilityService {
 
         validator.validate(f.getType(), f.getAttributes());
         repo.save(f);
+        nameWords.add(List.of(SearchNormalizer.normalize(f.getName())));
+        events.publishEvent(FacilityChangedEvent.of(before, FacilitySnapshot.of(f)));
         return toRes(f);
     }
 
+    @Transactional
     public void delete(Long id) {
         Facility f = repo.findById(id).orElseThrow(() -> new IllegalArgumentException("Facility not found: " + id));
+        FacilitySnapshot before = FacilitySnapshot.of(f);
         repo.delete(f);
+        events.publishEvent(FacilityChangedEvent.of(before, null));
     }
 
     /* ==================== Helpers ==================== */
@@ -212,7 +398,8 @@ public class FacilityService {
                 .build();
     }
 
-    private JsonNode deepMerge(JsonNode target, JsonNode updates) {
+    /** attributes PATCH semantikasi (ommaviy attributes patch ham shu qoidadan foydalanadi) */
+    public static JsonNode deepMerge(JsonNode target, JsonNode updates) {
         // target yo‘q bo‘lsa - to‘g‘ridan-to‘g‘ri updates
         if (target == null) return updates;
         // Ikkalasi ham object bo‘lsa, maydonlar bo‘yicha mergelaymiz
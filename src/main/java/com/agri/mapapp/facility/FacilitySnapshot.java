@@ -0,0 +1,19 @@
+package com.agri.mapapp.facility;
+
+import java.time.LocalDateTime;
+
+/** Facility’ning statistikaga ta’sir qiladigan holati (o‘zgarishdan oldin/keyin) */
+public record FacilitySnapshot(Long id, Long orgId, FacilityType type, FacilityStatus status,
+                               LocalDateTime createdAt, FacilityMetrics metrics) {
+
+    public static FacilitySnapshot of(Facility f) {
+        return new FacilitySnapshot(
+                f.getId(),
+                f.getOrg() != null ? f.getOrg().getId() : null,
+                f.getType(),
+                f.getStatus(),
+                f.getCreatedAt(),
+                FacilityMetrics.of(f.getAttributes())
+        );
+    }
+}
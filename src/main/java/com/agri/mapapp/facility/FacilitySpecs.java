@@ -1,6 +1,9 @@
 // src/main/java/com/agri/mapapp/facility/FacilitySpecs.java
 package com.agri.mapapp.facility;
 
+import com.agri.mapapp.common.SearchNormalizer;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
 import org.springframework.data.jpa.domain.Specification;
 
 import java.time.LocalDateTime;
@@ -47,10 +50,36 @@ public final class FacilitySpecs {
         return (root, cq, cb) -> type == null ? null : cb.equal(root.get("type"), type);
     }
 
+    /**
+     * Nom ichida qidirish: name_norm LIKE '%q%' (ikkalasi ham SearchNormalizer bilan) — trigram GIN indeksi ishlatiladi.
+     * Apostrof/kirill farqlari e’tiborga olinmaydi; normallashgan q’da LIKE maxsus belgilari (% _) qolmaydi.
+     */
     public static Specification<Facility> nameLike(String q) {
         return (root, cq, cb) -> {
-            if (q == null || q.trim().isEmpty()) return null;
-            return cb.like(cb.lower(root.get("name")), "%" + q.toLowerCase().trim() + "%");
+            String norm = SearchNormalizer.normalize(q);
+            if (norm.isEmpty()) return null;
+            return cb.like(root.get("nameNorm"), "%" + norm + "%");
+        };
+    }
+
+    /**
+     * Keyset: (kalit, id) kursordan keyin (sort yo‘nalishida). Kalit bo‘yicha "&gt;=" sharti alohida —
+     * indeks diapazonini cheklaydi; OR faqat bir xil kalitli qatorlar ichida id’ni solishtiradi.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public static Specification<Facility> seekAfter(FacilityCursor c) {
+        return (root, cq, cb) -> {
+            if (c == null) return null;
+            boolean asc = c.order().direction().isAscending();
+            Path<Long> id = root.get("id");
+            Predicate idAfter = asc ? cb.greaterThan(id, c.id()) : cb.lessThan(id, c.id());
+            if (c.order().key() == FacilityCursor.SortKey.ID) return idAfter;
+
+            Path<Comparable> key = root.get(c.order().key().property);
+            Comparable v = c.value();
+            return cb.and(
+                    asc ? cb.greaterThanOrEqualTo(key, v) : cb.lessThanOrEqualTo(key, v),
+                    cb.or(asc ? cb.greaterThan(key, v) : cb.lessThan(key, v), idAfter));
         };
     }
 
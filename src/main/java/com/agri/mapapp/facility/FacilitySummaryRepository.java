@@ -0,0 +1,19 @@
+package com.agri.mapapp.facility;
+
+import com.agri.mapapp.facility.dto.FacilitySummaryRes;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.List;
+
+/** FacilityRepository fragmenti: Specification bilan ro‘yxatning yengil (summary) projeksiyasi */
+public interface FacilitySummaryRepository {
+
+    /** Offset sahifa; count faqat kerak bo‘lganda (oxirgi/to‘liq bo‘lmagan sahifada so‘ralmaydi) */
+    Page<FacilitySummaryRes> findSummaries(Specification<Facility> spec, Pageable pageable);
+
+    /** Keyset uchun: birinchi limit qator (sort bo‘yicha) */
+    List<FacilitySummaryRes> findSummaries(Specification<Facility> spec, Sort sort, int limit);
+}
@@ -0,0 +1,67 @@
+package com.agri.mapapp.facility;
+
+import com.agri.mapapp.facility.dto.FacilitySummaryRes;
+import com.agri.mapapp.org.OrganizationUnit;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+import jakarta.persistence.criteria.*;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+import org.springframework.data.support.PageableExecutionUtils;
+
+import java.util.List;
+
+/**
+ * SELECT f.id, o.id, o.name, f.name, f.type, f.status, f.lat, f.lng, f.created_at
+ * FROM facility f JOIN org_unit o ... — entity yuklanmaydi (persistence context’ga tushmaydi),
+ * jsonb ustunlar o‘qilmaydi, org proxy’lari bo‘yicha N+1 yo‘q.
+ */
+class FacilitySummaryRepositoryImpl implements FacilitySummaryRepository {
+
+    @PersistenceContext
+    private EntityManager em;
+
+    @Override
+    public Page<FacilitySummaryRes> findSummaries(Specification<Facility> spec, Pageable pageable) {
+        TypedQuery<FacilitySummaryRes> query = query(spec, pageable.getSort());
+        if (pageable.isPaged()) {
+            query.setFirstResult((int) pageable.getOffset());
+            query.setMaxResults(pageable.getPageSize());
+        }
+        return PageableExecutionUtils.getPage(query.getResultList(), pageable, () -> count(spec));
+    }
+
+    @Override
+    public List<FacilitySummaryRes> findSummaries(Specification<Facility> spec, Sort sort, int limit) {
+        return query(spec, sort).setMaxResults(limit).getResultList();
+    }
+
+    private TypedQuery<FacilitySummaryRes> query(Specification<Facility> spec, Sort sort) {
+        CriteriaBuilder cb = em.getCriteriaBuilder();
+        CriteriaQuery<FacilitySummaryRes> cq = cb.createQuery(FacilitySummaryRes.class);
+        Root<Facility> f = cq.from(Facility.class);
+        Join<Facility, OrganizationUnit> org = f.join("org");
+
+        cq.select(cb.construct(FacilitySummaryRes.class,
+                f.get("id"), org.get("id"), org.get("name"), f.get("name"), f.get("type"),
+                f.get("status"), f.get("lat"), f.get("lng"), f.get("createdAt")));
+        Predicate where = spec.toPredicate(f, cq, cb);
+        if (where != null) cq.where(where);
+        if (sort.isSorted()) cq.orderBy(QueryUtils.toOrders(sort, f, cb));
+        return em.createQuery(cq);
+    }
+
+    private long count(Specification<Facility> spec) {
+        CriteriaBuilder cb = em.getCriteriaBuilder();
+        CriteriaQuery<Long> cq = cb.createQuery(Long.class);
+        Root<Facility> f = cq.from(Facility.class);
+        cq.select(cb.count(f));
+        Predicate where = spec.toPredicate(f, cq, cb);
+        if (where != null) cq.where(where);
+        return em.createQuery(cq).getSingleResult();
+    }
+}
@@ -0,0 +1,16 @@
+package com.agri.mapapp.facility;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+/** Ro‘yxat ko‘rinishi: full — to‘liq FacilityRes (attributes/geometry bilan), summary — FacilitySummaryRes */
+public enum FacilityView {
+    FULL, SUMMARY;
+
+    /** null/bo‘sh => full; katta-kichik harf farqsiz */
+    public static FacilityView of(String s) {
+        if (s == null || s.isBlank()) return FULL;
+        for (FacilityView v : values()) if (v.name().equalsIgnoreCase(s.trim())) return v;
+        throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "view must be full or summary; got: " + s);
+    }
+}
@@ -0,0 +1,107 @@
+package com.agri.mapapp.facility;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.math.BigDecimal;
+import java.util.*;
+import java.util.function.ToDoubleFunction;
+import java.util.regex.Pattern;
+
+/**
+ * attributes’dan olinadigan ko‘rsatkich ta’rifi.
+ *  - aliases: tartib bilan; birinchi mavjud (null bo‘lmagan) kalit g‘olib, qiymat factor’ga ko‘paytiriladi
+ *    (masalan totalAreaHa*10000 → m²);
+ *  - types: qaysi facility turlariga tegishli (null/bo‘sh => barchasi);
+ *  - column: facility’dagi tiplangan ustun (bo‘lsa — SQL’da jsonb o‘qilmaydi).
+ * {@link #compile()} bir marta chaqiriladi; natija har bir qatorda xarita/ro‘yxat yaratmasdan o‘qiydi.
+ */
+public record MetricDefinition(String name, String unit, List<Alias> aliases,
+                               Set<FacilityType> types, String column) {
+
+    /** Attribute kalitlari: harf/raqam/_ (SQL va "key*factor" yozuvi uchun xavfsiz) */
+    public static final Pattern KEY = Pattern.compile("[A-Za-z_][A-Za-z0-9_]{0,63}");
+
+    /**
+     * Son deb hisoblanadigan matn: V3 backfill (facility_metric_num) va SQL yig‘ish yo‘li bilan bir xil ifoda.
+     * Double.parseDouble qabul qiladigan "NaN", "Infinity", "1d", "0x1p3" kabilar — son emas (0).
+     */
+    public static final Pattern NUMERIC_TEXT = Pattern.compile("\\s*[-+]?([0-9]+\\.?[0-9]*|\\.[0-9]+)([eE][-+]?[0-9]+)?\\s*");
+
+    public record Alias(String key, double factor) {
+
+        public static Alias of(String key) {
+            return new Alias(key, 1.0);
+        }
+
+        /** "key" yoki "key*factor" */
+        public static Alias parse(String s) {
+            int star = s.indexOf('*');
+            if (star < 0) return of(s.trim());
+            return new Alias(s.substring(0, star).trim(), Double.parseDouble(s.substring(star + 1).trim()));
+        }
+
+        @Override
+        public String toString() {
+            return factor == 1.0 ? key : key + "*" + BigDecimal.valueOf(factor).stripTrailingZeros().toPlainString();
+        }
+    }
+
+    public MetricDefinition {
+        aliases = List.copyOf(aliases);
+        types = (types == null || types.isEmpty()) ? null : Collections.unmodifiableSet(EnumSet.copyOf(types));
+    }
+
+    public boolean appliesTo(FacilityType type) {
+        return types == null || types.contains(type);
+    }
+
+    public Extractor compile() {
+        return new Extractor(this);
+    }
+
+    /**
+     * Kompilyatsiya qilingan o‘quvchi: kalitlar/ko‘paytuvchilar massivda.
+     * Qoida: son -> double, {@link #NUMERIC_TEXT}ga mos matn -> parse (bo‘lmasa 0), boshqa turlar -> 0;
+     * hech bir kalit yo‘q -> 0.
+     */
+    public static final class Extractor implements ToDoubleFunction<JsonNode> {
+        private final String[] keys;
+        private final double[] factors;
+
+        private Extractor(MetricDefinition def) {
+            int n = def.aliases().size();
+            this.keys = new String[n];
+            this.factors = new double[n];
+            for (int i = 0; i < n; i++) {
+                keys[i] = def.aliases().get(i).key();
+                factors[i] = def.aliases().get(i).factor();
+            }
+        }
+
+        @Override
+        public double applyAsDouble(JsonNode attrs) {
+            if (attrs == null || attrs.isNull()) return 0.0;
+            for (int i = 0; i < keys.length; i++) {
+                JsonNode n = attrs.get(keys[i]);
+                if (n != null && !n.isNull()) {
+                    double v = read(n);
+                    return factors[i] == 1.0 ? v : v * factors[i];
+                }
+            }
+            return 0.0;
+        }
+
+        private static double read(JsonNode n) {
+            if (n.isNumber()) return n.asDouble();
+            if (n.isTextual()) return parseDouble(n.asText());
+            // boshqa turlar uchun – e’tibor bermaymiz
+            return 0.0;
+        }
+
+        private static double parseDouble(String s) {
+            if (s == null || !NUMERIC_TEXT.matcher(s).matches()) return 0.0;
+            double v = Double.parseDouble(s.trim());
+            return Double.isFinite(v) ? v : 0.0; // "1e400": PostgreSQL cast’i ham qabul qilmaydi
+        }
+    }
+}
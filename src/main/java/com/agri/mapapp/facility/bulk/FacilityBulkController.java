@@ -0,0 +1,91 @@
+package com.agri.mapapp.facility.bulk;
+
+import com.agri.mapapp.facility.FacilityStatus;
+import com.agri.mapapp.facility.FacilityType;
+import com.agri.mapapp.facility.dto.FacilityBulkReq;
+import com.agri.mapapp.facility.dto.FacilityBulkRes;
+import com.agri.mapapp.org.AccessService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Ommaviy amallar. Tanlov: tanadagi ids va/yoki /api/facilities/all bilan bir xil query filtrlari
+ * (orgId, types, status, from, to); ikkalasi ham bo‘lmasa — 400. Scope (ADMIN => hammasi, USER => subtree) majburiy.
+ *
+ * Misollar:
+ *   POST /api/facilities/bulk/status?orgId=12&types=GREENHOUSE      {"status":"UNDER_MAINTENANCE"}
+ *   POST /api/facilities/bulk/reassign                              {"ids":[1,2,3],"targetOrgId":7}
+ *   POST /api/facilities/bulk/attributes?status=ACTIVE              {"attributes":{"note":"Tekshirildi"}}
+ *   POST /api/facilities/bulk/delete?orgId=12&status=INACTIVE
+ */
+@RestController
+@RequestMapping("/api/facilities/bulk")
+@RequiredArgsConstructor
+public class FacilityBulkController {
+
+    private final FacilityBulkService service;
+    private final AccessService accessService;
+
+    @PostMapping("/status")
+    public FacilityBulkRes status(Authentication auth,
+                                  @RequestParam(required = false) Long orgId,
+                                  @RequestParam(required = false) List<FacilityType> types,
+                                  @RequestParam(required = false) FacilityStatus status,
+                                  @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+                                  @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+                                  @RequestBody FacilityBulkReq req) {
+        return service.updateStatus(filter(auth, req, orgId, types, status, from, to), req.getStatus());
+    }
+
+    @PostMapping("/reassign")
+    public FacilityBulkRes reassign(Authentication auth,
+                                    @RequestParam(required = false) Long orgId,
+                                    @RequestParam(required = false) List<FacilityType> types,
+                                    @RequestParam(required = false) FacilityStatus status,
+                                    @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+                                    @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+                                    @RequestBody FacilityBulkReq req) {
+        return service.reassign(filter(auth, req, orgId, types, status, from, to), req.getTargetOrgId());
+    }
+
+    /** allOrNothing=true — bitta obyekt validatsiyadan o‘tmasa ham hech narsa yozilmaydi */
+    @PostMapping("/attributes")
+    public FacilityBulkRes attributes(Authentication auth,
+                                      @RequestParam(required = false) Long orgId,
+                                      @RequestParam(required = false) List<FacilityType> types,
+                                      @RequestParam(required = false) FacilityStatus status,
+                                      @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+                                      @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+                                      @RequestParam(required = false, defaultValue = "false") boolean allOrNothing,
+                                      @RequestBody FacilityBulkReq req) {
+        return service.patchAttributes(filter(auth, req, orgId, types, status, from, to), req.getAttributes(), allOrNothing);
+    }
+
+    /** Rasmlari bor obyektlar o‘chirilmaydi (skipped’da hisoblanadi) */
+    @PostMapping("/delete")
+    public FacilityBulkRes delete(Authentication auth,
+                                  @RequestParam(required = false) Long orgId,
+                                  @RequestParam(required = false) List<FacilityType> types,
+                                  @RequestParam(required = false) FacilityStatus status,
+                                  @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+                                  @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+                                  @RequestBody(required = false) FacilityBulkReq req) {
+        return service.delete(filter(auth, req, orgId, types, status, from, to));
+    }
+
+    private FacilityBulkFilter filter(Authentication auth, FacilityBulkReq req, Long orgId, List<FacilityType> types,
+                                      FacilityStatus status, LocalDateTime from, LocalDateTime to) {
+        Set<Long> allowed = accessService.allowedOrgIds(auth);
+        if (orgId != null && allowed != null && !allowed.contains(orgId)) {
+            throw new AccessDeniedException("Siz ushbu bo‘lim obyektlarini o‘zgartira olmaysiz.");
+        }
+        return new FacilityBulkFilter(req != null ? req.getIds() : null, orgId, types, status, from, to, allowed);
+    }
+}
@@ -0,0 +1,128 @@
+package com.agri.mapapp.facility.bulk;
+
+import com.agri.mapapp.facility.*;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Set-based ommaviy UPDATE/DELETE: har bo‘lak (id’lar ro‘yxati) uchun bitta so‘rov, entity yuklanmaydi.
+ * UPDATE’da eski qiymatlar FOR UPDATE bilan qulflangan CTE’dan RETURNING qilinadi — rollup uchun "before" snapshot
+ * qo‘shimcha SELECT’siz; "after" esa o‘zgargan bitta maydon bilan Java’da yasaladi.
+ * Chaqiruvchi tranzaksiyasi ichida ishlaydi.
+ */
+@Repository
+@RequiredArgsConstructor
+public class FacilityBulkDao {
+
+    private static final String SNAPSHOT_COLUMNS = """
+            id, org_id, type, status, created_at, expected_revenue, net_profit,
+            current_amount, capacity, product_amount, area_m2""";
+
+    private static final RowMapper<FacilitySnapshot> SNAPSHOT = (rs, i) -> new FacilitySnapshot(
+            rs.getLong("id"),
+            rs.getLong("org_id"),
+            FacilityType.valueOf(rs.getString("type")),
+            FacilityStatus.valueOf(rs.getString("status")),
+            rs.getObject("created_at", LocalDateTime.class),
+            new FacilityMetrics(
+                    rs.getDouble("expected_revenue"),
+                    rs.getDouble("net_profit"),
+                    rs.getDouble("current_amount"),
+                    rs.getDouble("capacity"),
+                    rs.getDouble("product_amount"),
+                    rs.getDouble("area_m2")));
+
+    private final NamedParameterJdbcTemplate jdbc;
+
+    /** Filtrga mos id’lar (id bo‘yicha tartiblangan, ko‘pi bilan limit ta) */
+    public List<Long> matchIds(FacilityBulkFilter filter, int limit) {
+        MapSqlParameterSource p = new MapSqlParameterSource("limit", limit);
+        String sql = "SELECT f.id FROM facility f WHERE " + where(p, filter) + " ORDER BY f.id LIMIT :limit";
+        return jdbc.queryForList(sql, p, Long.class);
+    }
+
+    /** Holati boshqacha bo‘lganlarnigina yangilaydi; qaytadi — o‘zgargan qatorlarning avvalgi holati */
+    public List<FacilitySnapshot> updateStatus(Collection<Long> ids, FacilityStatus status, LocalDateTime now) {
+        MapSqlParameterSource p = new MapSqlParameterSource()
+                .addValue("ids", ids)
+                .addValue("status", status.name())
+                .addValue("now", now);
+        return update(p, "status <> :status", "status = :status, updated_at = :now");
+    }
+
+    /** Boshqa org’dagilarnigina ko‘chiradi; qaytadi — o‘zgargan qatorlarning avvalgi holati */
+    public List<FacilitySnapshot> reassign(Collection<Long> ids, long orgId, LocalDateTime now) {
+        MapSqlParameterSource p = new MapSqlParameterSource()
+                .addValue("ids", ids)
+                .addValue("orgId", orgId)
+                .addValue("now", now);
+        return update(p, "org_id <> :orgId", "org_id = :orgId, updated_at = :now");
+    }
+
+    /** Rasmlari bor obyektlar o‘chirilmaydi (yakka DELETE’dagi kabi FK ularni himoya qiladi) */
+    public List<FacilitySnapshot> delete(Collection<Long> ids) {
+        String sql = """
+                DELETE FROM facility f
+                WHERE f.id IN (:ids)
+                  AND NOT EXISTS (SELECT 1 FROM facility_image i WHERE i.facility_id = f.id)
+                RETURNING %s
+                """.formatted(SNAPSHOT_COLUMNS);
+        return jdbc.query(sql, new MapSqlParameterSource("ids", ids), SNAPSHOT);
+    }
+
+    private List<FacilitySnapshot> update(MapSqlParameterSource p, String changed, String set) {
+        String sql = """
+                WITH target AS (
+                    SELECT %1$s FROM facility
+                    WHERE id IN (:ids) AND %2$s
+                    FOR UPDATE
+                )
+                UPDATE facility f SET %3$s
+                FROM target t
+                WHERE f.id = t.id
+                RETURNING t.*
+                """.formatted(SNAPSHOT_COLUMNS, changed, set);
+        return jdbc.query(sql, p, SNAPSHOT);
+    }
+
+    private static String where(MapSqlParameterSource p, FacilityBulkFilter f) {
+        StringBuilder w = new StringBuilder("TRUE");
+        if (f.ids() != null) {
+            p.addValue("ids", f.ids());
+            w.append(" AND f.id IN (:ids)");
+        }
+        if (f.allowedOrgIds() != null) {
+            if (f.allowedOrgIds().isEmpty()) return "FALSE";
+            p.addValue("allowed", f.allowedOrgIds());
+            w.append(" AND f.org_id IN (:allowed)");
+        }
+        if (f.orgId() != null) {
+            p.addValue("orgId", f.orgId());
+            w.append(" AND f.org_id = :orgId");
+        }
+        if (f.types() != null && !f.types().isEmpty()) {
+            p.addValue("types", f.types().stream().map(Enum::name).toList());
+            w.append(" AND f.type IN (:types)");
+        }
+        if (f.status() != null) {
+            p.addValue("status", f.status().name());
+            w.append(" AND f.status = :status");
+        }
+        if (f.from() != null) {
+            p.addValue("from", f.from());
+            w.append(" AND f.created_at >= :from");
+        }
+        if (f.to() != null) {
+            p.addValue("to", f.to());
+            w.append(" AND f.created_at <= :to");
+        }
+        return w.toString();
+    }
+}
@@ -0,0 +1,23 @@
+package com.agri.mapapp.facility.bulk;
+
+import com.agri.mapapp.facility.FacilityStatus;
+import com.agri.mapapp.facility.FacilityType;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Ommaviy amal qaysi obyektlarga tegishi: ids va/yoki /api/facilities/all filtrlari, doim scope bilan.
+ * allowedOrgIds == null => cheklanmagan (ADMIN).
+ */
+public record FacilityBulkFilter(List<Long> ids, Long orgId, Collection<FacilityType> types, FacilityStatus status,
+                                 LocalDateTime from, LocalDateTime to, Set<Long> allowedOrgIds) {
+
+    /** Hech qanday tanlov yo‘q — butun jadvalga tasodifan tegmaslik uchun rad etiladi */
+    public boolean isUnbounded() {
+        return ids == null && orgId == null && (types == null || types.isEmpty()) && status == null
+                && from == null && to == null;
+    }
+}
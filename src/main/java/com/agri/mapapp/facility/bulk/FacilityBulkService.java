@@ -0,0 +1,193 @@
+package com.agri.mapapp.facility.bulk;
+
+import com.agri.mapapp.facility.*;
+import com.agri.mapapp.facility.dto.FacilityBulkRes;
+import com.agri.mapapp.facility.validation.FacilityAttributesValidator;
+import com.agri.mapapp.org.OrganizationUnitRepository;
+import com.fasterxml.jackson.databind.JsonNode;
+import jakarta.persistence.EntityManager;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Function;
+
+/**
+ * Ommaviy amallar (status, boshqa org’ga ko‘chirish, attributes patch, o‘chirish).
+ *  - tanlov: ids va/yoki /all filtrlari, doim foydalanuvchi scope’i bilan; mos id’lar bitta so‘rov bilan olinadi;
+ *  - status/reassign/delete — app.facility.bulk.batch-size bo‘lagi uchun bitta set-based UPDATE/DELETE;
+ *  - attributes — validatsiya kerak: bo‘laklab yuklanadi, deepMerge + validator, JDBC batch bilan yoziladi;
+ *  - butun amal bitta tranzaksiyada, oxirida bitta FacilityChangedEvent (rollup/kesh bir marta yangilanadi).
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class FacilityBulkService {
+
+    public enum Operation { STATUS, REASSIGN, ATTRIBUTES, DELETE }
+
+    private final FacilityBulkDao dao;
+    private final FacilityRepository repo;
+    private final OrganizationUnitRepository orgRepo;
+    private final FacilityAttributesValidator validator;
+    private final ApplicationEventPublisher events;
+    private final TransactionTemplate tx;
+    private final EntityManager em;
+
+    @Value("${app.facility.bulk.batch-size:1000}")
+    private int batchSize;
+
+    @Value("${app.facility.bulk.max-rows:100000}")
+    private int maxRows;
+
+    @Value("${app.facility.bulk.max-errors:1000}")
+    private int maxErrors;
+
+    /** Amal holati */
+    private final class Progress {
+        int matched;
+        int affected;
+        int failed;
+        boolean rolledBack;
+        final List<FacilityBulkRes.RowError> errors = new ArrayList<>();
+        final List<FacilityChangedEvent.Change> changes = new ArrayList<>();
+
+        void error(long id, String message) {
+            failed++;
+            if (errors.size() < maxErrors) errors.add(new FacilityBulkRes.RowError(id, message));
+        }
+    }
+
+    public FacilityBulkRes updateStatus(FacilityBulkFilter filter, FacilityStatus status) {
+        if (status == null) throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "status is required");
+        LocalDateTime now = LocalDateTime.now();
+        return setBased(Operation.STATUS, filter, ids -> changed(dao.updateStatus(ids, status, now),
+                b -> new FacilitySnapshot(b.id(), b.orgId(), b.type(), status, b.createdAt(), b.metrics())));
+    }
+
+    public FacilityBulkRes reassign(FacilityBulkFilter filter, Long targetOrgId) {
+        if (targetOrgId == null) throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "targetOrgId is required");
+        if (filter.allowedOrgIds() != null && !filter.allowedOrgIds().contains(targetOrgId)) {
+            throw new AccessDeniedException("Siz obyektlarni ushbu bo‘limga ko‘chira olmaysiz.");
+        }
+        if (!orgRepo.existsById(targetOrgId)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Org not found: " + targetOrgId);
+        }
+        LocalDateTime now = LocalDateTime.now();
+        return setBased(Operation.REASSIGN, filter, ids -> changed(dao.reassign(ids, targetOrgId, now),
+                b -> new FacilitySnapshot(b.id(), targetOrgId, b.type(), b.status(), b.createdAt(), b.metrics())));
+    }
+
+    public FacilityBulkRes delete(FacilityBulkFilter filter) {
+        return setBased(Operation.DELETE, filter, ids -> changed(dao.delete(ids), b -> null));
+    }
+
+    /**
+     * attributes deep-merge (PATCH bilan bir xil) + validatsiya; yaroqsiz qatorlar o‘tkazib yuboriladi va id bilan
+     * qaytadi. allOrNothing=true — bitta xato bo‘lsa ham hech narsa yozilmaydi.
+     */
+    public FacilityBulkRes patchAttributes(FacilityBulkFilter filter, JsonNode patch, boolean allOrNothing) {
+        if (patch == null || !patch.isObject()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "attributes must be a JSON object");
+        }
+        return run(Operation.ATTRIBUTES, filter, (ids, p) -> {
+            LocalDateTime now = LocalDateTime.now();
+            for (Facility f : repo.findAllById(ids)) {
+                JsonNode merged = FacilityService.deepMerge(f.getAttributes(), patch);
+                if (Objects.equals(merged, f.getAttributes())) continue;
+                try {
+                    validator.validate(f.getType(), merged);
+                } catch (IllegalArgumentException e) {
+                    p.error(f.getId(), e.getMessage());
+                    continue;
+                }
+                FacilitySnapshot before = FacilitySnapshot.of(f);
+                f.setAttributes(merged);
+                f.setUpdatedAt(now);
+                p.changes.add(new FacilityChangedEvent.Change(before, FacilitySnapshot.of(f)));
+                p.affected++;
+            }
+            // bo‘lak UPDATE’lari batch bilan yoziladi; persistence context bo‘shatiladi (xotira bo‘lak hajmida)
+            em.flush();
+            em.clear();
+        }, allOrNothing);
+    }
+
+    /* ==================== Helpers ==================== */
+
+    @FunctionalInterface
+    private interface Chunk {
+        void apply(List<Long> ids, Progress p);
+    }
+
+    private FacilityBulkRes setBased(Operation op, FacilityBulkFilter filter,
+                                     Function<List<Long>, List<FacilityChangedEvent.Change>> statement) {
+        return run(op, filter, (ids, p) -> {
+            List<FacilityChangedEvent.Change> changes = statement.apply(ids);
+            p.changes.addAll(changes);
+            p.affected += changes.size();
+        }, false);
+    }
+
+    private static List<FacilityChangedEvent.Change> changed(List<FacilitySnapshot> before,
+                                                             Function<FacilitySnapshot, FacilitySnapshot> after) {
+        List<FacilityChangedEvent.Change> out = new ArrayList<>(before.size());
+        for (FacilitySnapshot b : before) out.add(new FacilityChangedEvent.Change(b, after.apply(b)));
+        return out;
+    }
+
+    private FacilityBulkRes run(Operation op, FacilityBulkFilter filter, Chunk chunk, boolean allOrNothing) {
+        if (filter.isUnbounded()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Provide ids or at least one filter (orgId, types, status, from, to)");
+        }
+        if (filter.ids() != null && filter.ids().size() > maxRows) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Too many ids (max " + maxRows + ")");
+        }
+        long t0 = System.nanoTime();
+        Progress p = new Progress();
+        if (filter.ids() == null || !filter.ids().isEmpty()) {
+            tx.executeWithoutResult(status -> {
+                List<Long> ids = dao.matchIds(filter, maxRows + 1);
+                if (ids.size() > maxRows) {
+                    throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                            "Filter matches more than " + maxRows + " facilities; narrow it down");
+                }
+                p.matched = ids.size();
+                for (int from = 0; from < ids.size(); from += batchSize) {
+                    chunk.apply(ids.subList(from, Math.min(from + batchSize, ids.size())), p);
+                }
+                if (allOrNothing && p.failed > 0) {
+                    status.setRollbackOnly();
+                    p.affected = 0;
+                    p.rolledBack = true;
+                } else if (!p.changes.isEmpty()) {
+                    events.publishEvent(new FacilityChangedEvent(p.changes));
+                }
+            });
+        }
+        long ms = (System.nanoTime() - t0) / 1_000_000;
+        log.info("Facility bulk {}: matched={}, affected={}, failed={}, {} ms", op, p.matched, p.affected, p.failed, ms);
+        return FacilityBulkRes.builder()
+                .operation(op.name())
+                .matched(p.matched)
+                .affected(p.affected)
+                .skipped(p.rolledBack ? 0 : p.matched - p.affected - p.failed)
+                .failed(p.failed)
+                .rolledBack(p.rolledBack)
+                .elapsedMs(ms)
+                .errors(p.errors)
+                .errorsTruncated(p.failed > p.errors.size())
+                .build();
+    }
+}
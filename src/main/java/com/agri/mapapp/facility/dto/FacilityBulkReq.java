@@ -0,0 +1,23 @@
+package com.agri.mapapp.facility.dto;
+
+import com.agri.mapapp.facility.FacilityStatus;
+import com.fasterxml.jackson.annotation.JsonAlias;
+import com.fasterxml.jackson.databind.JsonNode;
+import lombok.*;
+
+import java.util.List;
+
+/**
+ * Ommaviy amal tanasi. ids berilsa — faqat shu obyektlar (query’dagi filtrlar bilan kesishmasi);
+ * amalga xos maydon: status (bulk/status), targetOrgId (bulk/reassign), attributes (bulk/attributes).
+ */
+@Getter
+@Setter @NoArgsConstructor @AllArgsConstructor
+public class FacilityBulkReq {
+    private List<Long> ids;
+    private FacilityStatus status;
+    private Long targetOrgId;
+
+    @JsonAlias({"details", "attributes"})
+    private JsonNode attributes; // deep-merge (PATCH bilan bir xil)
+}
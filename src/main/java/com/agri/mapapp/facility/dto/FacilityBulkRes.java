@@ -0,0 +1,23 @@
+package com.agri.mapapp.facility.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+
+/** Ommaviy amal natijasi (xatolar ro‘yxati app.facility.bulk.max-errors bilan cheklangan) */
+@Data
+@Builder
+public class FacilityBulkRes {
+    private String operation;       // STATUS | REASSIGN | ATTRIBUTES | DELETE
+    private int matched;            // filtr/ids va scope’ga mos kelgan obyektlar
+    private int affected;           // haqiqatda o‘zgargan (o‘chirilgan) qatorlar
+    private int skipped;            // o‘zgarish kerak emas (qiymat allaqachon shunday) yoki o‘chirib bo‘lmaydi (rasmlari bor)
+    private int failed;             // validatsiyadan o‘tmadi (faqat ATTRIBUTES)
+    private boolean rolledBack;     // allOrNothing va xato bor => hech narsa yozilmadi
+    private long elapsedMs;
+    private List<RowError> errors;
+    private boolean errorsTruncated;
+
+    public record RowError(long id, String message) {}
+}
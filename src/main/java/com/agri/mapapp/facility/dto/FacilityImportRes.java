@@ -0,0 +1,26 @@
+package com.agri.mapapp.facility.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+
+/** Import natijasi: qatorma-qator xatolar bilan (ro‘yxat app.facility.import.max-errors bilan cheklangan) */
+@Data
+@Builder
+public class FacilityImportRes {
+    private String format;          // CSV | GEOJSON
+    private boolean dryRun;         // true => faqat tekshirildi, hech narsa yozilmadi
+    private boolean allOrNothing;
+    private int rowsRead;
+    private int imported;
+    private int failed;
+    private boolean rolledBack;     // allOrNothing va xato bor => yozilganlar ham bekor qilindi
+    private long elapsedMs;
+    private long rowsPerSecond;
+    private List<RowError> errors;
+    private boolean errorsTruncated;
+
+    /** row: CSV’da fayl qatori (sarlavha = 1), GeoJSON’da feature raqami (1 dan) */
+    public record RowError(int row, String message) {}
+}
@@ -0,0 +1,44 @@
+package com.agri.mapapp.facility.dto;
+
+import com.agri.mapapp.facility.FacilityStatus;
+import com.agri.mapapp.facility.FacilityType;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Ro‘yxat (view=summary) uchun yengil qator: jsonb ustunlar (attributes/geometry) yo‘q.
+ * Konstruktor DTO projeksiyasi (cb.construct) uchun — org nomi shu SELECT’da JOIN bilan keladi.
+ */
+@Data
+@NoArgsConstructor
+public class FacilitySummaryRes {
+    private Long id;
+    private Long orgId;
+    private String orgName;
+    private String name;
+    private FacilityType type;
+    private FacilityStatus status;
+    private Double lat;
+    private Double lng;
+    private String createdAt;
+
+    /** Faqat /api/facilities/search: q bilan o‘xshashlik (0..1) */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Double score;
+
+    public FacilitySummaryRes(Long id, Long orgId, String orgName, String name, FacilityType type,
+                              FacilityStatus status, Double lat, Double lng, LocalDateTime createdAt) {
+        this.id = id;
+        this.orgId = orgId;
+        this.orgName = orgName;
+        this.name = name;
+        this.type = type;
+        this.status = status;
+        this.lat = lat;
+        this.lng = lng;
+        this.createdAt = createdAt != null ? createdAt.toString() : null;
+    }
+}
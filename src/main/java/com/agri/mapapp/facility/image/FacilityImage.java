@@ -1,5 +1,6 @@
 package com.agri.mapapp.facility.image;
 
+import com.agri.mapapp.common.PooledSequence;
 import com.agri.mapapp.facility.Facility;
 import jakarta.persistence.*;
 import lombok.*;
@@ -13,7 +14,7 @@ import java.time.Instant;
 })
 @Getter @Setter @NoArgsConstructor @AllArgsConstructor @Builder
 public class FacilityImage {
-    @Id @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Id @PooledSequence("facility_image_seq")
     private Long id;
 
     @ManyToOne(fetch = FetchType.LAZY, optional = false)
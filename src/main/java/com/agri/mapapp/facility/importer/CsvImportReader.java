@@ -0,0 +1,183 @@
+package com.agri.mapapp.facility.importer;
+
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * RFC 4180 CSV: qo‘shtirnoqli maydonlar, "" qochirish, maydon ichida yangi qator, CRLF/LF.
+ * Birinchi qator — sarlavha; ajratuvchi (',' yoki ';' — Excel’ning mahalliy eksporti) sarlavhadan aniqlanadi.
+ * Bo‘sh maydon => xususiyat yo‘q (null). UTF-8 BOM tashlab yuboriladi.
+ */
+public class CsvImportReader implements ImportReader {
+
+    private final Reader in;
+    private final String[] header;
+    private final char delimiter;
+    private int line = 1;        // joriy belgi turgan fizik qator
+    private int next = -2;       // oldindan o‘qilgan belgi (-2 => yo‘q)
+
+    public CsvImportReader(InputStream stream) throws IOException {
+        this.in = new BufferedReader(new InputStreamReader(stream, StandardCharsets.UTF_8), 64 * 1024);
+        String first = readLine();
+        if (first == null) throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "CSV is empty");
+        if (!first.isEmpty() && first.charAt(0) == '\uFEFF') first = first.substring(1);
+        this.delimiter = count(first, ';') > count(first, ',') ? ';' : ',';
+        List<String> cols = split(first);
+        this.header = cols.stream().map(String::trim).toArray(String[]::new);
+        for (String h : header) {
+            if (h.isEmpty()) throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "CSV header has an empty column name");
+        }
+    }
+
+    @Override
+    public ImportRecord next() throws IOException {
+        while (true) {
+            int start = line;
+            List<String> fields = readRecord();
+            if (fields == null) return null;
+            if (fields.size() == 1 && fields.get(0).isBlank()) continue;   // bo‘sh qator
+            if (fields.size() > header.length) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                        "CSV line " + start + ": " + fields.size() + " fields, header has " + header.length);
+            }
+            ObjectNode props = JsonNodeFactory.instance.objectNode();
+            for (int i = 0; i < fields.size(); i++) {
+                String v = fields.get(i);
+                if (!v.isEmpty()) props.put(header[i], v);
+            }
+            return new ImportRecord(start, props, null, true);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    /* -------------------- Tokenizer -------------------- */
+
+    /** Bitta yozuv (qo‘shtirnoq ichidagi yangi qatorlar bilan); null => EOF */
+    private List<String> readRecord() throws IOException {
+        int c = read();
+        if (c == -1) return null;
+        List<String> fields = new ArrayList<>(header.length);
+        StringBuilder sb = new StringBuilder(64);
+        boolean quoted = false;
+        int quoteLine = line;
+        while (true) {
+            if (quoted) {
+                if (c == -1) {
+                    throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                            "CSV line " + quoteLine + ": unterminated quoted field");
+                }
+                if (c == '"') {
+                    int n = read();
+                    if (n == '"') {
+                        sb.append('"');
+                    } else {
+                        quoted = false;
+                        c = n;
+                        continue;
+                    }
+                } else {
+                    sb.append((char) c);
+                }
+            } else if (c == -1 || c == '\n' || c == '\r') {
+                if (c == '\r') {
+                    int n = read();
+                    if (n != '\n') unread(n);
+                }
+                fields.add(sb.toString());
+                return fields;
+            } else if (c == delimiter) {
+                fields.add(sb.toString());
+                sb.setLength(0);
+            } else if (c == '"' && sb.isEmpty()) {
+                quoted = true;
+                quoteLine = line;
+            } else {
+                sb.append((char) c);
+            }
+            c = read();
+        }
+    }
+
+    /** Sarlavha qatori (qo‘shtirnoq ichida yangi qatorsiz); keyin split() bilan bo‘linadi */
+    private String readLine() throws IOException {
+        int c = read();
+        if (c == -1) return null;
+        StringBuilder sb = new StringBuilder();
+        while (c != -1 && c != '\n' && c != '\r') {
+            sb.append((char) c);
+            c = read();
+        }
+        if (c == '\r') {
+            int n = read();
+            if (n != '\n') unread(n);
+        }
+        return sb.toString();
+    }
+
+    private List<String> split(String headerLine) {
+        List<String> out = new ArrayList<>();
+        StringBuilder sb = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < headerLine.length(); i++) {
+            char ch = headerLine.charAt(i);
+            if (quoted) {
+                if (ch == '"' && i + 1 < headerLine.length() && headerLine.charAt(i + 1) == '"') {
+                    sb.append('"');
+                    i++;
+                } else if (ch == '"') {
+                    quoted = false;
+                } else {
+                    sb.append(ch);
+                }
+            } else if (ch == '"') {
+                quoted = true;
+            } else if (ch == delimiter) {
+                out.add(sb.toString());
+                sb.setLength(0);
+            } else {
+                sb.append(ch);
+            }
+        }
+        out.add(sb.toString());
+        return out;
+    }
+
+    private int read() throws IOException {
+        int c;
+        if (next != -2) {
+            c = next;
+            next = -2;
+        } else {
+            c = in.read();
+        }
+        if (c == '\n') line++;
+        return c;
+    }
+
+    private void unread(int c) {
+        if (c == '\n') line--;
+        next = c;
+    }
+
+    private static int count(String s, char ch) {
+        int n = 0;
+        boolean quoted = false;
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '"') quoted = !quoted;
+            else if (c == ch && !quoted) n++;
+        }
+        return n;
+    }
+}
@@ -0,0 +1,34 @@
+package com.agri.mapapp.facility.importer;
+
+import com.agri.mapapp.facility.dto.FacilityImportRes;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.RequiredArgsConstructor;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+
+@RestController
+@RequestMapping("/api/admin/facilities")
+@RequiredArgsConstructor
+@PreAuthorize("hasRole('ADMIN')")
+public class FacilityImportController {
+
+    private final FacilityImportService service;
+
+    /**
+     * Ommaviy import: so‘rov tanasi to‘g‘ridan-to‘g‘ri oqim sifatida o‘qiladi (multipart’siz, fayl hajmi cheklovisiz).
+     *   curl -X POST -H "Content-Type: text/csv" --data-binary @region.csv /api/admin/facilities/import
+     *   curl -X POST -H "Content-Type: application/geo+json" --data-binary @region.geojson /api/admin/facilities/import
+     * dryRun=true — faqat tekshirish; allOrNothing=true — bitta xato bo‘lsa ham hech narsa yozilmaydi.
+     */
+    @PostMapping("/import")
+    public FacilityImportRes importFacilities(HttpServletRequest request,
+                                              @RequestParam(required = false) String format,
+                                              @RequestParam(required = false, defaultValue = "false") boolean dryRun,
+                                              @RequestParam(required = false, defaultValue = "false") boolean allOrNothing)
+            throws IOException {
+        FacilityImportService.Format f = FacilityImportService.Format.of(format, request.getContentType());
+        return service.importFacilities(request.getInputStream(), f, dryRun, allOrNothing);
+    }
+}
@@ -0,0 +1,162 @@
+package com.agri.mapapp.facility.importer;
+
+import com.agri.mapapp.common.SearchNormalizer;
+import com.agri.mapapp.facility.*;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.PGCopyOutputStream;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Import yozuvlari: PostgreSQL COPY FROM STDIN (matn formati), entity/persistence context’siz.
+ * Chaqiruvchi tranzaksiyasining ulanishida ishlaydi (JdbcTemplate ConnectionCallback) — rollback COPY’ni ham bekor qiladi.
+ * id’lar facility_seq’dan bitta so‘rov bilan oldindan olinadi: har nextval — Hibernate pooled-lo bilan bir xil
+ * [v, v + allocationSize) oraliq, shuning uchun JPA orqali yaratilgan qatorlar bilan to‘qnashmaydi.
+ * Metrika ustunlari Facility.refreshMetrics() bilan bir xil (FacilityMetrics.of), name_norm — SearchNormalizer;
+ * nomlardagi yangi so‘zlar facility_name_word lug‘atiga ham qo‘shiladi (nom qidiruvi uchun).
+ */
+@Repository
+@RequiredArgsConstructor
+public class FacilityImportDao {
+
+    /** Tekshirilgan, yozishga tayyor qator */
+    public record Row(Long orgId, String name, FacilityType type, FacilityStatus status,
+                      Double lat, Double lng, Integer zoom, JsonNode attributes, JsonNode geometry,
+                      LocalDateTime createdAt, FacilityMetrics metrics) {}
+
+    private static final String NEXT_IDS_SQL =
+            "SELECT nextval('facility_seq') FROM generate_series(1, ?)";
+
+    private static final String COPY_SQL = """
+            COPY facility (id, org_id, name, type, status, lat, lng, zoom, attributes, geometry,
+                           created_at, updated_at, expected_revenue, net_profit, current_amount,
+                           capacity, product_amount, area_m2, name_norm) FROM STDIN
+            """;
+
+    private static final int BUFFER = 64 * 1024;
+
+    private final JdbcTemplate jdbc;
+    private final ObjectMapper mapper;
+    private final FacilityNameWords nameWords;
+
+    @Value("${app.jpa.id-allocation-size:50}")
+    private int allocationSize;
+
+    /** Chaqiruvchi tranzaksiyasi ichida; yaratilgan qatorlar snapshot’lari (FacilityChangedEvent uchun) */
+    public List<FacilitySnapshot> insert(List<Row> rows) {
+        List<Long> ids = nextIds(rows.size());
+        List<String> norms = new ArrayList<>(rows.size());
+        for (Row r : rows) norms.add(SearchNormalizer.normalize(r.name()));
+        jdbc.execute((ConnectionCallback<Void>) con -> {
+            PGConnection pg = con.unwrap(PGConnection.class);
+            try (Writer w = new BufferedWriter(new OutputStreamWriter(
+                    new PGCopyOutputStream(pg, COPY_SQL, BUFFER), StandardCharsets.UTF_8), BUFFER)) {
+                for (int i = 0; i < rows.size(); i++) write(w, ids.get(i), rows.get(i), norms.get(i));
+            } catch (IOException e) {
+                // COPY xatosi (masalan FK) close()/endCopy’da IOException ichida keladi — tarjima uchun SQLException
+                if (e.getCause() instanceof SQLException sql) throw sql;
+                throw new SQLException("COPY facility failed", e);
+            }
+            return null;
+        });
+        nameWords.add(norms);
+        List<FacilitySnapshot> created = new ArrayList<>(rows.size());
+        for (int i = 0; i < rows.size(); i++) {
+            Row r = rows.get(i);
+            created.add(new FacilitySnapshot(ids.get(i), r.orgId(), r.type(), r.status(), r.createdAt(), r.metrics()));
+        }
+        return created;
+    }
+
+    /* -------------------- COPY text format -------------------- */
+
+    /** n ta id: ceil(n / allocationSize) ta nextval, har biri [v, v + allocationSize) oraliqni beradi */
+    private List<Long> nextIds(int n) {
+        int blocks = (n + allocationSize - 1) / allocationSize;
+        List<Long> ids = new ArrayList<>(n);
+        for (Long v : jdbc.queryForList(NEXT_IDS_SQL, Long.class, blocks)) {
+            for (int i = 0; i < allocationSize && ids.size() < n; i++) ids.add(v + i);
+        }
+        return ids;
+    }
+
+    private void write(Writer w, long id, Row r, String nameNorm) throws IOException {
+        FacilityMetrics m = r.metrics();
+        String ts = r.createdAt().toString();
+        w.write(Long.toString(id));
+        w.write('\t');
+        w.write(Long.toString(r.orgId()));
+        w.write('\t');
+        text(w, r.name());
+        w.write('\t');
+        w.write(r.type().name());
+        w.write('\t');
+        w.write(r.status().name());
+        w.write('\t');
+        value(w, r.lat());
+        w.write('\t');
+        value(w, r.lng());
+        w.write('\t');
+        value(w, r.zoom());
+        w.write('\t');
+        text(w, json(r.attributes()));
+        w.write('\t');
+        text(w, json(r.geometry()));
+        w.write('\t');
+        w.write(ts);
+        w.write('\t');
+        w.write(ts);
+        for (double v : new double[]{m.expectedRevenue(), m.netProfit(), m.current(),
+                m.capacity(), m.productAmount(), m.areaM2()}) {
+            w.write('\t');
+            w.write(Double.toString(v));
+        }
+        w.write('\t');
+        text(w, nameNorm);
+        w.write('\n');
+    }
+
+    private static void value(Writer w, Object v) throws IOException {
+        w.write(v == null ? "\\N" : v.toString());
+    }
+
+    /** Matn: \N => NULL; teskari chiziq, tab va qator oxirlari qochiriladi */
+    private static void text(Writer w, String s) throws IOException {
+        if (s == null) {
+            w.write("\\N");
+            return;
+        }
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '\\' -> w.write("\\\\");
+                case '\t' -> w.write("\\t");
+                case '\n' -> w.write("\\n");
+                case '\r' -> w.write("\\r");
+                default -> w.write(c);
+            }
+        }
+    }
+
+    private String json(JsonNode n) {
+        if (n == null || n.isNull()) return null;
+        try {
+            return mapper.writeValueAsString(n);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,352 @@
+package com.agri.mapapp.facility.importer;
+
+import com.agri.mapapp.facility.*;
+import com.agri.mapapp.facility.dto.FacilityImportRes;
+import com.agri.mapapp.facility.validation.FacilityAttributesValidator;
+import com.agri.mapapp.org.OrganizationUnit;
+import com.agri.mapapp.org.OrganizationUnitRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+import java.util.regex.Pattern;
+
+/**
+ * Ommaviy import (CSV yoki GeoJSON FeatureCollection), oqimli o‘qish bilan.
+ *  - org’lar bitta so‘rov bilan oldindan yuklanadi (orgCode yoki orgId → id), har qatorga findById yo‘q;
+ *  - har qator FacilityAttributesValidator bilan tekshiriladi; xatolar qator raqami bilan qaytadi;
+ *  - yaroqli qatorlar app.facility.import.batch-size bo‘yicha COPY bilan yoziladi; oxirida butun import uchun
+ *    bitta FacilityChangedEvent (rollup deltasi bucket’lar bo‘yicha bir marta; kesh/ustunli nusxa commit’dan keyin);
+ *  - butun import bitta tranzaksiyada: format xatosi (400) bo‘lsa hech narsa yozilmaydi.
+ *
+ * Ustunlar (CSV sarlavhasi / GeoJSON properties, katta-kichik harf farqsiz):
+ *   orgCode | orgId, name, type, status (default ACTIVE), lat, lng, zoom, createdAt (default hozir),
+ *   attributes (JSON obyekt), geometry (CSV’da JSON matn; GeoJSON’da feature geometriyasi).
+ * Qolgan ustunlar attributes kalitlari bo‘ladi; CSV’da son ko‘rinishidagi qiymat songa aylantiriladi
+ * (raqamli matn kerak bo‘lsa — attributes ustunida JSON bilan berish mumkin).
+ * lat/lng berilmasa geometriyadan olinadi (Point — nuqta, boshqalari — chegaraviy to‘rtburchak markazi).
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class FacilityImportService {
+
+    public enum Format {
+        CSV, GEOJSON;
+
+        /** format parametri ustun; bo‘lmasa Content-Type’dan */
+        public static Format of(String format, String contentType) {
+            if (format != null && !format.isBlank()) {
+                for (Format f : values()) if (f.name().equalsIgnoreCase(format.trim())) return f;
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "format must be csv or geojson; got: " + format);
+            }
+            String ct = contentType == null ? "" : contentType.toLowerCase(Locale.ROOT);
+            if (ct.contains("csv")) return CSV;
+            if (ct.contains("json")) return GEOJSON;
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Cannot infer import format; pass format=csv|geojson or a text/csv / application/geo+json body");
+        }
+    }
+
+    private static final Pattern NUMBER = Pattern.compile("[-+]?(\\d+\\.?\\d*|\\.\\d+)([eE][-+]?\\d+)?");
+    private static final Pattern INTEGER = Pattern.compile("[-+]?\\d{1,18}");
+
+    /** Ma’lum ustunlar: kichik harfli nom → kanonik nom */
+    private static final Map<String, String> KNOWN = new HashMap<>();
+    static {
+        for (String k : List.of("orgCode", "orgId", "name", "type", "status", "lat", "lng", "zoom",
+                "createdAt", "attributes", "geometry")) {
+            KNOWN.put(k.toLowerCase(Locale.ROOT), k);
+        }
+    }
+
+    private final OrganizationUnitRepository orgRepo;
+    private final FacilityAttributesValidator validator;
+    private final FacilityImportDao dao;
+    private final ApplicationEventPublisher events;
+    private final TransactionTemplate tx;
+    private final ObjectMapper mapper;
+
+    @Value("${app.facility.import.batch-size:1000}")
+    private int batchSize;
+
+    @Value("${app.facility.import.max-rows:500000}")
+    private int maxRows;
+
+    @Value("${app.facility.import.max-errors:1000}")
+    private int maxErrors;
+
+    private record Orgs(Map<String, Long> byCode, Set<Long> ids) {}
+
+    /** Import jarayoni holati */
+    private final class Progress {
+        int read;
+        int imported;
+        int failed;
+        boolean rolledBack;
+        final List<FacilityImportRes.RowError> errors = new ArrayList<>();
+        final List<FacilityChangedEvent.Change> changes = new ArrayList<>();
+
+        void error(int row, String message) {
+            failed++;
+            if (errors.size() < maxErrors) errors.add(new FacilityImportRes.RowError(row, message));
+        }
+    }
+
+    public FacilityImportRes importFacilities(InputStream body, Format format, boolean dryRun, boolean allOrNothing) {
+        long t0 = System.nanoTime();
+        Orgs orgs = loadOrgs();
+        Progress p = new Progress();
+        if (dryRun) {
+            run(body, format, orgs, p, false, allOrNothing);
+        } else {
+            tx.executeWithoutResult(status -> {
+                run(body, format, orgs, p, true, allOrNothing);
+                if (allOrNothing && p.failed > 0) {
+                    status.setRollbackOnly();
+                    p.imported = 0;
+                    p.rolledBack = true;
+                }
+            });
+        }
+        long ms = (System.nanoTime() - t0) / 1_000_000;
+        log.info("Facility import ({}, dryRun={}): read={}, imported={}, failed={}, {} ms",
+                format, dryRun, p.read, p.imported, p.failed, ms);
+        return FacilityImportRes.builder()
+                .format(format.name())
+                .dryRun(dryRun)
+                .allOrNothing(allOrNothing)
+                .rowsRead(p.read)
+                .imported(p.imported)
+                .failed(p.failed)
+                .rolledBack(p.rolledBack)
+                .elapsedMs(ms)
+                .rowsPerSecond(ms == 0 ? p.read * 1000L : p.read * 1000L / ms)
+                .errors(p.errors)
+                .errorsTruncated(p.failed > p.errors.size())
+                .build();
+    }
+
+    /* -------------------- Pipeline -------------------- */
+
+    private void run(InputStream body, Format format, Orgs orgs, Progress p, boolean write, boolean allOrNothing) {
+        LocalDateTime now = LocalDateTime.now();
+        List<FacilityImportDao.Row> batch = new ArrayList<>(write ? batchSize : 0);
+        try (ImportReader reader = open(body, format)) {
+            ImportRecord rec;
+            while ((rec = reader.next()) != null) {
+                if (++p.read > maxRows) {
+                    throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Import is limited to " + maxRows + " rows");
+                }
+                FacilityImportDao.Row row;
+                try {
+                    row = convert(rec, orgs, now);
+                } catch (IllegalArgumentException e) {
+                    p.error(rec.row(), e.getMessage());
+                    continue;
+                }
+                // allOrNothing: birinchi xatodan keyin yozish to‘xtaydi (natija baribir rollback), tekshirish davom etadi
+                if (!write || (allOrNothing && p.failed > 0)) continue;
+                batch.add(row);
+                if (batch.size() >= batchSize) flush(batch, p);
+            }
+            if (write && !(allOrNothing && p.failed > 0)) {
+                flush(batch, p);
+                if (!p.changes.isEmpty()) events.publishEvent(new FacilityChangedEvent(p.changes));
+            }
+        } catch (JsonProcessingException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Malformed GeoJSON: " + e.getOriginalMessage());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private ImportReader open(InputStream body, Format format) throws IOException {
+        return switch (format) {
+            case CSV -> new CsvImportReader(body);
+            case GEOJSON -> new GeoJsonImportReader(body, mapper);
+        };
+    }
+
+    private void flush(List<FacilityImportDao.Row> batch, Progress p) {
+        if (batch.isEmpty()) return;
+        for (FacilitySnapshot s : dao.insert(batch)) p.changes.add(new FacilityChangedEvent.Change(null, s));
+        p.imported += batch.size();
+        batch.clear();
+    }
+
+    private Orgs loadOrgs() {
+        Map<String, Long> byCode = new HashMap<>();
+        Set<Long> ids = new HashSet<>();
+        for (OrganizationUnit o : orgRepo.findAll()) {
+            byCode.put(o.getCode(), o.getId());
+            ids.add(o.getId());
+        }
+        return new Orgs(byCode, ids);
+    }
+
+    /* -------------------- Row conversion -------------------- */
+
+    /** Yaroqsiz qator => IllegalArgumentException (xabari hisobotga tushadi) */
+    private FacilityImportDao.Row convert(ImportRecord rec, Orgs orgs, LocalDateTime now) {
+        Map<String, JsonNode> known = new HashMap<>();
+        ObjectNode extra = mapper.createObjectNode();
+        for (Map.Entry<String, JsonNode> e : rec.properties().properties()) {
+            String key = e.getKey().trim();
+            String canonical = KNOWN.get(key.toLowerCase(Locale.ROOT));
+            if (canonical != null) known.put(canonical, e.getValue());
+            else if (!e.getValue().isNull()) extra.set(key, rec.textual() ? coerce(e.getValue().asText()) : e.getValue());
+        }
+
+        Long orgId = resolveOrg(text(known.get("orgCode")), known.get("orgId"), orgs);
+        String name = text(known.get("name"));
+        if (name == null) throw new IllegalArgumentException("name is required");
+        FacilityType type = enumValue(FacilityType.class, text(known.get("type")), "type");
+        if (type == null) throw new IllegalArgumentException("type is required");
+        FacilityStatus status = enumValue(FacilityStatus.class, text(known.get("status")), "status");
+
+        ObjectNode attrs = objectOf(known.get("attributes"), "attributes");
+        if (!extra.isEmpty()) {
+            if (attrs == null) attrs = extra;
+            else attrs.setAll(extra);
+        }
+        if (attrs != null && attrs.isEmpty()) attrs = null;
+        validator.validate(type, attrs);
+
+        JsonNode geometry = rec.geometry() != null ? rec.geometry() : objectOf(known.get("geometry"), "geometry");
+        if (geometry != null && !geometry.path("type").isTextual()) {
+            throw new IllegalArgumentException("geometry must be a GeoJSON geometry object");
+        }
+        Double lat = number(known.get("lat"), "lat");
+        Double lng = number(known.get("lng"), "lng");
+        if ((lat == null || lng == null) && geometry != null) {
+            double[] c = center(geometry);
+            if (c != null) {
+                if (lng == null) lng = c[0];
+                if (lat == null) lat = c[1];
+            }
+        }
+        if (lat != null && (lat < -90 || lat > 90)) throw new IllegalArgumentException("lat is out of range: " + lat);
+        if (lng != null && (lng < -180 || lng > 180)) throw new IllegalArgumentException("lng is out of range: " + lng);
+        Double zoom = number(known.get("zoom"), "zoom");
+        if (zoom != null && zoom != Math.floor(zoom)) throw new IllegalArgumentException("zoom must be an integer");
+
+        return new FacilityImportDao.Row(orgId, name, type, status == null ? FacilityStatus.ACTIVE : status,
+                lat, lng, zoom == null ? null : zoom.intValue(), attrs, geometry,
+                dateTime(text(known.get("createdAt")), now), FacilityMetrics.of(attrs));
+    }
+
+    private static Long resolveOrg(String code, JsonNode idNode, Orgs orgs) {
+        if (code != null) {
+            Long id = orgs.byCode().get(code);
+            if (id == null) throw new IllegalArgumentException("Unknown orgCode: " + code);
+            return id;
+        }
+        String raw = text(idNode);
+        if (raw == null) throw new IllegalArgumentException("orgCode or orgId is required");
+        if (!INTEGER.matcher(raw).matches()) throw new IllegalArgumentException("orgId must be an integer: " + raw);
+        long id = Long.parseLong(raw);
+        if (!orgs.ids().contains(id)) throw new IllegalArgumentException("Unknown orgId: " + id);
+        return id;
+    }
+
+    private static String text(JsonNode n) {
+        if (n == null || n.isNull()) return null;
+        String s = n.asText().trim();
+        return s.isEmpty() ? null : s;
+    }
+
+    private static Double number(JsonNode n, String field) {
+        if (n == null || n.isNull()) return null;
+        if (n.isNumber()) return n.asDouble();
+        String s = text(n);
+        if (s == null) return null;
+        if (!NUMBER.matcher(s).matches()) throw new IllegalArgumentException(field + " must be a number: " + s);
+        return Double.parseDouble(s);
+    }
+
+    private static <E extends Enum<E>> E enumValue(Class<E> type, String raw, String field) {
+        if (raw == null) return null;
+        try {
+            return Enum.valueOf(type, raw.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown " + field + ": " + raw);
+        }
+    }
+
+    /** JSON obyekt yoki uning matn ko‘rinishi (CSV) */
+    private ObjectNode objectOf(JsonNode n, String field) {
+        if (n == null || n.isNull()) return null;
+        JsonNode v = n;
+        if (n.isTextual()) {
+            String s = n.asText().trim();
+            if (s.isEmpty()) return null;
+            try {
+                v = mapper.readTree(s);
+            } catch (JsonProcessingException e) {
+                throw new IllegalArgumentException(field + " is not valid JSON");
+            }
+        }
+        if (!v.isObject()) throw new IllegalArgumentException(field + " must be a JSON object");
+        return ((ObjectNode) v).deepCopy();
+    }
+
+    /** CSV qiymati: son/boolean ko‘rinishida bo‘lsa shu tur, aks holda matn */
+    private JsonNode coerce(String raw) {
+        String s = raw.trim();
+        if (INTEGER.matcher(s).matches()) return mapper.getNodeFactory().numberNode(Long.parseLong(s));
+        if (NUMBER.matcher(s).matches()) return mapper.getNodeFactory().numberNode(Double.parseDouble(s));
+        if (s.equalsIgnoreCase("true") || s.equalsIgnoreCase("false")) {
+            return mapper.getNodeFactory().booleanNode(Boolean.parseBoolean(s));
+        }
+        return mapper.getNodeFactory().textNode(raw);
+    }
+
+    private static LocalDateTime dateTime(String raw, LocalDateTime fallback) {
+        if (raw == null) return fallback;
+        try {
+            return raw.length() <= 10 ? LocalDate.parse(raw).atStartOfDay() : LocalDateTime.parse(raw);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("createdAt must be an ISO date or date-time: " + raw);
+        }
+    }
+
+    /** Point => [lng, lat]; boshqa geometriyalar => barcha koordinatalar chegaraviy to‘rtburchagi markazi */
+    private static double[] center(JsonNode geometry) {
+        double[] box = {Double.MAX_VALUE, Double.MAX_VALUE, -Double.MAX_VALUE, -Double.MAX_VALUE};
+        if (!extend(box, geometry.get("coordinates"))) return null;
+        return new double[]{(box[0] + box[2]) / 2, (box[1] + box[3]) / 2};
+    }
+
+    private static boolean extend(double[] box, JsonNode coords) {
+        if (coords == null || !coords.isArray() || coords.isEmpty()) return false;
+        if (coords.get(0).isNumber()) {
+            if (coords.size() < 2 || !coords.get(1).isNumber()) return false;
+            double x = coords.get(0).asDouble(), y = coords.get(1).asDouble();
+            box[0] = Math.min(box[0], x);
+            box[1] = Math.min(box[1], y);
+            box[2] = Math.max(box[2], x);
+            box[3] = Math.max(box[3], y);
+            return true;
+        }
+        boolean any = false;
+        for (JsonNode c : coords) any |= extend(box, c);
+        return any;
+    }
+}
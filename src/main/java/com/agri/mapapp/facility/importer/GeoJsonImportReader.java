@@ -0,0 +1,88 @@
+package com.agri.mapapp.facility.importer;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * GeoJSON FeatureCollection: Jackson streaming parser bilan "features" massivi bo‘ylab yuriladi,
+ * xotirada bir vaqtda faqat bitta feature daraxti bo‘ladi. Boshqa yuqori darajadagi maydonlar o‘tkazib yuboriladi.
+ */
+public class GeoJsonImportReader implements ImportReader {
+
+    private final ObjectMapper mapper;
+    private final JsonParser parser;
+    private boolean inFeatures;
+    private boolean found;
+    private boolean done;
+    private int index;
+
+    public GeoJsonImportReader(InputStream stream, ObjectMapper mapper) throws IOException {
+        this.mapper = mapper;
+        this.parser = mapper.getFactory().createParser(stream);
+        if (parser.nextToken() != JsonToken.START_OBJECT) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "GeoJSON must be a FeatureCollection object");
+        }
+    }
+
+    @Override
+    public ImportRecord next() throws IOException {
+        if (done) return null;
+        if (!inFeatures && !seekFeatures()) {
+            done = true;
+            return null;
+        }
+        JsonToken t = parser.nextToken();
+        if (t == JsonToken.END_ARRAY) {
+            inFeatures = false;
+            return next();
+        }
+        index++;
+        if (t != JsonToken.START_OBJECT) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "GeoJSON feature " + index + " is not an object");
+        }
+        JsonNode feature = mapper.readTree(parser);
+        JsonNode props = feature.get("properties");
+        ObjectNode properties = props != null && props.isObject()
+                ? (ObjectNode) props : JsonNodeFactory.instance.objectNode();
+        JsonNode geometry = feature.get("geometry");
+        return new ImportRecord(index, properties, geometry == null || geometry.isNull() ? null : geometry, false);
+    }
+
+    /** Keyingi "features" massivigacha o‘tadi; topilmasa (obyekt tugadi) false */
+    private boolean seekFeatures() throws IOException {
+        JsonToken t;
+        while ((t = parser.nextToken()) == JsonToken.FIELD_NAME) {
+            String name = parser.currentName();
+            JsonToken v = parser.nextToken();
+            if ("features".equals(name)) {
+                if (v != JsonToken.START_ARRAY) {
+                    throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "GeoJSON \"features\" must be an array");
+                }
+                inFeatures = found = true;
+                return true;
+            }
+            parser.skipChildren();
+        }
+        if (t != JsonToken.END_OBJECT) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Malformed GeoJSON");
+        }
+        if (!found) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "GeoJSON has no \"features\" array");
+        }
+        return false;
+    }
+
+    @Override
+    public void close() throws IOException {
+        parser.close();
+    }
+}
@@ -0,0 +1,11 @@
+package com.agri.mapapp.facility.importer;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/** Oqimli o‘quvchi: yozuvlar birma-bir qaytadi, butun fayl xotiraga olinmaydi */
+public interface ImportReader extends Closeable {
+
+    /** Keyingi yozuv; null => manba tugadi */
+    ImportRecord next() throws IOException;
+}
@@ -0,0 +1,13 @@
+package com.agri.mapapp.facility.importer;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+/**
+ * Manbadan o‘qilgan bitta xom yozuv (hali tekshirilmagan).
+ *  - row: CSV’da fayl qatori (sarlavha = 1), GeoJSON’da feature tartib raqami (1 dan);
+ *  - properties: ustun/xususiyat nomi → qiymat (CSV’da doim matn);
+ *  - textual: true => qiymatlar matn ko‘rinishida (CSV), sonlar parse qilinadi.
+ */
+public record ImportRecord(int row, ObjectNode properties, JsonNode geometry, boolean textual) {
+}
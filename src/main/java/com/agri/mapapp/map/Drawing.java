@@ -1,5 +1,6 @@
 package com.agri.mapapp.map;
 
+import com.agri.mapapp.common.PooledSequence;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.vladmihalcea.hibernate.type.json.JsonType;
 import jakarta.persistence.*;
@@ -13,7 +14,7 @@ import java.time.LocalDateTime;
 @Getter @Setter
 @NoArgsConstructor @AllArgsConstructor @Builder
 public class Drawing {
-    @Id @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Id @PooledSequence("drawing_seq")
     private Long id;
 
     private String name;
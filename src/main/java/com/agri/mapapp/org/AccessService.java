@@ -25,26 +25,42 @@ public class AccessService {
     /** Berilgan orgId (agar mavjud bo‘lsa) va barcha avlodlari ID’lari to‘plami. Topilmasa -> bo‘sh set. */
     public Set<Long> subtreeOf(Long rootId) {
         if (rootId == null) return Set.of();
+        OrgSubtree t = subtreesOf(List.of(rootId)).get(rootId);
+        return t != null ? t.orgIds() : Set.of();
+    }
+
+    /** Org (nomi bilan) va uning subtree’si */
+    public record OrgSubtree(Long id, String name, Set<Long> orgIds) {}
+
+    /**
+     * Bir nechta org subtree’lari — bitta org snapshot’idan (bitta findAll), har biri alohida so‘rovsiz.
+     * Mavjud bo‘lmagan id’lar natijada yo‘q; tartib — rootIds tartibi.
+     */
+    public Map<Long, OrgSubtree> subtreesOf(Collection<Long> rootIds) {
         List<OrganizationUnit> all = repo.findAll();
-        boolean exists = false;
+        Map<Long, String> names = new HashMap<>();
         Map<Long, List<Long>> children = new HashMap<>();
         for (OrganizationUnit u : all) {
-            if (Objects.equals(u.getId(), rootId)) exists = true;
+            names.put(u.getId(), u.getName());
             Long pid = (u.getParent() != null) ? u.getParent().getId() : null;
             if (pid != null) children.computeIfAbsent(pid, k -> new ArrayList<>()).add(u.getId());
         }
-        if (!exists) return Set.of();
-        Set<Long> out = new HashSet<>();
-        Deque<Long> st = new ArrayDeque<>();
-        st.push(rootId); out.add(rootId);
-        int guard = 0;
-        while (!st.isEmpty() && guard++ < 100000) {
-            Long cur = st.pop();
-            for (Long ch : children.getOrDefault(cur, List.of())) {
-                if (out.add(ch)) st.push(ch);
+        Map<Long, OrgSubtree> result = new LinkedHashMap<>();
+        for (Long rootId : rootIds) {
+            if (rootId == null || !names.containsKey(rootId) || result.containsKey(rootId)) continue;
+            Set<Long> out = new HashSet<>();
+            Deque<Long> st = new ArrayDeque<>();
+            st.push(rootId); out.add(rootId);
+            int guard = 0;
+            while (!st.isEmpty() && guard++ < 100000) {
+                Long cur = st.pop();
+                for (Long ch : children.getOrDefault(cur, List.of())) {
+                    if (out.add(ch)) st.push(ch);
+                }
             }
+            result.put(rootId, new OrgSubtree(rootId, names.get(rootId), out));
         }
-        return out;
+        return result;
     }
 
     /** Tekshir: mazkur orgId foydalanuvchining ruxsat doirasida bormi? (ADMIN -> true) */
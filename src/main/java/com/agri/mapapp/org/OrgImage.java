@@ -1,5 +1,6 @@
 package com.agri.mapapp.org;
 
+import com.agri.mapapp.common.PooledSequence;
 import jakarta.persistence.*;
 import lombok.*;
 import org.hibernate.annotations.CreationTimestamp;
@@ -18,7 +19,7 @@ import java.time.Instant;
 public class OrgImage {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @PooledSequence("org_image_seq")
     private Long id;
 
     @ManyToOne(fetch = FetchType.LAZY, optional = false)
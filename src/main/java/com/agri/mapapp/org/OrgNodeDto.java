@@ -1,6 +1,6 @@
 package com.agri.mapapp.org;
 
-
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.*;
 
 import java.util.ArrayList;
@@ -13,6 +13,8 @@ public class OrgNodeDto {
     private String title;       // name
     private double[] pos;       // [lat, lng] yoki null
     private Integer zoom;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private OrgNodeKpi kpi;     // faqat /api/stats/tree’da to‘ldiriladi
     @Builder.Default
     private List<OrgNodeDto> children = new ArrayList<>();
 }
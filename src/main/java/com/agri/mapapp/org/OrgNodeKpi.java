@@ -0,0 +1,17 @@
+package com.agri.mapapp.org;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/** Tugun KPI’lari — tugunning butun subtree’si bo‘yicha (tanlangan oyna ichida) */
+@Data @NoArgsConstructor @AllArgsConstructor
+public class OrgNodeKpi {
+    private long count;       // subtree’dagi facility’lar
+    private long ownCount;    // faqat shu org’ning o‘zi
+    private double revenue;
+    private double profit;
+    private double current;
+    private double capacity;
+    private Double utilPct;   // current/capacity*100
+}
@@ -1,5 +1,6 @@
 package com.agri.mapapp.org;
 
+import com.agri.mapapp.common.PooledSequence;
 import jakarta.persistence.*;
 import lombok.*;
 
@@ -9,7 +10,7 @@ import lombok.*;
 @NoArgsConstructor @AllArgsConstructor @Builder
 public class OrganizationUnit {
 
-    @Id @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Id @PooledSequence("org_unit_seq")
     private Long id;
 
     @ManyToOne(fetch = FetchType.LAZY)
@@ -0,0 +1,96 @@
+package com.agri.mapapp.stats;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Bir xil kalitli parallel chaqiruvlarni bitta hisoblashga birlashtirish (single-flight).
+ *  - Birinchi chaqiruvchi (leader) hisoblaydi, qolganlari uning natijasini kutadi;
+ *  - Hisoblash tugashi bilan kalit bo‘shatiladi — natija saqlanmaydi, eskirish yo‘q;
+ *  - Xato barcha kutayotganlarga uzatiladi; kutish timeout’i — 504.
+ * Natija obyekti chaqiruvchilar o‘rtasida bo‘lishiladi — uni o‘zgartirmang.
+ */
+@Component
+public class SingleFlight {
+
+    private final boolean enabled;
+    private final long timeoutMs;
+    private final ConcurrentHashMap<Object, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder executions = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+
+    public SingleFlight(
+            @Value("${app.stats.single-flight.enabled:true}") boolean enabled,
+            @Value("${app.stats.single-flight.timeout-ms:20000}") long timeoutMs
+    ) {
+        this.enabled = enabled;
+        this.timeoutMs = timeoutMs;
+    }
+
+    /** key — equals/hashCode’i to‘g‘ri bo‘lgan normallashtirilgan kalit (record yoki List) */
+    @SuppressWarnings("unchecked")
+    public <T> T execute(Object key, Supplier<T> work) {
+        calls.increment();
+        if (!enabled) {
+            executions.increment();
+            return work.get();
+        }
+        CompletableFuture<Object> mine = new CompletableFuture<>();
+        CompletableFuture<Object> leader = inFlight.putIfAbsent(key, mine);
+        if (leader == null) {
+            executions.increment();
+            try {
+                T value = work.get();
+                mine.complete(value);
+                return value;
+            } catch (RuntimeException | Error e) {
+                failures.increment();
+                mine.completeExceptionally(e);
+                throw e;
+            } finally {
+                inFlight.remove(key, mine);
+            }
+        }
+        coalesced.increment();
+        try {
+            return (T) leader.get(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            timeouts.increment();
+            throw new ResponseStatusException(HttpStatus.GATEWAY_TIMEOUT, "Stats computation timed out");
+        } catch (ExecutionException e) {
+            Throwable c = e.getCause();
+            if (c instanceof RuntimeException re) throw re;
+            if (c instanceof Error err) throw err;
+            throw new IllegalStateException(c);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for stats computation", e);
+        }
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> m = new LinkedHashMap<>();
+        long c = calls.sum();
+        m.put("enabled", enabled);
+        m.put("calls", c);
+        m.put("executions", executions.sum());
+        m.put("coalesced", coalesced.sum());
+        m.put("coalescedRate", c > 0 ? (double) coalesced.sum() / c : null);
+        m.put("timeouts", timeouts.sum());
+        m.put("failures", failures.sum());
+        m.put("inFlight", inFlight.size());
+        return m;
+    }
+}
@@ -0,0 +1,190 @@
+package com.agri.mapapp.stats;
+
+import com.agri.mapapp.facility.FacilityType;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Statistikani DB tomonida (GROUP BY) yig‘ish: entity’lar yuklanmaydi, ko‘rsatkichlar tiplangan ustunlardan.
+ */
+@Repository
+@RequiredArgsConstructor
+public class StatsAggregateDao implements StatsAggregateSource, StatsTimeSeriesSource {
+
+    private final NamedParameterJdbcTemplate jdbc;
+
+    // Facility’dagi tiplangan ko‘rsatkich ustunlari (yozishda FacilityMetrics bilan to‘ldiriladi)
+    private static final String REV  = "f.expected_revenue";
+    private static final String PROF = "f.net_profit";
+    private static final String PROD = "f.product_amount";
+    private static final String CUR  = "f.current_amount";
+    private static final String CAP  = "f.capacity";
+    private static final String AREA = "f.area_m2";
+
+    @Override
+    public List<BaseBucket> baseBuckets(Set<Long> orgIds, Collection<FacilityType> types,
+                                        LocalDateTime monthsFrom, LocalDateTime monthsTo) {
+        MapSqlParameterSource p = new MapSqlParameterSource()
+                .addValue("monthsFrom", monthsFrom)
+                .addValue("monthsTo", monthsTo);
+        String inMonths = "f.created_at >= :monthsFrom AND f.created_at < :monthsTo";
+        String sql = """
+                SELECT f.type, o.id AS org_id, o.name AS org_name,
+                       (f.status = 'ACTIVE') AS active,
+                       CASE WHEN %1$s THEN CAST(EXTRACT(YEAR FROM f.created_at) AS int) END AS y,
+                       CASE WHEN %1$s THEN CAST(EXTRACT(MONTH FROM f.created_at) AS int) END AS m,
+                       COUNT(*) AS cnt,
+                       SUM(%2$s) AS revenue, SUM(%3$s) AS profit,
+                       SUM(%4$s) AS cur, SUM(%5$s) AS cap,
+                       SUM(%6$s) AS product, SUM(%7$s) AS area_m2
+                FROM facility f
+                JOIN org_unit o ON o.id = f.org_id
+                WHERE %8$s
+                GROUP BY f.type, o.id, active, y, m
+                """.formatted(inMonths, REV, PROF, CUR, CAP, PROD, AREA, where(p, orgIds, types));
+
+        return jdbc.query(sql, p, (rs, i) -> new BaseBucket(
+                FacilityType.valueOf(rs.getString("type")),
+                rs.getLong("org_id"),
+                rs.getString("org_name"),
+                rs.getBoolean("active"),
+                (Integer) rs.getObject("y"),
+                (Integer) rs.getObject("m"),
+                rs.getLong("cnt"),
+                rs.getDouble("revenue"),
+                rs.getDouble("profit"),
+                rs.getDouble("cur"),
+                rs.getDouble("cap"),
+                rs.getDouble("product"),
+                rs.getDouble("area_m2")
+        ));
+    }
+
+    @Override
+    public List<PeriodBucket> periodBuckets(Set<Long> orgIds, Collection<FacilityType> types, List<Period> periods) {
+        if (periods.isEmpty()) return List.of();
+        MapSqlParameterSource p = new MapSqlParameterSource();
+        StringBuilder values = new StringBuilder();
+        for (int i = 0; i < periods.size(); i++) {
+            if (i > 0) values.append(", ");
+            values.append("(").append(i)
+                    .append(", CAST(:pf").append(i).append(" AS timestamp)")
+                    .append(", CAST(:pt").append(i).append(" AS timestamp))");
+            p.addValue("pf" + i, periods.get(i).from());
+            p.addValue("pt" + i, periods.get(i).to());
+        }
+        String sql = """
+                SELECT p.idx, f.type, o.id AS org_id, o.name AS org_name,
+                       COUNT(*) AS cnt,
+                       SUM(%s) AS revenue, SUM(%s) AS profit,
+                       SUM(%s) AS cur, SUM(%s) AS cap
+                FROM facility f
+                JOIN org_unit o ON o.id = f.org_id
+                JOIN (VALUES %s) AS p(idx, pfrom, pto) ON f.created_at BETWEEN p.pfrom AND p.pto
+                WHERE %s
+                GROUP BY p.idx, f.type, o.id
+                """.formatted(REV, PROF, CUR, CAP, values, where(p, orgIds, types));
+
+        return jdbc.query(sql, p, (rs, i) -> new PeriodBucket(
+                rs.getInt("idx"),
+                FacilityType.valueOf(rs.getString("type")),
+                rs.getLong("org_id"),
+                rs.getString("org_name"),
+                rs.getLong("cnt"),
+                rs.getDouble("revenue"),
+                rs.getDouble("profit"),
+                rs.getDouble("cur"),
+                rs.getDouble("cap")
+        ));
+    }
+
+    @Override
+    public List<TimeBucket> timeBuckets(Set<Long> orgIds, Collection<FacilityType> types,
+                                        LocalDateTime from, LocalDateTime to,
+                                        Granularity granularity, SeriesBy by, List<Integer> yearsBack) {
+        if (yearsBack.isEmpty()) return List.of();
+        MapSqlParameterSource p = new MapSqlParameterSource();
+        StringBuilder values = new StringBuilder();
+        for (int i = 0; i < yearsBack.size(); i++) {
+            int k = yearsBack.get(i);
+            if (i > 0) values.append(", ");
+            values.append("(").append(i).append(", ").append(k)
+                    .append(", CAST(:pf").append(i).append(" AS timestamp)")
+                    .append(", CAST(:pt").append(i).append(" AS timestamp))");
+            p.addValue("pf" + i, from.minusYears(k));
+            p.addValue("pt" + i, to.minusYears(k));
+        }
+        // date_trunc('week') — ISO hafta (dushanba); siljitilgan davr sanasi asosiy oynaga qaytariladi
+        String bucket = "date_trunc('" + granularity.name().toLowerCase(Locale.ROOT)
+                + "', f.created_at + make_interval(years => p.yrs))";
+        String sql = """
+                SELECT p.idx, %1$s AS bucket, %2$s,
+                       COUNT(*) AS cnt,
+                       SUM(%3$s) AS revenue, SUM(%4$s) AS profit,
+                       SUM(%5$s) AS cur, SUM(%6$s) AS cap,
+                       SUM(%7$s) AS product, SUM(%8$s) AS area_m2
+                FROM facility f
+                JOIN org_unit o ON o.id = f.org_id
+                JOIN (VALUES %9$s) AS p(idx, yrs, pfrom, pto) ON f.created_at >= p.pfrom AND f.created_at < p.pto
+                WHERE %10$s
+                GROUP BY %11$s
+                """.formatted(bucket, seriesColumns(by, "f.type"), REV, PROF, CUR, CAP, PROD, AREA,
+                values, where(p, orgIds, types), seriesGroup(by, "p.idx, bucket", "f.type"));
+
+        return jdbc.query(sql, p, (rs, i) -> timeBucket(rs));
+    }
+
+    /** Seriya kaliti ustunlari (rollup ham ishlatadi) (type, org_id, org_name) — keraksizlari NULL */
+    public static String seriesColumns(SeriesBy by, String typeCol) {
+        return switch (by) {
+            case NONE -> "CAST(NULL AS varchar) AS type, CAST(NULL AS bigint) AS org_id, CAST(NULL AS varchar) AS org_name";
+            case TYPE -> typeCol + " AS type, CAST(NULL AS bigint) AS org_id, CAST(NULL AS varchar) AS org_name";
+            case ORG  -> "CAST(NULL AS varchar) AS type, o.id AS org_id, o.name AS org_name";
+        };
+    }
+
+    public static String seriesGroup(SeriesBy by, String bucketCol, String typeCol) {
+        return switch (by) {
+            case NONE -> bucketCol;
+            case TYPE -> bucketCol + ", " + typeCol;
+            case ORG  -> bucketCol + ", o.id, o.name";
+        };
+    }
+
+    public static TimeBucket timeBucket(ResultSet rs) throws SQLException {
+        String type = rs.getString("type");
+        return new TimeBucket(
+                rs.getInt("idx"),
+                rs.getObject("bucket", LocalDateTime.class).toLocalDate(),
+                type != null ? FacilityType.valueOf(type) : null,
+                (Long) rs.getObject("org_id"),
+                rs.getString("org_name"),
+                rs.getLong("cnt"),
+                rs.getDouble("revenue"),
+                rs.getDouble("profit"),
+                rs.getDouble("cur"),
+                rs.getDouble("cap"),
+                rs.getDouble("product"),
+                rs.getDouble("area_m2"));
+    }
+
+    private String where(MapSqlParameterSource p, Set<Long> orgIds, Collection<FacilityType> types) {
+        p.addValue("types", types.stream().map(Enum::name).toList());
+        String w = "f.type IN (:types)";
+        if (orgIds != null) {
+            p.addValue("orgIds", orgIds);
+            w += " AND f.org_id IN (:orgIds)";
+        }
+        return w;
+    }
+}
@@ -0,0 +1,35 @@
+package com.agri.mapapp.stats;
+
+import com.agri.mapapp.facility.FacilityType;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Overview uchun guruhlangan yig‘indilar manbai (xom facility jadvali, oylik rollup, ustunli nusxa yoki tanlanma).
+ * Vaqt qatorlari — alohida imkoniyat: {@link StatsTimeSeriesSource}.
+ * orgIds == null => cheklanmagan (ADMIN); types bo‘sh bo‘lmasligi kerak.
+ */
+public interface StatsAggregateSource {
+
+    /** (type, org, active, oy) kesimidagi yig‘indilar. year/month faqat [monthsFrom, monthsTo) ichida to‘ldiriladi. */
+    record BaseBucket(FacilityType type, Long orgId, String orgName, boolean active,
+                      Integer year, Integer month, long count,
+                      double revenue, double profit, double current, double capacity,
+                      double product, double areaM2) {}
+
+    /** Vaqt oralig‘i (ikki chegara ham kiradi — avvalgi cb.between semantikasi) */
+    record Period(LocalDateTime from, LocalDateTime to) {}
+
+    /** (period, type, org) kesimidagi yig‘indilar; period — periods ro‘yxatidagi indeks */
+    record PeriodBucket(int period, FacilityType type, Long orgId, String orgName, long count,
+                        double revenue, double profit, double current, double capacity) {}
+
+    List<BaseBucket> baseBuckets(Set<Long> orgIds, Collection<FacilityType> types,
+                                 LocalDateTime monthsFrom, LocalDateTime monthsTo);
+
+    /** Bir nechta davr uchun bitta o‘tishda yig‘ish: facility o‘zi tushgan har bir davrga hisoblanadi. */
+    List<PeriodBucket> periodBuckets(Set<Long> orgIds, Collection<FacilityType> types, List<Period> periods);
+}
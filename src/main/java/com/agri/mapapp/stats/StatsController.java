@@ -4,17 +4,36 @@ import com.agri.mapapp.auth.Role;
 import com.agri.mapapp.auth.UserPrincipal;
 import com.agri.mapapp.facility.FacilityType;
 import com.agri.mapapp.org.AccessService;
+import com.agri.mapapp.org.OrgNodeDto;
+import com.agri.mapapp.stats.cache.OverviewCache;
+import com.agri.mapapp.stats.dto.AggregateRes;
+import com.agri.mapapp.stats.dto.CompareRes;
+import com.agri.mapapp.stats.dto.DistributionRes;
+import com.agri.mapapp.stats.dto.MetricInfo;
 import com.agri.mapapp.stats.dto.OverviewRes;
+import com.agri.mapapp.stats.dto.TimeSeriesRes;
+import com.agri.mapapp.stats.export.ExportFormat;
+import com.agri.mapapp.stats.export.ExportJob;
+import com.agri.mapapp.stats.export.ExportJobService;
+import com.agri.mapapp.stats.metric.MetricAggregateDao;
+import com.agri.mapapp.stats.metric.MetricRegistry;
+import com.agri.mapapp.stats.snapshot.OverviewSnapshotService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpHeaders;
-import org.springframework.http.MediaType;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
 import java.time.LocalDate;
+import java.time.Year;
 import java.util.*;
 import java.util.stream.Collectors;
 
@@ -25,6 +44,16 @@ public class StatsController {
 
     private final StatsService statsService;
     private final AccessService accessService;
+    private final OverviewCache overviewCache;
+    private final SingleFlight singleFlight;
+    private final OverviewSnapshotService snapshots;
+    private final ExportJobService exportJobs;
+    private final MetricRegistry metricRegistry;
+
+    @Value("${app.stats.compare.max-periods:10}")
+    private int maxComparePeriods;
+    @Value("${app.stats.compare.max-orgs:50}")
+    private int maxCompareOrgs;
 
     @GetMapping("/overview")
     public OverviewRes overview(
@@ -35,32 +64,46 @@ public class StatsController {
             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
             @RequestParam(required = false) String types, // CSV of FacilityType
-            @RequestParam(required = false) Long orgId    // optional single org filter
+            @RequestParam(required = false) Long orgId,   // optional single org filter
+            @RequestParam(required = false) String compare, // last:N | CSV yillar — taqqoslash davrlari
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate asOf, // saqlangan snapshot
+            @RequestParam(required = false, defaultValue = "false") boolean approx // blok tanlanmasi + ishonch oraliqlari
     ) {
-        Set<Long> allowedOrgIds = resolveAllowedScope(auth);
-        if (orgId != null) {
-            // subtree of requested org
-            Set<Long> requestedSubtree = accessService.subtreeOf(orgId);
-            if (allowedOrgIds == null) { // ADMIN -> just use subtree (may be empty if org not found)
-                allowedOrgIds = requestedSubtree;
-            } else {
-                if (allowedOrgIds.contains(orgId)) {
-                    // narrow to intersection to be extra safe (though subtree should be subset)
-                    requestedSubtree.retainAll(allowedOrgIds);
-                    allowedOrgIds = requestedSubtree;
-                } else {
-                    allowedOrgIds = Collections.emptySet();
-                }
+        Set<Long> allowedOrgIds = narrowToOrg(resolveAllowedScope(auth), orgId);
+        List<FacilityType> typeList = StatsService.canonicalTypes(parseTypes(types));
+        List<Integer> compareYears = parseCompare(compare, year);
+        Set<Long> scope = allowedOrgIds;
+        String snapshotKey = compareYears.isEmpty() ? snapshotKey(auth, orgId) : null;
+        if (asOf != null) {
+            if (!"year".equalsIgnoreCase(range) || typeList != null || !compareYears.isEmpty() || approx) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "asOf is only available for range=year without types/compare/approx");
             }
+            OverviewRes res = snapshotKey == null ? null : snapshots.asOf(snapshotKey, scope, year, asOf, orgId);
+            if (res == null) throw new ResponseStatusException(HttpStatus.NOT_FOUND, "No snapshot as of " + asOf);
+            return res;
         }
-        List<FacilityType> typeList = parseTypes(types);
-        OverviewRes res = statsService.overviewAdvanced(allowedOrgIds, year, typeList, range, quarter, from, to);
-        if (orgId != null) res.setOrgFilter(orgId);
-        return res;
+        if (snapshotKey != null) {
+            OverviewRes res = snapshots.lookup(snapshotKey, scope, year, typeList, range, orgId);
+            if (res != null) return res;
+        }
+        if (approx) {
+            // Tayyor aniq snapshot bo‘lsa u yuqorida qaytdi; taxminiy javob keshlanmaydi (tanlanma har safar yangi)
+            StatsService.Window w = statsService.window(year, range, quarter, from, to);
+            return singleFlight.execute(flightKey("overview-approx", scope, w, typeList, orgId, compareYears), () -> {
+                OverviewRes res = statsService.overviewApprox(scope, w.year(), typeList, w.range(), w.quarter(), w.from(), w.to(), compareYears);
+                res.setOrgFilter(orgId);
+                return res;
+            });
+        }
+        // Kalit OverviewCache’niki bilan bir xil: hal qilingan oyna + turlar to‘plami
+        StatsService.Window w = statsService.window(year, range, quarter, from, to);
+        return singleFlight.execute(flightKey("overview", scope, w, typeList, orgId, compareYears),
+                () -> overviewCache.get(scope, year, typeList, range, quarter, from, to, orgId, compareYears));
     }
 
-    @GetMapping(value = "/export", produces = "text/csv")
-    public ResponseEntity<byte[]> exportCsv(
+    /** Org daraxti + har bir tugunda subtree KPI’lari (soni, tushum, foyda, sig‘imdan foydalanish) */
+    @GetMapping("/tree")
+    public List<OrgNodeDto> tree(
             Authentication auth,
             @RequestParam(required = false) Integer year,
             @RequestParam(required = false, defaultValue = "year") String range,
@@ -68,31 +111,237 @@ public class StatsController {
             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
             @RequestParam(required = false) String types,
-            @RequestParam(required = false) Long orgId
+            @RequestParam(required = false) Long orgId    // ixtiyoriy: shu org ildiz bo‘lgan subtree
     ) {
-        Set<Long> allowedOrgIds = resolveAllowedScope(auth);
-        if (orgId != null) {
-            Set<Long> requestedSubtree = accessService.subtreeOf(orgId);
-            if (allowedOrgIds == null) {
-                allowedOrgIds = requestedSubtree;
-            } else {
-                if (allowedOrgIds.contains(orgId)) {
-                    requestedSubtree.retainAll(allowedOrgIds);
-                    allowedOrgIds = requestedSubtree;
-                } else {
-                    allowedOrgIds = Collections.emptySet();
+        Set<Long> scope = narrowToOrg(resolveAllowedScope(auth), orgId);
+        StatsService.Window w = statsService.window(year, range, quarter, from, to);
+        List<FacilityType> typeList = StatsService.canonicalTypes(parseTypes(types));
+        return singleFlight.execute(flightKey("tree", scope, w, typeList, orgId),
+                () -> statsService.orgTreeKpis(scope, w.year(), typeList, w.range(), w.quarter(), w.from(), w.to()));
+    }
+
+    /** Vaqt qatorlari: granularity=day|week|month|quarter, by=none|type|org (bir javobda bir nechta seriya) */
+    @GetMapping("/timeseries")
+    public TimeSeriesRes timeSeries(
+            Authentication auth,
+            @RequestParam(required = false) Integer year,
+            @RequestParam(required = false, defaultValue = "year") String range,
+            @RequestParam(required = false) Integer quarter,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false) String types,
+            @RequestParam(required = false) Long orgId,
+            @RequestParam(required = false, defaultValue = "month") String granularity,
+            @RequestParam(required = false, defaultValue = "none") String by,
+            @RequestParam(required = false) String compare
+    ) {
+        StatsTimeSeriesSource.Granularity g = parseEnum(StatsTimeSeriesSource.Granularity.class, granularity, "granularity");
+        StatsTimeSeriesSource.SeriesBy sb = parseEnum(StatsTimeSeriesSource.SeriesBy.class, by, "by");
+        Set<Long> scope = narrowToOrg(resolveAllowedScope(auth), orgId);
+        StatsService.Window w = statsService.window(year, range, quarter, from, to);
+        List<FacilityType> typeList = StatsService.canonicalTypes(parseTypes(types));
+        List<Integer> compareYears = parseCompare(compare, year);
+        return singleFlight.execute(flightKey("timeseries", scope, w, typeList, orgId, g, sb, compareYears), () -> {
+            TimeSeriesRes res = statsService.timeSeries(scope, w.year(), typeList, w.range(), w.quarter(), w.from(), w.to(), g, sb, compareYears);
+            res.setOrgFilter(orgId);
+            return res;
+        });
+    }
+
+    /**
+     * Org’lar taqqoslash matritsasi: orgIds=1,5,9 — har biri subtree’si bilan; compare=last:N | CSV yillar.
+     * Subtree’lar bitta org snapshot’idan, facility’lar bitta o‘tishda yig‘iladi.
+     */
+    @GetMapping("/compare")
+    public CompareRes compare(
+            Authentication auth,
+            @RequestParam String orgIds,
+            @RequestParam(required = false) Integer year,
+            @RequestParam(required = false, defaultValue = "year") String range,
+            @RequestParam(required = false) Integer quarter,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false) String types,
+            @RequestParam(required = false) String compare
+    ) {
+        List<Long> ids = parseOrgIds(orgIds);
+        Set<Long> allowed = resolveAllowedScope(auth);
+        StatsService.Window w = statsService.window(year, range, quarter, from, to);
+        List<FacilityType> typeList = StatsService.canonicalTypes(parseTypes(types));
+        List<Integer> compareYears = parseCompare(compare, year);
+        return singleFlight.execute(flightKey("compare", allowed, ids, w, typeList, compareYears), () -> {
+            Map<Long, AccessService.OrgSubtree> subtrees = accessService.subtreesOf(ids);
+            List<AccessService.OrgSubtree> targets = new ArrayList<>(ids.size());
+            for (Long id : ids) {
+                if (allowed != null && !allowed.contains(id)) {
+                    throw new ResponseStatusException(HttpStatus.FORBIDDEN, "Org not accessible: " + id);
+                }
+                AccessService.OrgSubtree t = subtrees.get(id);
+                if (t == null) throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Org not found: " + id);
+                if (allowed != null) { // subtree ruxsat doirasida bo‘lishi kerak — baribir kesishtiramiz
+                    Set<Long> narrowed = new HashSet<>(t.orgIds());
+                    narrowed.retainAll(allowed);
+                    t = new AccessService.OrgSubtree(t.id(), t.name(), narrowed);
                 }
+                targets.add(t);
             }
-        }
+            return statsService.compareOrgs(targets, w.year(), typeList, w.range(), w.quarter(), w.from(), w.to(), compareYears);
+        });
+    }
+
+    /** Taqsimotlar: median/p90/p99 va gistogramma (tushum, foyda, sig‘imdan foydalanish); by=none|type|org */
+    @GetMapping("/distribution")
+    public DistributionRes distribution(
+            Authentication auth,
+            @RequestParam(required = false) Integer year,
+            @RequestParam(required = false, defaultValue = "year") String range,
+            @RequestParam(required = false) Integer quarter,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false) String types,
+            @RequestParam(required = false) Long orgId,
+            @RequestParam(required = false, defaultValue = "type") String by,
+            @RequestParam(required = false, defaultValue = "20") int bins
+    ) {
+        StatsTimeSeriesSource.SeriesBy sb = parseEnum(StatsTimeSeriesSource.SeriesBy.class, by, "by");
+        if (bins < 1 || bins > 200) throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "bins must be 1..200");
+        Set<Long> scope = narrowToOrg(resolveAllowedScope(auth), orgId);
+        StatsService.Window w = statsService.window(year, range, quarter, from, to);
+        List<FacilityType> typeList = StatsService.canonicalTypes(parseTypes(types));
+        return singleFlight.execute(flightKey("distribution", scope, w, typeList, orgId, sb, bins), () -> {
+            DistributionRes res = statsService.distribution(scope, w.year(), typeList, w.range(), w.quarter(), w.from(), w.to(), sb, bins);
+            res.setOrgFilter(orgId);
+            return res;
+        });
+    }
+
+    /**
+     * Umumiy yig‘ish: metrics=sum(expectedRevenue),avg(areaM2),count; groupBy=type,org,status,time;
+     * granularity=day|week|month|quarter (time uchun). Oyna parametrlari berilmasa — barcha vaqt.
+     */
+    @GetMapping("/aggregate")
+    public AggregateRes aggregate(
+            Authentication auth,
+            @RequestParam String metrics,
+            @RequestParam(required = false) String groupBy,
+            @RequestParam(required = false, defaultValue = "month") String granularity,
+            @RequestParam(required = false) Integer year,
+            @RequestParam(required = false) String range,
+            @RequestParam(required = false) Integer quarter,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false) String types,
+            @RequestParam(required = false) Long orgId
+    ) {
+        StatsTimeSeriesSource.Granularity g = parseEnum(StatsTimeSeriesSource.Granularity.class, granularity, "granularity");
+        List<MetricAggregateDao.Dim> dims = groupBy == null ? List.of() : Arrays.stream(groupBy.split(","))
+                .map(String::trim).filter(x -> !x.isEmpty())
+                .map(x -> parseEnum(MetricAggregateDao.Dim.class, x, "groupBy")).distinct().toList();
+        List<String> metricList = Arrays.asList(metrics.split(","));
+        Set<Long> scope = narrowToOrg(resolveAllowedScope(auth), orgId);
+        // Oyna parametrlari umuman berilmasa — barcha vaqt (w = null)
+        StatsService.Window w = (year == null && range == null && quarter == null && from == null && to == null)
+                ? null : statsService.window(year, range, quarter, from, to);
+        List<FacilityType> typeList = StatsService.canonicalTypes(parseTypes(types));
+        return singleFlight.execute(flightKey("aggregate", scope, w, typeList, orgId, metricList, dims, g), () -> {
+            AggregateRes res = w == null
+                    ? statsService.aggregate(scope, null, typeList, null, null, null, null, metricList, dims, g)
+                    : statsService.aggregate(scope, w.year(), typeList, w.range(), w.quarter(), w.from(), w.to(), metricList, dims, g);
+            res.setOrgFilter(orgId);
+            return res;
+        });
+    }
+
+    /** /aggregate’da ishlatiladigan metrikalar (o‘rnatilgan + admin qo‘shgan) */
+    @GetMapping("/metrics")
+    public List<MetricInfo> metrics() {
+        return metricRegistry.list();
+    }
+
+    @GetMapping(value = "/export", produces = {"text/csv", "application/vnd.apache.arrow.file",
+            "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet"})
+    public ResponseEntity<StreamingResponseBody> exportCsv(
+            Authentication auth,
+            @RequestParam(required = false) Integer year,
+            @RequestParam(required = false, defaultValue = "year") String range,
+            @RequestParam(required = false) Integer quarter,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false) String types,
+            @RequestParam(required = false) Long orgId,
+            @RequestParam(required = false, defaultValue = "csv") String format // csv|arrow|xlsx
+    ) {
+        ExportFormat fmt = parseExportFormat(format);
+        Set<Long> scope = narrowToOrg(resolveAllowedScope(auth), orgId);
         List<FacilityType> typeList = parseTypes(types);
-        String csv = statsService.exportCsv(allowedOrgIds, year, typeList, range, quarter, from, to);
-        byte[] body = csv.getBytes(StandardCharsets.UTF_8);
+        StreamingResponseBody body = switch (fmt) {
+            case CSV -> out -> statsService.exportCsv(scope, year, typeList, range, quarter, from, to, out);
+            case ARROW -> out -> statsService.exportArrow(scope, year, typeList, range, quarter, from, to, out);
+            case XLSX -> out -> statsService.exportXlsx(scope, year, typeList, range, quarter, from, to, out);
+        };
         return ResponseEntity.ok()
-                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"stats-export.csv\"")
-                .contentType(new MediaType("text", "csv"))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"stats-export." + fmt.extension() + "\"")
+                .contentType(fmt.mediaType())
                 .body(body);
     }
 
+    // ================= Asinxron export vazifalari =================
+
+    /** Katta export’lar uchun: vazifa navbatga qo‘yiladi (202), holati so‘raladi, tayyor fayl keyin yuklab olinadi */
+    @PostMapping("/export-jobs")
+    public ResponseEntity<ExportJobService.ExportJobDto> submitExportJob(
+            Authentication auth,
+            @RequestParam(required = false) Integer year,
+            @RequestParam(required = false, defaultValue = "year") String range,
+            @RequestParam(required = false) Integer quarter,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false) String types,
+            @RequestParam(required = false) Long orgId,
+            @RequestParam(required = false, defaultValue = "csv") String format // csv|arrow|xlsx
+    ) {
+        UserPrincipal up = principal(auth);
+        ExportFormat fmt = parseExportFormat(format);
+        // Ko‘lam hozir aniqlanadi va vazifa bilan saqlanadi — worker’da foydalanuvchi konteksti yo‘q
+        Set<Long> scope = narrowToOrg(resolveAllowedScope(auth), orgId);
+        ExportJobService.ExportJobDto job = exportJobs.submit(up.getId(), new ExportJobService.ExportSpec(
+                scope, fmt, year, range, quarter, from, to, parseTypes(types), orgId));
+        return ResponseEntity.status(HttpStatus.ACCEPTED)
+                .header(HttpHeaders.LOCATION, "/api/stats/export-jobs/" + job.id())
+                .body(job);
+    }
+
+    @GetMapping("/export-jobs")
+    public List<ExportJobService.ExportJobDto> listExportJobs(Authentication auth) {
+        return exportJobs.list(principal(auth).getId());
+    }
+
+    @GetMapping("/export-jobs/{id}")
+    public ExportJobService.ExportJobDto exportJob(Authentication auth, @PathVariable String id) {
+        return exportJobs.toDto(ownedJob(auth, id));
+    }
+
+    @GetMapping("/export-jobs/{id}/download")
+    public ResponseEntity<Resource> downloadExportJob(Authentication auth, @PathVariable String id) {
+        ExportJob job = ownedJob(auth, id);
+        Path file = exportJobs.artifact(job);
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        "attachment; filename=\"stats-export-" + job.getId() + "." + job.getFormat().extension() + "\"")
+                .contentType(job.getFormat().mediaType())
+                .body(new FileSystemResource(file));
+    }
+
+    /** Faol vazifa — bekor qilinadi (200, yangi holat); tugagani — fayli bilan o‘chiriladi (204) */
+    @DeleteMapping("/export-jobs/{id}")
+    public ResponseEntity<ExportJobService.ExportJobDto> deleteExportJob(Authentication auth, @PathVariable String id) {
+        ExportJob job = ownedJob(auth, id);
+        if (exportJobs.cancelOrDelete(job)) {
+            return ResponseEntity.ok(exportJobs.toDto(ownedJob(auth, id)));
+        }
+        return ResponseEntity.noContent().build();
+    }
+
     // ================= Helpers =================
 
     /** ADMIN => null (hammasi), USER => o‘zi + barcha avlodlari id’lari to‘plami */
@@ -103,7 +352,120 @@ public class StatsController {
         if (up.getRole() == Role.ADMIN) {
             return null; // ADMIN => to‘liq ko‘rish
         }
-        return accessService.allowedOrgIds(auth); // USER => subtree
+        // USER => subtree; bir org foydalanuvchilari bir vaqtda kelsa — bitta hisoblash
+        Set<Long> subtree = singleFlight.execute(flightKey("scope", null, up.getOrgId()),
+                () -> accessService.allowedOrgIds(auth));
+        return Collections.unmodifiableSet(subtree);
+    }
+
+    /** orgId berilsa — ko‘lamni shu org subtree’si bilan kesishtiradi (ruxsat doirasidan tashqarida bo‘lsa bo‘sh) */
+    private Set<Long> narrowToOrg(Set<Long> allowedOrgIds, Long orgId) {
+        if (orgId == null) return allowedOrgIds;
+        // subtree of requested org
+        Set<Long> requestedSubtree = new HashSet<>(singleFlight.execute(flightKey("subtree", null, orgId),
+                () -> accessService.subtreeOf(orgId)));
+        if (allowedOrgIds == null) { // ADMIN -> just use subtree (may be empty if org not found)
+            return requestedSubtree;
+        }
+        if (!allowedOrgIds.contains(orgId)) return Collections.emptySet();
+        // narrow to intersection to be extra safe (though subtree should be subset)
+        requestedSubtree.retainAll(allowedOrgIds);
+        return requestedSubtree;
+    }
+
+    private static UserPrincipal principal(Authentication auth) {
+        if (auth == null || !(auth.getPrincipal() instanceof UserPrincipal up)) {
+            throw new ResponseStatusException(HttpStatus.UNAUTHORIZED);
+        }
+        return up;
+    }
+
+    private ExportJob ownedJob(Authentication auth, String id) {
+        UserPrincipal up = principal(auth);
+        return exportJobs.get(id, up.getId(), up.getRole() == Role.ADMIN);
+    }
+
+    /** parquet: Java yozuvchisi Hadoop stack’ini talab qiladi — Arrow IPC’ni pandas/DuckDB to‘g‘ridan-to‘g‘ri o‘qiydi */
+    private static ExportFormat parseExportFormat(String format) {
+        try {
+            return ExportFormat.valueOf(format.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Unsupported export format: " + format + " (csv|arrow|xlsx)");
+        }
+    }
+
+    /** Snapshot scope kaliti: orgId => "org:<id>", ADMIN => "all", USER => "org:<o‘z org’i>" */
+    private static String snapshotKey(Authentication auth, Long orgId) {
+        if (orgId != null) return OverviewSnapshotService.keyFor(orgId);
+        if (auth == null || !(auth.getPrincipal() instanceof UserPrincipal up)) return null;
+        if (up.getRole() == Role.ADMIN) return OverviewSnapshotService.ALL;
+        return up.getOrgId() == null ? null : OverviewSnapshotService.keyFor(up.getOrgId());
+    }
+
+    /** Single-flight kaliti: endpoint + scope + normallashtirilgan parametrlar (oyna — {@link StatsService.Window}, turlar — {@link StatsService#canonicalTypes}) */
+    private record FlightKey(String op, Set<Long> scope, List<Object> params) {}
+
+    private static FlightKey flightKey(String op, Set<Long> scope, Object... params) {
+        List<Object> p = new ArrayList<>(params.length);
+        for (Object v : params) p.add(v instanceof String str ? str.toLowerCase(Locale.ROOT) : v);
+        return new FlightKey(op, scope == null ? null : Set.copyOf(scope), p);
+    }
+
+    private static <E extends Enum<E>> E parseEnum(Class<E> type, String value, String param) {
+        try {
+            return Enum.valueOf(type, value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid " + param + ": " + value);
+        }
+    }
+
+    /**
+     * Taqqoslash davrlari: "last:N" — oxirgi N yil, yoki "2024,2021" — aniq yillar.
+     * Natija: takrorlanmas yillar, yangisidan eskisiga, tanlangan yilsiz; ko‘pi bilan maxComparePeriods ta.
+     */
+    private List<Integer> parseCompare(String compare, Integer year) {
+        if (compare == null || compare.isBlank()) return List.of();
+        int base = (year != null) ? year : Year.now().getValue();
+        TreeSet<Integer> years = new TreeSet<>(Comparator.reverseOrder());
+        String spec = compare.trim().toLowerCase(Locale.ROOT);
+        try {
+            if (spec.startsWith("last:")) {
+                int n = Integer.parseInt(spec.substring("last:".length()).trim());
+                if (n < 1 || n > maxComparePeriods) {
+                    throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "compare=last:N expects 1.." + maxComparePeriods);
+                }
+                for (int i = 1; i <= n; i++) years.add(base - i);
+            } else {
+                for (String part : spec.split(",")) {
+                    if (part.isBlank()) continue;
+                    int cy = Integer.parseInt(part.trim());
+                    if (cy < 1900 || cy > 9999) throw new NumberFormatException();
+                    if (cy != base) years.add(cy);
+                }
+            }
+        } catch (NumberFormatException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid compare: " + compare + " (last:N | CSV of years)");
+        }
+        if (years.size() > maxComparePeriods) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Too many comparison periods (max " + maxComparePeriods + ")");
+        }
+        return List.copyOf(years);
+    }
+
+    /** CSV org id’lari: takrorlanmas, so‘rov tartibida; 1..maxCompareOrgs ta */
+    private List<Long> parseOrgIds(String orgIds) {
+        LinkedHashSet<Long> ids = new LinkedHashSet<>();
+        try {
+            for (String part : orgIds.split(",")) {
+                if (!part.isBlank()) ids.add(Long.valueOf(part.trim()));
+            }
+        } catch (NumberFormatException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid orgIds: " + orgIds);
+        }
+        if (ids.isEmpty() || ids.size() > maxCompareOrgs) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "orgIds expects 1.." + maxCompareOrgs + " ids");
+        }
+        return List.copyOf(ids);
     }
 
     private List<FacilityType> parseTypes(String types) {
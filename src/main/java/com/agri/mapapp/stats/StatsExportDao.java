@@ -0,0 +1,125 @@
+package com.agri.mapapp.stats;
+
+import com.agri.mapapp.facility.FacilityMetrics;
+import com.agri.mapapp.facility.FacilityType;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Export qatorlari: forward-only JDBC cursor (fetch size) orqali, read-only tranzaksiyada.
+ * Entity’lar yuklanmaydi — persistence context o‘smaydi, xotira qatorlar soniga bog‘liq emas.
+ */
+@Repository
+public class StatsExportDao {
+
+    /** Export’dagi bitta qator (exportCsv ustunlari bilan bir xil) */
+    public record ExportRow(Long orgId, String orgName, FacilityType type, LocalDateTime createdAt,
+                            FacilityMetrics metrics) {}
+
+    @FunctionalInterface
+    public interface RowSink {
+        void accept(ExportRow row) throws IOException;
+    }
+
+    private final NamedParameterJdbcTemplate jdbc;
+    private final TransactionTemplate readOnlyTx;
+
+    public StatsExportDao(DataSource dataSource,
+                          PlatformTransactionManager txManager,
+                          @Value("${app.stats.export.fetch-size:1000}") int fetchSize) {
+        JdbcTemplate t = new JdbcTemplate(dataSource);
+        t.setFetchSize(fetchSize); // PostgreSQL: faqat autocommit=false (tranzaksiya ichida) cursor bo‘ladi
+        this.jdbc = new NamedParameterJdbcTemplate(t);
+        this.readOnlyTx = new TransactionTemplate(txManager);
+        this.readOnlyTx.setReadOnly(true);
+    }
+
+    /** Scope’dagi org nomlari (id tartibida); orgIds == null => barchasi */
+    public List<String> orgNames(Set<Long> orgIds) {
+        if (orgIds == null) {
+            return jdbc.getJdbcOperations().queryForList("SELECT name FROM org_unit ORDER BY id", String.class);
+        }
+        if (orgIds.isEmpty()) return List.of();
+        return jdbc.queryForList("SELECT name FROM org_unit WHERE id IN (:ids) ORDER BY id",
+                new MapSqlParameterSource("ids", orgIds), String.class);
+    }
+
+    /** stream() bilan bir xil filtr bo‘yicha qatorlar soni */
+    public long count(Set<Long> orgIds, Collection<FacilityType> types, LocalDateTime from, LocalDateTime to) {
+        MapSqlParameterSource p = new MapSqlParameterSource();
+        String where = where(orgIds, types, from, to, p);
+        Long n = jdbc.queryForObject("SELECT count(*) FROM facility f WHERE " + where, p, Long.class);
+        return n != null ? n : 0L;
+    }
+
+    /**
+     * Oynadagi (ikki chegara ham kiradi) facility qatorlarini id tartibida sink’ka uzatadi.
+     * orgIds == null => cheklanmagan; types bo‘sh bo‘lmasligi kerak. Qaytadi: qatorlar soni.
+     */
+    public long stream(Set<Long> orgIds, Collection<FacilityType> types,
+                       LocalDateTime from, LocalDateTime to, RowSink sink) throws IOException {
+        MapSqlParameterSource p = new MapSqlParameterSource();
+        String where = where(orgIds, types, from, to, p);
+        String sql = """
+                SELECT f.org_id, o.name AS org_name, f.type, f.created_at,
+                       f.expected_revenue AS revenue, f.net_profit AS profit, f.current_amount AS cur,
+                       f.capacity AS cap, f.product_amount AS product, f.area_m2
+                FROM facility f
+                LEFT JOIN org_unit o ON o.id = f.org_id
+                WHERE %s
+                ORDER BY f.id
+                """.formatted(where);
+
+        long[] count = {0};
+        try {
+            readOnlyTx.executeWithoutResult(status -> jdbc.query(sql, p, rs -> {
+                String type = rs.getString("type");
+                ExportRow row = new ExportRow(
+                        (Long) rs.getObject("org_id"),
+                        rs.getString("org_name"),
+                        type != null ? FacilityType.valueOf(type) : null,
+                        rs.getObject("created_at", LocalDateTime.class),
+                        new FacilityMetrics(
+                                rs.getDouble("revenue"), rs.getDouble("profit"),
+                                rs.getDouble("cur"), rs.getDouble("cap"),
+                                rs.getDouble("product"), rs.getDouble("area_m2")));
+                try {
+                    sink.accept(row);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                count[0]++;
+            }));
+        } catch (UncheckedIOException e) {
+            throw e.getCause(); // mijoz ulanishni uzgan bo‘lishi mumkin — cursor yopiladi, tranzaksiya rollback
+        }
+        return count[0];
+    }
+
+    /** stream()/count() uchun umumiy filtr; parametrlar p’ga qo‘shiladi */
+    private static String where(Set<Long> orgIds, Collection<FacilityType> types,
+                                LocalDateTime from, LocalDateTime to, MapSqlParameterSource p) {
+        p.addValue("types", types.stream().map(Enum::name).toList())
+                .addValue("from", from)
+                .addValue("to", to);
+        String where = "f.type IN (:types) AND f.created_at BETWEEN :from AND :to";
+        if (orgIds != null) {
+            p.addValue("orgIds", orgIds);
+            where += " AND f.org_id IN (:orgIds)";
+        }
+        return where;
+    }
+}
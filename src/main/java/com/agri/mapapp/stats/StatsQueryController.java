@@ -0,0 +1,29 @@
+package com.agri.mapapp.stats;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/admin/stats/queries")
+@RequiredArgsConstructor
+@PreAuthorize("hasRole('ADMIN')")
+public class StatsQueryController {
+
+    private final StatsQueryExecutor queryExecutor;
+    private final SingleFlight singleFlight;
+
+    /** Statistika so‘rovlari vaqtlari: "batch/sub" → count/avgMs/maxMs */
+    @GetMapping
+    public Map<String, Map<String, Object>> stats() {
+        return queryExecutor.stats();
+    }
+
+    /** Bir xil parallel so‘rovlarni birlashtirish: calls/executions/coalesced */
+    @GetMapping("/coalescing")
+    public Map<String, Object> coalescing() {
+        return singleFlight.stats();
+    }
+}
@@ -0,0 +1,200 @@
+package com.agri.mapapp.stats;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Statistikaning mustaqil SQL so‘rovlarini parallel bajarish.
+ *  - Alohida, chegaralangan pool: threads soni = statistikaga ajratilgan ulanishlar byudjeti;
+ *  - Har bir so‘rov read-only tranzaksiyada, timeout bilan (JDBC query timeout — DB tomonida bekor qilinadi);
+ *  - Biri yiqilsa/kechiksa qolganlari bekor qilinadi;
+ *  - So‘rovlar vaqti loglanadi va {@link #stats()} orqali yig‘iladi.
+ *
+ * Foydalanish: batch("overview") → fork(...) bir necha marta → join() → Sub.get().
+ */
+@Slf4j
+@Component
+public class StatsQueryExecutor {
+
+    private final boolean parallel;
+    private final long timeoutMs;
+    private final long slowMs;
+    private final TransactionTemplate tx;
+    private final ThreadPoolExecutor pool;
+
+    private final ConcurrentHashMap<String, Timing> timings = new ConcurrentHashMap<>();
+
+    public StatsQueryExecutor(
+            PlatformTransactionManager txManager,
+            @Value("${app.stats.parallel.enabled:true}") boolean parallel,
+            @Value("${app.stats.parallel.threads:4}") int threads,
+            @Value("${app.stats.parallel.queue:64}") int queue,
+            @Value("${app.stats.parallel.timeout-ms:15000}") long timeoutMs,
+            @Value("${app.stats.parallel.slow-ms:1000}") long slowMs
+    ) {
+        this.parallel = parallel;
+        this.timeoutMs = timeoutMs;
+        this.slowMs = slowMs;
+        this.tx = new TransactionTemplate(txManager);
+        this.tx.setReadOnly(true);
+        this.tx.setTimeout((int) Math.max(1, (timeoutMs + 999) / 1000));
+
+        AtomicInteger seq = new AtomicInteger();
+        this.pool = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queue),
+                r -> {
+                    Thread t = new Thread(r, "stats-query-" + seq.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        this.pool.allowCoreThreadTimeOut(true);
+    }
+
+    public Batch batch(String name) {
+        return new Batch(name);
+    }
+
+    /** So‘rovlar bo‘yicha yig‘ma vaqtlar: "batch/sub" → {count, avgMs, maxMs} */
+    public Map<String, Map<String, Object>> stats() {
+        Map<String, Map<String, Object>> out = new TreeMap<>();
+        timings.forEach((k, t) -> {
+            long n = t.count.sum();
+            Map<String, Object> m = new LinkedHashMap<>();
+            m.put("count", n);
+            m.put("avgMs", n > 0 ? t.totalNanos.sum() / 1_000_000.0 / n : 0.0);
+            m.put("maxMs", t.maxNanos.get() / 1_000_000.0);
+            out.put(k, m);
+        });
+        return out;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        pool.shutdownNow();
+    }
+
+    /* -------------------- Batch -------------------- */
+
+    public final class Batch {
+        private final String name;
+        private final List<Sub<?>> subs = new ArrayList<>();
+
+        private Batch(String name) {
+            this.name = name;
+        }
+
+        public <T> Sub<T> fork(String subName, Supplier<T> query) {
+            Sub<T> sub = new Sub<>(subName, query);
+            subs.add(sub);
+            if (parallel) {
+                try {
+                    sub.future = pool.submit(sub::run);
+                } catch (RejectedExecutionException e) {
+                    cancelAll();
+                    throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Stats query pool is busy");
+                }
+            }
+            return sub;
+        }
+
+        /** Hammasini kutadi (umumiy deadline bilan); xato/timeout bo‘lsa qolganlarini bekor qiladi */
+        public void join() {
+            long start = System.nanoTime();
+            long deadline = start + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+            try {
+                for (Sub<?> s : subs) {
+                    if (!parallel) {
+                        s.run();
+                        continue;
+                    }
+                    long left = deadline - System.nanoTime();
+                    s.future.get(Math.max(0, left), TimeUnit.NANOSECONDS);
+                }
+            } catch (TimeoutException e) {
+                cancelAll();
+                throw new ResponseStatusException(HttpStatus.GATEWAY_TIMEOUT, "Stats query timed out: " + name);
+            } catch (ExecutionException e) {
+                cancelAll();
+                Throwable c = e.getCause();
+                if (c instanceof RuntimeException re) throw re;
+                throw new IllegalStateException(c);
+            } catch (InterruptedException e) {
+                cancelAll();
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted: " + name, e);
+            }
+            report(System.nanoTime() - start);
+        }
+
+        private void cancelAll() {
+            for (Sub<?> s : subs) {
+                if (s.future != null) s.future.cancel(true);
+            }
+        }
+
+        private void report(long wallNanos) {
+            StringBuilder sb = new StringBuilder();
+            for (Sub<?> s : subs) {
+                timings.computeIfAbsent(name + "/" + s.name, k -> new Timing()).record(s.nanos);
+                sb.append(' ').append(s.name).append('=').append(s.nanos / 1_000_000).append("ms");
+            }
+            timings.computeIfAbsent(name, k -> new Timing()).record(wallNanos);
+            long wallMs = wallNanos / 1_000_000;
+            if (wallMs >= slowMs) log.warn("{} sekin: {}ms [{} ]", name, wallMs, sb.toString().trim());
+            else log.debug("{}: {}ms [{} ]", name, wallMs, sb.toString().trim());
+        }
+    }
+
+    public final class Sub<T> {
+        private final String name;
+        private final Supplier<T> query;
+        private volatile T result;
+        private volatile long nanos;
+        private Future<?> future;
+
+        private Sub(String name, Supplier<T> query) {
+            this.name = name;
+            this.query = query;
+        }
+
+        private void run() {
+            long t0 = System.nanoTime();
+            try {
+                result = tx.execute(status -> query.get());
+            } finally {
+                nanos = System.nanoTime() - t0;
+            }
+        }
+
+        /** join()’dan keyin */
+        public T get() {
+            return result;
+        }
+    }
+
+    private static final class Timing {
+        final LongAdder count = new LongAdder();
+        final LongAdder totalNanos = new LongAdder();
+        final AtomicLong maxNanos = new AtomicLong();
+
+        void record(long nanos) {
+            count.increment();
+            totalNanos.add(nanos);
+            maxNanos.accumulateAndGet(nanos, Math::max);
+        }
+    }
+}
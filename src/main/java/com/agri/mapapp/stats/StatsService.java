@@ -1,24 +1,66 @@
 package com.agri.mapapp.stats;
 
-import com.agri.mapapp.facility.Facility;
-import com.agri.mapapp.facility.FacilityRepository;
-import com.agri.mapapp.facility.FacilityStatus;
+import com.agri.mapapp.facility.FacilityMetrics;
 import com.agri.mapapp.facility.FacilityType;
+import com.agri.mapapp.org.AccessService;
+import com.agri.mapapp.org.OrgNodeDto;
+import com.agri.mapapp.org.OrgNodeKpi;
+import com.agri.mapapp.org.OrganizationService;
+import com.agri.mapapp.stats.approx.FacilitySample;
+import com.agri.mapapp.stats.approx.FacilitySampleDao;
+import com.agri.mapapp.stats.columnar.FacilityColumnStore;
+import com.agri.mapapp.stats.distribution.MetricSketches;
+import com.agri.mapapp.stats.distribution.OrgSketchCache;
+import com.agri.mapapp.stats.distribution.TDigest;
+import com.agri.mapapp.stats.metric.MetricAggregateDao;
+import com.agri.mapapp.stats.metric.MetricRegistry;
 import com.agri.mapapp.stats.dto.*;
-import com.fasterxml.jackson.databind.JsonNode;
+import com.agri.mapapp.stats.rollup.FacilityRollupService;
+import com.agri.mapapp.stats.rollup.RollupAggregateDao;
+import com.agri.mapapp.stats.export.ArrowExportWriter;
+import com.agri.mapapp.stats.export.XlsxExportWriter;
 import lombok.RequiredArgsConstructor;
-import org.springframework.data.jpa.domain.Specification;
+import org.apache.arrow.vector.compression.CompressionUtil;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
 
+import java.io.*;
+import java.nio.charset.StandardCharsets;
 import java.time.*;
+import java.time.temporal.TemporalAdjusters;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.function.LongConsumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 @Service
 @RequiredArgsConstructor
 public class StatsService {
 
-    private final FacilityRepository facilityRepo;
+    private final StatsAggregateDao aggregateDao;
+    private final StatsExportDao exportDao;
+    private final StatsQueryExecutor queries;
+
+    @Value("${app.stats.export.arrow-codec:ZSTD}")
+    private CompressionUtil.CodecType arrowCodec;
+    @Value("${app.stats.export.xlsx.window-rows:100}")
+    private int xlsxWindowRows;
+    @Value("${app.stats.timeseries.max-buckets:1000}")
+    private int maxTimeBuckets;
+    @Value("${app.stats.aggregate.max-groups:10000}")
+    private int maxAggregateGroups;
+    @Value("${app.stats.aggregate.max-metrics:20}")
+    private int maxAggregateColumns;
+    private final RollupAggregateDao rollupDao;
+    private final FacilityRollupService rollupService;
+    private final OrganizationService organizationService;
+    private final FacilityColumnStore columnStore;
+    private final OrgSketchCache sketchCache;
+    private final FacilitySampleDao sampleDao;
+    private final MetricRegistry metricRegistry;
+    private final MetricAggregateDao metricDao;
 
     // ✅ Ko‘rinishi kerak bo‘lgan turlar
     private static final EnumSet<FacilityType> ALLOWED = EnumSet.of(
@@ -35,202 +77,204 @@ public class StatsService {
             FacilityType.FISHPOND
     );
 
-    // 🔑 Alias kalitlar (moslashuvchan o‘qish)
-    private static final List<String> REV_KEYS   = List.of("expectedRevenue", "revenue");
-    private static final List<String> PROF_KEYS  = List.of("netProfit", "profit");
-    private static final List<String> PROD_KEYS  = List.of("productAmount", "product_kg", "yieldAmount", "yield_amount", "eggs_per_day");
-    private static final List<String> AREA_KEYS  = List.of("areaM2", "area_m2"); // + totalAreaHa (maxsus)
-    private static final String TOTAL_AREA_HA = "totalAreaHa";
-
     public OverviewRes overviewAdvanced(Set<Long> allowedOrgIds, Integer year,
                                         List<FacilityType> types,
                                         String range, Integer quarter,
                                         LocalDate from, LocalDate to) {
+        return overviewAdvanced(allowedOrgIds, year, types, range, quarter, from, to, List.of());
+    }
 
-        if (range == null || range.isBlank()) range = "year";
-        range = range.toLowerCase(Locale.ROOT);
+    /**
+     * compareYears — qo‘shimcha taqqoslash yillari (shu oyna o‘sha yilga siljitiladi).
+     * Barcha davrlar bitta periodBuckets o‘tishida yig‘iladi: har bir davr qo‘shimcha so‘rov emas, JOIN’dagi bitta qator.
+     */
+    public OverviewRes overviewAdvanced(Set<Long> allowedOrgIds, Integer year,
+                                        List<FacilityType> types,
+                                        String range, Integer quarter,
+                                        LocalDate from, LocalDate to,
+                                        List<Integer> compareYears) {
+        return overview(allowedOrgIds, year, types, range, quarter, from, to, compareYears, false);
+    }
 
-        int y = (year != null) ? year : Year.now().getValue();
-        LocalDateTime winStart, winEnd;
+    /**
+     * Taxminiy overview: xuddi shu hisob-kitob, lekin manba — facility’ning blok tanlanmasi (TABLESAMPLE SYSTEM).
+     * Vaqt tanlanma hajmiga (app.stats.approx.sample-rows) bog‘liq; asosiy KPI’lar uchun ishonch oraliqlari res.approx’da.
+     * Kichik jadvalda tanlanma = butun jadval, natija aniq rejim bilan bir xil.
+     */
+    public OverviewRes overviewApprox(Set<Long> allowedOrgIds, Integer year,
+                                      List<FacilityType> types,
+                                      String range, Integer quarter,
+                                      LocalDate from, LocalDate to,
+                                      List<Integer> compareYears) {
+        return overview(allowedOrgIds, year, types, range, quarter, from, to, compareYears, true);
+    }
 
-        if ("quarter".equals(range)) {
-            int q = (quarter != null && quarter >= 1 && quarter <= 4) ? quarter : 1;
-            int startMonth = (q - 1) * 3 + 1;
-            Month sm = Month.of(startMonth);
-            Month em = Month.of(startMonth + 2);
-            winStart = LocalDate.of(y, sm, 1).atStartOfDay();
-            winEnd = LocalDate.of(y, em, em.length(Year.isLeap(y))).plusDays(1).atStartOfDay();
-        } else if ("custom".equals(range) && from != null && to != null && !to.isBefore(from)) {
-            winStart = from.atStartOfDay();
-            winEnd = to.plusDays(1).atStartOfDay();
-        } else {
-            range = "year";
-            winStart = LocalDate.of(y, 1, 1).atStartOfDay();
-            winEnd = LocalDate.of(y + 1, 1, 1).atStartOfDay();
-        }
+    private OverviewRes overview(Set<Long> allowedOrgIds, Integer year,
+                                 List<FacilityType> types,
+                                 String range, Integer quarter,
+                                 LocalDate from, LocalDate to,
+                                 List<Integer> compareYears, boolean approx) {
 
-        // Base spec + org + ✅ ALLOWED
-        Specification<Facility> spec = Specification.where(alwaysTrue())
-                .and(typeIn(new ArrayList<>(ALLOWED)));
-        if (allowedOrgIds != null) {
-            if (allowedOrgIds.isEmpty())
-                return emptyOverviewForWindow(y, types, range, quarter, winStart, winEnd);
-            spec = spec.and(orgIn(allowedOrgIds));
-        }
+        Window w = resolveWindow(year, range, quarter, from, to);
+        int y = w.year();
+        range = w.range();
+        LocalDateTime winStart = w.start(), winEnd = w.end();
 
-        // Frontdan kelgan turlarni ALLOWED bilan kesishma
-        if (types != null && !types.isEmpty()) {
-            List<FacilityType> onlyAllowed = types.stream().filter(ALLOWED::contains).toList();
-            if (onlyAllowed.isEmpty())
-                return emptyOverviewForWindow(y, types, range, quarter, winStart, winEnd);
-            spec = spec.and(typeIn(onlyAllowed));
+        // Org scope + ✅ ALLOWED bilan kesishma
+        if (allowedOrgIds != null && allowedOrgIds.isEmpty())
+            return emptyOverviewForWindow(y, types, range, quarter, winStart, winEnd);
+        List<FacilityType> effTypes = effectiveTypes(types);
+        if (effTypes.isEmpty())
+            return emptyOverviewForWindow(y, types, range, quarter, winStart, winEnd);
+
+        // Tanlangan oyna (0), o‘tgan yilning shu oynasi (1) va taqqoslash yillari (2..; o‘tgan yil qayta ishlatiladi)
+        List<StatsAggregateSource.Period> periods = new ArrayList<>(List.of(
+                new StatsAggregateSource.Period(winStart, winEnd),
+                new StatsAggregateSource.Period(winStart.minusYears(1), winEnd.minusYears(1))
+        ));
+        int[] comparePeriod = new int[compareYears.size()];
+        for (int i = 0; i < compareYears.size(); i++) {
+            int back = y - compareYears.get(i);
+            if (back == 1) {
+                comparePeriod[i] = 1;
+            } else {
+                comparePeriod[i] = periods.size();
+                periods.add(new StatsAggregateSource.Period(winStart.minusYears(back), winEnd.minusYears(back)));
+            }
         }
+        FacilitySample sample = approx ? sampleDao.sample(allowedOrgIds, effTypes) : null;
+        StatsAggregateSource source = sample != null ? sample : aggregateSource(periods);
+
+        // 1-so‘rov: butun baza (type/org/status) + joriy va o‘tgan yil oylari
+        int py = y - 1;
+        LocalDateTime prevStart = LocalDate.of(py, 1, 1).atStartOfDay();
+        LocalDateTime yyyyEnd   = LocalDate.of(y + 1, 1, 1).atStartOfDay();
+        // 2-so‘rov: oynalar bo‘yicha yig‘indilar — ikkalasi parallel
+        StatsQueryExecutor.Batch batch = queries.batch("overview");
+        var baseQ = batch.fork("base", () -> source.baseBuckets(allowedOrgIds, effTypes, prevStart, yyyyEnd));
+        var windowsQ = batch.fork("windows", () -> source.periodBuckets(allowedOrgIds, effTypes, periods));
+        batch.join();
+        List<StatsAggregateSource.BaseBucket> base = baseQ.get();
+        List<StatsAggregateSource.PeriodBucket> windows = windowsQ.get();
+
+        long total = 0, active = 0;
+        Map<FacilityType, Long> byType = new EnumMap<>(FacilityType.class);
+        Map<Long, OrgAgg> byOrg = new HashMap<>();
+        long[] monthBuckets = new long[12], prevBuckets = new long[12];
+        double[] revYY = new double[12], profYY = new double[12];
+        double[] revPY = new double[12], profPY = new double[12];
+        double sumCurrent = 0.0, sumCapacity = 0.0, sumProduct = 0.0, sumAreaM2 = 0.0;
 
-        long total  = facilityRepo.count(spec);
-        long active = facilityRepo.count(spec.and(statusEq(FacilityStatus.ACTIVE)));
+        for (StatsAggregateSource.BaseBucket b : base) {
+            total += b.count();
+            if (b.active()) active += b.count();
+            byType.merge(b.type(), b.count(), Long::sum);
+            OrgAgg org = byOrg.computeIfAbsent(b.orgId(), id -> new OrgAgg(id, b.orgName(), 0L));
+            org.setCount(org.getCount() + b.count());
 
-        List<Facility> base     = facilityRepo.findAll(spec);
-        List<Facility> inWindow = facilityRepo.findAll(spec.and(createdBetween(winStart, winEnd)));
+            sumCurrent  += b.current();
+            sumCapacity += b.capacity();
+            sumProduct  += b.product();
+            sumAreaM2   += b.areaM2(); // areaM2 yoki totalAreaHa*10000
+
+            if (b.year() == null || b.month() == null) continue;
+            int m = b.month() - 1;
+            if (b.year() == y) {
+                monthBuckets[m] += b.count();
+                revYY[m]  += b.revenue();
+                profYY[m] += b.profit();
+            } else if (b.year() == py) {
+                prevBuckets[m] += b.count();
+                revPY[m]  += b.revenue();
+                profPY[m] += b.profit();
+            }
+        }
 
         // Type bo‘yicha soni
-        Map<FacilityType, Long> byType = base.stream()
-                .collect(Collectors.groupingBy(Facility::getType, Collectors.counting()));
         List<TypeAgg> typesAgg = byType.entrySet().stream()
                 .map(e -> new TypeAgg(e.getKey(), e.getValue()))
                 .sorted(Comparator.comparingLong(TypeAgg::getCount).reversed())
                 .toList();
 
-        // Joriy yil oylari
-        LocalDateTime yyyyStart = LocalDate.of(y, 1, 1).atStartOfDay();
-        LocalDateTime yyyyEnd   = LocalDate.of(y + 1, 1, 1).atStartOfDay();
-        List<Facility> thisYear = facilityRepo.findAll(spec.and(createdBetween(yyyyStart, yyyyEnd)));
-
-        long[] monthBuckets = new long[12];
-        for (Facility f : thisYear) {
-            LocalDateTime c = f.getCreatedAt();
-            if (c != null && c.getYear() == y) monthBuckets[c.getMonthValue() - 1]++;
-        }
+        // Joriy / o‘tgan yil oylari
         List<MonthlyCount> monthly = new ArrayList<>(12);
-        for (int i = 0; i < 12; i++) monthly.add(new MonthlyCount(i + 1, monthBuckets[i]));
-        long yearNewCount = Arrays.stream(monthBuckets).sum();
-
-        // O‘tgan yil
-        int py = y - 1;
-        LocalDateTime prevStart = LocalDate.of(py, 1, 1).atStartOfDay();
-        LocalDateTime prevEnd   = LocalDate.of(y, 1, 1).atStartOfDay();
-        List<Facility> prevYear = facilityRepo.findAll(spec.and(createdBetween(prevStart, prevEnd)));
-
-        long[] prevBuckets = new long[12];
-        for (Facility f : prevYear) {
-            LocalDateTime c = f.getCreatedAt();
-            if (c != null && c.getYear() == py) prevBuckets[c.getMonthValue() - 1]++;
-        }
         List<MonthlyCount> prevMonthly = new ArrayList<>(12);
-        for (int i = 0; i < 12; i++) prevMonthly.add(new MonthlyCount(i + 1, prevBuckets[i]));
-        long prevYearNewCount = Arrays.stream(prevBuckets).sum();
-        Double yoyNewPct = (prevYearNewCount > 0)
-                ? ((yearNewCount - (double) prevYearNewCount) * 100.0 / prevYearNewCount)
-                : null;
-
-        // Moliyaviy (joriy / o‘tgan yil) — aliaslarni hisobga olamiz
-        double[] revYY  = new double[12], profYY = new double[12];
-        for (Facility f : thisYear) {
-            LocalDateTime c = f.getCreatedAt();
-            if (c == null || c.getYear() != y) continue;
-            int m = c.getMonthValue() - 1;
-            revYY[m]  += readAliases(f, REV_KEYS);
-            profYY[m] += readAliases(f, PROF_KEYS);
-        }
         List<MonthlyAmount> revenueMonthly = new ArrayList<>(12);
         List<MonthlyAmount> profitMonthly  = new ArrayList<>(12);
-        for (int i = 0; i < 12; i++) {
-            revenueMonthly.add(new MonthlyAmount(i + 1, revYY[i]));
-            profitMonthly.add(new MonthlyAmount(i + 1, profYY[i]));
-        }
-
-        double[] revPY  = new double[12], profPY = new double[12];
-        for (Facility f : prevYear) {
-            LocalDateTime c = f.getCreatedAt();
-            if (c == null || c.getYear() != py) continue;
-            int m = c.getMonthValue() - 1;
-            revPY[m]  += readAliases(f, REV_KEYS);
-            profPY[m] += readAliases(f, PROF_KEYS);
-        }
         List<MonthlyAmount> revenuePrevMonthly = new ArrayList<>(12);
         List<MonthlyAmount> profitPrevMonthly  = new ArrayList<>(12);
         for (int i = 0; i < 12; i++) {
+            monthly.add(new MonthlyCount(i + 1, monthBuckets[i]));
+            prevMonthly.add(new MonthlyCount(i + 1, prevBuckets[i]));
+            revenueMonthly.add(new MonthlyAmount(i + 1, revYY[i]));
+            profitMonthly.add(new MonthlyAmount(i + 1, profYY[i]));
             revenuePrevMonthly.add(new MonthlyAmount(i + 1, revPY[i]));
             profitPrevMonthly.add(new MonthlyAmount(i + 1, profPY[i]));
         }
+        long yearNewCount = Arrays.stream(monthBuckets).sum();
+        long prevYearNewCount = Arrays.stream(prevBuckets).sum();
+        Double yoyNewPct = (prevYearNewCount > 0)
+                ? ((yearNewCount - (double) prevYearNewCount) * 100.0 / prevYearNewCount)
+                : null;
 
-        // YTD (tanlangan oynada) — aliaslar
-        double revenueYtd = inWindow.stream().mapToDouble(f -> readAliases(f, REV_KEYS)).sum();
-        double profitYtd  = inWindow.stream().mapToDouble(f -> readAliases(f, PROF_KEYS)).sum();
+        // Oyna (YTD), Type KPI va TOP org — oyna ichida; o‘tgan yil oynasi (YoY)
+        double revenueYtd = 0.0, profitYtd = 0.0, revenuePrevYtd = 0.0, profitPrevYtd = 0.0;
+        Map<FacilityType, TypeKpiAgg> typeKpisMap = new EnumMap<>(FacilityType.class);
+        Map<Long, OrgRevenueAgg> byOrgRev = new HashMap<>();
+        // davr bo‘yicha: count, revenue, profit, current, capacity
+        double[][] perPeriod = new double[periods.size()][5];
+        for (StatsAggregateSource.PeriodBucket b : windows) {
+            double[] pp = perPeriod[b.period()];
+            pp[0] += b.count();
+            pp[1] += b.revenue();
+            pp[2] += b.profit();
+            pp[3] += b.current();
+            pp[4] += b.capacity();
+            if (b.period() == 1) {
+                revenuePrevYtd += b.revenue();
+                profitPrevYtd  += b.profit();
+                continue;
+            }
+            if (b.period() != 0) continue;
+            revenueYtd += b.revenue();
+            profitYtd  += b.profit();
 
-        // YTD o‘tgan yil (YoY)
-        LocalDateTime winStartPrev = winStart.minusYears(1);
-        LocalDateTime winEndPrev   = winEnd.minusYears(1);
-        List<Facility> inPrevWindow = facilityRepo.findAll(spec.and(createdBetween(winStartPrev, winEndPrev)));
-        double revenuePrevYtd = inPrevWindow.stream().mapToDouble(f -> readAliases(f, REV_KEYS)).sum();
-        double profitPrevYtd  = inPrevWindow.stream().mapToDouble(f -> readAliases(f, PROF_KEYS)).sum();
+            TypeKpiAgg agg = typeKpisMap.computeIfAbsent(b.type(),
+                    k -> new TypeKpiAgg(k, 0L, 0.0, 0.0, 0.0, 0.0, null));
+            agg.setCount(agg.getCount() + b.count());
+            agg.setRevenue(agg.getRevenue() + b.revenue());
+            agg.setProfit(agg.getProfit()   + b.profit());
+            agg.setCurrent(agg.getCurrent() + b.current());
+            agg.setCapacity(agg.getCapacity() + b.capacity());
+
+            OrgRevenueAgg org = byOrgRev.computeIfAbsent(b.orgId(),
+                    id -> new OrgRevenueAgg(id, b.orgName(), 0L, 0.0, 0.0));
+            org.setCount(org.getCount() + b.count());
+            org.setRevenue(org.getRevenue() + b.revenue());
+            org.setProfit(org.getProfit()   + b.profit());
+        }
         Double yoyRevenuePct = (revenuePrevYtd > 0) ? ((revenueYtd - revenuePrevYtd) * 100.0 / revenuePrevYtd) : null;
         Double yoyProfitPct  = (profitPrevYtd  > 0) ? ((profitYtd  - profitPrevYtd ) * 100.0 / profitPrevYtd ) : null;
 
         // Org bo‘yicha soni
-        Map<Long, Long>   cntPerOrg  = new HashMap<>();
-        Map<Long, String> namePerOrg = new HashMap<>();
-        for (Facility f : base) {
-            if (f.getOrg() == null) continue;
-            Long id = f.getOrg().getId();
-            cntPerOrg.merge(id, 1L, Long::sum);
-            namePerOrg.putIfAbsent(id, safeOrgName(f));
-        }
-        List<OrgAgg> orgs = cntPerOrg.entrySet().stream()
-                .map(e -> new OrgAgg(e.getKey(), namePerOrg.get(e.getKey()), e.getValue()))
-                .sorted(Comparator.comparingLong(OrgAgg::getCount).reversed())
+        List<OrgAgg> orgs = byOrg.values().stream()
+                .sorted(Comparator.comparingLong(OrgAgg::getCount).reversed()
+                        .thenComparing(OrgAgg::getOrgId))
                 .toList();
 
         // Sig‘im / mahsuldorlik (bazadan)
-        double sumCurrent   = 0.0, sumCapacity = 0.0, sumProduct = 0.0, sumAreaM2 = 0.0;
-        for (Facility f : base) {
-            sumCurrent   += readSingle(f, "current");
-            sumCapacity  += readSingle(f, "capacity");
-            sumProduct   += readAliases(f, PROD_KEYS);
-            sumAreaM2    += readAreaM2(f); // areaM2 yoki totalAreaHa*10000
-        }
         Double capacityUtilPct      = (sumCapacity > 0) ? (sumCurrent * 100.0 / sumCapacity) : null;
         Double productivityPerM2    = (sumAreaM2   > 0) ? (sumProduct / sumAreaM2) : null;
 
-        // Type KPI (oyna ichida)
-        Map<FacilityType, TypeKpiAgg> typeKpisMap = new EnumMap<>(FacilityType.class);
-        for (Facility f : inWindow) {
-            FacilityType t = f.getType();
-            if (t == null) continue;
-            TypeKpiAgg agg = typeKpisMap.computeIfAbsent(t,
-                    k -> new TypeKpiAgg(k, 0L, 0.0, 0.0, 0.0, 0.0, null));
-            agg.setCount(agg.getCount() + 1);
-            agg.setRevenue(agg.getRevenue() + readAliases(f, REV_KEYS));
-            agg.setProfit(agg.getProfit()   + readAliases(f, PROF_KEYS));
-            agg.setCurrent(agg.getCurrent() + readSingle(f, "current"));
-            agg.setCapacity(agg.getCapacity() + readSingle(f, "capacity"));
-        }
         List<TypeKpiAgg> typeKpis = typeKpisMap.values().stream()
                 .peek(a -> a.setUtilPct(a.getCapacity() > 0 ? (a.getCurrent() * 100.0 / a.getCapacity()) : null))
                 .sorted(Comparator.comparingDouble((TypeKpiAgg a) -> a.getRevenue() != null ? a.getRevenue() : 0.0).reversed())
                 .toList();
 
         // TOP-10 org tushum bo‘yicha (oyna ichida)
-        Map<Long, OrgRevenueAgg> byOrgRev = new HashMap<>();
-        for (Facility f : inWindow) {
-            if (f.getOrg() == null) continue;
-            Long id = f.getOrg().getId();
-            OrgRevenueAgg agg = byOrgRev.computeIfAbsent(id, k -> new OrgRevenueAgg(id, safeOrgName(f), 0L, 0.0, 0.0));
-            agg.setCount(agg.getCount() + 1);
-            agg.setRevenue(agg.getRevenue() + readAliases(f, REV_KEYS));
-            agg.setProfit(agg.getProfit()   + readAliases(f, PROF_KEYS));
-        }
         List<OrgRevenueAgg> topOrgRevenue = byOrgRev.values().stream()
-                .sorted(Comparator.comparingDouble(OrgRevenueAgg::getRevenue).reversed())
+                .sorted(Comparator.comparingDouble(OrgRevenueAgg::getRevenue).reversed()
+                        .thenComparing(OrgRevenueAgg::getOrgId))
                 .limit(10)
                 .toList();
 
@@ -262,6 +306,19 @@ public class StatsService {
         res.setTypeKpis(typeKpis);
         res.setTopOrgRevenue(topOrgRevenue);
         res.setOrgs(orgs);
+        if (!compareYears.isEmpty()) {
+            List<PeriodComparison> comparisons = new ArrayList<>(compareYears.size());
+            for (int i = 0; i < compareYears.size(); i++) {
+                StatsAggregateSource.Period p = periods.get(comparePeriod[i]);
+                double[] pp = perPeriod[comparePeriod[i]], cur = perPeriod[0];
+                comparisons.add(new PeriodComparison(compareYears.get(i),
+                        p.from().toLocalDate().toString(), p.to().minusDays(1).toLocalDate().toString(),
+                        (long) pp[0], pp[1], pp[2],
+                        pp[4] > 0 ? (pp[3] * 100.0 / pp[4]) : null,
+                        changePct(cur[0], pp[0]), changePct(cur[1], pp[1]), changePct(cur[2], pp[2])));
+            }
+            res.setComparisons(comparisons);
+        }
 
         res.setYear(y);
         res.setTypesFilter(types);
@@ -271,186 +328,694 @@ public class StatsService {
             res.setFrom(winStart.toLocalDate().toString());
             res.setTo(winEnd.minusDays(1).toLocalDate().toString());
         }
+        res.setMode(sample != null ? "approx" : "exact");
+        if (sample != null) {
+            res.setApprox(new ApproxInfo("tablesample-system", sample.fraction(), sample.sampledRows(),
+                    sample.sampledPages(), FacilitySample.CONFIDENCE, sample.estimates(periods.get(0), y)));
+        }
         return res;
     }
 
-    public String exportCsv(Set<Long> allowedOrgIds, Integer year,
-                            List<FacilityType> types,
-                            String range, Integer quarter,
-                            LocalDate from, LocalDate to) {
+    /** (joriy - asos) / asos * 100; asos musbat bo‘lmasa null (YoY formulalari bilan bir xil) */
+    private static Double changePct(double current, double base) {
+        return base > 0 ? ((current - base) * 100.0 / base) : null;
+    }
 
-        if (range == null || range.isBlank()) range = "year";
-        range = range.toLowerCase(Locale.ROOT);
+    /**
+     * Org daraxti, har bir tugunda subtree bo‘yicha KPI’lar (oyna ichida).
+     * Facility’lar org bo‘yicha bir marta yig‘iladi, so‘ng yig‘indilar daraxt bo‘ylab pastdan yuqoriga qo‘shiladi:
+     * O(org + facility), ochilgan tugunlar soniga bog‘liq emas.
+     */
+    public List<OrgNodeDto> orgTreeKpis(Set<Long> allowedOrgIds, Integer year,
+                                        List<FacilityType> types,
+                                        String range, Integer quarter,
+                                        LocalDate from, LocalDate to) {
+        if (allowedOrgIds != null && allowedOrgIds.isEmpty()) return List.of();
+        List<OrgNodeDto> roots = organizationService.getOrgTreeForUser(allowedOrgIds);
 
-        int y = (year != null) ? year : Year.now().getValue();
-        LocalDateTime winStart, winEnd;
-        if ("quarter".equals(range)) {
-            int q = (quarter != null && quarter >= 1 && quarter <= 4) ? quarter : 1;
-            int startMonth = (q - 1) * 3 + 1;
-            Month sm = Month.of(startMonth);
-            Month em = Month.of(startMonth + 2);
-            winStart = LocalDate.of(y, sm, 1).atStartOfDay();
-            winEnd = LocalDate.of(y, em, em.length(Year.isLeap(y))).plusDays(1).atStartOfDay();
-        } else if ("custom".equals(range) && from != null && to != null && !to.isBefore(from)) {
-            winStart = from.atStartOfDay();
-            winEnd = to.plusDays(1).atStartOfDay();
-        } else {
-            winStart = LocalDate.of(y, 1, 1).atStartOfDay();
-            winEnd = LocalDate.of(y + 1, 1, 1).atStartOfDay();
-        }
-
-        Specification<Facility> spec = Specification.where(alwaysTrue())
-                .and(typeIn(new ArrayList<>(ALLOWED)));
-        if (allowedOrgIds != null) {
-            if (allowedOrgIds.isEmpty())
-                return "orgId,orgName,type,createdAt,expectedRevenue,netProfit,current,capacity,productAmount,areaM2\n";
-            spec = spec.and(orgIn(allowedOrgIds));
-        }
-        if (types != null && !types.isEmpty()) {
-            List<FacilityType> onlyAllowed = types.stream().filter(ALLOWED::contains).toList();
-            if (onlyAllowed.isEmpty())
-                return "orgId,orgName,type,createdAt,expectedRevenue,netProfit,current,capacity,productAmount,areaM2\n";
-            spec = spec.and(typeIn(onlyAllowed));
-        }
-
-        List<Facility> inWindow = facilityRepo.findAll(spec.and(createdBetween(winStart, winEnd)));
-
-        StringBuilder sb = new StringBuilder();
-        sb.append("orgId,orgName,type,createdAt,expectedRevenue,netProfit,current,capacity,productAmount,areaM2\n");
-        for (Facility f : inWindow) {
-            Long orgId = (f.getOrg() != null) ? f.getOrg().getId() : null;
-            String orgName = (f.getOrg() != null) ? safeOrgName(f) : "";
-            String type = (f.getType() != null) ? f.getType().name() : "";
-            String created = (f.getCreatedAt() != null) ? f.getCreatedAt().toString() : "";
-
-            double expectedRevenue = readAliases(f, REV_KEYS);
-            double netProfit       = readAliases(f, PROF_KEYS);
-            double current         = readSingle(f, "current");
-            double capacity        = readSingle(f, "capacity");
-            double productAmount   = readAliases(f, PROD_KEYS);
-            double areaM2          = readAreaM2(f);
-
-            sb.append(csv(orgId)).append(',')
-                    .append(csv(orgName)).append(',')
-                    .append(csv(type)).append(',')
-                    .append(csv(created)).append(',')
-                    .append(expectedRevenue).append(',')
-                    .append(netProfit).append(',')
-                    .append(current).append(',')
-                    .append(capacity).append(',')
-                    .append(productAmount).append(',')
-                    .append(areaM2).append('\n');
-        }
-        return sb.toString();
+        Window w = resolveWindow(year, range, quarter, from, to);
+        List<FacilityType> effTypes = effectiveTypes(types);
+        Map<Long, OrgNodeKpi> own = new HashMap<>();
+        if (!effTypes.isEmpty()) {
+            List<StatsAggregateSource.Period> periods = List.of(new StatsAggregateSource.Period(w.start(), w.end()));
+            StatsAggregateSource source = aggregateSource(periods);
+            StatsQueryExecutor.Batch batch = queries.batch("tree");
+            var bucketsQ = batch.fork("orgs", () -> source.periodBuckets(allowedOrgIds, effTypes, periods));
+            batch.join();
+            for (StatsAggregateSource.PeriodBucket b : bucketsQ.get()) {
+                OrgNodeKpi k = own.computeIfAbsent(b.orgId(), id -> new OrgNodeKpi());
+                k.setOwnCount(k.getOwnCount() + b.count());
+                k.setRevenue(k.getRevenue() + b.revenue());
+                k.setProfit(k.getProfit() + b.profit());
+                k.setCurrent(k.getCurrent() + b.current());
+                k.setCapacity(k.getCapacity() + b.capacity());
+            }
+        }
+        for (OrgNodeDto root : roots) foldKpi(root, own);
+        return roots;
     }
 
-    private String csv(Object v) {
-        if (v == null) return "";
-        String s = String.valueOf(v);
-        if (s.contains(",") || s.contains("\"") || s.contains("\n")) {
-            s = s.replace("\"", "\"\"");
-            return "\"" + s + "\"";
+    /** Post-order: bolalar yig‘indisi + o‘zining qiymatlari */
+    private OrgNodeKpi foldKpi(OrgNodeDto node, Map<Long, OrgNodeKpi> own) {
+        OrgNodeKpi self = own.get(Long.valueOf(node.getKey()));
+        OrgNodeKpi k = new OrgNodeKpi();
+        if (self != null) {
+            k.setOwnCount(self.getOwnCount());
+            k.setCount(self.getOwnCount());
+            k.setRevenue(self.getRevenue());
+            k.setProfit(self.getProfit());
+            k.setCurrent(self.getCurrent());
+            k.setCapacity(self.getCapacity());
         }
-        return s;
+        for (OrgNodeDto child : node.getChildren()) {
+            OrgNodeKpi c = foldKpi(child, own);
+            k.setCount(k.getCount() + c.getCount());
+            k.setRevenue(k.getRevenue() + c.getRevenue());
+            k.setProfit(k.getProfit() + c.getProfit());
+            k.setCurrent(k.getCurrent() + c.getCurrent());
+            k.setCapacity(k.getCapacity() + c.getCapacity());
+        }
+        k.setUtilPct(k.getCapacity() > 0 ? (k.getCurrent() * 100.0 / k.getCapacity()) : null);
+        node.setKpi(k);
+        return k;
+    }
+
+    /**
+     * Org’lar taqqoslash matritsasi (org × davr × KPI).
+     * Barcha subtree’lar birlashmasi bitta periodBuckets o‘tishida (barcha davrlar bilan) yig‘iladi;
+     * har bir org yig‘indisi uni o‘z ichiga olgan barcha so‘ralgan subtree’larga qo‘shiladi (ichma-ich org’lar ham to‘g‘ri).
+     * targets — ruxsat tekshirilgan subtree’lar (so‘rov tartibida).
+     */
+    public CompareRes compareOrgs(List<AccessService.OrgSubtree> targets, Integer year,
+                                  List<FacilityType> types,
+                                  String range, Integer quarter,
+                                  LocalDate from, LocalDate to,
+                                  List<Integer> compareYears) {
+        Window w = resolveWindow(year, range, quarter, from, to);
+        List<StatsAggregateSource.Period> periods = new ArrayList<>(1 + compareYears.size());
+        periods.add(new StatsAggregateSource.Period(w.start(), w.end()));
+        for (Integer cy : compareYears) {
+            int back = w.year() - cy;
+            periods.add(new StatsAggregateSource.Period(w.start().minusYears(back), w.end().minusYears(back)));
+        }
+
+        // org → uni o‘z ichiga olgan target indekslari
+        Map<Long, int[]> owners = new HashMap<>();
+        Set<Long> union = new HashSet<>();
+        for (int t = 0; t < targets.size(); t++) {
+            for (Long orgId : targets.get(t).orgIds()) {
+                union.add(orgId);
+                int[] prev = owners.get(orgId);
+                int[] next = prev == null ? new int[1] : Arrays.copyOf(prev, prev.length + 1);
+                next[next.length - 1] = t;
+                owners.put(orgId, next);
+            }
+        }
+
+        // [target][period][count, revenue, profit, current, capacity]
+        double[][][] acc = new double[targets.size()][periods.size()][5];
+        List<FacilityType> effTypes = effectiveTypes(types);
+        if (!union.isEmpty() && !effTypes.isEmpty()) {
+            StatsAggregateSource source = aggregateSource(periods);
+            StatsQueryExecutor.Batch batch = queries.batch("compare");
+            var bucketsQ = batch.fork("orgs", () -> source.periodBuckets(union, effTypes, periods));
+            batch.join();
+            for (StatsAggregateSource.PeriodBucket b : bucketsQ.get()) {
+                int[] ts = owners.get(b.orgId());
+                if (ts == null) continue;
+                for (int t : ts) {
+                    double[] a = acc[t][b.period()];
+                    a[0] += b.count();
+                    a[1] += b.revenue();
+                    a[2] += b.profit();
+                    a[3] += b.current();
+                    a[4] += b.capacity();
+                }
+            }
+        }
+
+        List<ComparePeriod> periodDtos = new ArrayList<>(periods.size());
+        for (int p = 0; p < periods.size(); p++) {
+            StatsAggregateSource.Period per = periods.get(p);
+            periodDtos.add(new ComparePeriod(p == 0 ? w.year() : compareYears.get(p - 1),
+                    per.from().toLocalDate().toString(), per.to().minusDays(1).toLocalDate().toString()));
+        }
+        List<CompareOrg> orgs = new ArrayList<>(targets.size());
+        for (int t = 0; t < targets.size(); t++) {
+            AccessService.OrgSubtree target = targets.get(t);
+            double[] cur = acc[t][0];
+            List<CompareCell> cells = new ArrayList<>(periods.size());
+            for (int p = 0; p < periods.size(); p++) {
+                double[] a = acc[t][p];
+                boolean base = p == 0;
+                cells.add(new CompareCell((long) a[0], a[1], a[2], a[3], a[4],
+                        a[4] > 0 ? (a[3] * 100.0 / a[4]) : null,
+                        base ? null : changePct(cur[0], a[0]),
+                        base ? null : changePct(cur[1], a[1]),
+                        base ? null : changePct(cur[2], a[2])));
+            }
+            orgs.add(new CompareOrg(target.id(), target.name(), target.orgIds().size(), cells));
+        }
+        return new CompareRes(w.year(), w.range(), periodDtos, orgs,
+                types);
     }
 
-    /* -------------------- Specification helpers -------------------- */
+    /**
+     * Ixtiyoriy granulyarlikdagi vaqt qatorlari: bo‘laklar DB’da date_trunc bilan yig‘iladi,
+     * javobda har bir seriya uchun zich massivlar (bo‘sh bo‘lak = 0). Oyna — [start, end).
+     * Oy/chorak bo‘laklari oyga tekislangan oynada oylik rollup’dan o‘qiladi.
+     */
+    public TimeSeriesRes timeSeries(Set<Long> allowedOrgIds, Integer year,
+                                    List<FacilityType> types,
+                                    String range, Integer quarter,
+                                    LocalDate from, LocalDate to,
+                                    StatsTimeSeriesSource.Granularity granularity,
+                                    StatsTimeSeriesSource.SeriesBy by,
+                                    List<Integer> compareYears) {
+        Window w = resolveWindow(year, range, quarter, from, to);
+        LocalDate endExcl = w.end().toLocalDate();
+        List<LocalDate> starts = new ArrayList<>();
+        for (LocalDate d = truncate(w.start().toLocalDate(), granularity); d.isBefore(endExcl); d = next(d, granularity)) {
+            if (starts.size() == maxTimeBuckets) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                        "Too many buckets (max " + maxTimeBuckets + "): use a coarser granularity or a shorter window");
+            }
+            starts.add(d);
+        }
+        Map<LocalDate, Integer> index = new HashMap<>();
+        for (int i = 0; i < starts.size(); i++) index.put(starts.get(i), i);
+
+        List<FacilityType> effTypes = effectiveTypes(types);
+        // 0 — oynaning o‘zi, 1.. — taqqoslash yillari (bitta o‘tishda, asosiy oyna bo‘laklariga joylanadi)
+        List<Integer> yearsBack = new ArrayList<>(1 + compareYears.size());
+        yearsBack.add(0);
+        for (Integer cy : compareYears) yearsBack.add(w.year() - cy);
+
+        List<StatsTimeSeriesSource.TimeBucket> rows = List.of();
+        if (!(allowedOrgIds != null && allowedOrgIds.isEmpty()) && !effTypes.isEmpty()) {
+            List<StatsAggregateSource.Period> periods = yearsBack.stream()
+                    .map(k -> new StatsAggregateSource.Period(w.start().minusYears(k), w.end().minusYears(k)))
+                    .toList();
+            StatsTimeSeriesSource source = timeSeriesSource(periods, granularity);
+            StatsQueryExecutor.Batch batch = queries.batch("timeseries");
+            var rowsQ = batch.fork(granularity.name().toLowerCase(Locale.ROOT),
+                    () -> source.timeBuckets(allowedOrgIds, effTypes, w.start(), w.end(), granularity, by, yearsBack));
+            batch.join();
+            rows = rowsQ.get();
+        }
+
+        int n = starts.size();
+        List<Map<String, TimeSeries>> series = new ArrayList<>(yearsBack.size());
+        for (int p = 0; p < yearsBack.size(); p++) {
+            Map<String, TimeSeries> m = new LinkedHashMap<>();
+            if (by == StatsTimeSeriesSource.SeriesBy.NONE) m.put("all", new TimeSeries("all", "all", null, null, n));
+            series.add(m);
+        }
+        for (StatsTimeSeriesSource.TimeBucket b : rows) {
+            Integer i = index.get(b.start());
+            if (i == null) continue;
+            Map<String, TimeSeries> m = series.get(b.period());
+            TimeSeries ts = switch (by) {
+                case NONE -> m.get("all");
+                case TYPE -> m.computeIfAbsent(b.type().name(),
+                        k -> new TimeSeries(k, k, b.type(), null, n));
+                case ORG  -> m.computeIfAbsent(String.valueOf(b.orgId()),
+                        k -> new TimeSeries(k, b.orgName(), null, b.orgId(), n));
+            };
+            ts.getCount()[i]    += b.count();
+            ts.getRevenue()[i]  += b.revenue();
+            ts.getProfit()[i]   += b.profit();
+            ts.getCurrent()[i]  += b.current();
+            ts.getCapacity()[i] += b.capacity();
+            ts.getProduct()[i]  += b.product();
+            ts.getAreaM2()[i]   += b.areaM2();
+        }
+        List<TimeSeries> list = sortedSeries(series.get(0), by);
 
-    private Specification<Facility> alwaysTrue() {
-        return (root, cq, cb) -> cb.conjunction();
+        TimeSeriesRes res = new TimeSeriesRes();
+        res.setGranularity(granularity.name().toLowerCase(Locale.ROOT));
+        res.setBy(by.name().toLowerCase(Locale.ROOT));
+        res.setFrom(w.start().toLocalDate().toString());
+        res.setTo(endExcl.minusDays(1).toString());
+        res.setBuckets(starts.stream().map(LocalDate::toString).toList());
+        res.setSeries(list);
+        if (!compareYears.isEmpty()) {
+            List<TimeSeriesComparison> comparisons = new ArrayList<>(compareYears.size());
+            for (int p = 1; p < yearsBack.size(); p++) {
+                int k = yearsBack.get(p);
+                comparisons.add(new TimeSeriesComparison(compareYears.get(p - 1),
+                        w.start().minusYears(k).toLocalDate().toString(),
+                        endExcl.minusYears(k).minusDays(1).toString(),
+                        sortedSeries(series.get(p), by)));
+            }
+            res.setComparisons(comparisons);
+        }
+        res.setTypesFilter(types);
+        return res;
     }
-    private Specification<Facility> orgIn(Set<Long> ids) {
-        return (root, cq, cb) -> root.get("org").get("id").in(ids);
+
+    private static List<TimeSeries> sortedSeries(Map<String, TimeSeries> series, StatsTimeSeriesSource.SeriesBy by) {
+        List<TimeSeries> list = new ArrayList<>(series.values());
+        if (by == StatsTimeSeriesSource.SeriesBy.TYPE) list.sort(Comparator.comparing(TimeSeries::getType));
+        if (by == StatsTimeSeriesSource.SeriesBy.ORG) list.sort(Comparator.comparing(TimeSeries::getOrgId));
+        return list;
     }
-    private Specification<Facility> typeIn(List<FacilityType> types) {
-        return (root, cq, cb) -> root.get("type").in(types);
+
+    /**
+     * Taqsimotlar (median, p90, p99, gistogramma): tushum, foyda, sig‘imdan foydalanish.
+     * Org × tur eskizlari bitta skanda quriladi va keshlanadi; umumiy/tur/subtree taqsimotlari
+     * ularni birlashtirib olinadi (by=org — har bir tugun uchun o‘zi + avlodlari, daraxt bo‘ylab pastdan yuqoriga).
+     */
+    public DistributionRes distribution(Set<Long> allowedOrgIds, Integer year,
+                                        List<FacilityType> types,
+                                        String range, Integer quarter,
+                                        LocalDate from, LocalDate to,
+                                        StatsTimeSeriesSource.SeriesBy by, int bins) {
+        Window w = resolveWindow(year, range, quarter, from, to);
+        List<FacilityType> effTypes = effectiveTypes(types);
+        double compression = sketchCache.compression();
+
+        Map<Long, Map<FacilityType, MetricSketches>> perOrg = Map.of();
+        if (!(allowedOrgIds != null && allowedOrgIds.isEmpty()) && !effTypes.isEmpty()) {
+            StatsQueryExecutor.Batch batch = queries.batch("distribution");
+            var sketchesQ = batch.fork("sketches", () -> sketchCache.sketches(
+                    allowedOrgIds != null ? allowedOrgIds : sketchCache.allOrgIds(), w.start(), w.end()));
+            batch.join();
+            perOrg = sketchesQ.get();
+        }
+
+        MetricSketches overall = new MetricSketches(compression);
+        Map<FacilityType, MetricSketches> byType = new EnumMap<>(FacilityType.class);
+        Map<Long, MetricSketches> ownByOrg = new HashMap<>();
+        for (var org : perOrg.entrySet()) {
+            MetricSketches own = new MetricSketches(compression);
+            for (FacilityType t : effTypes) {
+                MetricSketches s = org.getValue().get(t);
+                if (s == null) continue;
+                own.merge(s);
+                if (by == StatsTimeSeriesSource.SeriesBy.TYPE) {
+                    byType.computeIfAbsent(t, k -> new MetricSketches(compression)).merge(s);
+                }
+            }
+            overall.merge(own);
+            ownByOrg.put(org.getKey(), own);
+        }
+
+        List<DistributionGroup> groups = new ArrayList<>();
+        switch (by) {
+            case NONE -> { }
+            case TYPE -> byType.forEach((t, sk) -> groups.add(describe(t.name(), t.name(), t, null, null, sk, bins)));
+            case ORG -> {
+                if (!(allowedOrgIds != null && allowedOrgIds.isEmpty())) {
+                    for (OrgNodeDto root : organizationService.getOrgTreeForUser(allowedOrgIds)) {
+                        foldSketches(root, null, ownByOrg, compression, bins, groups);
+                    }
+                }
+            }
+        }
+
+        DistributionRes res = new DistributionRes();
+        res.setFrom(w.start().toLocalDate().toString());
+        res.setTo(w.end().minusDays(1).toLocalDate().toString());
+        res.setBy(by.name().toLowerCase(Locale.ROOT));
+        res.setBins(bins);
+        res.setOverall(describe("all", "all", null, null, null, overall, bins));
+        res.setGroups(groups);
+        res.setTypesFilter(types);
+        return res;
+    }
+
+    /** Post-order: subtree eskizi = o‘zi + bolalari; guruhlar daraxt tartibida (ota bolalaridan oldin) */
+    private MetricSketches foldSketches(OrgNodeDto node, Long parentId, Map<Long, MetricSketches> ownByOrg,
+                                        double compression, int bins, List<DistributionGroup> groups) {
+        Long orgId = Long.valueOf(node.getKey());
+        MetricSketches subtree = new MetricSketches(compression);
+        MetricSketches own = ownByOrg.get(orgId);
+        if (own != null) subtree.merge(own);
+        int at = groups.size();
+        groups.add(null); // o‘rin — bolalardan oldin
+        for (OrgNodeDto child : node.getChildren()) {
+            subtree.merge(foldSketches(child, orgId, ownByOrg, compression, bins, groups));
+        }
+        groups.set(at, describe(node.getKey(), node.getTitle(), null, orgId, parentId, subtree, bins));
+        return subtree;
+    }
+
+    private static DistributionGroup describe(String key, String label, FacilityType type, Long orgId, Long parentId,
+                                              MetricSketches s, int bins) {
+        return new DistributionGroup(key, label, type, orgId, parentId, s.count(),
+                describe(s.revenue(), bins), describe(s.profit(), bins), describe(s.utilPct(), bins));
+    }
+
+    /** Eskizdan kvantillar va gistogramma: bo‘lak soni = round(n·cdf(o‘ng)) − round(n·cdf(chap)) — yig‘indi aniq n */
+    private static Distribution describe(TDigest d, int bins) {
+        long n = d.count();
+        if (n == 0) return new Distribution(0, null, null, null, null, null, null, new double[0], new long[0]);
+        double min = d.min(), max = d.max();
+        double[] edges = new double[bins + 1];
+        long[] counts = new long[bins];
+        long prev = 0;
+        for (int i = 0; i <= bins; i++) {
+            edges[i] = (i == bins) ? max : min + (max - min) * i / bins;
+            if (i == 0) continue;
+            long cum = (i == bins) ? n : Math.round(n * d.cdf(edges[i]));
+            counts[i - 1] = Math.max(0, cum - prev);
+            prev = Math.max(prev, cum);
+        }
+        return new Distribution(n, min, max, d.mean(), d.quantile(0.5), d.quantile(0.9), d.quantile(0.99), edges, counts);
     }
-    private Specification<Facility> statusEq(FacilityStatus st) {
-        return (root, cq, cb) -> cb.equal(root.get("status"), st);
+
+    /** Bo‘lak boshi (DB’dagi date_trunc bilan bir xil: hafta — dushanba) */
+    private static LocalDate truncate(LocalDate d, StatsTimeSeriesSource.Granularity g) {
+        return switch (g) {
+            case DAY -> d;
+            case WEEK -> d.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+            case MONTH -> d.withDayOfMonth(1);
+            case QUARTER -> LocalDate.of(d.getYear(), ((d.getMonthValue() - 1) / 3) * 3 + 1, 1);
+        };
     }
-    private Specification<Facility> createdBetween(LocalDateTime from, LocalDateTime to) {
-        return (root, cq, cb) -> cb.between(root.get("createdAt"), from, to);
+
+    private static LocalDate next(LocalDate d, StatsTimeSeriesSource.Granularity g) {
+        return switch (g) {
+            case DAY -> d.plusDays(1);
+            case WEEK -> d.plusWeeks(1);
+            case MONTH -> d.plusMonths(1);
+            case QUARTER -> d.plusMonths(3);
+        };
     }
 
-    /* -------------------- Attribute readers (alias-aware) -------------------- */
+    /* -------------------- Umumiy metrika yig‘ish -------------------- */
 
-    private double readAliases(Facility f, List<String> keys) {
-        Object attrs = f.getAttributes();
-        for (String k : keys) {
-            double v = readFrom(attrs, k);
-            if (v != 0.0) return v;
-            // 0.0 bo‘lsa ham aniq mavjudligini tekshirish uchun:
-            if (existsAsZero(attrs, k)) return 0.0;
+    private static final Pattern AGGREGATE_COLUMN =
+            Pattern.compile("(?i)(sum|avg|min|max|count)\\(\\s*([A-Za-z0-9_]+)\\s*\\)");
+
+    /**
+     * Registrdagi metrikalar bo‘yicha yig‘ish: metrics — "op(metric)" (sum|avg|min|max|count) yoki "count";
+     * groupBy — type/org/status/time (bo‘sh => bitta umumiy qator). Oyna faqat year/range/quarter/from/to
+     * berilganda qo‘llanadi, aks holda — barcha vaqt (overview’dagi total kabi).
+     */
+    public AggregateRes aggregate(Set<Long> allowedOrgIds, Integer year,
+                                  List<FacilityType> types,
+                                  String range, Integer quarter,
+                                  LocalDate from, LocalDate to,
+                                  List<String> metrics,
+                                  List<MetricAggregateDao.Dim> groupBy,
+                                  StatsTimeSeriesSource.Granularity granularity) {
+        List<MetricAggregateDao.Column> columns = aggregateColumns(metrics);
+        Set<MetricAggregateDao.Dim> dims = groupBy.isEmpty()
+                ? EnumSet.noneOf(MetricAggregateDao.Dim.class) : EnumSet.copyOf(groupBy);
+        boolean windowed = year != null || range != null || quarter != null || from != null || to != null;
+        Window w = windowed ? resolveWindow(year, range, quarter, from, to) : null;
+
+        AggregateRes res = new AggregateRes();
+        res.setColumns(columns.stream().map(c -> new AggregateColumn(c.key(), c.op().name().toLowerCase(Locale.ROOT),
+                c.metric() == null ? null : c.metric().name(),
+                c.metric() == null ? null : c.metric().definition().unit())).toList());
+        res.setGroupBy(dims.stream().map(d -> d.name().toLowerCase(Locale.ROOT)).toList());
+        res.setGranularity(dims.contains(MetricAggregateDao.Dim.TIME) ? granularity.name().toLowerCase(Locale.ROOT) : null);
+        res.setTypesFilter(types);
+        if (w != null) {
+            res.setFrom(w.start().toLocalDate().toString());
+            res.setTo(w.end().minusDays(1).toLocalDate().toString());
         }
-        return 0.0;
+
+        List<FacilityType> effTypes = effectiveTypes(types);
+        if ((allowedOrgIds != null && allowedOrgIds.isEmpty()) || effTypes.isEmpty()) {
+            // Bo‘sh scope: guruhlanmagan so‘rov baribir bitta qator (count 0, qolganlari null)
+            res.setEngine("sql");
+            res.setRows(dims.isEmpty() ? List.of(new AggregateRow(null, null, null, null, null,
+                    aggregateValues(columns, new Double[columns.size()]))) : List.of());
+            return res;
+        }
+
+        MetricAggregateDao.Query q = new MetricAggregateDao.Query(allowedOrgIds, effTypes,
+                w != null ? w.start() : null, w != null ? w.end() : null,
+                columns, dims, granularity, maxAggregateGroups);
+        StatsQueryExecutor.Batch batch = queries.batch("aggregate");
+        var resultQ = batch.fork("groups", () -> metricDao.aggregate(q));
+        batch.join();
+        MetricAggregateDao.Result result = resultQ.get();
+
+        res.setEngine(result.engine());
+        res.setRows(result.groups().stream().map(g -> new AggregateRow(g.type(), g.orgId(), g.orgName(), g.status(),
+                g.bucket() != null ? g.bucket().toString() : null, aggregateValues(columns, g.values()))).toList());
+        return res;
     }
 
-    private double readAreaM2(Facility f) {
-        Object attrs = f.getAttributes();
-        // areaM2 / area_m2
-        for (String k : AREA_KEYS) {
-            double v = readFrom(attrs, k);
-            if (v != 0.0) return v;
-            if (existsAsZero(attrs, k)) return 0.0;
+    private List<MetricAggregateDao.Column> aggregateColumns(List<String> specs) {
+        Map<String, MetricAggregateDao.Column> out = new LinkedHashMap<>();
+        for (String spec : specs) {
+            String s = spec.trim();
+            if (s.isEmpty()) continue;
+            MetricAggregateDao.Column c;
+            if ("count".equalsIgnoreCase(s)) {
+                c = new MetricAggregateDao.Column("count", MetricAggregateDao.Op.COUNT, null);
+            } else {
+                Matcher m = AGGREGATE_COLUMN.matcher(s);
+                if (!m.matches())
+                    throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid metric expression: " + s);
+                MetricAggregateDao.Op op = MetricAggregateDao.Op.valueOf(m.group(1).toUpperCase(Locale.ROOT));
+                MetricRegistry.Metric metric = metricRegistry.require(m.group(2));
+                c = new MetricAggregateDao.Column(op.name().toLowerCase(Locale.ROOT) + "(" + metric.name() + ")", op, metric);
+            }
+            out.putIfAbsent(c.key(), c);
         }
-        // totalAreaHa → m²
-        double ha = readFrom(attrs, TOTAL_AREA_HA);
-        if (ha != 0.0 || existsAsZero(attrs, TOTAL_AREA_HA)) {
-            return ha * 10_000.0;
+        if (out.isEmpty()) throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "metrics is required");
+        if (out.size() > maxAggregateColumns)
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Too many metrics (max " + maxAggregateColumns + ")");
+        return new ArrayList<>(out.values());
+    }
+
+    private static Map<String, Double> aggregateValues(List<MetricAggregateDao.Column> columns, Double[] values) {
+        Map<String, Double> out = new LinkedHashMap<>();
+        for (int i = 0; i < columns.size(); i++) {
+            Double v = values[i];
+            if (v == null && columns.get(i).op() == MetricAggregateDao.Op.COUNT) v = 0.0;
+            out.put(columns.get(i).key(), v);
         }
-        return 0.0;
+        return out;
     }
 
-    private double readSingle(Facility f, String key) {
-        return readFrom(f.getAttributes(), key);
+    private static final LongConsumer NO_PROGRESS = n -> {};
+
+    private static final String CSV_HEADER =
+            "orgId,orgName,type,createdAt,expectedRevenue,netProfit,current,capacity,productAmount,areaM2\n";
+
+    /**
+     * CSV’ni to‘g‘ridan-to‘g‘ri oqimga yozadi: qatorlar DB cursor’dan keladi, buferlangan UTF-8 writer orqali.
+     * Butun fayl xotirada yig‘ilmaydi.
+     */
+    public void exportCsv(Set<Long> allowedOrgIds, Integer year,
+                          List<FacilityType> types,
+                          String range, Integer quarter,
+                          LocalDate from, LocalDate to,
+                          OutputStream out) throws IOException {
+        exportCsv(allowedOrgIds, year, types, range, quarter, from, to, out, NO_PROGRESS);
     }
 
-    private boolean existsAsZero(Object attrs, String key) {
-        if (attrs instanceof Map<?,?> map) {
-            Object v = map.get(key);
-            return v != null;
-        } else if (attrs instanceof JsonNode node) {
-            JsonNode n = node.get(key);
-            return n != null && !n.isNull();
+    /** progress — har bir yozilgan qatordan keyin jami soni bilan chaqiriladi (asinxron export vazifalari uchun) */
+    public void exportCsv(Set<Long> allowedOrgIds, Integer year,
+                          List<FacilityType> types,
+                          String range, Integer quarter,
+                          LocalDate from, LocalDate to,
+                          OutputStream out, LongConsumer progress) throws IOException {
+
+        Window w = resolveWindow(year, range, quarter, from, to);
+        Writer wr = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024);
+        wr.write(CSV_HEADER);
+        wr.flush(); // birinchi baytlar darhol
+
+        List<FacilityType> effTypes = effectiveTypes(types);
+        if ((allowedOrgIds != null && allowedOrgIds.isEmpty()) || effTypes.isEmpty()) return;
+
+        long[] written = {0};
+        exportDao.stream(allowedOrgIds, effTypes, w.start(), w.end(), r -> {
+            FacilityMetrics m = r.metrics();
+            wr.append(csv(r.orgId())).append(',')
+                    .append(csv(r.orgId() != null ? r.orgName() : "")).append(',')
+                    .append(csv(r.type() != null ? r.type().name() : "")).append(',')
+                    .append(csv(r.createdAt() != null ? r.createdAt().toString() : "")).append(',')
+                    .append(String.valueOf(m.expectedRevenue())).append(',')
+                    .append(String.valueOf(m.netProfit())).append(',')
+                    .append(String.valueOf(m.current())).append(',')
+                    .append(String.valueOf(m.capacity())).append(',')
+                    .append(String.valueOf(m.productAmount())).append(',')
+                    .append(String.valueOf(m.areaM2())).append('\n');
+            progress.accept(++written[0]);
+        });
+        wr.flush();
+    }
+
+    /**
+     * Arrow IPC (file) export: exportCsv bilan bir xil ustunlar, tiplangan va siqilgan.
+     * Qatorlar cursor’dan {@link ArrowExportWriter#BATCH_SIZE} tadan batch bo‘lib yoziladi.
+     */
+    public void exportArrow(Set<Long> allowedOrgIds, Integer year,
+                            List<FacilityType> types,
+                            String range, Integer quarter,
+                            LocalDate from, LocalDate to,
+                            OutputStream out) throws IOException {
+        exportArrow(allowedOrgIds, year, types, range, quarter, from, to, out, NO_PROGRESS);
+    }
+
+    public void exportArrow(Set<Long> allowedOrgIds, Integer year,
+                            List<FacilityType> types,
+                            String range, Integer quarter,
+                            LocalDate from, LocalDate to,
+                            OutputStream out, LongConsumer progress) throws IOException {
+
+        Window w = resolveWindow(year, range, quarter, from, to);
+        List<FacilityType> effTypes = effectiveTypes(types);
+        boolean empty = (allowedOrgIds != null && allowedOrgIds.isEmpty()) || effTypes.isEmpty();
+
+        List<String> orgNames = empty ? List.of() : exportDao.orgNames(allowedOrgIds);
+        try (ArrowExportWriter writer = new ArrowExportWriter(out, orgNames, arrowCodec)) {
+            if (!empty) {
+                long[] written = {0};
+                exportDao.stream(allowedOrgIds, effTypes, w.start(), w.end(), r -> {
+                    writer.add(r);
+                    progress.accept(++written[0]);
+                });
+            }
+            writer.finish();
         }
-        return false;
+        out.flush();
     }
 
-    @SuppressWarnings("unchecked")
-    private double readFrom(Object attrs, String key) {
-        try {
-            Object v = null;
-            if (attrs instanceof Map<?, ?> map) {
-                v = map.get(key);
-            } else if (attrs instanceof JsonNode node) {
-                JsonNode n = node.get(key);
-                if (n != null && !n.isNull()) {
-                    if (n.isNumber()) return n.asDouble();
-                    if (n.isTextual()) return parseDouble(n.asText());
-                    // boshqa turlar uchun – e’tibor bermaymiz
-                    return 0.0;
-                }
+    /**
+     * XLSX export: exportCsv bilan bir xil ustunlar, har bir tur — alohida varaq.
+     * Qatorlar o‘sha DB cursor’idan {@link XlsxExportWriter} ga (SXSSF, cheklangan qatorlar oynasi) uzatiladi.
+     */
+    public void exportXlsx(Set<Long> allowedOrgIds, Integer year,
+                           List<FacilityType> types,
+                           String range, Integer quarter,
+                           LocalDate from, LocalDate to,
+                           OutputStream out) throws IOException {
+        exportXlsx(allowedOrgIds, year, types, range, quarter, from, to, out, NO_PROGRESS);
+    }
+
+    public void exportXlsx(Set<Long> allowedOrgIds, Integer year,
+                           List<FacilityType> types,
+                           String range, Integer quarter,
+                           LocalDate from, LocalDate to,
+                           OutputStream out, LongConsumer progress) throws IOException {
+
+        Window w = resolveWindow(year, range, quarter, from, to);
+        List<FacilityType> effTypes = effectiveTypes(types);
+        boolean empty = (allowedOrgIds != null && allowedOrgIds.isEmpty()) || effTypes.isEmpty();
+
+        try (XlsxExportWriter writer = new XlsxExportWriter(out, xlsxWindowRows)) {
+            if (!empty) {
+                long[] written = {0};
+                exportDao.stream(allowedOrgIds, effTypes, w.start(), w.end(), r -> {
+                    writer.add(r);
+                    progress.accept(++written[0]);
+                });
             }
-            return num(v);
-        } catch (Exception ignored) {
-            return 0.0;
+            writer.finish();
+        }
+        out.flush();
+    }
+
+    /** Export qatorlari soni (asinxron vazifa progress’i uchun "jami") */
+    public long exportRowCount(Set<Long> allowedOrgIds, Integer year,
+                               List<FacilityType> types,
+                               String range, Integer quarter,
+                               LocalDate from, LocalDate to) {
+        Window w = resolveWindow(year, range, quarter, from, to);
+        List<FacilityType> effTypes = effectiveTypes(types);
+        if ((allowedOrgIds != null && allowedOrgIds.isEmpty()) || effTypes.isEmpty()) return 0;
+        return exportDao.count(allowedOrgIds, effTypes, w.start(), w.end());
+    }
+
+    /* -------------------- Window / type helpers -------------------- */
+
+    /**
+     * Xotiradagi ustunli nusxa (yoqilgan bo‘lsa) — har qanday oyna uchun;
+     * aks holda oylarga tekislangan oynalar — oylik rollup’dan, qolganlari (custom kunlar) — xom jadvaldan
+     */
+    private StatsAggregateSource aggregateSource(List<StatsAggregateSource.Period> periods) {
+        if (columnStore.isCurrent()) return columnStore;
+        return (rollupService.isReady() && RollupAggregateDao.supports(periods)) ? rollupDao : aggregateDao;
+    }
+
+    /** Vaqt qatorlari: rollup faqat oy/chorak bo‘laklarini beradi */
+    private StatsTimeSeriesSource timeSeriesSource(List<StatsAggregateSource.Period> periods,
+                                                   StatsTimeSeriesSource.Granularity granularity) {
+        if (columnStore.isCurrent()) return columnStore;
+        boolean rollup = RollupAggregateDao.supports(granularity)
+                && rollupService.isReady() && RollupAggregateDao.supports(periods);
+        return rollup ? rollupDao : aggregateDao;
+    }
+
+    /**
+     * Tanlangan oyna: [start, end] (end — keyingi kun boshlanishi).
+     * Bir xil oynaga olib keladigan so‘rovlar (range=YEAR / year, ortiqcha chorak yoki from/to) teng Window beradi —
+     * kesh va single-flight kalitlari shundan quriladi.
+     */
+    public record Window(int year, String range, LocalDateTime start, LocalDateTime end) {
+
+        /** Kanonik chorak: faqat range=quarter bo‘lsa */
+        public Integer quarter() {
+            return "quarter".equals(range) ? (start.getMonthValue() - 1) / 3 + 1 : null;
+        }
+
+        /** Kanonik from/to: faqat range=custom bo‘lsa */
+        public LocalDate from() {
+            return "custom".equals(range) ? start.toLocalDate() : null;
+        }
+
+        public LocalDate to() {
+            return "custom".equals(range) ? end.minusDays(1).toLocalDate() : null;
         }
     }
 
-    private double num(Object v) {
-        if (v == null) return 0.0;
-        if (v instanceof Number n) return n.doubleValue();
-        if (v instanceof String s) return parseDouble(s);
-        return 0.0;
+    public Window window(Integer year, String range, Integer quarter, LocalDate from, LocalDate to) {
+        return resolveWindow(year, range, quarter, from, to);
     }
 
-    private double parseDouble(String s) {
-        if (s == null) return 0.0;
-        try { return Double.parseDouble(s.trim()); } catch (Exception e) { return 0.0; }
+    /** Kalitlar uchun turlar: enum tartibida, takrorsiz; null/bo‘sh => null (barcha ALLOWED) */
+    public static List<FacilityType> canonicalTypes(List<FacilityType> types) {
+        if (types == null || types.isEmpty()) return null;
+        return types.stream().distinct().sorted().toList();
     }
 
-    private String safeOrgName(Facility f) {
-        try { return f.getOrg().getName(); } catch (Exception e) { return "—"; }
+    private Window resolveWindow(Integer year, String range, Integer quarter, LocalDate from, LocalDate to) {
+        if (range == null || range.isBlank()) range = "year";
+        range = range.toLowerCase(Locale.ROOT);
+
+        int y = (year != null) ? year : Year.now().getValue();
+        if ("quarter".equals(range)) {
+            int q = (quarter != null && quarter >= 1 && quarter <= 4) ? quarter : 1;
+            int startMonth = (q - 1) * 3 + 1;
+            Month sm = Month.of(startMonth);
+            Month em = Month.of(startMonth + 2);
+            return new Window(y, range,
+                    LocalDate.of(y, sm, 1).atStartOfDay(),
+                    LocalDate.of(y, em, em.length(Year.isLeap(y))).plusDays(1).atStartOfDay());
+        }
+        if ("custom".equals(range) && from != null && to != null && !to.isBefore(from)) {
+            return new Window(y, range, from.atStartOfDay(), to.plusDays(1).atStartOfDay());
+        }
+        return new Window(y, "year",
+                LocalDate.of(y, 1, 1).atStartOfDay(),
+                LocalDate.of(y + 1, 1, 1).atStartOfDay());
+    }
+
+    /** Frontdan kelgan turlar ∩ ALLOWED (bo‘sh/null => barcha ALLOWED) */
+    private List<FacilityType> effectiveTypes(List<FacilityType> types) {
+        if (types == null || types.isEmpty()) return new ArrayList<>(ALLOWED);
+        return types.stream().filter(ALLOWED::contains).distinct().toList();
+    }
+
+    private String csv(Object v) {
+        if (v == null) return "";
+        String s = String.valueOf(v);
+        if (s.contains(",") || s.contains("\"") || s.contains("\n")) {
+            s = s.replace("\"", "\"\"");
+            return "\"" + s + "\"";
+        }
+        return s;
     }
 
     private OverviewRes emptyOverviewForWindow(Integer year, List<FacilityType> types,
@@ -486,6 +1051,7 @@ public class StatsService {
         res.setTypeKpis(List.of());
         res.setTopOrgRevenue(List.of());
         res.setOrgs(List.of());
+        res.setMode("exact"); // bo‘sh scope — tanlanmasiz ham aniq
 
         int y = (year != null) ? year : Year.now().getValue();
         res.setYear(y);
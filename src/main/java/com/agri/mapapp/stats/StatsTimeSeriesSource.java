@@ -0,0 +1,40 @@
+package com.agri.mapapp.stats;
+
+import com.agri.mapapp.facility.FacilityType;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Vaqt qatorlari manbai (xom facility jadvali, oylik rollup yoki ustunli nusxa). Overview manbalarining
+ * hammasi ham buni bera olmaydi (masalan, taxminiy tanlanma) — shuning uchun {@link StatsAggregateSource}’dan alohida.
+ * orgIds == null => cheklanmagan (ADMIN); types bo‘sh bo‘lmasligi kerak.
+ */
+public interface StatsTimeSeriesSource {
+
+    /** Vaqt qatori bo‘lagi: kun, ISO hafta (dushanbadan), oy, chorak */
+    enum Granularity { DAY, WEEK, MONTH, QUARTER }
+
+    /** Seriyalar: bitta umumiy, har bir tur yoki har bir org uchun alohida */
+    enum SeriesBy { NONE, TYPE, ORG }
+
+    /**
+     * (davr, bo‘lak boshi, seriya kaliti) kesimidagi yig‘indilar; by=NONE => type/orgId null, by=TYPE => orgId null.
+     * period — yearsBack ro‘yxatidagi indeks; start har doim asosiy oyna kalendarida (siljitilgan davr ham).
+     */
+    record TimeBucket(int period, LocalDate start, FacilityType type, Long orgId, String orgName, long count,
+                      double revenue, double profit, double current, double capacity,
+                      double product, double areaM2) {}
+
+    /**
+     * [from, to) oynani bo‘laklarga (date_trunc) ajratib yig‘ish; faqat bo‘sh bo‘lmagan bo‘laklar qaytadi.
+     * yearsBack: har bir element uchun oyna shuncha yil orqaga siljitiladi (0 — oynaning o‘zi), hammasi bitta o‘tishda;
+     * siljitilgan davr qatorlari asosiy oyna bo‘laklariga (sana + yillar) joylanadi.
+     */
+    List<TimeBucket> timeBuckets(Set<Long> orgIds, Collection<FacilityType> types,
+                                 LocalDateTime from, LocalDateTime to,
+                                 Granularity granularity, SeriesBy by, List<Integer> yearsBack);
+}
@@ -0,0 +1,182 @@
+package com.agri.mapapp.stats.approx;
+
+import com.agri.mapapp.facility.FacilityType;
+import com.agri.mapapp.stats.StatsAggregateSource;
+import com.agri.mapapp.stats.dto.Estimate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * Blok tanlanmasi ustidagi {@link StatsAggregateSource}: yig‘indilar tanlanmadan hisoblanib 1/p ga ko‘paytiriladi
+ * (Horvitz–Thompson). Overview yig‘ish mantiqi o‘zgarmaydi — faqat manba boshqa.
+ * Vaqt qatorlarini ({@link com.agri.mapapp.stats.StatsTimeSeriesSource}) bermaydi: taxminiy rejim faqat overview uchun.
+ *
+ * Ishonch oraliqlari: sahifalar bir-biridan mustaqil p ehtimol bilan tanlanadi (SYSTEM), shuning uchun
+ * sahifa — klaster: Var(Ŷ) ≈ (1 − p)/p² · Σ y_sahifa². Nisbatlar (sig‘imdan foydalanish) — delta usuli bilan.
+ * Faqat bitta so‘rov ichida ishlatiladi (thread-safe emas, saqlanmaydi).
+ */
+public final class FacilitySample implements StatsAggregateSource {
+
+    /** 95% ikki tomonlama normal kvantil */
+    public static final double CONFIDENCE = 0.95;
+    private static final double Z = 1.959963984540054;
+
+    public record Row(long page, FacilityType type, long orgId, String orgName, boolean active,
+                      LocalDateTime createdAt, double revenue, double profit, double current, double capacity,
+                      double product, double areaM2) {}
+
+    private final double fraction;
+    private final double scale;
+    private final List<Row> rows;
+
+    FacilitySample(double fraction, List<Row> rows) {
+        this.fraction = fraction;
+        this.scale = 1.0 / fraction;
+        this.rows = rows;
+    }
+
+    public double fraction() {
+        return fraction;
+    }
+
+    public long sampledRows() {
+        return rows.size();
+    }
+
+    public long sampledPages() {
+        return rows.stream().mapToLong(Row::page).distinct().count();
+    }
+
+    /* -------------------- StatsAggregateSource -------------------- */
+
+    private record BaseKey(FacilityType type, long orgId, boolean active, Integer year, Integer month) {}
+
+    private record PeriodKey(int period, FacilityType type, long orgId) {}
+
+    @Override
+    public List<BaseBucket> baseBuckets(Set<Long> orgIds, Collection<FacilityType> types,
+                                        LocalDateTime monthsFrom, LocalDateTime monthsTo) {
+        Map<BaseKey, double[]> acc = new HashMap<>();
+        Map<Long, String> names = new HashMap<>();
+        for (Row r : rows) {
+            if (!matches(r, orgIds, types)) continue;
+            boolean inMonths = r.createdAt() != null
+                    && !r.createdAt().isBefore(monthsFrom) && r.createdAt().isBefore(monthsTo);
+            BaseKey k = new BaseKey(r.type(), r.orgId(), r.active(),
+                    inMonths ? r.createdAt().getYear() : null, inMonths ? r.createdAt().getMonthValue() : null);
+            double[] a = acc.computeIfAbsent(k, x -> new double[7]);
+            a[0]++;
+            a[1] += r.revenue();
+            a[2] += r.profit();
+            a[3] += r.current();
+            a[4] += r.capacity();
+            a[5] += r.product();
+            a[6] += r.areaM2();
+            names.putIfAbsent(r.orgId(), r.orgName());
+        }
+        List<BaseBucket> out = new ArrayList<>(acc.size());
+        acc.forEach((k, a) -> out.add(new BaseBucket(k.type(), k.orgId(), names.get(k.orgId()), k.active(),
+                k.year(), k.month(), Math.round(a[0] * scale),
+                a[1] * scale, a[2] * scale, a[3] * scale, a[4] * scale, a[5] * scale, a[6] * scale)));
+        return out;
+    }
+
+    @Override
+    public List<PeriodBucket> periodBuckets(Set<Long> orgIds, Collection<FacilityType> types, List<Period> periods) {
+        Map<PeriodKey, double[]> acc = new HashMap<>();
+        Map<Long, String> names = new HashMap<>();
+        for (Row r : rows) {
+            if (!matches(r, orgIds, types) || r.createdAt() == null) continue;
+            for (int i = 0; i < periods.size(); i++) {
+                if (!inPeriod(r.createdAt(), periods.get(i))) continue;
+                double[] a = acc.computeIfAbsent(new PeriodKey(i, r.type(), r.orgId()), x -> new double[5]);
+                a[0]++;
+                a[1] += r.revenue();
+                a[2] += r.profit();
+                a[3] += r.current();
+                a[4] += r.capacity();
+                names.putIfAbsent(r.orgId(), r.orgName());
+            }
+        }
+        List<PeriodBucket> out = new ArrayList<>(acc.size());
+        acc.forEach((k, a) -> out.add(new PeriodBucket(k.period(), k.type(), k.orgId(), names.get(k.orgId()),
+                Math.round(a[0] * scale), a[1] * scale, a[2] * scale, a[3] * scale, a[4] * scale)));
+        return out;
+    }
+
+    /* -------------------- Ishonch oraliqlari -------------------- */
+
+    /**
+     * Overview’ning asosiy KPI’lari uchun baho va {@link #CONFIDENCE} oraliq.
+     * window — tanlangan oyna (periodBuckets bilan bir xil: ikki chegara ham kiradi), year — yangi qo‘shilganlar yili.
+     */
+    public Map<String, Estimate> estimates(Period window, int year) {
+        LocalDateTime yearFrom = LocalDate.of(year, 1, 1).atStartOfDay();
+        LocalDateTime yearTo = yearFrom.plusYears(1);
+        // sahifa → [total, active, yearNew, revenueWin, profitWin, current, capacity]
+        Map<Long, double[]> pages = new HashMap<>();
+        for (Row r : rows) {
+            double[] a = pages.computeIfAbsent(r.page(), x -> new double[7]);
+            a[0]++;
+            if (r.active()) a[1]++;
+            LocalDateTime c = r.createdAt();
+            if (c != null && !c.isBefore(yearFrom) && c.isBefore(yearTo)) a[2]++;
+            if (c != null && inPeriod(c, window)) {
+                a[3] += r.revenue();
+                a[4] += r.profit();
+            }
+            a[5] += r.current();
+            a[6] += r.capacity();
+        }
+
+        Map<String, Estimate> out = new LinkedHashMap<>();
+        out.put("total", total(pages.values(), 0, true));
+        out.put("active", total(pages.values(), 1, true));
+        out.put("yearNewCount", total(pages.values(), 2, true));
+        out.put("revenueYtd", total(pages.values(), 3, false));
+        out.put("profitYtd", total(pages.values(), 4, false));
+        out.put("capacityUtilPct", ratioPct(pages.values(), 5, 6));
+        return out;
+    }
+
+    private Estimate total(Collection<double[]> pages, int i, boolean nonNegative) {
+        double sum = 0, sumSq = 0;
+        for (double[] a : pages) {
+            sum += a[i];
+            sumSq += a[i] * a[i];
+        }
+        double est = sum * scale;
+        double half = Z * Math.sqrt((1 - fraction) * scale * scale * sumSq);
+        double low = est - half;
+        return new Estimate(est, nonNegative ? Math.max(0, low) : low, est + half);
+    }
+
+    /** 100 · Σy / Σx; Var(R) ≈ (1 − p)/p² · Σ (y − R·x)² / X² */
+    private Estimate ratioPct(Collection<double[]> pages, int yi, int xi) {
+        double y = 0, x = 0;
+        for (double[] a : pages) {
+            y += a[yi];
+            x += a[xi];
+        }
+        if (x <= 0) return new Estimate(null, null, null);
+        double r = y / x;
+        double ss = 0;
+        for (double[] a : pages) {
+            double d = a[yi] - r * a[xi];
+            ss += d * d;
+        }
+        double xHat = x * scale;
+        double half = Z * Math.sqrt((1 - fraction) * scale * scale * ss) / xHat;
+        return new Estimate(r * 100.0, Math.max(0, (r - half) * 100.0), (r + half) * 100.0);
+    }
+
+    private static boolean matches(Row r, Set<Long> orgIds, Collection<FacilityType> types) {
+        return (orgIds == null || orgIds.contains(r.orgId())) && types.contains(r.type());
+    }
+
+    private static boolean inPeriod(LocalDateTime t, Period p) {
+        return !t.isBefore(p.from()) && !t.isAfter(p.to());
+    }
+}
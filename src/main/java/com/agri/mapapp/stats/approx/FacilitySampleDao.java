@@ -0,0 +1,73 @@
+package com.agri.mapapp.stats.approx;
+
+import com.agri.mapapp.facility.FacilityType;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * facility jadvalidan blok tanlanmasi (PostgreSQL TABLESAMPLE SYSTEM): har bir sahifa p ehtimol bilan,
+ * faqat tanlangan sahifalar o‘qiladi — vaqt jadval hajmiga emas, tanlanma hajmiga bog‘liq.
+ * p planner statistikasidan (pg_class.reltuples) maqsadli qatorlar soniga qarab tanlanadi.
+ */
+@Repository
+public class FacilitySampleDao {
+
+    private final NamedParameterJdbcTemplate jdbc;
+    private final long targetRows;
+
+    public FacilitySampleDao(NamedParameterJdbcTemplate jdbc,
+                             @Value("${app.stats.approx.sample-rows:20000}") long targetRows) {
+        this.jdbc = jdbc;
+        this.targetRows = targetRows;
+    }
+
+    /** orgIds == null => cheklanmagan; types bo‘sh bo‘lmasligi kerak */
+    public FacilitySample sample(Set<Long> orgIds, Collection<FacilityType> types) {
+        Double reltuples = jdbc.getJdbcOperations().queryForObject(
+                "SELECT reltuples::float8 FROM pg_class WHERE oid = 'facility'::regclass", Double.class);
+        // Statistika yo‘q (hali ANALYZE qilinmagan, -1) yoki jadval kichik — to‘liq o‘qiladi (p = 1, oraliqlar nol)
+        double pct = (reltuples == null || reltuples <= targetRows) ? 100.0 : 100.0 * targetRows / reltuples;
+
+        MapSqlParameterSource p = new MapSqlParameterSource()
+                .addValue("pct", pct)
+                .addValue("types", types.stream().map(Enum::name).toList());
+        String where = "f.type IN (:types)";
+        if (orgIds != null) {
+            p.addValue("orgIds", orgIds);
+            where += " AND f.org_id IN (:orgIds)";
+        }
+        // ctid → sahifa raqami: dispersiya sahifa (klaster) yig‘indilari bo‘yicha baholanadi
+        String sql = """
+                SELECT (f.ctid::text::point)[0]::bigint AS page,
+                       f.type, o.id AS org_id, o.name AS org_name, (f.status = 'ACTIVE') AS active, f.created_at,
+                       f.expected_revenue AS revenue, f.net_profit AS profit, f.current_amount AS cur,
+                       f.capacity AS cap, f.product_amount AS product, f.area_m2
+                FROM facility f TABLESAMPLE SYSTEM (:pct)
+                JOIN org_unit o ON o.id = f.org_id
+                WHERE %s
+                """.formatted(where);
+
+        List<FacilitySample.Row> rows = new ArrayList<>();
+        jdbc.query(sql, p, rs -> {
+            rows.add(new FacilitySample.Row(
+                    rs.getLong("page"),
+                    FacilityType.valueOf(rs.getString("type")),
+                    rs.getLong("org_id"),
+                    rs.getString("org_name"),
+                    rs.getBoolean("active"),
+                    rs.getObject("created_at", LocalDateTime.class),
+                    rs.getDouble("revenue"), rs.getDouble("profit"),
+                    rs.getDouble("cur"), rs.getDouble("cap"),
+                    rs.getDouble("product"), rs.getDouble("area_m2")));
+        });
+        return new FacilitySample(Math.min(1.0, pct / 100.0), rows);
+    }
+}
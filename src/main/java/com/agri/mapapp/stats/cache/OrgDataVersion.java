@@ -0,0 +1,21 @@
+package com.agri.mapapp.stats.cache;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+/**
+ * Org ma’lumot versiyasi (V10). Yozuvlar faqat OrgDataVersions orqali (JDBC upsert);
+ * entity jadvalni dev profilida (Flyway o‘chiq, ddl-auto=create) ham yaratish va validatsiya uchun.
+ */
+@Entity
+@Table(name = "org_data_version")
+@Getter @Setter @NoArgsConstructor @AllArgsConstructor
+public class OrgDataVersion {
+
+    @Id
+    @Column(name = "org_id")
+    private Long orgId;
+
+    @Column(nullable = false)
+    private long version;
+}
@@ -0,0 +1,75 @@
+package com.agri.mapapp.stats.cache;
+
+import com.agri.mapapp.facility.FacilityChangedEvent;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+
+/**
+ * Org bo‘yicha ma’lumot versiyalari (org_data_version jadvali).
+ * Facility yozgan tranzaksiya ichida tegishli org(lar) versiyasi oshadi va ma’lumot bilan birga commit bo‘ladi:
+ * rollback — versiya ham qaytadi; boshqa instance yoki import/bulk yozuvi ham shu jadval orqali seziladi.
+ * Versiyalar faqat o‘sadi, shuning uchun scope bo‘yicha yig‘indi (stamp) har qanday o‘zgarishni aniq sezadi.
+ */
+@Component
+@RequiredArgsConstructor
+public class OrgDataVersions {
+
+    private static final String BUMP_SQL = """
+            INSERT INTO org_data_version (org_id, version) VALUES (:orgId, 1)
+            ON CONFLICT (org_id) DO UPDATE SET version = org_data_version.version + 1
+            """;
+
+    /** Versiyalar DB’da va qayta ishga tushishda saqlanadi — epoch o‘zgarmaydi (avvalgi xotiradagi stamp’lar yaroqsiz) */
+    private static final String EPOCH = "db";
+
+    private final NamedParameterJdbcTemplate jdbc;
+
+    /** Chaqiruvchi tranzaksiyasi ichida (tranzaksiyasiz chaqirilsa — darhol) */
+    @EventListener
+    public void onFacilityChanged(FacilityChangedEvent event) {
+        bump(event.orgIds());
+    }
+
+    public void bump(Set<Long> orgIds) {
+        if (orgIds.isEmpty()) return;
+        // Tartiblangan: parallel tranzaksiyalar qatorlarni bir xil tartibda qulflaydi (deadlock bo‘lmaydi)
+        MapSqlParameterSource[] batch = new TreeSet<>(orgIds).stream()
+                .map(id -> new MapSqlParameterSource("orgId", id))
+                .toArray(MapSqlParameterSource[]::new);
+        jdbc.batchUpdate(BUMP_SQL, batch);
+    }
+
+    /** Scope stamp: null (ADMIN) => barcha org versiyalari yig‘indisi, aks holda scope’dagilar yig‘indisi */
+    public long stamp(Set<Long> orgIds) {
+        Long sum;
+        if (orgIds == null) {
+            sum = jdbc.queryForObject("SELECT COALESCE(SUM(version), 0) FROM org_data_version",
+                    new MapSqlParameterSource(), Long.class);
+        } else {
+            if (orgIds.isEmpty()) return 0;
+            sum = jdbc.queryForObject("SELECT COALESCE(SUM(version), 0) FROM org_data_version WHERE org_id IN (:orgIds)",
+                    new MapSqlParameterSource("orgIds", orgIds), Long.class);
+        }
+        return sum != null ? sum : 0;
+    }
+
+    /** Har bir org versiyasi bitta so‘rovda (yozuvi yo‘q org => 0) */
+    public Map<Long, Long> versions(Collection<Long> orgIds) {
+        Map<Long, Long> out = new HashMap<>(orgIds.size() * 2);
+        for (Long id : orgIds) out.put(id, 0L);
+        if (orgIds.isEmpty()) return out;
+        jdbc.query("SELECT org_id, version FROM org_data_version WHERE org_id IN (:orgIds)",
+                new MapSqlParameterSource("orgIds", orgIds),
+                rs -> { out.put(rs.getLong("org_id"), rs.getLong("version")); });
+        return out;
+    }
+
+    public String epoch() {
+        return EPOCH;
+    }
+}
@@ -0,0 +1,200 @@
+package com.agri.mapapp.stats.cache;
+
+import com.agri.mapapp.facility.FacilityType;
+import com.agri.mapapp.stats.StatsService;
+import com.agri.mapapp.stats.dto.OverviewRes;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * /api/stats/overview natijalari keshi.
+ *  - Kalit: (scope, hal qilingan oyna, turlar to‘plami, orgFilter) — bir xil subtree’dagi foydalanuvchilar bo‘lishadi;
+ *    oyna {@link StatsService#window} orqali, turlar {@link StatsService#canonicalTypes} orqali — bir xil natija
+ *    beradigan turli yozuvdagi so‘rovlar (range=YEAR, ortiqcha chorak, turlar tartibi/takrori) bitta yozuvga tushadi;
+ *  - Yaroqlilik: yozuvdagi stamp ↔ {@link OrgDataVersions#stamp} (DB’da; facility yozuvi qaysi instance’da commit bo‘lmasin, scope stamp o‘zgaradi);
+ *  - Eskirgan yozuv (stale) darhol qaytariladi va fonda qayta hisoblanadi (stale-while-revalidate);
+ *  - Hajm: taxminiy baytlar bo‘yicha (maximumWeight) + TTL.
+ */
+@Slf4j
+@Component
+public class OverviewCache {
+
+    private final StatsService statsService;
+    private final OrgDataVersions versions;
+    private final boolean enabled;
+    private final boolean staleWhileRevalidate;
+
+    private final Cache<Key, Entry> cache;
+    private final ThreadPoolExecutor refresher;
+    private final Set<Key> refreshing = ConcurrentHashMap.newKeySet();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder staleHits = new LongAdder();
+    private final LongAdder refreshes = new LongAdder();
+    private final LongAdder refreshFailures = new LongAdder();
+
+    public OverviewCache(
+            StatsService statsService,
+            OrgDataVersions versions,
+            @Value("${app.stats.cache.enabled:true}") boolean enabled,
+            @Value("${app.stats.cache.max-bytes:67108864}") long maxBytes,          // default 64 MB
+            @Value("${app.stats.cache.ttl-seconds:600}") long ttlSeconds,
+            @Value("${app.stats.cache.stale-while-revalidate:true}") boolean staleWhileRevalidate
+    ) {
+        this.statsService = statsService;
+        this.versions = versions;
+        this.enabled = enabled;
+        this.staleWhileRevalidate = staleWhileRevalidate;
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maxBytes)
+                .weigher((Key k, Entry e) -> e.weight())
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .recordStats()
+                .build();
+
+        AtomicInteger seq = new AtomicInteger();
+        this.refresher = new ThreadPoolExecutor(1, 2, 30, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(64),
+                r -> {
+                    Thread t = new Thread(r, "overview-refresh-" + seq.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    public OverviewRes get(Set<Long> allowedOrgIds, Integer year, List<FacilityType> types,
+                           String range, Integer quarter, LocalDate from, LocalDate to, Long orgFilter,
+                           List<Integer> compareYears) {
+        // Hisoblash ham kanonik parametrlar bilan — yozuvni qaysi so‘rov to‘ldirganidan qat’i nazar javob bir xil
+        StatsService.Window w = statsService.window(year, range, quarter, from, to);
+        List<FacilityType> typeSet = StatsService.canonicalTypes(types);
+        Callable<OverviewRes> loader = () -> {
+            OverviewRes res = statsService.overviewAdvanced(allowedOrgIds, w.year(), typeSet,
+                    w.range(), w.quarter(), w.from(), w.to(), compareYears);
+            if (orgFilter != null) res.setOrgFilter(orgFilter);
+            return res;
+        };
+        if (!enabled) return call(loader);
+
+        Key key = new Key(allowedOrgIds == null ? null : Set.copyOf(allowedOrgIds), w, typeSet,
+                orgFilter, List.copyOf(compareYears));
+
+        long stamp = versions.stamp(allowedOrgIds);
+        Entry e = cache.asMap().get(key); // asMap() — Caffeine statistikasiga yozilmaydi, hisobni o‘zimiz yuritamiz
+        if (e != null) {
+            if (e.stamp() == stamp) {
+                hits.increment();
+                return e.value();
+            }
+            if (staleWhileRevalidate) {
+                staleHits.increment();
+                refreshAsync(key, loader);
+                return e.value();
+            }
+            cache.invalidate(key);
+        }
+        // Miss: bir kalit bo‘yicha bitta hisoblash, qolganlar kutadi
+        misses.increment();
+        return cache.get(key, k -> load(k, loader)).value();
+    }
+
+    public void clear() {
+        cache.invalidateAll();
+    }
+
+    public Map<String, Object> stats() {
+        CacheStats s = cache.stats();
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("enabled", enabled);
+        m.put("entries", cache.estimatedSize());
+        m.put("weightedBytes", cache.policy().eviction().map(ev -> ev.weightedSize().orElse(0L)).orElse(0L));
+        long h = hits.sum(), st = staleHits.sum(), ms = misses.sum();
+        m.put("hits", h);
+        m.put("staleHits", st);
+        m.put("misses", ms);
+        m.put("hitRate", (h + st + ms) > 0 ? (double) (h + st) / (h + st + ms) : null);
+        m.put("evictions", s.evictionCount());
+        m.put("refreshes", refreshes.sum());
+        m.put("refreshFailures", refreshFailures.sum());
+        m.put("avgLoadMs", s.averageLoadPenalty() / 1_000_000.0);
+        return m;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        refresher.shutdownNow();
+    }
+
+    /* -------------------- Helpers -------------------- */
+
+    private void refreshAsync(Key key, Callable<OverviewRes> loader) {
+        if (!refreshing.add(key)) return; // shu kalit allaqachon yangilanmoqda
+        try {
+            refresher.execute(() -> {
+                try {
+                    cache.put(key, load(key, loader));
+                    refreshes.increment();
+                } catch (Exception ex) {
+                    refreshFailures.increment();
+                    log.warn("Overview keshini yangilab bo‘lmadi: {}", ex.getMessage());
+                } finally {
+                    refreshing.remove(key);
+                }
+            });
+        } catch (RejectedExecutionException ex) {
+            refreshing.remove(key); // navbat to‘la — keyingi so‘rovda qayta urinadi
+        }
+    }
+
+    /** Stamp hisoblashdan OLDIN olinadi: hisoblash paytidagi commit keyingi o‘qishda stale bo‘lib ko‘rinadi */
+    private Entry load(Key key, Callable<OverviewRes> loader) {
+        long stamp = versions.stamp(key.scope());
+        OverviewRes res = call(loader);
+        return new Entry(res, stamp, weigh(key, res));
+    }
+
+    private static OverviewRes call(Callable<OverviewRes> loader) {
+        try {
+            return loader.call();
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /** Taxminiy hajm (bayt): asosiy obyekt + ro‘yxat elementlari + scope to‘plami */
+    private static int weigh(Key key, OverviewRes r) {
+        long w = 2048;
+        w += 96L * (size(r.getTypes()) + size(r.getTypeKpis()) + size(r.getTopOrgRevenue()) + size(r.getOrgs())
+                + size(r.getComparisons()));
+        w += 48L * (size(r.getMonthly()) + size(r.getPrevMonthly())
+                + size(r.getRevenueMonthly()) + size(r.getRevenuePrevMonthly())
+                + size(r.getProfitMonthly()) + size(r.getProfitPrevMonthly()));
+        if (key.scope() != null) w += 40L * key.scope().size();
+        return (int) Math.min(Integer.MAX_VALUE, w);
+    }
+
+    private static int size(Collection<?> c) {
+        return c == null ? 0 : c.size();
+    }
+
+    private record Key(Set<Long> scope, StatsService.Window window, List<FacilityType> types, Long orgFilter,
+                       List<Integer> compareYears) {}
+
+    private record Entry(OverviewRes value, long stamp, int weight) {}
+}
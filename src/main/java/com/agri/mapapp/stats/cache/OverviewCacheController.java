@@ -0,0 +1,29 @@
+package com.agri.mapapp.stats.cache;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/admin/stats/cache")
+@RequiredArgsConstructor
+@PreAuthorize("hasRole('ADMIN')")
+public class OverviewCacheController {
+
+    private final OverviewCache overviewCache;
+
+    /** Hit/miss/eviction va stale-while-revalidate hisoblagichlari */
+    @GetMapping
+    public Map<String, Object> stats() {
+        return overviewCache.stats();
+    }
+
+    @DeleteMapping
+    public ResponseEntity<Void> clear() {
+        overviewCache.clear();
+        return ResponseEntity.noContent().build();
+    }
+}
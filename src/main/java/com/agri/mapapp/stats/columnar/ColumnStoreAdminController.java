@@ -0,0 +1,36 @@
+package com.agri.mapapp.stats.columnar;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/admin/stats/columnar")
+@RequiredArgsConstructor
+@PreAuthorize("hasRole('ADMIN')")
+public class ColumnStoreAdminController {
+
+    private final FacilityColumnStore columnStore;
+
+    /** Qatorlar soni, xotira hajmi (bayt), oxirgi yuklash */
+    @GetMapping
+    public Map<String, Object> footprint() {
+        return columnStore.footprint();
+    }
+
+    /** Nusxani facility jadvalidan qayta yuklash */
+    @PostMapping("/rebuild")
+    public ResponseEntity<Map<String, Object>> rebuild() {
+        int rows = columnStore.rebuild();
+        return ResponseEntity.ok(Map.of("rows", rows));
+    }
+
+    /** Nusxa ↔ facility jadvali qatorma-qator muvofiqligi */
+    @GetMapping("/check")
+    public ResponseEntity<FacilityColumnStore.ConsistencyReport> check() {
+        return ResponseEntity.ok(columnStore.check());
+    }
+}
@@ -0,0 +1,714 @@
+package com.agri.mapapp.stats.columnar;
+
+import com.agri.mapapp.facility.*;
+import com.agri.mapapp.stats.StatsAggregateSource;
+import com.agri.mapapp.stats.StatsTimeSeriesSource;
+import com.agri.mapapp.stats.cache.OrgDataVersions;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Statistika uchun facility ko‘rsatkichlarining xotiradagi ustunli nusxasi (ixtiyoriy).
+ *  - Primitiv parallel massivlar: id, org indeksi, type/status ordinal, created_at (mikrosekund, oy, kun), 6 ko‘rsatkich;
+ *  - Ishga tushganda DB’dan yuklanadi, FacilityChangedEvent (AFTER_COMMIT) orqali sinxron yuritiladi;
+ *  - So‘rovlar — scope bitset bo‘yicha filtrlangan to‘g‘ridan-to‘g‘ri skan (entity, JSON, boxing yo‘q);
+ *  - Natijalar xom jadval yo‘li (StatsAggregateDao) bilan bir xil semantikada;
+ *  - Boshqa instance (yoki event’siz yo‘l) yozgan o‘zgarishlar OrgDataVersions stamp’i orqali seziladi: nusxa orqada
+ *    qolsa so‘rovlar DB’dan hisoblanadi ({@link #isCurrent}), farq app.stats.columnar.resync-after-ms’dan uzoq
+ *    saqlansa nusxa fonda qayta yuklanadi.
+ *
+ * Org nomlari/mavjudligi lug‘atda saqlanadi va app.stats.columnar.org-refresh-seconds’da bir yangilanadi.
+ */
+@Slf4j
+@Component
+public class FacilityColumnStore implements StatsAggregateSource, StatsTimeSeriesSource {
+
+    private static final FacilityType[] TYPES = FacilityType.values();
+    private static final long NO_TIME = Long.MIN_VALUE;
+    private static final int NO_MONTH = Integer.MIN_VALUE;
+
+    /** Bitta qatorning ustunlardagi hajmi (bayt): id, org, type, status, vaqt, oy, kun, 6 ko‘rsatkich */
+    private static final int ROW_BYTES = 8 + 4 + 1 + 1 + 8 + 4 + 4 + 6 * 8;
+    /** id → slot indeksi (HashMap tuguni + Long/Integer) — taxminiy */
+    private static final int INDEX_ENTRY_BYTES = 64;
+
+    private static final String LOAD_SQL = """
+            SELECT f.id, f.org_id, f.type, f.status, f.created_at,
+                   f.expected_revenue, f.net_profit, f.current_amount, f.capacity, f.product_amount, f.area_m2
+            FROM facility f
+            """;
+
+    private final JdbcTemplate jdbc;
+    private final TransactionTemplate readOnlyTx;
+    private final OrgDataVersions versions;
+    private final boolean enabled;
+    private final long orgRefreshNanos;
+    private final long resyncAfterNanos;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Object rebuildLock = new Object();
+    private Columns cols = new Columns(16);
+    private final Orgs orgs = new Orgs();
+    /** rebuild() paytida kelgan o‘zgarishlar — yangi nusxaga qayta qo‘llanadi */
+    private List<FacilityChangedEvent.Change> pending;
+    /** Nusxa aks ettirgan OrgDataVersions stamp’i (ADMIN — barcha org’lar yig‘indisi); write lock ostida */
+    private long appliedStamp;
+    /** rebuild() paytida qo‘llangan event’lar stamp’ga qo‘shgan versiyalar soni */
+    private long pendingBumps;
+
+    private volatile boolean ready;
+    private volatile long lastLoadMs;
+    private volatile LocalDateTime loadedAt;
+    private final LongAdder changesApplied = new LongAdder();
+    private final LongAdder scans = new LongAdder();
+    private final LongAdder behind = new LongAdder();
+    private final LongAdder resyncs = new LongAdder();
+    private final AtomicBoolean resyncing = new AtomicBoolean();
+    /** Stamp farqi birinchi ko‘rilgan vaqt (0 => farq yo‘q) */
+    private volatile long behindSinceNanos;
+
+    public FacilityColumnStore(
+            DataSource dataSource,
+            PlatformTransactionManager txManager,
+            OrgDataVersions versions,
+            @Value("${app.stats.columnar.enabled:false}") boolean enabled,
+            @Value("${app.stats.columnar.org-refresh-seconds:60}") long orgRefreshSeconds,
+            @Value("${app.stats.columnar.resync-after-ms:2000}") long resyncAfterMs,
+            @Value("${app.stats.export.fetch-size:1000}") int fetchSize
+    ) {
+        this.jdbc = new JdbcTemplate(dataSource);
+        this.jdbc.setFetchSize(fetchSize);
+        this.readOnlyTx = new TransactionTemplate(txManager);
+        this.readOnlyTx.setReadOnly(true);
+        // stamp va qatorlar bitta snapshot’dan o‘qiladi (rebuild)
+        this.readOnlyTx.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        this.versions = versions;
+        this.enabled = enabled;
+        this.orgRefreshNanos = orgRefreshSeconds * 1_000_000_000L;
+        this.resyncAfterNanos = resyncAfterMs * 1_000_000L;
+    }
+
+    public boolean isReady() {
+        return enabled && ready;
+    }
+
+    /**
+     * Tayyor va DB’dagi versiyalar bilan mos. Mos kelmasa (o‘zgarish boshqa instance’da yoki hali AFTER_COMMIT
+     * qo‘llanmagan) — false, chaqiruvchi DB’dan hisoblaydi; farq uzoq saqlansa nusxa fonda qayta yuklanadi.
+     */
+    public boolean isCurrent() {
+        if (!isReady()) return false;
+        long stamp = versions.stamp(null);
+        long applied;
+        lock.readLock().lock();
+        try {
+            applied = appliedStamp;
+        } finally {
+            lock.readLock().unlock();
+        }
+        if (stamp == applied) {
+            behindSinceNanos = 0;
+            return true;
+        }
+        behind.increment();
+        long now = System.nanoTime();
+        long since = behindSinceNanos;
+        if (since == 0) behindSinceNanos = now;
+        else if (now - since >= resyncAfterNanos) resyncAsync();
+        return false;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void bootstrap() {
+        if (!enabled) return;
+        try {
+            int rows = rebuild();
+            ready = true;
+            log.info("Facility ustunli nusxasi yuklandi: {} qator, {} ms", rows, lastLoadMs);
+        } catch (Exception e) {
+            log.warn("Facility ustunli nusxasi tayyor emas, statistika DB’dan hisoblanadi: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Commit’dan keyin qo‘llanadi (rollback bo‘lgan o‘zgarishlar kirmaydi).
+     * Versiyalar tranzaksiya ichida oshadi — commit bilan shu chaqiruv orasidagi so‘rovlarni isCurrent() DB’ga yo‘naltiradi.
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onFacilityChanged(FacilityChangedEvent event) {
+        if (!enabled) return;
+        int bumps = event.orgIds().size(); // OrgDataVersions har bir org’ni +1 qiladi
+        lock.writeLock().lock();
+        try {
+            for (FacilityChangedEvent.Change c : event.changes()) {
+                apply(cols, c);
+                if (pending != null) pending.add(c);
+            }
+            appliedStamp += bumps;
+            if (pending != null) pendingBumps += bumps;
+            changesApplied.add(event.changes().size());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /** DB’dan to‘liq qayta yuklash; yuklash paytidagi o‘zgarishlar yo‘qolmaydi (pending orqali qayta qo‘llanadi) */
+    public int rebuild() {
+        synchronized (rebuildLock) {
+            long t0 = System.nanoTime();
+            lock.writeLock().lock();
+            try {
+                pending = new ArrayList<>();
+                pendingBumps = 0;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            try {
+                refreshOrgs();
+                Columns fresh = new Columns(1024);
+                long stamp = readOnlyTx.execute(status -> {
+                    long s = versions.stamp(null);
+                    jdbc.query(LOAD_SQL, rs -> {
+                        FacilitySnapshot row = readRow(rs);
+                        fresh.upsert(row, orgIndex(row.orgId()));
+                    });
+                    return s;
+                });
+                lock.writeLock().lock();
+                try {
+                    for (FacilityChangedEvent.Change c : pending) apply(fresh, c);
+                    cols = fresh;
+                    appliedStamp = stamp + pendingBumps;
+                } finally {
+                    lock.writeLock().unlock();
+                }
+                lastLoadMs = (System.nanoTime() - t0) / 1_000_000;
+                loadedAt = LocalDateTime.now();
+                return fresh.size;
+            } finally {
+                lock.writeLock().lock();
+                try {
+                    pending = null;
+                } finally {
+                    lock.writeLock().unlock();
+                }
+            }
+        }
+    }
+
+    /* -------------------- StatsAggregateSource / StatsTimeSeriesSource -------------------- */
+
+    @Override
+    public List<BaseBucket> baseBuckets(Set<Long> orgIds, Collection<FacilityType> types,
+                                        LocalDateTime monthsFrom, LocalDateTime monthsTo) {
+        refreshOrgsIfStale();
+        long mFrom = micros(monthsFrom), mTo = micros(monthsTo);
+        Map<Long, double[]> acc = new HashMap<>();
+        lock.readLock().lock();
+        try {
+            Columns c = cols;
+            BitSet allowed = allowedOrgs(orgIds);
+            int typeMask = typeMask(types);
+            for (int i = 0; i < c.size; i++) {
+                int o = c.org[i], t = c.type[i];
+                if (o < 0 || t < 0 || !allowed.get(o) || (typeMask & (1 << t)) == 0) continue;
+                long time = c.time[i];
+                boolean inMonths = time != NO_TIME && time >= mFrom && time < mTo;
+                // kalit: org | type | active | oy (0 => oraliqdan tashqarida)
+                long key = ((long) o << 32) | ((long) t << 24)
+                        | (c.status[i] == FacilityStatus.ACTIVE.ordinal() ? 1L << 23 : 0L)
+                        | (inMonths ? (c.month[i] + 1L) & 0x7FFFFF : 0L);
+                add(acc.computeIfAbsent(key, k -> new double[7]), c, i, true);
+            }
+            scans.increment();
+            List<BaseBucket> out = new ArrayList<>(acc.size());
+            acc.forEach((key, a) -> {
+                int o = (int) (key >>> 32);
+                int t = (int) ((key >>> 24) & 0xFF);
+                int m = (int) (key & 0x7FFFFF) - 1;
+                out.add(new BaseBucket(TYPES[t], orgs.ids[o], orgs.names[o], (key & (1L << 23)) != 0,
+                        m >= 0 ? m / 12 : null, m >= 0 ? m % 12 + 1 : null, (long) a[0],
+                        a[1], a[2], a[3], a[4], a[5], a[6]));
+            });
+            return out; // org lug‘ati ham lock ostida o‘qiladi
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<PeriodBucket> periodBuckets(Set<Long> orgIds, Collection<FacilityType> types, List<Period> periods) {
+        if (periods.isEmpty()) return List.of();
+        refreshOrgsIfStale();
+        int np = periods.size();
+        long[] pFrom = new long[np], pTo = new long[np];
+        for (int p = 0; p < np; p++) {
+            pFrom[p] = micros(periods.get(p).from());
+            pTo[p] = micros(periods.get(p).to());
+        }
+        Map<Long, double[]> acc = new HashMap<>();
+        lock.readLock().lock();
+        try {
+            Columns c = cols;
+            BitSet allowed = allowedOrgs(orgIds);
+            int typeMask = typeMask(types);
+            for (int i = 0; i < c.size; i++) {
+                int o = c.org[i], t = c.type[i];
+                long time = c.time[i];
+                if (o < 0 || t < 0 || time == NO_TIME || !allowed.get(o) || (typeMask & (1 << t)) == 0) continue;
+                for (int p = 0; p < np; p++) {
+                    if (time < pFrom[p] || time > pTo[p]) continue; // BETWEEN — ikki chegara ham kiradi
+                    long key = ((long) o << 32) | ((long) p << 8) | t;
+                    add(acc.computeIfAbsent(key, k -> new double[7]), c, i, false);
+                }
+            }
+            scans.increment();
+            List<PeriodBucket> out = new ArrayList<>(acc.size());
+            acc.forEach((key, a) -> {
+                int o = (int) (key >>> 32);
+                out.add(new PeriodBucket((int) ((key >>> 8) & 0xFFFFFF), TYPES[(int) (key & 0xFF)],
+                        orgs.ids[o], orgs.names[o], (long) a[0], a[1], a[2], a[3], a[4]));
+            });
+            return out;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<TimeBucket> timeBuckets(Set<Long> orgIds, Collection<FacilityType> types,
+                                        LocalDateTime from, LocalDateTime to,
+                                        Granularity granularity, SeriesBy by, List<Integer> yearsBack) {
+        if (yearsBack.isEmpty()) return List.of();
+        refreshOrgsIfStale();
+        int np = yearsBack.size();
+        int[] shift = new int[np];
+        long[] pFrom = new long[np], pTo = new long[np];
+        for (int p = 0; p < np; p++) {
+            shift[p] = yearsBack.get(p);
+            pFrom[p] = micros(from.minusYears(shift[p]));
+            pTo[p] = micros(to.minusYears(shift[p]));
+        }
+        Map<Long, double[]> acc = new HashMap<>();
+        lock.readLock().lock();
+        try {
+            Columns c = cols;
+            BitSet allowed = allowedOrgs(orgIds);
+            int typeMask = typeMask(types);
+            for (int i = 0; i < c.size; i++) {
+                int o = c.org[i], t = c.type[i];
+                long time = c.time[i];
+                if (o < 0 || t < 0 || time == NO_TIME || !allowed.get(o) || (typeMask & (1 << t)) == 0) continue;
+                for (int p = 0; p < np; p++) {
+                    if (time < pFrom[p] || time >= pTo[p]) continue;
+                    int series = switch (by) {
+                        case NONE -> 0;
+                        case TYPE -> t;
+                        case ORG -> o;
+                    };
+                    // kalit: kun (32 bit) | davr (8 bit) | seriya (24 bit)
+                    long key = ((long) bucketDay(c, i, granularity, shift[p]) << 32) | ((long) p << 24) | series;
+                    add(acc.computeIfAbsent(key, k -> new double[7]), c, i, true);
+                }
+            }
+            scans.increment();
+            List<TimeBucket> out = new ArrayList<>(acc.size());
+            acc.forEach((key, a) -> {
+                LocalDate start = LocalDate.ofEpochDay(key >> 32);
+                int period = (int) ((key >>> 24) & 0xFF);
+                int series = (int) (key & 0xFFFFFF);
+                FacilityType type = by == SeriesBy.TYPE ? TYPES[series] : null;
+                Long orgId = by == SeriesBy.ORG ? orgs.ids[series] : null;
+                String orgName = by == SeriesBy.ORG ? orgs.names[series] : null;
+                out.add(new TimeBucket(period, start, type, orgId, orgName, (long) a[0],
+                        a[1], a[2], a[3], a[4], a[5], a[6]));
+            });
+            return out;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /* -------------------- Footprint / check -------------------- */
+
+    /** Xotira hajmi va holat */
+    public Map<String, Object> footprint() {
+        Map<String, Object> m = new LinkedHashMap<>();
+        lock.readLock().lock();
+        try {
+            long columnBytes = (long) cols.capacity() * ROW_BYTES;
+            long indexBytes = (long) cols.slotById.size() * INDEX_ENTRY_BYTES;
+            long orgBytes = orgs.bytes();
+            m.put("enabled", enabled);
+            m.put("ready", ready);
+            m.put("rows", cols.size);
+            m.put("capacity", cols.capacity());
+            m.put("columnBytes", columnBytes);
+            m.put("indexBytes", indexBytes);
+            m.put("orgs", orgs.size);
+            m.put("orgBytes", orgBytes);
+            m.put("totalBytes", columnBytes + indexBytes + orgBytes);
+            m.put("bytesPerRow", cols.size > 0 ? (columnBytes + indexBytes) / (double) cols.size : null);
+        } finally {
+            lock.readLock().unlock();
+        }
+        m.put("loadedAt", loadedAt);
+        m.put("lastLoadMs", lastLoadMs);
+        m.put("changesApplied", changesApplied.sum());
+        m.put("scans", scans.sum());
+        m.put("behind", behind.sum());
+        m.put("resyncs", resyncs.sum());
+        return m;
+    }
+
+    public record ConsistencyReport(boolean consistent, long storeRows, long dbRows,
+                                    long missing, long extra, long mismatched, List<Long> sampleIds) {}
+
+    /**
+     * Nusxani facility jadvali bilan qatorma-qator solishtirish (birinchi 100 ta farqli id qaytariladi).
+     * Tekshiruv paytida yozuv bo‘lsa, vaqtinchalik farq ko‘rinishi mumkin — qayta ishga tushiring.
+     */
+    public ConsistencyReport check() {
+        List<FacilitySnapshot> db = new ArrayList<>();
+        readOnlyTx.executeWithoutResult(status -> jdbc.query(LOAD_SQL, rs -> {
+            db.add(readRow(rs));
+        }));
+        long missing = 0, mismatched = 0;
+        List<Long> sample = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            Columns c = cols;
+            for (FacilitySnapshot r : db) {
+                Integer slot = c.slotById.get(r.id());
+                boolean bad;
+                if (slot == null) {
+                    missing++;
+                    bad = true;
+                } else {
+                    bad = !c.matches(slot, r, orgs);
+                    if (bad) mismatched++;
+                }
+                if (bad && sample.size() < 100) sample.add(r.id());
+            }
+            long extra = c.size - (db.size() - missing);
+            if (extra > 0 && sample.size() < 100) {
+                Set<Long> dbIds = new HashSet<>();
+                for (FacilitySnapshot r : db) dbIds.add(r.id());
+                for (int i = 0; i < c.size && sample.size() < 100; i++) {
+                    if (!dbIds.contains(c.id[i])) sample.add(c.id[i]);
+                }
+            }
+            return new ConsistencyReport(missing == 0 && mismatched == 0 && extra == 0,
+                    c.size, db.size(), missing, extra, mismatched, sample);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /* -------------------- Helpers -------------------- */
+
+    /** Bir vaqtda bitta fon qayta yuklash */
+    private void resyncAsync() {
+        if (!resyncing.compareAndSet(false, true)) return;
+        Thread t = new Thread(() -> {
+            try {
+                int rows = rebuild();
+                resyncs.increment();
+                log.info("Facility ustunli nusxasi DB versiyasidan orqada qoldi — qayta yuklandi: {} qator", rows);
+            } catch (Exception e) {
+                log.warn("Facility ustunli nusxasini qayta yuklab bo‘lmadi: {}", e.getMessage());
+            } finally {
+                behindSinceNanos = 0;
+                resyncing.set(false);
+            }
+        }, "columnar-resync");
+        t.setDaemon(true);
+        t.start();
+    }
+
+    /** Write lock ostida chaqiriladi */
+    private void apply(Columns c, FacilityChangedEvent.Change ch) {
+        if (ch.after() != null) {
+            if (ch.before() != null && !Objects.equals(ch.before().id(), ch.after().id())) c.remove(ch.before().id());
+            c.upsert(ch.after(), orgs.indexOf(ch.after().orgId()));
+        } else if (ch.before() != null) {
+            c.remove(ch.before().id());
+        }
+    }
+
+    /** Lock’siz chaqiruvchi uchun (yuklash oqimi): lug‘atda bo‘lmasa write lock ostida qo‘shiladi */
+    private int orgIndex(Long orgId) {
+        if (orgId == null) return -1;
+        lock.readLock().lock();
+        try {
+            Integer idx = orgs.index.get(orgId);
+            if (idx != null) return idx;
+        } finally {
+            lock.readLock().unlock();
+        }
+        lock.writeLock().lock();
+        try {
+            return orgs.indexOf(orgId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private static FacilitySnapshot readRow(ResultSet rs) throws SQLException {
+        String type = rs.getString("type");
+        String status = rs.getString("status");
+        return new FacilitySnapshot(
+                rs.getLong("id"),
+                (Long) rs.getObject("org_id"),
+                type != null ? FacilityType.valueOf(type) : null,
+                status != null ? FacilityStatus.valueOf(status) : null,
+                rs.getObject("created_at", LocalDateTime.class),
+                new FacilityMetrics(
+                        rs.getDouble("expected_revenue"), rs.getDouble("net_profit"),
+                        rs.getDouble("current_amount"), rs.getDouble("capacity"),
+                        rs.getDouble("product_amount"), rs.getDouble("area_m2")));
+    }
+
+    /** Ko‘rsatkichlarni yig‘indiga qo‘shadi: [count, revenue, profit, current, capacity, product, area] */
+    private static void add(double[] a, Columns c, int i, boolean withProduct) {
+        a[0] += 1;
+        a[1] += c.revenue[i];
+        a[2] += c.profit[i];
+        a[3] += c.current[i];
+        a[4] += c.capacity[i];
+        if (withProduct) {
+            a[5] += c.product[i];
+            a[6] += c.area[i];
+        }
+    }
+
+    /** Bo‘lak boshi (epoch kun): date_trunc bilan bir xil, hafta — dushanba */
+    /** Bo‘lak boshi (epoch kun); shiftYears > 0 — siljitilgan davr qatori asosiy oyna kalendariga qaytariladi */
+    private static int bucketDay(Columns c, int i, Granularity g, int shiftYears) {
+        int day = c.day[i];
+        if (shiftYears != 0 && (g == Granularity.DAY || g == Granularity.WEEK)) {
+            day = (int) LocalDate.ofEpochDay(day).plusYears(shiftYears).toEpochDay(); // 29-fev => 28-fev (PostgreSQL kabi)
+        }
+        int month = c.month[i] + 12 * shiftYears;
+        return switch (g) {
+            case DAY -> day;
+            case WEEK -> day - Math.floorMod(day + 3, 7); // 1970-01-01 — payshanba
+            case MONTH -> (int) LocalDate.of(month / 12, month % 12 + 1, 1).toEpochDay();
+            case QUARTER -> (int) LocalDate.of(month / 12, (month % 12) / 3 * 3 + 1, 1).toEpochDay();
+        };
+    }
+
+    /** Ruxsat etilgan (va mavjud) org indekslari; orgIds == null => barcha mavjud org’lar */
+    private BitSet allowedOrgs(Set<Long> orgIds) {
+        if (orgIds == null) return orgs.alive;
+        BitSet b = new BitSet(orgs.size);
+        for (Long id : orgIds) {
+            Integer idx = orgs.index.get(id);
+            if (idx != null && orgs.alive.get(idx)) b.set(idx);
+        }
+        return b;
+    }
+
+    private static int typeMask(Collection<FacilityType> types) {
+        int mask = 0;
+        for (FacilityType t : types) mask |= 1 << t.ordinal();
+        return mask;
+    }
+
+    static long micros(LocalDateTime t) {
+        if (t == null) return NO_TIME;
+        return t.toEpochSecond(ZoneOffset.UTC) * 1_000_000L + t.getNano() / 1_000;
+    }
+
+    private void refreshOrgsIfStale() {
+        if (orgs.stale || System.nanoTime() - orgs.loadedAtNanos > orgRefreshNanos) refreshOrgs();
+    }
+
+    /** Org lug‘atini yangilash: indekslar barqaror (faqat qo‘shiladi), nom va mavjudlik yangilanadi */
+    private void refreshOrgs() {
+        Map<Long, String> live = new HashMap<>();
+        jdbc.query("SELECT id, name FROM org_unit", rs -> {
+            live.put(rs.getLong("id"), rs.getString("name"));
+        });
+        lock.writeLock().lock();
+        try {
+            orgs.merge(live);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /** Org lug‘ati: orgId → zich indeks (BitSet uchun), nomlar, mavjudlik */
+    private static final class Orgs {
+        final Map<Long, Integer> index = new HashMap<>();
+        long[] ids = new long[16];
+        String[] names = new String[16];
+        BitSet alive = new BitSet();
+        int size;
+        volatile boolean stale = true;
+        volatile long loadedAtNanos;
+
+        int indexOf(Long orgId) {
+            if (orgId == null) return -1;
+            Integer idx = index.get(orgId);
+            if (idx != null) return idx;
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+                names = Arrays.copyOf(names, size * 2);
+            }
+            ids[size] = orgId;
+            index.put(orgId, size);
+            stale = true; // yangi org — keyingi so‘rovda nomini o‘qiymiz
+            return size++;
+        }
+
+        void merge(Map<Long, String> live) {
+            BitSet a = new BitSet(size);
+            live.forEach((id, name) -> {
+                int idx = indexOf(id);
+                names[idx] = name;
+                a.set(idx);
+            });
+            alive = a;
+            stale = false;
+            loadedAtNanos = System.nanoTime();
+        }
+
+        long bytes() {
+            long b = (long) ids.length * 8 + (long) names.length * 8 + alive.size() / 8 + (long) index.size() * INDEX_ENTRY_BYTES;
+            for (int i = 0; i < size; i++) if (names[i] != null) b += 40 + names[i].length() * 2L;
+            return b;
+        }
+    }
+
+    /** Parallel massivlar; o‘chirish — oxirgi qatorni bo‘shagan slotga ko‘chirish */
+    private static final class Columns {
+        long[] id;
+        int[] org;
+        byte[] type, status;
+        long[] time;
+        int[] month, day;
+        double[] revenue, profit, current, capacity, product, area;
+        int size;
+        final Map<Long, Integer> slotById = new HashMap<>();
+
+        Columns(int n) {
+            id = new long[n];
+            org = new int[n];
+            type = new byte[n];
+            status = new byte[n];
+            time = new long[n];
+            month = new int[n];
+            day = new int[n];
+            revenue = new double[n];
+            profit = new double[n];
+            current = new double[n];
+            capacity = new double[n];
+            product = new double[n];
+            area = new double[n];
+        }
+
+        int capacity() {
+            return id.length;
+        }
+
+        void upsert(FacilitySnapshot s, int orgIdx) {
+            Integer slot = slotById.get(s.id());
+            int i;
+            if (slot != null) {
+                i = slot;
+            } else {
+                if (size == id.length) grow();
+                i = size++;
+                slotById.put(s.id(), i);
+            }
+            id[i] = s.id();
+            org[i] = orgIdx;
+            type[i] = (byte) (s.type() != null ? s.type().ordinal() : -1);
+            status[i] = (byte) (s.status() != null ? s.status().ordinal() : -1);
+            LocalDateTime t = s.createdAt();
+            time[i] = micros(t);
+            month[i] = t != null ? t.getYear() * 12 + t.getMonthValue() - 1 : NO_MONTH;
+            day[i] = t != null ? (int) t.toLocalDate().toEpochDay() : 0;
+            FacilityMetrics m = s.metrics() != null ? s.metrics() : FacilityMetrics.ZERO;
+            revenue[i] = m.expectedRevenue();
+            profit[i] = m.netProfit();
+            current[i] = m.current();
+            capacity[i] = m.capacity();
+            product[i] = m.productAmount();
+            area[i] = m.areaM2();
+        }
+
+        void remove(Long facilityId) {
+            Integer slot = slotById.remove(facilityId);
+            if (slot == null) return;
+            int last = --size;
+            if (slot != last) {
+                int i = slot;
+                id[i] = id[last];
+                org[i] = org[last];
+                type[i] = type[last];
+                status[i] = status[last];
+                time[i] = time[last];
+                month[i] = month[last];
+                day[i] = day[last];
+                revenue[i] = revenue[last];
+                profit[i] = profit[last];
+                current[i] = current[last];
+                capacity[i] = capacity[last];
+                product[i] = product[last];
+                area[i] = area[last];
+                slotById.put(id[i], i);
+            }
+        }
+
+        boolean matches(int i, FacilitySnapshot r, Orgs dict) {
+            FacilityMetrics m = r.metrics();
+            Integer o = r.orgId() != null ? dict.index.get(r.orgId()) : null;
+            return org[i] == (o != null ? o : -1)
+                    && type[i] == (r.type() != null ? r.type().ordinal() : -1)
+                    && status[i] == (r.status() != null ? r.status().ordinal() : -1)
+                    && Math.abs(time[i] - micros(r.createdAt())) <= 1 // Java nano → PG mikrosekund yaxlitlash
+                    && revenue[i] == m.expectedRevenue() && profit[i] == m.netProfit()
+                    && current[i] == m.current() && capacity[i] == m.capacity()
+                    && product[i] == m.productAmount() && area[i] == m.areaM2();
+        }
+
+        private void grow() {
+            int n = Math.max(16, id.length * 2);
+            id = Arrays.copyOf(id, n);
+            org = Arrays.copyOf(org, n);
+            type = Arrays.copyOf(type, n);
+            status = Arrays.copyOf(status, n);
+            time = Arrays.copyOf(time, n);
+            month = Arrays.copyOf(month, n);
+            day = Arrays.copyOf(day, n);
+            revenue = Arrays.copyOf(revenue, n);
+            profit = Arrays.copyOf(profit, n);
+            current = Arrays.copyOf(current, n);
+            capacity = Arrays.copyOf(capacity, n);
+            product = Arrays.copyOf(product, n);
+            area = Arrays.copyOf(area, n);
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package com.agri.mapapp.stats.distribution;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/admin/stats/distribution-cache")
+@RequiredArgsConstructor
+@PreAuthorize("hasRole('ADMIN')")
+public class DistributionCacheController {
+
+    private final OrgSketchCache sketchCache;
+
+    /** Org eskizlari: hit/miss, skanlar va o‘qilgan qatorlar */
+    @GetMapping
+    public Map<String, Object> stats() {
+        return sketchCache.stats();
+    }
+
+    @DeleteMapping
+    public ResponseEntity<Void> clear() {
+        sketchCache.clear();
+        return ResponseEntity.noContent().build();
+    }
+}
@@ -0,0 +1,70 @@
+package com.agri.mapapp.stats.distribution;
+
+import com.agri.mapapp.facility.FacilityType;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Taqsimot eskizlari uchun facility metrikalari: forward-only cursor, bitta o‘tish, entity yuklanmaydi.
+ */
+@Repository
+public class DistributionDao {
+
+    @FunctionalInterface
+    public interface MetricSink {
+        void accept(long orgId, FacilityType type, double revenue, double profit, double current, double capacity);
+    }
+
+    private final NamedParameterJdbcTemplate jdbc;
+    private final TransactionTemplate readOnlyTx;
+
+    public DistributionDao(DataSource dataSource,
+                           PlatformTransactionManager txManager,
+                           @Value("${app.stats.export.fetch-size:1000}") int fetchSize) {
+        JdbcTemplate t = new JdbcTemplate(dataSource);
+        t.setFetchSize(fetchSize); // PostgreSQL: faqat tranzaksiya ichida cursor bo‘ladi
+        this.jdbc = new NamedParameterJdbcTemplate(t);
+        this.readOnlyTx = new TransactionTemplate(txManager);
+        this.readOnlyTx.setReadOnly(true);
+    }
+
+    public List<Long> allOrgIds() {
+        return jdbc.getJdbcOperations().queryForList("SELECT id FROM org_unit", Long.class);
+    }
+
+    /** Berilgan org’larning oynadagi (ikki chegara ham kiradi) barcha turdagi facility’lari; qaytadi: qatorlar soni */
+    public long scan(Set<Long> orgIds, LocalDateTime from, LocalDateTime to, MetricSink sink) {
+        if (orgIds.isEmpty()) return 0;
+        MapSqlParameterSource p = new MapSqlParameterSource()
+                .addValue("orgIds", orgIds)
+                .addValue("from", from)
+                .addValue("to", to);
+        String sql = """
+                SELECT f.org_id, f.type,
+                       f.expected_revenue AS revenue, f.net_profit AS profit,
+                       f.current_amount AS cur, f.capacity AS cap
+                FROM facility f
+                WHERE f.org_id IN (:orgIds) AND f.created_at BETWEEN :from AND :to
+                """;
+        long[] count = {0};
+        readOnlyTx.executeWithoutResult(status -> jdbc.query(sql, p, rs -> {
+            String type = rs.getString("type");
+            if (type == null) return;
+            sink.accept(rs.getLong("org_id"), FacilityType.valueOf(type),
+                    rs.getDouble("revenue"), rs.getDouble("profit"),
+                    rs.getDouble("cur"), rs.getDouble("cap"));
+            count[0]++;
+        }));
+        return count[0];
+    }
+}
@@ -0,0 +1,60 @@
+package com.agri.mapapp.stats.distribution;
+
+/**
+ * Bitta guruh (org × tur yoki ularning birlashmasi) uchun taqsimot eskizlari:
+ * tushum, sof foyda va sig‘imdan foydalanish (%, faqat capacity > 0 bo‘lgan obyektlar).
+ */
+public final class MetricSketches {
+
+    private final TDigest revenue;
+    private final TDigest profit;
+    private final TDigest utilPct;
+    private long count;
+
+    public MetricSketches(double compression) {
+        this.revenue = new TDigest(compression);
+        this.profit = new TDigest(compression);
+        this.utilPct = new TDigest(compression);
+    }
+
+    public void add(double revenue, double profit, double current, double capacity) {
+        this.revenue.add(revenue);
+        this.profit.add(profit);
+        if (capacity > 0) this.utilPct.add(current * 100.0 / capacity);
+        count++;
+    }
+
+    /** other o‘zgarmaydi */
+    public void merge(MetricSketches other) {
+        revenue.merge(other.revenue);
+        profit.merge(other.profit);
+        utilPct.merge(other.utilPct);
+        count += other.count;
+    }
+
+    public void trim() {
+        revenue.trim();
+        profit.trim();
+        utilPct.trim();
+    }
+
+    public long count() {
+        return count;
+    }
+
+    public TDigest revenue() {
+        return revenue;
+    }
+
+    public TDigest profit() {
+        return profit;
+    }
+
+    public TDigest utilPct() {
+        return utilPct;
+    }
+
+    public int bytes() {
+        return 32 + revenue.bytes() + profit.bytes() + utilPct.bytes();
+    }
+}
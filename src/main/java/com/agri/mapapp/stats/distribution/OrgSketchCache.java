@@ -0,0 +1,124 @@
+package com.agri.mapapp.stats.distribution;
+
+import com.agri.mapapp.facility.FacilityType;
+import com.agri.mapapp.stats.cache.OrgDataVersions;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Org bo‘yicha taqsimot eskizlari keshi.
+ *  - Kalit: (org, oyna); qiymat — shu org’ning har bir turi uchun {@link MetricSketches} (faqat o‘qiladi);
+ *  - Yaroqlilik: org versiyasi ({@link OrgDataVersions}) — o‘zgargan org’largina qayta skan qilinadi, bitta so‘rovda;
+ *  - Subtree/scope taqsimoti keshdagi eskizlarni birlashtirib olinadi — xom qatorlar qayta o‘qilmaydi.
+ */
+@Component
+public class OrgSketchCache {
+
+    private final DistributionDao dao;
+    private final OrgDataVersions versions;
+    private final double compression;
+    private final Cache<Key, Entry> cache;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder scans = new LongAdder();
+    private final LongAdder scannedRows = new LongAdder();
+
+    public OrgSketchCache(
+            DistributionDao dao,
+            OrgDataVersions versions,
+            @Value("${app.stats.distribution.compression:100}") double compression,
+            @Value("${app.stats.distribution.cache-max-bytes:33554432}") long maxBytes,   // default 32 MB
+            @Value("${app.stats.distribution.cache-ttl-seconds:3600}") long ttlSeconds
+    ) {
+        this.dao = dao;
+        this.versions = versions;
+        this.compression = compression;
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maxBytes)
+                .weigher((Key k, Entry e) -> e.weight())
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .build();
+    }
+
+    public double compression() {
+        return compression;
+    }
+
+    /** Barcha org’lar (ADMIN scope’i uchun) */
+    public Set<Long> allOrgIds() {
+        return new HashSet<>(dao.allOrgIds());
+    }
+
+    /**
+     * Har bir org uchun tur → eskizlar. Keshda yo‘q yoki eskirgan org’lar bitta skan bilan to‘ldiriladi.
+     * Qaytgan eskizlar bo‘lishiladi — o‘zgartirmang, faqat {@link MetricSketches#merge} manbai sifatida ishlating.
+     */
+    public Map<Long, Map<FacilityType, MetricSketches>> sketches(Set<Long> orgIds, LocalDateTime from, LocalDateTime to) {
+        Map<Long, Map<FacilityType, MetricSketches>> out = new HashMap<>(orgIds.size() * 2);
+        Map<Long, Long> stale = new HashMap<>();
+        Map<Long, Long> orgVersions = versions.versions(orgIds); // bitta so‘rov — org’lar soniga bog‘liq emas
+        for (Long orgId : orgIds) {
+            long version = orgVersions.get(orgId);
+            Entry e = cache.getIfPresent(new Key(orgId, from, to));
+            if (e != null && e.version() == version) {
+                hits.increment();
+                out.put(orgId, e.byType());
+            } else {
+                misses.increment();
+                stale.put(orgId, version); // versiya skandan OLDIN: skan paytidagi commit keyingi so‘rovda seziladi
+            }
+        }
+        if (stale.isEmpty()) return out;
+
+        Map<Long, Map<FacilityType, MetricSketches>> fresh = new HashMap<>();
+        long rows = dao.scan(stale.keySet(), from, to, (orgId, type, revenue, profit, current, capacity) ->
+                fresh.computeIfAbsent(orgId, k -> new EnumMap<>(FacilityType.class))
+                        .computeIfAbsent(type, k -> new MetricSketches(compression))
+                        .add(revenue, profit, current, capacity));
+        scans.increment();
+        scannedRows.add(rows);
+
+        stale.forEach((orgId, version) -> {
+            Map<FacilityType, MetricSketches> byType = fresh.getOrDefault(orgId, Map.of());
+            int weight = 96;
+            for (MetricSketches s : byType.values()) {
+                s.trim();
+                weight += s.bytes();
+            }
+            byType = Collections.unmodifiableMap(byType);
+            cache.put(new Key(orgId, from, to), new Entry(byType, version, weight));
+            out.put(orgId, byType);
+        });
+        return out;
+    }
+
+    public void clear() {
+        cache.invalidateAll();
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("entries", cache.estimatedSize());
+        m.put("weightedBytes", cache.policy().eviction().map(ev -> ev.weightedSize().orElse(0L)).orElse(0L));
+        long h = hits.sum(), ms = misses.sum();
+        m.put("orgHits", h);
+        m.put("orgMisses", ms);
+        m.put("hitRate", (h + ms) > 0 ? (double) h / (h + ms) : null);
+        m.put("scans", scans.sum());
+        m.put("scannedRows", scannedRows.sum());
+        m.put("compression", compression);
+        return m;
+    }
+
+    private record Key(long orgId, LocalDateTime from, LocalDateTime to) {}
+
+    private record Entry(Map<FacilityType, MetricSketches> byType, long version, int weight) {}
+}
@@ -0,0 +1,194 @@
+package com.agri.mapapp.stats.distribution;
+
+import java.util.Arrays;
+
+/**
+ * Birlashtiriladigan kvantil eskizi (merging t-digest).
+ *  - Qiymatlar buferga yig‘iladi, bufer to‘lganda centroid’larga siqiladi (O(1) amortizatsiyalangan qo‘shish);
+ *  - Centroid og‘irligi chegarasi 4·n·q(1−q)/δ: dumlarda (p1, p99) centroid’lar kichik — aniqlik shu yerda yuqori;
+ *  - {@link #merge} boshqa eskizni o‘zgartirmaydi: siqilgan (frozen) eskizlarni bir vaqtda o‘qish xavfsiz.
+ * min/max/sum aniq saqlanadi.
+ */
+public final class TDigest {
+
+    private final double compression;
+
+    // Siqilgan centroid’lar (o‘rtacha qiymat bo‘yicha tartiblangan)
+    private double[] mean;
+    private double[] weight;
+    private int n;
+
+    // Hali siqilmagan qiymatlar (kerak bo‘lganda o‘sadi, bufLimit’da siqiladi)
+    private double[] bufMean = new double[0];
+    private double[] bufWeight = new double[0];
+    private int bufN;
+    private final int bufLimit;
+
+    private double total;
+    private double sum;
+    private double min = Double.POSITIVE_INFINITY;
+    private double max = Double.NEGATIVE_INFINITY;
+
+    public TDigest(double compression) {
+        this.compression = compression;
+        this.mean = new double[0];
+        this.weight = new double[0];
+        this.bufLimit = (int) Math.ceil(compression) * 5;
+    }
+
+    public void add(double x) {
+        add(x, 1.0);
+    }
+
+    public void add(double x, double w) {
+        if (Double.isNaN(x) || Double.isInfinite(x) || w <= 0) return;
+        addCentroid(x, w);
+        total += w;
+        sum += x * w;
+        if (x < min) min = x;
+        if (x > max) max = x;
+    }
+
+    /** other’ning centroid’lari va buferi shu eskizga qo‘shiladi (other o‘zgarmaydi) */
+    public void merge(TDigest other) {
+        if (other.total == 0) return;
+        for (int i = 0; i < other.n; i++) addCentroid(other.mean[i], other.weight[i]);
+        for (int i = 0; i < other.bufN; i++) addCentroid(other.bufMean[i], other.bufWeight[i]);
+        total += other.total;
+        sum += other.sum;
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+    }
+
+    /** Buferni centroid’larga siqadi; keshga qo‘yishdan oldin chaqiriladi */
+    public void compress() {
+        if (bufN == 0) return;
+        int m = n + bufN;
+        double[] ms = new double[m], ws = new double[m];
+        System.arraycopy(mean, 0, ms, 0, n);
+        System.arraycopy(weight, 0, ws, 0, n);
+        System.arraycopy(bufMean, 0, ms, n, bufN);
+        System.arraycopy(bufWeight, 0, ws, n, bufN);
+        Integer[] order = new Integer[m];
+        for (int i = 0; i < m; i++) order[i] = i;
+        Arrays.sort(order, (a, b) -> Double.compare(ms[a], ms[b]));
+
+        double w = 0;
+        for (int i = 0; i < m; i++) w += ws[i];
+        double[] outMean = new double[Math.max(mean.length, 16)], outWeight = new double[outMean.length];
+        int out = 0;
+        double curMean = ms[order[0]], curWeight = ws[order[0]];
+        double soFar = 0;
+        for (int k = 1; k < m; k++) {
+            int j = order[k];
+            double proposed = curWeight + ws[j];
+            double q0 = soFar / w, q2 = (soFar + proposed) / w;
+            double limit = w * Math.min(q0 * (1 - q0), q2 * (1 - q2)) * 4 / compression;
+            if (proposed <= limit) {
+                curMean += (ms[j] - curMean) * ws[j] / proposed;
+                curWeight = proposed;
+            } else {
+                if (out == outMean.length) {
+                    outMean = Arrays.copyOf(outMean, out * 2);
+                    outWeight = Arrays.copyOf(outWeight, out * 2);
+                }
+                outMean[out] = curMean;
+                outWeight[out] = curWeight;
+                out++;
+                soFar += curWeight;
+                curMean = ms[j];
+                curWeight = ws[j];
+            }
+        }
+        if (out == outMean.length) {
+            outMean = Arrays.copyOf(outMean, out + 1);
+            outWeight = Arrays.copyOf(outWeight, out + 1);
+        }
+        outMean[out] = curMean;
+        outWeight[out] = curWeight;
+        out++;
+        mean = outMean;
+        weight = outWeight;
+        n = out;
+        bufN = 0;
+    }
+
+    public long count() {
+        return Math.round(total);
+    }
+
+    public double min() {
+        return total > 0 ? min : Double.NaN;
+    }
+
+    public double max() {
+        return total > 0 ? max : Double.NaN;
+    }
+
+    public double mean() {
+        return total > 0 ? sum / total : Double.NaN;
+    }
+
+    /** q ∈ [0, 1] kvantil; centroid markazlari orasida chiziqli interpolyatsiya, chetlarda min/max gacha */
+    public double quantile(double q) {
+        if (total == 0) return Double.NaN;
+        compress();
+        if (q <= 0) return min;
+        if (q >= 1) return max;
+        if (n == 1) return min + q * (max - min);
+        double index = q * total;
+        double half0 = weight[0] / 2;
+        if (index <= half0) return min + (mean[0] - min) * index / half0;
+        double cum = half0;
+        for (int i = 0; i < n - 1; i++) {
+            double dw = (weight[i] + weight[i + 1]) / 2;
+            if (index <= cum + dw) return mean[i] + (mean[i + 1] - mean[i]) * (index - cum) / dw;
+            cum += dw;
+        }
+        double halfLast = weight[n - 1] / 2;
+        return Math.min(max, mean[n - 1] + (max - mean[n - 1]) * (index - cum) / halfLast);
+    }
+
+    /** x dan kichik qiymatlar ulushi (taxminiy) */
+    public double cdf(double x) {
+        if (total == 0) return Double.NaN;
+        compress();
+        if (x <= min) return 0;
+        if (x >= max) return 1;
+        if (n == 1) return (x - min) / (max - min);
+        if (x < mean[0]) return (weight[0] / 2) * (x - min) / (mean[0] - min) / total;
+        double cum = weight[0] / 2;
+        for (int i = 0; i < n - 1; i++) {
+            double dw = (weight[i] + weight[i + 1]) / 2;
+            if (x < mean[i + 1]) return (cum + dw * (x - mean[i]) / (mean[i + 1] - mean[i])) / total;
+            cum += dw;
+        }
+        return (cum + (weight[n - 1] / 2) * (x - mean[n - 1]) / (max - mean[n - 1])) / total;
+    }
+
+    /** Siqadi va massivlarni aniq hajmga qisqartiradi — keshda saqlanadigan (faqat o‘qiladigan) eskizlar uchun */
+    public void trim() {
+        compress();
+        mean = Arrays.copyOf(mean, n);
+        weight = Arrays.copyOf(weight, n);
+        bufMean = new double[0];
+        bufWeight = new double[0];
+    }
+
+    /** Taxminiy xotira (bayt): centroid va bufer massivlari */
+    public int bytes() {
+        return 64 + 16 * (mean.length + bufMean.length);
+    }
+
+    private void addCentroid(double m, double w) {
+        if (bufN == bufLimit) compress();
+        if (bufN == bufMean.length) {
+            int cap = Math.min(bufLimit, Math.max(16, bufN * 2));
+            bufMean = Arrays.copyOf(bufMean, cap);
+            bufWeight = Arrays.copyOf(bufWeight, cap);
+        }
+        bufMean[bufN] = m;
+        bufWeight[bufN] = w;
+        bufN++;
+    }
+}
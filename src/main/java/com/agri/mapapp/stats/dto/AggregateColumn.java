@@ -0,0 +1,13 @@
+package com.agri.mapapp.stats.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data @NoArgsConstructor @AllArgsConstructor
+public class AggregateColumn {
+    private String key;      // "sum(expectedRevenue)" | "count"
+    private String op;       // sum | avg | min | max | count
+    private String metric;   // null => facility’lar soni
+    private String unit;
+}
@@ -0,0 +1,22 @@
+package com.agri.mapapp.stats.dto;
+
+import com.agri.mapapp.facility.FacilityType;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/** /aggregate javobi: so‘ralgan ustunlar (kalit — "op(metric)") va guruhlar */
+@Data @NoArgsConstructor @AllArgsConstructor
+public class AggregateRes {
+    private List<AggregateColumn> columns;
+    private List<String> groupBy;          // type | org | status | time
+    private String granularity;            // groupBy’da time bo‘lsa
+    private String engine;                 // sql | memory
+    private String from;                   // oyna (ISO, kiradi); null => vaqt bo‘yicha cheklanmagan
+    private String to;
+    private List<FacilityType> typesFilter;
+    private Long orgFilter;
+    private List<AggregateRow> rows;
+}
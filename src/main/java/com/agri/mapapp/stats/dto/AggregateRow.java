@@ -0,0 +1,20 @@
+package com.agri.mapapp.stats.dto;
+
+import com.agri.mapapp.facility.FacilityStatus;
+import com.agri.mapapp.facility.FacilityType;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+/** Bitta guruh: guruhlanmagan o‘lchovlar null; values — ustun kaliti → qiymat (tegishli qator yo‘q bo‘lsa null) */
+@Data @NoArgsConstructor @AllArgsConstructor
+public class AggregateRow {
+    private FacilityType type;
+    private Long orgId;
+    private String orgName;
+    private FacilityStatus status;
+    private String period;   // bo‘lak boshi (ISO sana)
+    private Map<String, Double> values;
+}
@@ -0,0 +1,18 @@
+package com.agri.mapapp.stats.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+/** approx=true javobi qanday hisoblangani: tanlanma hajmi va asosiy KPI’lar uchun ishonch oraliqlari */
+@Data @NoArgsConstructor @AllArgsConstructor
+public class ApproxInfo {
+    private String method;             // "tablesample-system" — PostgreSQL blok tanlanmasi
+    private double sampleFraction;     // sahifa tanlanish ehtimoli (1 => to‘liq skan, oraliqlar nol kenglikda)
+    private long sampledRows;          // filtrlardan o‘tgan tanlanma qatorlari
+    private long sampledPages;
+    private double confidence;         // masalan 0.95
+    private Map<String, Estimate> estimates; // kalit — OverviewRes maydoni (total, revenueYtd, ...)
+}
@@ -0,0 +1,19 @@
+package com.agri.mapapp.stats.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data @NoArgsConstructor @AllArgsConstructor
+public class CompareCell {
+    private long count;
+    private double revenue;
+    private double profit;
+    private double current;
+    private double capacity;
+    private Double capacityUtilPct; // sig‘im 0 bo‘lsa null
+
+    private Double countPct;        // tanlangan oyna (davr 0) ning shu davrga nisbatan o‘zgarishi; davr 0 uchun null
+    private Double revenuePct;
+    private Double profitPct;
+}
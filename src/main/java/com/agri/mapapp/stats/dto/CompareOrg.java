@@ -0,0 +1,16 @@
+package com.agri.mapapp.stats.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/** Bitta org (subtree’si bilan) — har bir davr uchun KPI katakchasi */
+@Data @NoArgsConstructor @AllArgsConstructor
+public class CompareOrg {
+    private Long orgId;
+    private String orgName;
+    private Integer subtreeSize;
+    private List<CompareCell> cells;
+}
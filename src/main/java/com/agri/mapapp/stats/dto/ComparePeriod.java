@@ -0,0 +1,12 @@
+package com.agri.mapapp.stats.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data @NoArgsConstructor @AllArgsConstructor
+public class ComparePeriod {
+    private Integer year;
+    private String from;        // ISO (kiradi)
+    private String to;          // ISO (kiradi)
+}
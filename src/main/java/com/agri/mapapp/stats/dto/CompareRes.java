@@ -0,0 +1,18 @@
+package com.agri.mapapp.stats.dto;
+
+import com.agri.mapapp.facility.FacilityType;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/** Org’lar taqqoslash matritsasi: org × davr × ko‘rsatkich; har bir org qatori periods bilan hizalangan */
+@Data @NoArgsConstructor @AllArgsConstructor
+public class CompareRes {
+    private Integer year;
+    private String range;
+    private List<ComparePeriod> periods;   // 0 — tanlangan oyna, qolganlari — taqqoslash yillari
+    private List<CompareOrg> orgs;         // so‘rovdagi tartibda
+    private List<FacilityType> typesFilter;
+}
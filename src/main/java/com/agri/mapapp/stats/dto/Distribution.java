@@ -0,0 +1,19 @@
+package com.agri.mapapp.stats.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/** Bitta metrika taqsimoti (kvantil eskizidan): kvantillar va teng kenglikdagi gistogramma */
+@Data @NoArgsConstructor @AllArgsConstructor
+public class Distribution {
+    private long count;
+    private Double min;
+    private Double max;
+    private Double mean;
+    private Double p50;
+    private Double p90;
+    private Double p99;
+    private double[] histEdges;  // bins + 1 ta chegara, min..max
+    private long[] histCounts;   // bins ta (taxminiy), yig‘indisi = count
+}
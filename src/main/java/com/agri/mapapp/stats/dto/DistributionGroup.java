@@ -0,0 +1,21 @@
+package com.agri.mapapp.stats.dto;
+
+import com.agri.mapapp.facility.FacilityType;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/** Guruh taqsimotlari: by=type — tur, by=org — org subtree’si (o‘zi + avlodlari) */
+@Data @NoArgsConstructor @AllArgsConstructor
+public class DistributionGroup {
+    private String key;         // "all" | type nomi | orgId
+    private String label;
+    private FacilityType type;  // by=type
+    private Long orgId;         // by=org
+    private Long parentId;      // by=org: daraxtdagi ota (scope ildizida null)
+
+    private long count;
+    private Distribution revenue;
+    private Distribution profit;
+    private Distribution utilPct;   // faqat capacity > 0 bo‘lgan obyektlar
+}
@@ -0,0 +1,20 @@
+package com.agri.mapapp.stats.dto;
+
+import com.agri.mapapp.facility.FacilityType;
+import lombok.*;
+
+import java.util.List;
+
+@Getter @Setter
+@NoArgsConstructor @AllArgsConstructor @Builder
+public class DistributionRes {
+    private String from;            // ISO, oyna boshi (kiradi)
+    private String to;              // ISO, oyna oxiri (kiradi)
+    private String by;              // none|type|org
+    private int bins;
+    private DistributionGroup overall;
+    private List<DistributionGroup> groups;
+
+    private List<FacilityType> typesFilter;
+    private Long orgFilter;
+}
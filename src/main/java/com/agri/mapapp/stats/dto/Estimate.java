@@ -0,0 +1,13 @@
+package com.agri.mapapp.stats.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/** Taxminiy KPI: baho va ishonch oralig‘i (ApproxInfo.confidence darajasida) */
+@Data @NoArgsConstructor @AllArgsConstructor
+public class Estimate {
+    private Double value;
+    private Double low;
+    private Double high;
+}
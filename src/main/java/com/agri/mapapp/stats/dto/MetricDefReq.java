@@ -0,0 +1,15 @@
+package com.agri.mapapp.stats.dto;
+
+import com.agri.mapapp.facility.FacilityType;
+import lombok.Data;
+
+import java.util.List;
+
+/** Admin: metrika qo‘shish/yangilash (nom — URL’da) */
+@Data
+public class MetricDefReq {
+    private String unit;
+    private List<String> aliases;      // majburiy: "key" | "key*factor"
+    private List<FacilityType> types;  // bo‘sh/null => barcha turlar
+    private Boolean pushdown;          // null => true
+}
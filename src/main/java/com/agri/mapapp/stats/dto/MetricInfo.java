@@ -0,0 +1,19 @@
+package com.agri.mapapp.stats.dto;
+
+import com.agri.mapapp.facility.FacilityType;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/** Registrdagi metrika: /aggregate’da metrics=op(name) sifatida ishlatiladi */
+@Data @NoArgsConstructor @AllArgsConstructor
+public class MetricInfo {
+    private String name;
+    private String unit;
+    private List<String> aliases;      // "key" | "key*factor" — birinchi mavjud kalit g‘olib
+    private List<FacilityType> types;  // null => barcha turlar
+    private boolean builtin;           // FacilityMetrics (tiplangan ustunli)
+    private boolean pushdown;          // SQL’da hisoblanadimi
+}
@@ -48,6 +48,11 @@ public class OverviewRes {
     private String from;        // ISO (if custom)
     private String to;          // ISO (if custom)
 
+    private List<PeriodComparison> comparisons; // compare=... bo‘yicha oldingi yillardagi shu oyna
+
     private List<OrgAgg> orgs;  // legacy org count
     private Long orgFilter;     // applied single org filter (optional)
+
+    private String mode;        // exact | approx
+    private ApproxInfo approx;  // faqat mode=approx: tanlanma va ishonch oraliqlari
 }
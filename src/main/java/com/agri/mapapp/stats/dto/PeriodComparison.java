@@ -0,0 +1,22 @@
+package com.agri.mapapp.stats.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/** Taqqoslash davri: tanlangan oyna N yil oldin (shu davrdagi yig‘indilar va joriy oynaning o‘zgarishi, %) */
+@Data @NoArgsConstructor @AllArgsConstructor
+public class PeriodComparison {
+    private Integer year;
+    private String from;        // ISO (kiradi)
+    private String to;          // ISO (kiradi)
+
+    private Long count;
+    private Double revenue;
+    private Double profit;
+    private Double capacityUtilPct;
+
+    private Double countPct;    // (joriy - davr) / davr * 100; davr 0 bo‘lsa null
+    private Double revenuePct;
+    private Double profitPct;
+}
@@ -0,0 +1,36 @@
+package com.agri.mapapp.stats.dto;
+
+import com.agri.mapapp.facility.FacilityType;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/** Bitta seriya: massivlar {@link TimeSeriesRes#getBuckets()} bilan bir xil uzunlikda (zich, bo‘sh bo‘lak = 0) */
+@Data @NoArgsConstructor
+public class TimeSeries {
+    private String key;         // "all" | type nomi | orgId
+    private String label;
+    private FacilityType type;  // by=type
+    private Long orgId;         // by=org
+
+    private long[] count;
+    private double[] revenue;
+    private double[] profit;
+    private double[] current;
+    private double[] capacity;
+    private double[] product;
+    private double[] areaM2;
+
+    public TimeSeries(String key, String label, FacilityType type, Long orgId, int size) {
+        this.key = key;
+        this.label = label;
+        this.type = type;
+        this.orgId = orgId;
+        this.count = new long[size];
+        this.revenue = new double[size];
+        this.profit = new double[size];
+        this.current = new double[size];
+        this.capacity = new double[size];
+        this.product = new double[size];
+        this.areaM2 = new double[size];
+    }
+}
@@ -0,0 +1,16 @@
+package com.agri.mapapp.stats.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/** Taqqoslash davri seriyalari: massivlar asosiy {@link TimeSeriesRes#getBuckets()} bilan hizalangan */
+@Data @NoArgsConstructor @AllArgsConstructor
+public class TimeSeriesComparison {
+    private Integer year;
+    private String from;        // ISO (kiradi)
+    private String to;          // ISO (kiradi)
+    private List<TimeSeries> series;
+}
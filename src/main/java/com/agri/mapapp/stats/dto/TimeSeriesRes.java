@@ -0,0 +1,21 @@
+package com.agri.mapapp.stats.dto;
+
+import com.agri.mapapp.facility.FacilityType;
+import lombok.*;
+
+import java.util.List;
+
+@Getter @Setter
+@NoArgsConstructor @AllArgsConstructor @Builder
+public class TimeSeriesRes {
+    private String granularity;     // day|week|month|quarter
+    private String by;              // none|type|org
+    private String from;            // ISO, oyna boshi (kiradi)
+    private String to;              // ISO, oyna oxiri (kiradi)
+    private List<String> buckets;   // bo‘laklar boshlanishi (ISO sana); hafta — dushanba
+    private List<TimeSeries> series;
+    private List<TimeSeriesComparison> comparisons; // compare=... bo‘yicha, series bilan bir xil bo‘laklarda
+
+    private List<FacilityType> typesFilter;
+    private Long orgFilter;
+}
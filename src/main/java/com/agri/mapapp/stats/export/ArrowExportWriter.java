@@ -0,0 +1,167 @@
+package com.agri.mapapp.stats.export;
+
+import com.agri.mapapp.facility.FacilityMetrics;
+import com.agri.mapapp.facility.FacilityType;
+import com.agri.mapapp.stats.StatsExportDao.ExportRow;
+import org.apache.arrow.compression.CommonsCompressionFactory;
+import org.apache.arrow.memory.BufferAllocator;
+import org.apache.arrow.memory.RootAllocator;
+import org.apache.arrow.vector.*;
+import org.apache.arrow.vector.compression.CompressionUtil;
+import org.apache.arrow.vector.compression.NoCompressionCodec;
+import org.apache.arrow.vector.dictionary.Dictionary;
+import org.apache.arrow.vector.dictionary.DictionaryProvider;
+import org.apache.arrow.vector.ipc.ArrowFileWriter;
+import org.apache.arrow.vector.ipc.message.IpcOption;
+import org.apache.arrow.vector.types.FloatingPointPrecision;
+import org.apache.arrow.vector.types.TimeUnit;
+import org.apache.arrow.vector.types.pojo.*;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.time.ZoneOffset;
+import java.util.*;
+
+/**
+ * Export qatorlarini Arrow IPC (file) formatida yozadi: ustunlar tiplangan,
+ * type va orgName — dictionary-encoded, bufferlar siqilgan (ZSTD/LZ4).
+ * Qatorlar {@link #BATCH_SIZE} tadan record batch bo‘lib oqimga yoziladi — xotira doimiy.
+ *
+ * Foydalanish: new → add(...) ko‘p marta → finish() → close().
+ */
+public class ArrowExportWriter implements Closeable {
+
+    public static final int BATCH_SIZE = 8192;
+
+    private static final long TYPE_DICT_ID = 1L;
+    private static final long ORG_DICT_ID = 2L;
+
+    private final BufferAllocator allocator;
+    private final DictionaryProvider.MapDictionaryProvider dictionaries;
+    private final VectorSchemaRoot root;
+    private final ArrowFileWriter writer;
+    private final Map<String, Integer> orgNameIndex = new HashMap<>();
+
+    private final BigIntVector orgId;
+    private final IntVector orgName;
+    private final SmallIntVector type;
+    private final TimeStampMicroVector createdAt;
+    private final Float8Vector revenue, profit, current, capacity, product, areaM2;
+    private int rows;
+
+    /**
+     * @param orgNames  scope’dagi org nomlari (orgName lug‘ati oldindan ma’lum bo‘lishi kerak — IPC file format)
+     * @param codec     ZSTD | LZ4_FRAME | NO_COMPRESSION
+     */
+    public ArrowExportWriter(OutputStream out, Collection<String> orgNames, CompressionUtil.CodecType codec) throws IOException {
+        this.allocator = new RootAllocator();
+        try {
+            this.dictionaries = new DictionaryProvider.MapDictionaryProvider();
+            DictionaryEncoding typeEnc = new DictionaryEncoding(TYPE_DICT_ID, false, new ArrowType.Int(16, true));
+            DictionaryEncoding orgEnc  = new DictionaryEncoding(ORG_DICT_ID, false, new ArrowType.Int(32, true));
+            dictionaries.put(new Dictionary(stringVector("type_dict",
+                    Arrays.stream(FacilityType.values()).map(Enum::name).toList()), typeEnc));
+            List<String> names = new ArrayList<>();
+            for (String n : orgNames) {
+                if (n != null && orgNameIndex.putIfAbsent(n, names.size()) == null) names.add(n);
+            }
+            dictionaries.put(new Dictionary(stringVector("org_name_dict", names), orgEnc));
+
+            Schema schema = new Schema(List.of(
+                    new Field("orgId", FieldType.nullable(new ArrowType.Int(64, true)), null),
+                    new Field("orgName", new FieldType(true, new ArrowType.Int(32, true), orgEnc), null),
+                    new Field("type", new FieldType(true, new ArrowType.Int(16, true), typeEnc), null),
+                    new Field("createdAt", FieldType.nullable(new ArrowType.Timestamp(TimeUnit.MICROSECOND, null)), null),
+                    metric("expectedRevenue"), metric("netProfit"), metric("current"),
+                    metric("capacity"), metric("productAmount"), metric("areaM2")));
+            this.root = VectorSchemaRoot.create(schema, allocator);
+            this.orgId     = (BigIntVector) root.getVector("orgId");
+            this.orgName   = (IntVector) root.getVector("orgName");
+            this.type      = (SmallIntVector) root.getVector("type");
+            this.createdAt = (TimeStampMicroVector) root.getVector("createdAt");
+            this.revenue   = (Float8Vector) root.getVector("expectedRevenue");
+            this.profit    = (Float8Vector) root.getVector("netProfit");
+            this.current   = (Float8Vector) root.getVector("current");
+            this.capacity  = (Float8Vector) root.getVector("capacity");
+            this.product   = (Float8Vector) root.getVector("productAmount");
+            this.areaM2    = (Float8Vector) root.getVector("areaM2");
+            root.allocateNew();
+
+            this.writer = (codec == CompressionUtil.CodecType.NO_COMPRESSION)
+                    ? new ArrowFileWriter(root, dictionaries, Channels.newChannel(out), null,
+                            IpcOption.DEFAULT, NoCompressionCodec.Factory.INSTANCE, codec)
+                    : new ArrowFileWriter(root, dictionaries, Channels.newChannel(out), null,
+                            IpcOption.DEFAULT, CommonsCompressionFactory.INSTANCE, codec);
+            writer.start();
+        } catch (IOException | RuntimeException e) {
+            close();
+            throw e;
+        }
+    }
+
+    public void add(ExportRow r) throws IOException {
+        int i = rows;
+        setOrNull(orgId, i, r.orgId());
+        Integer nameIdx = (r.orgId() != null && r.orgName() != null) ? orgNameIndex.get(r.orgName()) : null;
+        if (nameIdx != null) orgName.setSafe(i, nameIdx); else orgName.setNull(i);
+        if (r.type() != null) type.setSafe(i, (short) r.type().ordinal()); else type.setNull(i);
+        if (r.createdAt() != null) {
+            var t = r.createdAt().toInstant(ZoneOffset.UTC);
+            createdAt.setSafe(i, t.getEpochSecond() * 1_000_000L + t.getNano() / 1_000);
+        } else {
+            createdAt.setNull(i);
+        }
+        FacilityMetrics m = r.metrics();
+        revenue.setSafe(i, m.expectedRevenue());
+        profit.setSafe(i, m.netProfit());
+        current.setSafe(i, m.current());
+        capacity.setSafe(i, m.capacity());
+        product.setSafe(i, m.productAmount());
+        areaM2.setSafe(i, m.areaM2());
+        if (++rows == BATCH_SIZE) flushBatch();
+    }
+
+    /** Qolgan qatorlar va footer’ni yozadi */
+    public void finish() throws IOException {
+        if (rows > 0) flushBatch();
+        writer.end();
+    }
+
+    @Override
+    public void close() {
+        if (writer != null) writer.close();
+        if (root != null) root.close();
+        if (dictionaries != null) {
+            for (long id : dictionaries.getDictionaryIds()) dictionaries.lookup(id).getVector().close();
+        }
+        allocator.close();
+    }
+
+    /* -------------------- Helpers -------------------- */
+
+    private void flushBatch() throws IOException {
+        root.setRowCount(rows);
+        writer.writeBatch();
+        root.allocateNew(); // eski buferlar bo‘shatiladi, batch hajmi o‘zgarmaydi
+        rows = 0;
+    }
+
+    private VarCharVector stringVector(String name, List<String> values) {
+        VarCharVector v = new VarCharVector(name, allocator);
+        v.allocateNew(values.size());
+        for (int i = 0; i < values.size(); i++) v.setSafe(i, values.get(i).getBytes(StandardCharsets.UTF_8));
+        v.setValueCount(values.size());
+        return v;
+    }
+
+    private static Field metric(String name) {
+        return new Field(name, FieldType.notNullable(new ArrowType.FloatingPoint(FloatingPointPrecision.DOUBLE)), null);
+    }
+
+    private static void setOrNull(BigIntVector v, int i, Long value) {
+        if (value != null) v.setSafe(i, value); else v.setNull(i);
+    }
+}
@@ -0,0 +1,91 @@
+package com.agri.mapapp.stats.export;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Asinxron export vazifasi: spetsifikatsiya (ko‘lam + filtrlar), holat, progress va tayyor artefakt.
+ * Ko‘lam topshirish paytida aniqlanadi va saqlanadi — vazifa qayta ishga tushirishdan keyin ham shu ko‘lamda bajariladi.
+ */
+@Entity
+@Table(name = "export_job", indexes = {
+        @Index(name = "ix_export_job_status", columnList = "status,created_at"),
+        @Index(name = "ix_export_job_user", columnList = "user_id,created_at")
+})
+@Getter @Setter @NoArgsConstructor @AllArgsConstructor @Builder
+public class ExportJob {
+
+    @Id
+    @Column(length = 36)
+    private String id;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private ExportJobStatus status;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private ExportFormat format;
+
+    /** Vergul bilan ajratilgan org id’lari; null => ADMIN (cheklanmagan) */
+    @Column(name = "scope_org_ids", columnDefinition = "text")
+    private String scopeOrgIds;
+
+    private Integer year;
+
+    @Column(name = "range_kind", length = 16)
+    private String range;
+
+    private Integer quarter;
+
+    @Column(name = "date_from")
+    private LocalDate from;
+
+    @Column(name = "date_to")
+    private LocalDate to;
+
+    /** Vergul bilan FacilityType nomlari; null => barcha */
+    @Column(length = 512)
+    private String types;
+
+    @Column(name = "org_filter")
+    private Long orgFilter;
+
+    @Column(name = "total_rows")
+    private Long totalRows;
+
+    @Column(name = "rows_written", nullable = false)
+    private long rowsWritten;
+
+    /** ${app.uploads.dir}/exports ichidagi fayl nomi */
+    @Column(name = "file_name")
+    private String fileName;
+
+    @Column(name = "file_size")
+    private Long fileSize;
+
+    @Column(length = 1000)
+    private String error;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "started_at")
+    private LocalDateTime startedAt;
+
+    /** Ishlayotgan vazifa progress bilan yangilaydi; eskirsa (jarayon o‘lgan) vazifa navbatga qaytariladi */
+    @Column(name = "heartbeat_at")
+    private LocalDateTime heartbeatAt;
+
+    @Column(name = "finished_at")
+    private LocalDateTime finishedAt;
+
+    @Column(name = "expires_at")
+    private LocalDateTime expiresAt;
+}
@@ -0,0 +1,93 @@
+package com.agri.mapapp.stats.export;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Holat o‘tishlari shartli UPDATE bilan: bir nechta instansiya bo‘lsa ham vazifani faqat bittasi oladi,
+ * bekor qilish esa ishlayotgan vazifaga keyingi heartbeat’da yetib boradi.
+ * Export cursor’i read-only tranzaksiyada ochiq turadi — yozuvlar alohida (REQUIRES_NEW) tranzaksiyada.
+ */
+public interface ExportJobRepository extends JpaRepository<ExportJob, String> {
+
+    List<ExportJob> findTop50ByUserIdOrderByCreatedAtDesc(Long userId);
+
+    List<ExportJob> findTop100ByStatusOrderByCreatedAtAsc(ExportJobStatus status);
+
+    long countByUserIdAndStatusIn(Long userId, Collection<ExportJobStatus> statuses);
+
+    long countByStatus(ExportJobStatus status);
+
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    @Modifying
+    @Query("UPDATE ExportJob j SET j.status = com.agri.mapapp.stats.export.ExportJobStatus.RUNNING, " +
+            "j.startedAt = :now, j.heartbeatAt = :now, j.rowsWritten = 0 " +
+            "WHERE j.id = :id AND j.status = com.agri.mapapp.stats.export.ExportJobStatus.QUEUED")
+    int claim(@Param("id") String id, @Param("now") LocalDateTime now);
+
+    /** 0 qaytsa — vazifa endi RUNNING emas (bekor qilingan) */
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    @Modifying
+    @Query("UPDATE ExportJob j SET j.rowsWritten = :rows, j.totalRows = COALESCE(:total, j.totalRows), j.heartbeatAt = :now " +
+            "WHERE j.id = :id AND j.status = com.agri.mapapp.stats.export.ExportJobStatus.RUNNING")
+    int heartbeat(@Param("id") String id, @Param("rows") long rows, @Param("total") Long total,
+                  @Param("now") LocalDateTime now);
+
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    @Modifying
+    @Query("UPDATE ExportJob j SET j.status = com.agri.mapapp.stats.export.ExportJobStatus.DONE, " +
+            "j.rowsWritten = :rows, j.fileName = :fileName, j.fileSize = :size, " +
+            "j.finishedAt = :now, j.heartbeatAt = :now, j.expiresAt = :expiresAt " +
+            "WHERE j.id = :id AND j.status = com.agri.mapapp.stats.export.ExportJobStatus.RUNNING")
+    int complete(@Param("id") String id, @Param("rows") long rows, @Param("fileName") String fileName,
+                 @Param("size") long size, @Param("now") LocalDateTime now, @Param("expiresAt") LocalDateTime expiresAt);
+
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    @Modifying
+    @Query("UPDATE ExportJob j SET j.status = com.agri.mapapp.stats.export.ExportJobStatus.FAILED, " +
+            "j.error = :error, j.finishedAt = :now, j.expiresAt = :expiresAt " +
+            "WHERE j.id = :id AND j.status = com.agri.mapapp.stats.export.ExportJobStatus.RUNNING")
+    int fail(@Param("id") String id, @Param("error") String error,
+             @Param("now") LocalDateTime now, @Param("expiresAt") LocalDateTime expiresAt);
+
+    /** QUEUED yoki RUNNING → CANCELLED (persistence context tozalanadi — qayta o‘qishda yangi holat) */
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE ExportJob j SET j.status = com.agri.mapapp.stats.export.ExportJobStatus.CANCELLED, " +
+            "j.finishedAt = :now, j.expiresAt = :expiresAt " +
+            "WHERE j.id = :id AND j.status IN (com.agri.mapapp.stats.export.ExportJobStatus.QUEUED, " +
+            "com.agri.mapapp.stats.export.ExportJobStatus.RUNNING)")
+    int cancel(@Param("id") String id, @Param("now") LocalDateTime now, @Param("expiresAt") LocalDateTime expiresAt);
+
+    /** Ilova to‘xtayotganda to‘xtatilgan vazifa navbatga qaytadi */
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    @Modifying
+    @Query("UPDATE ExportJob j SET j.status = com.agri.mapapp.stats.export.ExportJobStatus.QUEUED, " +
+            "j.rowsWritten = 0, j.startedAt = null " +
+            "WHERE j.id = :id AND j.status = com.agri.mapapp.stats.export.ExportJobStatus.RUNNING")
+    int requeue(@Param("id") String id);
+
+    /** Heartbeat’i eskirgan RUNNING vazifalar (jarayon to‘xtagan) qayta navbatga */
+    @Transactional
+    @Modifying
+    @Query("UPDATE ExportJob j SET j.status = com.agri.mapapp.stats.export.ExportJobStatus.QUEUED, " +
+            "j.rowsWritten = 0, j.startedAt = null " +
+            "WHERE j.status = com.agri.mapapp.stats.export.ExportJobStatus.RUNNING AND j.heartbeatAt < :staleBefore")
+    int requeueStale(@Param("staleBefore") LocalDateTime staleBefore);
+
+    List<ExportJob> findTop100ByExpiresAtBeforeAndStatusIn(LocalDateTime now, Collection<ExportJobStatus> statuses);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM ExportJob j WHERE j.status = com.agri.mapapp.stats.export.ExportJobStatus.EXPIRED " +
+            "AND j.expiresAt < :cutoff")
+    int purgeExpired(@Param("cutoff") LocalDateTime cutoff);
+}
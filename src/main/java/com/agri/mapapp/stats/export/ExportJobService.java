@@ -0,0 +1,348 @@
+package com.agri.mapapp.stats.export;
+
+import com.agri.mapapp.facility.FacilityType;
+import com.agri.mapapp.stats.StatsService;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.*;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongConsumer;
+import java.util.stream.Collectors;
+
+/**
+ * Asinxron export navbati: katta CSV/Arrow/XLSX fayllar so‘rov thread’ida emas, fon worker’larida yoziladi.
+ *  - Vazifa (spetsifikatsiya + ko‘lam) export_job’da saqlanadi; worker uni shartli UPDATE bilan "egallaydi";
+ *  - Fayl avval .part ga yoziladi, tugagach atomik ko‘chiriladi — yarim fayl hech qachon yuklab olinmaydi;
+ *  - Progress va heartbeat throttled holda yoziladi; bekor qilish (CANCELLED) keyingi heartbeat’da seziladi;
+ *  - Jarayon to‘xtasa — heartbeat eskiradi va sweep vazifani qayta navbatga qo‘yadi;
+ *  - Tayyor artefaktlar retention’dan keyin o‘chiriladi (EXPIRED).
+ * Worker’lar soni DB pool’idan ancha kichik — export interaktiv so‘rovlarni ulanishsiz qoldirmaydi.
+ */
+@Slf4j
+@Service
+public class ExportJobService {
+
+    public record ExportJobDto(String id, ExportJobStatus status, ExportFormat format,
+                               long rowsWritten, Long totalRows, Double progressPct,
+                               Long fileSize, String error, String downloadUrl,
+                               LocalDateTime createdAt, LocalDateTime startedAt,
+                               LocalDateTime finishedAt, LocalDateTime expiresAt) {}
+
+    /** Topshirish paytida aniqlangan export parametrlari (scope == null => ADMIN) */
+    public record ExportSpec(Set<Long> scope, ExportFormat format, Integer year, String range, Integer quarter,
+                             LocalDate from, LocalDate to, List<FacilityType> types, Long orgFilter) {}
+
+    private static final Set<ExportJobStatus> ACTIVE = EnumSet.of(ExportJobStatus.QUEUED, ExportJobStatus.RUNNING);
+    private static final Set<ExportJobStatus> FINISHED =
+            EnumSet.of(ExportJobStatus.DONE, ExportJobStatus.FAILED, ExportJobStatus.CANCELLED);
+
+    private final ExportJobRepository repo;
+    private final StatsService statsService;
+    private final String dirProp;
+    private final int maxActivePerUser;
+    private final int maxQueued;
+    private final long retentionHours;
+    private final long purgeAfterDays;
+    private final long progressIntervalMs;
+    private final long staleAfterMs;
+
+    private final ThreadPoolExecutor pool;
+    /** Shu instansiyada navbatga qo‘yilgan yoki ishlayotgan vazifalar (ikki marta dispatch qilmaslik uchun) */
+    private final Set<String> dispatched = ConcurrentHashMap.newKeySet();
+    private volatile boolean shuttingDown;
+
+    public ExportJobService(
+            ExportJobRepository repo,
+            StatsService statsService,
+            @Value("${app.stats.export.jobs.dir:exports}") String dirProp,
+            @Value("${app.stats.export.jobs.workers:2}") int workers,
+            @Value("${app.stats.export.jobs.max-active-per-user:3}") int maxActivePerUser,
+            @Value("${app.stats.export.jobs.max-queued:200}") int maxQueued,
+            @Value("${app.stats.export.jobs.retention-hours:24}") long retentionHours,
+            @Value("${app.stats.export.jobs.purge-after-days:7}") long purgeAfterDays,
+            @Value("${app.stats.export.jobs.progress-interval-ms:1000}") long progressIntervalMs,
+            @Value("${app.stats.export.jobs.stale-after-ms:120000}") long staleAfterMs
+    ) {
+        this.repo = repo;
+        this.statsService = statsService;
+        this.dirProp = dirProp;
+        this.maxActivePerUser = maxActivePerUser;
+        this.maxQueued = maxQueued;
+        this.retentionHours = retentionHours;
+        this.purgeAfterDays = purgeAfterDays;
+        this.progressIntervalMs = progressIntervalMs;
+        this.staleAfterMs = staleAfterMs;
+        AtomicInteger seq = new AtomicInteger();
+        this.pool = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(Math.max(1, maxQueued)),
+                r -> {
+                    Thread t = new Thread(r, "export-job-" + seq.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                });
+    }
+
+    public ExportJobDto submit(Long userId, ExportSpec spec) {
+        if (repo.countByUserIdAndStatusIn(userId, ACTIVE) >= maxActivePerUser) {
+            throw new ResponseStatusException(HttpStatus.TOO_MANY_REQUESTS,
+                    "Too many active export jobs (max " + maxActivePerUser + ")");
+        }
+        if (repo.countByStatus(ExportJobStatus.QUEUED) >= maxQueued) {
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Export queue is full, try again later");
+        }
+        ExportJob job = repo.save(ExportJob.builder()
+                .id(UUID.randomUUID().toString())
+                .userId(userId)
+                .status(ExportJobStatus.QUEUED)
+                .format(spec.format())
+                .scopeOrgIds(spec.scope() == null ? null
+                        : spec.scope().stream().sorted().map(String::valueOf).collect(Collectors.joining(",")))
+                .year(spec.year())
+                .range(spec.range())
+                .quarter(spec.quarter())
+                .from(spec.from())
+                .to(spec.to())
+                .types(spec.types() == null || spec.types().isEmpty() ? null
+                        : spec.types().stream().map(Enum::name).collect(Collectors.joining(",")))
+                .orgFilter(spec.orgFilter())
+                .createdAt(LocalDateTime.now())
+                .build());
+        dispatch(job.getId());
+        return toDto(job);
+    }
+
+    public List<ExportJobDto> list(Long userId) {
+        return repo.findTop50ByUserIdOrderByCreatedAtDesc(userId).stream().map(this::toDto).toList();
+    }
+
+    /** Faqat egasi yoki ADMIN; boshqalar uchun vazifa "yo‘q" (404) */
+    public ExportJob get(String id, Long userId, boolean admin) {
+        return repo.findById(id)
+                .filter(j -> admin || Objects.equals(j.getUserId(), userId))
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Export job not found"));
+    }
+
+    public ExportJobDto toDto(ExportJob j) {
+        Double pct = null;
+        if (j.getStatus() == ExportJobStatus.DONE) pct = 100.0;
+        else if (j.getTotalRows() != null && j.getTotalRows() > 0) {
+            pct = Math.min(99.9, 100.0 * j.getRowsWritten() / j.getTotalRows()); // jami — boshlanishdagi taxmin
+        }
+        return new ExportJobDto(j.getId(), j.getStatus(), j.getFormat(), j.getRowsWritten(), j.getTotalRows(), pct,
+                j.getFileSize(), j.getError(),
+                j.getStatus() == ExportJobStatus.DONE ? "/api/stats/export-jobs/" + j.getId() + "/download" : null,
+                j.getCreatedAt(), j.getStartedAt(), j.getFinishedAt(), j.getExpiresAt());
+    }
+
+    /** Tayyor artefakt yo‘li; DONE bo‘lmasa 409, muddati o‘tgan bo‘lsa 410 */
+    public Path artifact(ExportJob job) {
+        if (job.getStatus() == ExportJobStatus.EXPIRED) {
+            throw new ResponseStatusException(HttpStatus.GONE, "Export artifact expired");
+        }
+        if (job.getStatus() != ExportJobStatus.DONE || job.getFileName() == null) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "Export job is " + job.getStatus());
+        }
+        Path p = resolve(job.getFileName());
+        if (!Files.isRegularFile(p)) throw new ResponseStatusException(HttpStatus.GONE, "Export artifact missing");
+        return p;
+    }
+
+    /** Faol vazifa — bekor qilinadi (true); tugagani — fayli va yozuvi o‘chiriladi (false) */
+    public boolean cancelOrDelete(ExportJob job) {
+        if (job.getStatus().active()) {
+            LocalDateTime now = LocalDateTime.now();
+            if (repo.cancel(job.getId(), now, now.plusHours(retentionHours)) > 0) return true;
+            job = repo.findById(job.getId()).orElse(null); // shu orada tugagan bo‘lishi mumkin
+            if (job == null) return false;
+        }
+        deleteQuietly(job.getFileName());
+        repo.deleteById(job.getId());
+        return false;
+    }
+
+    /* -------------------- Worker -------------------- */
+
+    private void dispatch(String id) {
+        if (shuttingDown || !dispatched.add(id)) return;
+        try {
+            pool.execute(() -> {
+                try {
+                    run(id);
+                } finally {
+                    dispatched.remove(id);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            dispatched.remove(id); // QUEUED bo‘lib qoladi — keyingi sweep oladi
+        }
+    }
+
+    private void run(String id) {
+        if (shuttingDown || repo.claim(id, LocalDateTime.now()) == 0) return; // bekor qilingan yoki boshqa instansiya oldi
+        ExportJob job = repo.findById(id).orElse(null);
+        if (job == null) return;
+
+        Set<Long> scope = parseScope(job.getScopeOrgIds());
+        List<FacilityType> types = parseTypes(job.getTypes());
+        String fileName = id + "." + job.getFormat().extension();
+        Path part = resolve(fileName + ".part");
+        long[] written = {0};
+        try {
+            Files.createDirectories(part.getParent());
+            long total = statsService.exportRowCount(scope, job.getYear(), types, job.getRange(), job.getQuarter(),
+                    job.getFrom(), job.getTo());
+            heartbeat(id, 0, total);
+
+            long[] nextBeat = {System.nanoTime() + progressIntervalMs * 1_000_000L};
+            LongConsumer progress = n -> {
+                written[0] = n;
+                if (shuttingDown) throw new Stop(true);
+                if (System.nanoTime() - nextBeat[0] < 0) return;
+                nextBeat[0] = System.nanoTime() + progressIntervalMs * 1_000_000L;
+                heartbeat(id, n, null);
+            };
+            try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(part), 64 * 1024)) {
+                switch (job.getFormat()) {
+                    case CSV -> statsService.exportCsv(scope, job.getYear(), types, job.getRange(), job.getQuarter(),
+                            job.getFrom(), job.getTo(), out, progress);
+                    case ARROW -> statsService.exportArrow(scope, job.getYear(), types, job.getRange(), job.getQuarter(),
+                            job.getFrom(), job.getTo(), out, progress);
+                    case XLSX -> statsService.exportXlsx(scope, job.getYear(), types, job.getRange(), job.getQuarter(),
+                            job.getFrom(), job.getTo(), out, progress);
+                }
+            }
+            Path dest = resolve(fileName);
+            Files.move(part, dest, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            LocalDateTime now = LocalDateTime.now();
+            if (repo.complete(id, written[0], fileName, Files.size(dest), now, now.plusHours(retentionHours)) == 0) {
+                deleteQuietly(fileName); // oxirgi lahzada bekor qilingan
+            }
+        } catch (Stop stop) {
+            deleteQuietly(fileName + ".part");
+            if (stop.requeue) repo.requeue(id);
+        } catch (Exception e) {
+            log.warn("Export vazifasi {} muvaffaqiyatsiz: {}", id, e.toString());
+            deleteQuietly(fileName + ".part");
+            String msg = e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+            LocalDateTime now = LocalDateTime.now();
+            repo.fail(id, msg.length() > 1000 ? msg.substring(0, 1000) : msg, now, now.plusHours(retentionHours));
+        }
+    }
+
+    /** Progress yozadi; vazifa endi RUNNING emas (bekor qilingan) yoki ilova to‘xtayapti — export to‘xtatiladi */
+    private void heartbeat(String id, long rows, Long total) {
+        if (shuttingDown) throw new Stop(true);
+        if (repo.heartbeat(id, rows, total, LocalDateTime.now()) == 0) throw new Stop(false);
+    }
+
+    /** Export’ni cursor ichidan to‘xtatish signali (stack trace kerak emas) */
+    private static final class Stop extends RuntimeException {
+        final boolean requeue;
+
+        Stop(boolean requeue) {
+            super(null, null, false, false);
+            this.requeue = requeue;
+        }
+    }
+
+    /* -------------------- Sweep / lifecycle -------------------- */
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onReady() {
+        sweep();
+    }
+
+    /**
+     * Heartbeat’i eskirgan RUNNING → QUEUED; QUEUED vazifalarni dispatch qilish (qayta ishga tushirishdan keyin ham);
+     * muddati o‘tgan artefaktlarni o‘chirish.
+     */
+    @Scheduled(fixedDelayString = "${app.stats.export.jobs.sweep-ms:30000}",
+               initialDelayString = "${app.stats.export.jobs.sweep-ms:30000}")
+    public void sweep() {
+        if (shuttingDown) return;
+        try {
+            LocalDateTime now = LocalDateTime.now();
+            int requeued = repo.requeueStale(now.minusNanos(staleAfterMs * 1_000_000L));
+            if (requeued > 0) log.info("Export: {} ta to‘xtab qolgan vazifa qayta navbatga qo‘yildi", requeued);
+
+            for (ExportJob j : repo.findTop100ByStatusOrderByCreatedAtAsc(ExportJobStatus.QUEUED)) dispatch(j.getId());
+
+            for (ExportJob j : repo.findTop100ByExpiresAtBeforeAndStatusIn(now, FINISHED)) {
+                deleteQuietly(j.getFileName());
+                j.setStatus(ExportJobStatus.EXPIRED);
+                j.setFileName(null);
+                repo.save(j);
+            }
+            repo.purgeExpired(now.minusDays(purgeAfterDays));
+        } catch (Exception e) {
+            log.warn("Export sweep bajarilmadi: {}", e.getMessage());
+        }
+    }
+
+    /** Ishlayotgan export’lar keyingi heartbeat’da to‘xtaydi va QUEUED ga qaytadi — keyingi ishga tushishda davom etadi */
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        shuttingDown = true;
+        pool.shutdown();
+        if (!pool.awaitTermination(progressIntervalMs + 5_000, TimeUnit.MILLISECONDS)) pool.shutdownNow();
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("workers", pool.getMaximumPoolSize());
+        m.put("activeWorkers", pool.getActiveCount());
+        m.put("localQueue", pool.getQueue().size());
+        m.put("queued", repo.countByStatus(ExportJobStatus.QUEUED));
+        m.put("running", repo.countByStatus(ExportJobStatus.RUNNING));
+        m.put("dir", baseDir().toString());
+        return m;
+    }
+
+    /* -------------------- Helpers -------------------- */
+
+    private Path baseDir() {
+        return Paths.get(dirProp).toAbsolutePath().normalize();
+    }
+
+    private Path resolve(String fileName) {
+        Path base = baseDir();
+        Path p = base.resolve(fileName).normalize();
+        if (!p.startsWith(base)) throw new SecurityException("Invalid path");
+        return p;
+    }
+
+    private void deleteQuietly(String fileName) {
+        if (fileName == null) return;
+        try {
+            Files.deleteIfExists(resolve(fileName));
+        } catch (IOException | SecurityException e) {
+            log.warn("Export faylini o‘chirib bo‘lmadi {}: {}", fileName, e.getMessage());
+        }
+    }
+
+    private static Set<Long> parseScope(String csv) {
+        if (csv == null) return null;
+        if (csv.isBlank()) return Set.of();
+        return Arrays.stream(csv.split(",")).map(Long::valueOf).collect(Collectors.toUnmodifiableSet());
+    }
+
+    private static List<FacilityType> parseTypes(String csv) {
+        if (csv == null || csv.isBlank()) return null;
+        return Arrays.stream(csv.split(",")).map(FacilityType::valueOf).toList();
+    }
+}
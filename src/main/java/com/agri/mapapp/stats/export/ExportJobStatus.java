@@ -0,0 +1,14 @@
+package com.agri.mapapp.stats.export;
+
+public enum ExportJobStatus {
+    QUEUED,
+    RUNNING,
+    DONE,
+    FAILED,
+    CANCELLED,
+    EXPIRED;
+
+    public boolean active() {
+        return this == QUEUED || this == RUNNING;
+    }
+}
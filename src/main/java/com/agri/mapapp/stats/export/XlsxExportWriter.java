@@ -0,0 +1,137 @@
+package com.agri.mapapp.stats.export;
+
+import com.agri.mapapp.facility.FacilityMetrics;
+import com.agri.mapapp.facility.FacilityType;
+import com.agri.mapapp.stats.StatsExportDao.ExportRow;
+import org.apache.poi.ss.SpreadsheetVersion;
+import org.apache.poi.ss.usermodel.*;
+import org.apache.poi.xssf.streaming.SXSSFRow;
+import org.apache.poi.xssf.streaming.SXSSFSheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Export qatorlarini XLSX’ga oqimli yozadi (SXSSF): har bir varaqda faqat oxirgi {@code windowRows} qator
+ * xotirada, qolganlari siqilgan vaqtinchalik faylga tushadi — xotira qatorlar soniga bog‘liq emas.
+ *  - Har bir facility turi — alohida varaq (Excel chegarasidan oshsa "TYPE (2)", ...);
+ *  - Raqamlar — sonli katakchalar, createdAt — sana katakchasi; sarlavha qatori muzlatilgan;
+ *  - Satrlar inline yoziladi (shared strings jadvali yo‘q — u butun fayl bo‘yicha xotirada o‘sadi).
+ *
+ * Foydalanish: new → add(...) ko‘p marta → finish() → close().
+ */
+public class XlsxExportWriter implements Closeable {
+
+    private static final String[] HEADER = {
+            "orgId", "orgName", "type", "createdAt",
+            "expectedRevenue", "netProfit", "current", "capacity", "productAmount", "areaM2"
+    };
+    private static final int[] WIDTHS = {10, 36, 14, 20, 18, 18, 14, 14, 16, 14}; // belgilar
+    private static final int MAX_DATA_ROWS = SpreadsheetVersion.EXCEL2007.getMaxRows() - 1; // sarlavhadan tashqari
+
+    private final OutputStream out;
+    private final SXSSFWorkbook wb;
+    private final CellStyle headerStyle, dateStyle, numberStyle;
+    private final Map<FacilityType, Part> parts = new HashMap<>();
+    private Part unknown;
+
+    /** Tur bo‘yicha joriy varaq va undagi keyingi qator */
+    private static final class Part {
+        final String baseName;
+        SXSSFSheet sheet;
+        int page = 1;
+        int nextRow;
+
+        Part(String baseName) {
+            this.baseName = baseName;
+        }
+    }
+
+    /** @param windowRows har bir varaqda xotirada turadigan qatorlar soni */
+    public XlsxExportWriter(OutputStream out, int windowRows) {
+        this.out = out;
+        this.wb = new SXSSFWorkbook(null, windowRows, true, false);
+
+        Font bold = wb.createFont();
+        bold.setBold(true);
+        this.headerStyle = wb.createCellStyle();
+        headerStyle.setFont(bold);
+        DataFormat fmt = wb.createDataFormat();
+        this.dateStyle = wb.createCellStyle();
+        dateStyle.setDataFormat(fmt.getFormat("yyyy-mm-dd hh:mm:ss"));
+        this.numberStyle = wb.createCellStyle();
+        numberStyle.setDataFormat(fmt.getFormat("#,##0.00"));
+    }
+
+    public void add(ExportRow r) throws IOException {
+        Part part = partFor(r.type());
+        if (part.sheet == null || part.nextRow > MAX_DATA_ROWS) newSheet(part);
+        SXSSFRow row = part.sheet.createRow(part.nextRow++);
+
+        if (r.orgId() != null) row.createCell(0, CellType.NUMERIC).setCellValue(r.orgId());
+        if (r.orgId() != null && r.orgName() != null) row.createCell(1, CellType.STRING).setCellValue(r.orgName());
+        if (r.type() != null) row.createCell(2, CellType.STRING).setCellValue(r.type().name());
+        if (r.createdAt() != null) {
+            Cell c = row.createCell(3, CellType.NUMERIC);
+            c.setCellValue(r.createdAt());
+            c.setCellStyle(dateStyle);
+        }
+        FacilityMetrics m = r.metrics();
+        number(row, 4, m.expectedRevenue());
+        number(row, 5, m.netProfit());
+        number(row, 6, m.current());
+        number(row, 7, m.capacity());
+        number(row, 8, m.productAmount());
+        number(row, 9, m.areaM2());
+    }
+
+    /** Ish kitobini oqimga yozadi (qatorlar bo‘lmasa — bitta bo‘sh varaq sarlavha bilan) */
+    public void finish() throws IOException {
+        if (wb.getNumberOfSheets() == 0) newSheet(new Part("Export"));
+        wb.write(out);
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            wb.close();
+        } finally {
+            wb.dispose(); // vaqtinchalik varaq fayllari
+        }
+    }
+
+    /* -------------------- Helpers -------------------- */
+
+    private Part partFor(FacilityType type) {
+        if (type == null) {
+            if (unknown == null) unknown = new Part("UNKNOWN");
+            return unknown;
+        }
+        return parts.computeIfAbsent(type, t -> new Part(t.name()));
+    }
+
+    private void newSheet(Part part) {
+        String name = part.sheet == null ? part.baseName : part.baseName + " (" + (++part.page) + ")";
+        SXSSFSheet sheet = wb.createSheet(name);
+        for (int i = 0; i < WIDTHS.length; i++) sheet.setColumnWidth(i, WIDTHS[i] * 256);
+        Row header = sheet.createRow(0);
+        for (int i = 0; i < HEADER.length; i++) {
+            Cell c = header.createCell(i, CellType.STRING);
+            c.setCellValue(HEADER[i]);
+            c.setCellStyle(headerStyle);
+        }
+        sheet.createFreezePane(0, 1);
+        part.sheet = sheet;
+        part.nextRow = 1;
+    }
+
+    private void number(Row row, int col, double v) {
+        Cell c = row.createCell(col, CellType.NUMERIC);
+        c.setCellValue(v);
+        c.setCellStyle(numberStyle);
+    }
+}
@@ -0,0 +1,36 @@
+package com.agri.mapapp.stats.metric;
+
+import com.agri.mapapp.stats.dto.MetricDefReq;
+import com.agri.mapapp.stats.dto.MetricInfo;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/admin/stats/metrics")
+@RequiredArgsConstructor
+@PreAuthorize("hasRole('ADMIN')")
+public class MetricAdminController {
+
+    private final MetricRegistry registry;
+
+    @GetMapping
+    public List<MetricInfo> list() {
+        return registry.list();
+    }
+
+    /** Qo‘shish yoki yangilash: aliases=["milkLitersPerDay","milk_l*1"], types=["COWSHED"] */
+    @PutMapping("/{name}")
+    public MetricInfo save(@PathVariable String name, @RequestBody MetricDefReq req) {
+        return registry.save(name, req);
+    }
+
+    @DeleteMapping("/{name}")
+    public ResponseEntity<Void> delete(@PathVariable String name) {
+        registry.delete(name);
+        return ResponseEntity.noContent().build();
+    }
+}
@@ -0,0 +1,323 @@
+package com.agri.mapapp.stats.metric;
+
+import com.agri.mapapp.facility.FacilityStatus;
+import com.agri.mapapp.facility.FacilityType;
+import com.agri.mapapp.facility.MetricDefinition;
+import com.agri.mapapp.stats.StatsTimeSeriesSource.Granularity;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import javax.sql.DataSource;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.TemporalAdjusters;
+import java.util.*;
+
+/**
+ * Registrdagi metrikalar bo‘yicha umumiy yig‘ish (sum/avg/min/max/count), type/org/status/vaqt bo‘yicha guruhlab.
+ * Barcha ustunlar bitta o‘tishda hisoblanadi:
+ *  - sql: barcha metrikalar pushdown bo‘lsa — bitta GROUP BY (o‘rnatilganlar tiplangan ustundan,
+ *    qolganlari jsonb’dan V3 backfill qoidasi bilan: number yoki son ko‘rinishidagi matn, boshqasi 0);
+ *  - memory: aks holda — kerakli kalitlargina cursor bilan o‘qiladi va kompilyatsiya qilingan extractor’lar qo‘llanadi.
+ * Metrika o‘z turlariga tegishli bo‘lmagan qatorlarni hisoblamaydi (count ham); qator yo‘q guruhda qiymat null.
+ */
+@Repository
+public class MetricAggregateDao {
+
+    public enum Op { SUM, AVG, MIN, MAX, COUNT }
+
+    public enum Dim { TYPE, ORG, STATUS, TIME }
+
+    /** metric == null => facility’lar soni (op = COUNT) */
+    public record Column(String key, Op op, MetricRegistry.Metric metric) {}
+
+    /** orgIds == null => cheklanmagan; types bo‘sh bo‘lmasligi kerak; from == null => vaqt bo‘yicha cheklanmagan */
+    public record Query(Set<Long> orgIds, Collection<FacilityType> types, LocalDateTime from, LocalDateTime to,
+                       List<Column> columns, Set<Dim> dims, Granularity granularity, int maxGroups) {}
+
+    /** Guruhlanmagan o‘lchovlar null; values — columns tartibida */
+    public record Group(FacilityType type, Long orgId, String orgName, FacilityStatus status, LocalDate bucket,
+                        Double[] values) {}
+
+    public record Result(String engine, List<Group> groups) {}
+
+    // V3__facility_metric_columns.sql’dagi facility_metric_num va Java o‘quvchisi bilan bir xil
+    private static final String NUMERIC_TEXT = "'^" + MetricDefinition.NUMERIC_TEXT.pattern() + "$'";
+
+    private static final Comparator<Group> ORDER = Comparator
+            .comparing((Group g) -> g.type() == null ? null : g.type().name(), Comparator.nullsLast(Comparator.naturalOrder()))
+            .thenComparing(Group::orgId, Comparator.nullsLast(Comparator.naturalOrder()))
+            .thenComparing(g -> g.status() == null ? null : g.status().name(), Comparator.nullsLast(Comparator.naturalOrder()))
+            .thenComparing(Group::bucket, Comparator.nullsLast(Comparator.naturalOrder()));
+
+    private final NamedParameterJdbcTemplate jdbc;
+    private final TransactionTemplate readOnlyTx;
+    private final ObjectMapper objectMapper;
+
+    public MetricAggregateDao(DataSource dataSource,
+                              PlatformTransactionManager txManager,
+                              ObjectMapper objectMapper,
+                              @Value("${app.stats.export.fetch-size:1000}") int fetchSize) {
+        JdbcTemplate t = new JdbcTemplate(dataSource);
+        t.setFetchSize(fetchSize); // memory rejimi: cursor (faqat tranzaksiya ichida)
+        this.jdbc = new NamedParameterJdbcTemplate(t);
+        this.readOnlyTx = new TransactionTemplate(txManager);
+        this.readOnlyTx.setReadOnly(true);
+        this.objectMapper = objectMapper;
+    }
+
+    public Result aggregate(Query q) {
+        boolean pushdown = q.columns().stream().allMatch(c -> c.metric() == null || c.metric().pushdown());
+        List<Group> groups = new ArrayList<>(pushdown ? sql(q) : memory(q));
+        if (groups.size() > q.maxGroups()) throw tooManyGroups(q.maxGroups());
+        groups.sort(ORDER);
+        return new Result(pushdown ? "sql" : "memory", groups);
+    }
+
+    /* -------------------- SQL (pushdown) -------------------- */
+
+    private List<Group> sql(Query q) {
+        MapSqlParameterSource p = new MapSqlParameterSource().addValue("limit", q.maxGroups() + 1);
+        List<String> select = new ArrayList<>(), group = new ArrayList<>();
+        if (q.dims().contains(Dim.TYPE)) {
+            select.add("f.type");
+            group.add("f.type");
+        }
+        if (q.dims().contains(Dim.ORG)) {
+            select.add("o.id AS org_id, o.name AS org_name");
+            group.add("o.id, o.name");
+        }
+        if (q.dims().contains(Dim.STATUS)) {
+            select.add("f.status");
+            group.add("f.status");
+        }
+        if (q.dims().contains(Dim.TIME)) {
+            // date_trunc('week') — ISO hafta (dushanba), timeBuckets bilan bir xil
+            select.add("date_trunc('" + q.granularity().name().toLowerCase(Locale.ROOT) + "', f.created_at) AS bucket");
+            group.add("bucket");
+        }
+        for (int i = 0; i < q.columns().size(); i++) {
+            select.add(aggregateSql(q.columns().get(i), i, p) + " AS a" + i);
+        }
+        String sql = """
+                SELECT %s
+                FROM facility f
+                JOIN org_unit o ON o.id = f.org_id
+                WHERE %s
+                %s
+                LIMIT :limit
+                """.formatted(String.join(", ", select), where(q, p),
+                group.isEmpty() ? "" : "GROUP BY " + String.join(", ", group));
+
+        return jdbc.query(sql, p, (rs, n) -> group(rs, q, sqlValues(rs, q.columns().size())));
+    }
+
+    private static String aggregateSql(Column c, int i, MapSqlParameterSource p) {
+        if (c.metric() == null) return "COUNT(*)";
+        MetricDefinition def = c.metric().definition();
+        String cond = def.types() == null ? null : "f.type IN (" + String.join(", ",
+                def.types().stream().sorted().map(t -> "'" + t.name() + "'").toList()) + ")";
+        if (c.op() == Op.COUNT) return cond == null ? "COUNT(*)" : "COUNT(CASE WHEN " + cond + " THEN 1 END)";
+        String v = valueSql(def, i, p);
+        if (cond != null) v = "CASE WHEN " + cond + " THEN " + v + " END";
+        return c.op().name() + "(" + v + ")";
+    }
+
+    /** Tiplangan ustun yoki jsonb alias zanjiri (birinchi null bo‘lmagan kalit g‘olib) */
+    private static String valueSql(MetricDefinition def, int i, MapSqlParameterSource p) {
+        if (def.column() != null) return "f." + def.column();
+        StringBuilder sb = new StringBuilder("CASE");
+        for (int j = 0; j < def.aliases().size(); j++) {
+            MetricDefinition.Alias a = def.aliases().get(j);
+            String param = "m" + i + "k" + j;
+            p.addValue(param, a.key());
+            String v = "(f.attributes -> CAST(:" + param + " AS text))";
+            String num = "CASE jsonb_typeof(" + v + ")"
+                    + " WHEN 'number' THEN (" + v + " #>> '{}')::float8"
+                    + " WHEN 'string' THEN CASE WHEN (" + v + " #>> '{}') ~ " + NUMERIC_TEXT
+                    + " THEN (" + v + " #>> '{}')::float8 ELSE 0 END"
+                    + " ELSE 0 END";
+            sb.append(" WHEN jsonb_typeof(").append(v).append(") <> 'null' THEN ");
+            sb.append(a.factor() == 1.0 ? num : "(" + num + ") * " + a.factor());
+        }
+        return sb.append(" ELSE 0 END").toString();
+    }
+
+    private static Double[] sqlValues(ResultSet rs, int n) throws SQLException {
+        Double[] out = new Double[n];
+        for (int i = 0; i < n; i++) {
+            Object v = rs.getObject("a" + i);
+            out[i] = v == null ? null : ((Number) v).doubleValue();
+        }
+        return out;
+    }
+
+    /* -------------------- Ilova ichida (bitta o‘tish) -------------------- */
+
+    /** Bitta guruhning ustunlar bo‘yicha yig‘uvchilari */
+    private static final class Acc {
+        final long[] n;
+        final double[] sum, min, max;
+
+        Acc(int size) {
+            n = new long[size];
+            sum = new double[size];
+            min = new double[size];
+            max = new double[size];
+            Arrays.fill(min, Double.POSITIVE_INFINITY);
+            Arrays.fill(max, Double.NEGATIVE_INFINITY);
+        }
+
+        Double[] values(List<Column> columns) {
+            Double[] out = new Double[columns.size()];
+            for (int i = 0; i < out.length; i++) {
+                Op op = columns.get(i).op();
+                if (op == Op.COUNT) out[i] = (double) n[i];
+                else if (n[i] == 0) out[i] = null;
+                else out[i] = switch (op) {
+                    case SUM -> sum[i];
+                    case AVG -> sum[i] / n[i];
+                    case MIN -> min[i];
+                    case MAX -> max[i];
+                    case COUNT -> (double) n[i];
+                };
+            }
+            return out;
+        }
+    }
+
+    private record Key(FacilityType type, Long orgId, FacilityStatus status, LocalDate bucket) {}
+
+    private List<Group> memory(Query q) {
+        MapSqlParameterSource p = new MapSqlParameterSource();
+        // Faqat kerakli kalitlar: jsonb_build_object(k, attributes -> k, ...) — butun attributes uzatilmaydi
+        Set<String> keys = new LinkedHashSet<>();
+        for (Column c : q.columns()) {
+            if (c.metric() != null) c.metric().definition().aliases().forEach(a -> keys.add(a.key()));
+        }
+        List<String> pairs = new ArrayList<>();
+        int k = 0;
+        for (String key : keys) {
+            p.addValue("k" + k, key);
+            pairs.add("CAST(:k" + k + " AS text), f.attributes -> CAST(:k" + k + " AS text)");
+            k++;
+        }
+        String attrs = pairs.isEmpty() ? "CAST(NULL AS jsonb)" : "jsonb_build_object(" + String.join(", ", pairs) + ")";
+        String sql = """
+                SELECT f.type, o.id AS org_id, o.name AS org_name, f.status, f.created_at, %s AS attrs
+                FROM facility f
+                JOIN org_unit o ON o.id = f.org_id
+                WHERE %s
+                """.formatted(attrs, where(q, p));
+
+        List<Column> columns = q.columns();
+        int size = columns.size();
+        Map<Key, Acc> acc = new HashMap<>();
+        Map<Long, String> orgNames = new HashMap<>();
+        readOnlyTx.executeWithoutResult(tx -> jdbc.query(sql, p, rs -> {
+            FacilityType type = FacilityType.valueOf(rs.getString("type"));
+            long orgId = rs.getLong("org_id");
+            FacilityStatus status = FacilityStatus.valueOf(rs.getString("status"));
+            LocalDateTime created = rs.getObject("created_at", LocalDateTime.class);
+            Key key = new Key(
+                    q.dims().contains(Dim.TYPE) ? type : null,
+                    q.dims().contains(Dim.ORG) ? orgId : null,
+                    q.dims().contains(Dim.STATUS) ? status : null,
+                    q.dims().contains(Dim.TIME) && created != null ? truncate(created.toLocalDate(), q.granularity()) : null);
+            Acc a = acc.get(key);
+            if (a == null) {
+                if (acc.size() >= q.maxGroups()) throw tooManyGroups(q.maxGroups());
+                acc.put(key, a = new Acc(size));
+                if (key.orgId() != null) orgNames.putIfAbsent(orgId, rs.getString("org_name"));
+            }
+            JsonNode json = parse(rs.getString("attrs"));
+            for (int i = 0; i < size; i++) {
+                MetricRegistry.Metric m = columns.get(i).metric();
+                if (m == null) {
+                    a.n[i]++;
+                    continue;
+                }
+                if (!m.definition().appliesTo(type)) continue;
+                a.n[i]++;
+                if (columns.get(i).op() == Op.COUNT) continue;
+                double v = m.extractor().applyAsDouble(json);
+                a.sum[i] += v;
+                if (v < a.min[i]) a.min[i] = v;
+                if (v > a.max[i]) a.max[i] = v;
+            }
+        }));
+        // Guruhlanmagan so‘rov — SQL kabi doim bitta qator
+        if (q.dims().isEmpty() && acc.isEmpty()) acc.put(new Key(null, null, null, null), new Acc(size));
+
+        List<Group> out = new ArrayList<>(acc.size());
+        acc.forEach((key, a) -> out.add(new Group(key.type(), key.orgId(),
+                key.orgId() == null ? null : orgNames.get(key.orgId()), key.status(), key.bucket(), a.values(columns))));
+        return out;
+    }
+
+    /** date_trunc bilan bir xil bo‘lak boshi */
+    static LocalDate truncate(LocalDate d, Granularity g) {
+        return switch (g) {
+            case DAY -> d;
+            case WEEK -> d.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+            case MONTH -> d.withDayOfMonth(1);
+            case QUARTER -> d.withMonth((d.getMonthValue() - 1) / 3 * 3 + 1).withDayOfMonth(1);
+        };
+    }
+
+    private JsonNode parse(String json) {
+        if (json == null) return null;
+        try {
+            return objectMapper.readTree(json);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Invalid attributes JSON", e);
+        }
+    }
+
+    /* -------------------- Helpers -------------------- */
+
+    private static Group group(ResultSet rs, Query q, Double[] values) throws SQLException {
+        FacilityType type = q.dims().contains(Dim.TYPE) ? FacilityType.valueOf(rs.getString("type")) : null;
+        Long orgId = q.dims().contains(Dim.ORG) ? rs.getLong("org_id") : null;
+        String orgName = q.dims().contains(Dim.ORG) ? rs.getString("org_name") : null;
+        FacilityStatus status = q.dims().contains(Dim.STATUS) ? FacilityStatus.valueOf(rs.getString("status")) : null;
+        LocalDate bucket = null;
+        if (q.dims().contains(Dim.TIME)) {
+            LocalDateTime b = rs.getObject("bucket", LocalDateTime.class);
+            bucket = b != null ? b.toLocalDate() : null;
+        }
+        return new Group(type, orgId, orgName, status, bucket, values);
+    }
+
+    private static String where(Query q, MapSqlParameterSource p) {
+        p.addValue("types", q.types().stream().map(Enum::name).toList());
+        String w = "f.type IN (:types)";
+        if (q.orgIds() != null) {
+            p.addValue("orgIds", q.orgIds());
+            w += " AND f.org_id IN (:orgIds)";
+        }
+        if (q.from() != null) {
+            p.addValue("from", q.from()).addValue("to", q.to());
+            w += " AND f.created_at >= :from AND f.created_at < :to";
+        }
+        return w;
+    }
+
+    private static ResponseStatusException tooManyGroups(int max) {
+        return new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                "Too many groups (> " + max + "); narrow the filters or use a coarser granularity");
+    }
+}
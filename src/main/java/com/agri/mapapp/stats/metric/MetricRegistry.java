@@ -0,0 +1,157 @@
+package com.agri.mapapp.stats.metric;
+
+import com.agri.mapapp.facility.FacilityMetrics;
+import com.agri.mapapp.facility.FacilityType;
+import com.agri.mapapp.facility.MetricDefinition;
+import com.agri.mapapp.stats.dto.MetricDefReq;
+import com.agri.mapapp.stats.dto.MetricInfo;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * Metrika registri: o‘rnatilganlar (FacilityMetrics — tiplangan ustunli) + admin qo‘shganlari (stats_metric).
+ * Har bir ta’rif bir marta kompilyatsiya qilinadi; nusxa butunlay almashtiriladi (o‘qish qulfsiz).
+ * Boshqa instansiyalardagi o‘zgarishlar app.stats.metrics.refresh-ms ichida yetib keladi.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class MetricRegistry {
+
+    /** Kompilyatsiya qilingan metrika */
+    public record Metric(MetricDefinition definition, MetricDefinition.Extractor extractor,
+                         boolean builtin, boolean pushdown) {
+        public String name() {
+            return definition.name();
+        }
+    }
+
+    private final StatsMetricRepository repository;
+
+    private volatile Map<String, Metric> metrics;
+
+    public Metric require(String name) {
+        Metric m = current().get(name);
+        if (m == null) throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Unknown metric: " + name);
+        return m;
+    }
+
+    public List<MetricInfo> list() {
+        return current().values().stream().map(MetricRegistry::info).toList();
+    }
+
+    /** Admin: qo‘shish yoki yangilash (o‘rnatilgan nomlar band) */
+    public MetricInfo save(String name, MetricDefReq req) {
+        if (name == null || !MetricDefinition.KEY.matcher(name).matches())
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid metric name: " + name);
+        if (isBuiltin(name))
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "Built-in metric cannot be redefined: " + name);
+        MetricDefinition def = definition(name, req.getUnit(), aliasesOf(req.getAliases()), req.getTypes());
+
+        LocalDateTime now = LocalDateTime.now();
+        StatsMetric e = repository.findById(name).orElseGet(() -> StatsMetric.builder().name(name).createdAt(now).build());
+        e.setUnit(def.unit());
+        e.setAliases(String.join(",", def.aliases().stream().map(MetricDefinition.Alias::toString).toList()));
+        e.setTypes(def.types() == null ? null : String.join(",", def.types().stream().map(Enum::name).toList()));
+        e.setPushdown(req.getPushdown() == null || req.getPushdown());
+        e.setUpdatedAt(now);
+        repository.save(e);
+        reload();
+        return info(require(name));
+    }
+
+    public void delete(String name) {
+        if (isBuiltin(name))
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "Built-in metric cannot be deleted: " + name);
+        if (!repository.existsById(name))
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Metric not found: " + name);
+        repository.deleteById(name);
+        reload();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(initialDelayString = "${app.stats.metrics.refresh-ms:60000}",
+            fixedDelayString = "${app.stats.metrics.refresh-ms:60000}")
+    public void reload() {
+        Map<String, Metric> next = new LinkedHashMap<>();
+        for (MetricDefinition def : FacilityMetrics.DEFINITIONS) {
+            next.put(def.name(), new Metric(def, def.compile(), true, true));
+        }
+        for (StatsMetric e : repository.findAll(Sort.by("name"))) {
+            if (next.containsKey(e.getName())) continue;
+            try {
+                List<FacilityType> types = e.getTypes() == null ? null
+                        : Arrays.stream(e.getTypes().split(",")).map(String::trim).map(FacilityType::valueOf).toList();
+                MetricDefinition def = definition(e.getName(), e.getUnit(),
+                        aliasesOf(Arrays.asList(e.getAliases().split(","))), types);
+                next.put(def.name(), new Metric(def, def.compile(), false, e.isPushdown()));
+            } catch (RuntimeException ex) {
+                log.warn("Skipping invalid metric definition '{}': {}", e.getName(), ex.getMessage());
+            }
+        }
+        metrics = Collections.unmodifiableMap(next);
+    }
+
+    /* -------------------- Helpers -------------------- */
+
+    private Map<String, Metric> current() {
+        Map<String, Metric> m = metrics;
+        if (m == null) {
+            reload();
+            m = metrics;
+        }
+        return m;
+    }
+
+    private static boolean isBuiltin(String name) {
+        return FacilityMetrics.DEFINITIONS.stream().anyMatch(d -> d.name().equals(name));
+    }
+
+    private static MetricDefinition definition(String name, String unit, List<MetricDefinition.Alias> aliases,
+                                               List<FacilityType> types) {
+        if (aliases.isEmpty())
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Metric needs at least one alias key");
+        if (unit != null && (unit = unit.trim()).length() > 32)
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "unit is too long");
+        return new MetricDefinition(name, unit == null || unit.isEmpty() ? null : unit, aliases,
+                types == null ? null : new HashSet<>(types), null);
+    }
+
+    private static List<MetricDefinition.Alias> aliasesOf(List<String> specs) {
+        if (specs == null) return List.of();
+        List<MetricDefinition.Alias> out = new ArrayList<>(specs.size());
+        for (String s : specs) {
+            if (s == null || s.isBlank()) continue;
+            MetricDefinition.Alias a;
+            try {
+                a = MetricDefinition.Alias.parse(s);
+            } catch (NumberFormatException e) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid alias factor: " + s);
+            }
+            if (!MetricDefinition.KEY.matcher(a.key()).matches())
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid attribute key: " + a.key());
+            if (!Double.isFinite(a.factor()) || a.factor() == 0)
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid alias factor: " + s);
+            out.add(a);
+        }
+        return out;
+    }
+
+    private static MetricInfo info(Metric m) {
+        MetricDefinition d = m.definition();
+        return new MetricInfo(d.name(), d.unit(),
+                d.aliases().stream().map(MetricDefinition.Alias::toString).toList(),
+                d.types() == null ? null : d.types().stream().sorted().toList(),
+                m.builtin(), m.pushdown());
+    }
+}
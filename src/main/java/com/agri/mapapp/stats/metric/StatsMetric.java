@@ -0,0 +1,39 @@
+package com.agri.mapapp.stats.metric;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Admin qo‘shgan metrika ta’rifi (kod o‘zgarishisiz yangi KPI). O‘rnatilganlari (FacilityMetrics) bu jadvalda yo‘q.
+ * aliases: "key" yoki "key*factor", vergul bilan, tartib muhim; types: FacilityType nomlari, null => barchasi.
+ */
+@Entity
+@Table(name = "stats_metric")
+@Getter @Setter @NoArgsConstructor @AllArgsConstructor @Builder
+public class StatsMetric {
+
+    @Id
+    @Column(length = 64)
+    private String name;
+
+    @Column(length = 32)
+    private String unit;
+
+    @Column(nullable = false, length = 1000)
+    private String aliases;
+
+    @Column(length = 512)
+    private String types;
+
+    /** false => faqat ilova ichida (jsonb → son qoidasi Java bilan aynan bir xil bo‘lishi kerak bo‘lsa) */
+    @Column(nullable = false)
+    private boolean pushdown;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+}
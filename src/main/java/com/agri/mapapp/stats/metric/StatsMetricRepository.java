@@ -0,0 +1,6 @@
+package com.agri.mapapp.stats.metric;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface StatsMetricRepository extends JpaRepository<StatsMetric, String> {
+}
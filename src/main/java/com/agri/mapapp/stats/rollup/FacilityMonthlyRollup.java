@@ -0,0 +1,64 @@
+package com.agri.mapapp.stats.rollup;
+
+import com.agri.mapapp.facility.FacilityStatus;
+import com.agri.mapapp.facility.FacilityType;
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.io.Serializable;
+
+/**
+ * (org, type, status, yil, oy) kesimidagi facility yig‘indilari.
+ * Oy — facility.created_at oyi; created_at bo‘lmasa year = month = 0.
+ * Yozuvlar faqat FacilityRollupService orqali (delta upsert / rebuild) o‘zgaradi.
+ */
+@Entity
+@Table(name = "facility_monthly_rollup")
+@Getter @Setter @NoArgsConstructor @AllArgsConstructor @Builder
+public class FacilityMonthlyRollup {
+
+    @EmbeddedId
+    private Key id;
+
+    @Column(name = "facility_count", nullable = false)
+    private long facilityCount;
+
+    @Column(nullable = false)
+    private double expectedRevenue;
+
+    @Column(nullable = false)
+    private double netProfit;
+
+    @Column(nullable = false)
+    private double currentTotal;
+
+    @Column(nullable = false)
+    private double capacityTotal;
+
+    @Column(nullable = false)
+    private double productAmount;
+
+    @Column(name = "area_m2", nullable = false)
+    private double areaM2;
+
+    @Embeddable
+    @Getter @Setter @NoArgsConstructor @AllArgsConstructor @EqualsAndHashCode
+    public static class Key implements Serializable {
+        @Column(name = "org_id", nullable = false)
+        private Long orgId;
+
+        @Enumerated(EnumType.STRING)
+        @Column(nullable = false, length = 32)
+        private FacilityType type;
+
+        @Enumerated(EnumType.STRING)
+        @Column(nullable = false, length = 32)
+        private FacilityStatus status;
+
+        @Column(nullable = false)
+        private int year;
+
+        @Column(nullable = false)
+        private int month;
+    }
+}
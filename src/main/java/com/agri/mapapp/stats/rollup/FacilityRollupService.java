@@ -0,0 +1,217 @@
+package com.agri.mapapp.stats.rollup;
+
+import com.agri.mapapp.facility.FacilityChangedEvent;
+import com.agri.mapapp.facility.FacilityMetrics;
+import com.agri.mapapp.facility.FacilitySnapshot;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.*;
+
+/**
+ * facility_monthly_rollup’ni yuritadi:
+ *  - Facility yozuvlari o‘zgarganda (shu tranzaksiyada) eski/yangi holat farqini qo‘llaydi;
+ *  - to‘liq qayta qurish (rebuild) va xom jadval bilan solishtirish (check).
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class FacilityRollupService {
+
+    private final NamedParameterJdbcTemplate jdbc;
+    private final TransactionTemplate tx;
+
+    @Value("${app.stats.rollup.enabled:true}")
+    private boolean enabled;
+
+    /** O‘qish yo‘li uchun tayyormi (yoqilgan va boshlang‘ich qurilish muvaffaqiyatli) */
+    private volatile boolean ready;
+
+    /** Xom facility jadvalidan rollup kesimidagi yig‘indilar */
+    private static final String LIVE_SQL = """
+            SELECT f.org_id, f.type, f.status,
+                   COALESCE(CAST(EXTRACT(YEAR FROM f.created_at) AS int), 0) AS year,
+                   COALESCE(CAST(EXTRACT(MONTH FROM f.created_at) AS int), 0) AS month,
+                   COUNT(*) AS facility_count,
+                   SUM(f.expected_revenue) AS expected_revenue, SUM(f.net_profit) AS net_profit,
+                   SUM(f.current_amount) AS current_total, SUM(f.capacity) AS capacity_total,
+                   SUM(f.product_amount) AS product_amount, SUM(f.area_m2) AS area_m2
+            FROM facility f
+            WHERE f.org_id IS NOT NULL AND f.type IS NOT NULL AND f.status IS NOT NULL
+            GROUP BY f.org_id, f.type, f.status, year, month
+            """;
+
+    private static final String COLUMNS =
+            "org_id, type, status, year, month, facility_count, expected_revenue, net_profit, " +
+            "current_total, capacity_total, product_amount, area_m2";
+
+    private static final String UPSERT_SQL = """
+            INSERT INTO facility_monthly_rollup (%s)
+            VALUES (:orgId, :type, :status, :year, :month, :cnt, :rev, :prof, :cur, :cap, :prod, :area)
+            ON CONFLICT (org_id, type, status, year, month) DO UPDATE SET
+                facility_count   = facility_monthly_rollup.facility_count   + EXCLUDED.facility_count,
+                expected_revenue = facility_monthly_rollup.expected_revenue + EXCLUDED.expected_revenue,
+                net_profit       = facility_monthly_rollup.net_profit       + EXCLUDED.net_profit,
+                current_total    = facility_monthly_rollup.current_total    + EXCLUDED.current_total,
+                capacity_total   = facility_monthly_rollup.capacity_total   + EXCLUDED.capacity_total,
+                product_amount   = facility_monthly_rollup.product_amount   + EXCLUDED.product_amount,
+                area_m2          = facility_monthly_rollup.area_m2          + EXCLUDED.area_m2
+            """.formatted(COLUMNS);
+
+    private static final String DELETE_EMPTY_SQL = """
+            DELETE FROM facility_monthly_rollup
+            WHERE org_id = :orgId AND type = :type AND status = :status
+              AND year = :year AND month = :month AND facility_count = 0
+            """;
+
+    public boolean isReady() {
+        return enabled && ready;
+    }
+
+    /** Ishga tushganda: rollup bo‘sh, facility esa bo‘sh bo‘lmasa — qayta quramiz */
+    @EventListener(ApplicationReadyEvent.class)
+    public void bootstrap() {
+        if (!enabled) return;
+        try {
+            Long rollupRows = jdbc.getJdbcOperations().queryForObject("SELECT COUNT(*) FROM facility_monthly_rollup", Long.class);
+            Boolean hasFacilities = jdbc.getJdbcOperations().queryForObject("SELECT EXISTS (SELECT 1 FROM facility)", Boolean.class);
+            if ((rollupRows == null || rollupRows == 0) && Boolean.TRUE.equals(hasFacilities)) {
+                int rows = rebuild();
+                log.info("facility_monthly_rollup qayta qurildi: {} qator", rows);
+            }
+            ready = true;
+        } catch (Exception e) {
+            log.warn("facility_monthly_rollup tayyor emas, statistika xom jadvaldan hisoblanadi: {}", e.getMessage());
+        }
+    }
+
+    /** Facility o‘zgarishi — chaqiruvchi tranzaksiyasi ichida delta qo‘llanadi */
+    @EventListener
+    public void onFacilityChanged(FacilityChangedEvent event) {
+        if (!enabled) return;
+        Map<List<Object>, double[]> deltas = new LinkedHashMap<>();
+        for (FacilityChangedEvent.Change c : event.changes()) {
+            if (sameBucket(c.before(), c.after())) continue;
+            accumulate(deltas, c.before(), -1);
+            accumulate(deltas, c.after(), +1);
+        }
+        deltas.values().removeIf(FacilityRollupService::isZero);
+        if (deltas.isEmpty()) return;
+
+        MapSqlParameterSource[] batch = deltas.entrySet().stream()
+                .map(e -> params(e.getKey(), e.getValue()))
+                .toArray(MapSqlParameterSource[]::new);
+        jdbc.batchUpdate(UPSERT_SQL, batch);
+        jdbc.batchUpdate(DELETE_EMPTY_SQL, batch);
+    }
+
+    /**
+     * To‘liq qayta qurish. EXCLUSIVE lock — parallel delta yozuvlari shu tugaguncha kutadi.
+     * TransactionTemplate: bootstrap() ichidan (self-invocation) chaqirilganda ham tranzaksiya bo‘lsin.
+     */
+    public int rebuild() {
+        Integer rows = tx.execute(status -> {
+            var ops = jdbc.getJdbcOperations();
+            ops.execute("LOCK TABLE facility_monthly_rollup IN EXCLUSIVE MODE");
+            ops.update("DELETE FROM facility_monthly_rollup");
+            return ops.update("INSERT INTO facility_monthly_rollup (" + COLUMNS + ") " + LIVE_SQL);
+        });
+        return rows != null ? rows : 0;
+    }
+
+    public record Mismatch(Long orgId, String type, String status, int year, int month,
+                           Long expectedCount, Long rollupCount,
+                           Double expectedRevenue, Double rollupRevenue) {}
+
+    public record ConsistencyReport(boolean consistent, long rollupRows, long mismatchCount, List<Mismatch> mismatches) {}
+
+    /** Rollup’ni xom facility jadvali bilan solishtirish (birinchi 100 ta farq qaytariladi) */
+    @Transactional(readOnly = true)
+    public ConsistencyReport check() {
+        String sql = """
+                WITH live AS (%s)
+                SELECT COALESCE(l.org_id, r.org_id) AS org_id, COALESCE(l.type, r.type) AS type,
+                       COALESCE(l.status, r.status) AS status,
+                       COALESCE(l.year, r.year) AS year, COALESCE(l.month, r.month) AS month,
+                       l.facility_count AS live_count, r.facility_count AS rollup_count,
+                       l.expected_revenue AS live_revenue, r.expected_revenue AS rollup_revenue
+                FROM live l
+                FULL OUTER JOIN facility_monthly_rollup r
+                  ON r.org_id = l.org_id AND r.type = l.type AND r.status = l.status
+                 AND r.year = l.year AND r.month = l.month
+                WHERE l.facility_count IS DISTINCT FROM r.facility_count
+                   OR %s OR %s OR %s OR %s OR %s OR %s
+                """.formatted(LIVE_SQL,
+                differs("expected_revenue"), differs("net_profit"), differs("current_total"),
+                differs("capacity_total"), differs("product_amount"), differs("area_m2"));
+
+        List<Mismatch> all = jdbc.getJdbcOperations().query(sql, (rs, i) -> new Mismatch(
+                rs.getLong("org_id"), rs.getString("type"), rs.getString("status"),
+                rs.getInt("year"), rs.getInt("month"),
+                (Long) rs.getObject("live_count"), (Long) rs.getObject("rollup_count"),
+                (Double) rs.getObject("live_revenue"), (Double) rs.getObject("rollup_revenue")));
+        Long rows = jdbc.getJdbcOperations().queryForObject("SELECT COUNT(*) FROM facility_monthly_rollup", Long.class);
+        return new ConsistencyReport(all.isEmpty(), rows == null ? 0 : rows, all.size(),
+                all.subList(0, Math.min(100, all.size())));
+    }
+
+    /* -------------------- Helpers -------------------- */
+
+    /** Nisbiy xatolik bilan farq (double yig‘indilari tartibga bog‘liq) */
+    private static String differs(String col) {
+        return "abs(COALESCE(l.%1$s, 0) - COALESCE(r.%1$s, 0)) > 1e-6 * greatest(1, abs(COALESCE(l.%1$s, 0)))".formatted(col);
+    }
+
+    private static boolean sameBucket(FacilitySnapshot a, FacilitySnapshot b) {
+        return a != null && b != null && key(a).equals(key(b)) && a.metrics().equals(b.metrics());
+    }
+
+    private static void accumulate(Map<List<Object>, double[]> deltas, FacilitySnapshot s, int sign) {
+        if (s == null || s.orgId() == null || s.type() == null || s.status() == null) return;
+        double[] d = deltas.computeIfAbsent(key(s), k -> new double[7]);
+        FacilityMetrics m = s.metrics();
+        d[0] += sign;
+        d[1] += sign * m.expectedRevenue();
+        d[2] += sign * m.netProfit();
+        d[3] += sign * m.current();
+        d[4] += sign * m.capacity();
+        d[5] += sign * m.productAmount();
+        d[6] += sign * m.areaM2();
+    }
+
+    private static List<Object> key(FacilitySnapshot s) {
+        int year  = s.createdAt() != null ? s.createdAt().getYear() : 0;
+        int month = s.createdAt() != null ? s.createdAt().getMonthValue() : 0;
+        return Arrays.asList(s.orgId(), s.type() != null ? s.type().name() : null,
+                s.status() != null ? s.status().name() : null, year, month);
+    }
+
+    private static boolean isZero(double[] d) {
+        for (double v : d) if (v != 0.0) return false;
+        return true;
+    }
+
+    private static MapSqlParameterSource params(List<Object> key, double[] d) {
+        return new MapSqlParameterSource()
+                .addValue("orgId", key.get(0))
+                .addValue("type", key.get(1))
+                .addValue("status", key.get(2))
+                .addValue("year", key.get(3))
+                .addValue("month", key.get(4))
+                .addValue("cnt", (long) d[0])
+                .addValue("rev", d[1])
+                .addValue("prof", d[2])
+                .addValue("cur", d[3])
+                .addValue("cap", d[4])
+                .addValue("prod", d[5])
+                .addValue("area", d[6]);
+    }
+}
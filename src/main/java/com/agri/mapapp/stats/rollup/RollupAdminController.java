@@ -0,0 +1,30 @@
+package com.agri.mapapp.stats.rollup;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/admin/stats/rollup")
+@RequiredArgsConstructor
+@PreAuthorize("hasRole('ADMIN')")
+public class RollupAdminController {
+
+    private final FacilityRollupService rollupService;
+
+    /** Rollup’ni facility jadvalidan to‘liq qayta qurish */
+    @PostMapping("/rebuild")
+    public ResponseEntity<Map<String, Object>> rebuild() {
+        int rows = rollupService.rebuild();
+        return ResponseEntity.ok(Map.of("rows", rows));
+    }
+
+    /** Rollup ↔ xom jadval muvofiqligini tekshirish */
+    @GetMapping("/check")
+    public ResponseEntity<FacilityRollupService.ConsistencyReport> check() {
+        return ResponseEntity.ok(rollupService.check());
+    }
+}
@@ -0,0 +1,197 @@
+package com.agri.mapapp.stats.rollup;
+
+import com.agri.mapapp.facility.FacilityType;
+import com.agri.mapapp.stats.StatsAggregateDao;
+import com.agri.mapapp.stats.StatsAggregateSource;
+import com.agri.mapapp.stats.StatsTimeSeriesSource;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Overview yig‘indilari facility_monthly_rollup’dan.
+ * Oy granulyar: davrlar [from oyi, to oyi) ko‘rinishida o‘qiladi, shuning uchun
+ * faqat oy boshiga tekislangan davrlar uchun ishlatiladi (qarang: {@link #supports}).
+ * Period’ning yuqori chegarasi ham kiradi (StatsAggregateDao’dagi BETWEEN bilan bir xil):
+ * aynan to’ga teng created_at’li qatorlar xom jadvaldan qo‘shiladi.
+ */
+@Repository
+@RequiredArgsConstructor
+public class RollupAggregateDao implements StatsAggregateSource, StatsTimeSeriesSource {
+
+    private final NamedParameterJdbcTemplate jdbc;
+
+    /** Oy indeksi: year*12 + (month-1); created_at bo‘lmagan (0/0) yozuvlar hech bir oraliqqa tushmaydi */
+    private static final String MONTH_IDX = "(r.year * 12 + r.month - 1)";
+
+    /** Davr chegaralari oy boshiga tushadimi */
+    public static boolean supports(List<Period> periods) {
+        return periods.stream().allMatch(p -> monthStart(p.from()) && monthStart(p.to()));
+    }
+
+    /** Rollup oy granulyar: kun/hafta bo‘laklari faqat xom jadvaldan */
+    public static boolean supports(Granularity granularity) {
+        return granularity == Granularity.MONTH || granularity == Granularity.QUARTER;
+    }
+
+    @Override
+    public List<BaseBucket> baseBuckets(Set<Long> orgIds, Collection<FacilityType> types,
+                                        LocalDateTime monthsFrom, LocalDateTime monthsTo) {
+        MapSqlParameterSource p = new MapSqlParameterSource()
+                .addValue("mFrom", monthIndex(monthsFrom))
+                .addValue("mTo", monthIndex(monthsTo));
+        String inMonths = MONTH_IDX + " >= :mFrom AND " + MONTH_IDX + " < :mTo";
+        String sql = """
+                SELECT r.type, o.id AS org_id, o.name AS org_name,
+                       (r.status = 'ACTIVE') AS active,
+                       CASE WHEN %1$s THEN r.year END AS y,
+                       CASE WHEN %1$s THEN r.month END AS m,
+                       SUM(r.facility_count) AS cnt,
+                       SUM(r.expected_revenue) AS revenue, SUM(r.net_profit) AS profit,
+                       SUM(r.current_total) AS cur, SUM(r.capacity_total) AS cap,
+                       SUM(r.product_amount) AS product, SUM(r.area_m2) AS area_m2
+                FROM facility_monthly_rollup r
+                JOIN org_unit o ON o.id = r.org_id
+                WHERE %2$s
+                GROUP BY r.type, o.id, active, y, m
+                """.formatted(inMonths, where(p, orgIds, types));
+
+        return jdbc.query(sql, p, (rs, i) -> new BaseBucket(
+                FacilityType.valueOf(rs.getString("type")),
+                rs.getLong("org_id"),
+                rs.getString("org_name"),
+                rs.getBoolean("active"),
+                (Integer) rs.getObject("y"),
+                (Integer) rs.getObject("m"),
+                rs.getLong("cnt"),
+                rs.getDouble("revenue"),
+                rs.getDouble("profit"),
+                rs.getDouble("cur"),
+                rs.getDouble("cap"),
+                rs.getDouble("product"),
+                rs.getDouble("area_m2")
+        ));
+    }
+
+    @Override
+    public List<PeriodBucket> periodBuckets(Set<Long> orgIds, Collection<FacilityType> types, List<Period> periods) {
+        if (periods.isEmpty()) return List.of();
+        MapSqlParameterSource p = new MapSqlParameterSource();
+        StringBuilder values = new StringBuilder();
+        for (int i = 0; i < periods.size(); i++) {
+            if (i > 0) values.append(", ");
+            values.append("(").append(i).append(", :pf").append(i).append(", :pt").append(i)
+                    .append(", CAST(:pe").append(i).append(" AS timestamp))");
+            p.addValue("pf" + i, monthIndex(periods.get(i).from()));
+            p.addValue("pt" + i, monthIndex(periods.get(i).to()));
+            p.addValue("pe" + i, periods.get(i).to());
+        }
+        // to oyi rollup’dan olinmaydi; undan faqat created_at = to qatorlari kerak (idx_facility_created_id bo‘yicha nuqtaviy o‘qish)
+        String sql = """
+                SELECT q.idx, q.type, o.id AS org_id, o.name AS org_name,
+                       SUM(q.cnt) AS cnt,
+                       SUM(q.revenue) AS revenue, SUM(q.profit) AS profit,
+                       SUM(q.cur) AS cur, SUM(q.cap) AS cap
+                FROM (
+                    SELECT p.idx, r.type, r.org_id,
+                           SUM(r.facility_count) AS cnt,
+                           SUM(r.expected_revenue) AS revenue, SUM(r.net_profit) AS profit,
+                           SUM(r.current_total) AS cur, SUM(r.capacity_total) AS cap
+                    FROM facility_monthly_rollup r
+                    JOIN (VALUES %1$s) AS p(idx, mfrom, mto, pto) ON %2$s >= p.mfrom AND %2$s < p.mto
+                    WHERE %3$s
+                    GROUP BY p.idx, r.type, r.org_id
+                    UNION ALL
+                    SELECT p.idx, f.type, f.org_id,
+                           COUNT(*) AS cnt,
+                           SUM(f.expected_revenue) AS revenue, SUM(f.net_profit) AS profit,
+                           SUM(f.current_amount) AS cur, SUM(f.capacity) AS cap
+                    FROM facility f
+                    JOIN (VALUES %1$s) AS p(idx, mfrom, mto, pto) ON f.created_at = p.pto
+                    WHERE %4$s
+                    GROUP BY p.idx, f.type, f.org_id
+                ) q
+                JOIN org_unit o ON o.id = q.org_id
+                GROUP BY q.idx, q.type, o.id
+                """.formatted(values, MONTH_IDX, where(p, "r", orgIds, types), where(p, "f", orgIds, types));
+
+        return jdbc.query(sql, p, (rs, i) -> new PeriodBucket(
+                rs.getInt("idx"),
+                FacilityType.valueOf(rs.getString("type")),
+                rs.getLong("org_id"),
+                rs.getString("org_name"),
+                rs.getLong("cnt"),
+                rs.getDouble("revenue"),
+                rs.getDouble("profit"),
+                rs.getDouble("cur"),
+                rs.getDouble("cap")
+        ));
+    }
+
+    @Override
+    public List<TimeBucket> timeBuckets(Set<Long> orgIds, Collection<FacilityType> types,
+                                        LocalDateTime from, LocalDateTime to,
+                                        Granularity granularity, SeriesBy by, List<Integer> yearsBack) {
+        if (!supports(granularity)) {
+            throw new IllegalArgumentException("Rollup does not support granularity " + granularity);
+        }
+        if (yearsBack.isEmpty()) return List.of();
+        MapSqlParameterSource p = new MapSqlParameterSource();
+        StringBuilder values = new StringBuilder();
+        for (int i = 0; i < yearsBack.size(); i++) {
+            int k = yearsBack.get(i);
+            if (i > 0) values.append(", ");
+            values.append("(").append(i).append(", ").append(k)
+                    .append(", ").append(monthIndex(from) - 12 * k)
+                    .append(", ").append(monthIndex(to) - 12 * k).append(")");
+        }
+        // siljitilgan davr oylari asosiy oyna yiliga qaytariladi
+        String bucket = (granularity == Granularity.QUARTER)
+                ? "CAST(make_date(r.year + p.yrs, ((r.month - 1) / 3) * 3 + 1, 1) AS timestamp)"
+                : "CAST(make_date(r.year + p.yrs, r.month, 1) AS timestamp)";
+        String sql = """
+                SELECT p.idx, %1$s AS bucket, %2$s,
+                       SUM(r.facility_count) AS cnt,
+                       SUM(r.expected_revenue) AS revenue, SUM(r.net_profit) AS profit,
+                       SUM(r.current_total) AS cur, SUM(r.capacity_total) AS cap,
+                       SUM(r.product_amount) AS product, SUM(r.area_m2) AS area_m2
+                FROM facility_monthly_rollup r
+                JOIN org_unit o ON o.id = r.org_id
+                JOIN (VALUES %3$s) AS p(idx, yrs, mfrom, mto) ON %4$s >= p.mfrom AND %4$s < p.mto
+                WHERE %5$s
+                GROUP BY %6$s
+                """.formatted(bucket, StatsAggregateDao.seriesColumns(by, "r.type"), values, MONTH_IDX,
+                where(p, orgIds, types), StatsAggregateDao.seriesGroup(by, "p.idx, bucket", "r.type"));
+
+        return jdbc.query(sql, p, (rs, i) -> StatsAggregateDao.timeBucket(rs));
+    }
+
+    private String where(MapSqlParameterSource p, Set<Long> orgIds, Collection<FacilityType> types) {
+        return where(p, "r", orgIds, types);
+    }
+
+    private String where(MapSqlParameterSource p, String alias, Set<Long> orgIds, Collection<FacilityType> types) {
+        p.addValue("types", types.stream().map(Enum::name).toList());
+        String w = alias + ".type IN (:types)";
+        if (orgIds != null) {
+            p.addValue("orgIds", orgIds);
+            w += " AND " + alias + ".org_id IN (:orgIds)";
+        }
+        return w;
+    }
+
+    private static int monthIndex(LocalDateTime t) {
+        return t.getYear() * 12 + t.getMonthValue() - 1;
+    }
+
+    private static boolean monthStart(LocalDateTime t) {
+        return t.getDayOfMonth() == 1 && t.toLocalTime().equals(LocalTime.MIDNIGHT);
+    }
+}
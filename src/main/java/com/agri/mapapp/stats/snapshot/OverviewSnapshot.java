@@ -0,0 +1,48 @@
+package com.agri.mapapp.stats.snapshot;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Scope bo‘yicha oldindan hisoblangan overview (joriy yil, barcha turlar).
+ * scope_key: "all" (ADMIN) yoki "org:&lt;id&gt;" (shu org subtree’si).
+ * Yozuvlar faqat qo‘shiladi — tarix "as of" so‘rovlari uchun saqlanadi.
+ */
+@Entity
+@Table(name = "overview_snapshot", indexes = {
+        @Index(name = "ix_overview_snapshot_scope_year", columnList = "scope_key,year,computed_at")
+})
+@Getter @Setter @NoArgsConstructor @AllArgsConstructor @Builder
+public class OverviewSnapshot {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "scope_key", nullable = false, length = 32)
+    private String scopeKey;
+
+    @Column(nullable = false)
+    private int year;
+
+    @Column(name = "computed_at", nullable = false)
+    private LocalDateTime computedAt;
+
+    /** OrgDataVersions epoch’i (versiyalar manbasi: boshqa epoch’dagi stamp’lar solishtirilmaydi) */
+    @Column(name = "data_epoch", nullable = false, length = 36)
+    private String dataEpoch;
+
+    /** Hisoblashdan oldin olingan scope stamp’i */
+    @Column(name = "data_stamp", nullable = false)
+    private long dataStamp;
+
+    /** Scope’dagi org id’lari xeshi — daraxt o‘zgarsa snapshot mos kelmaydi */
+    @Column(name = "scope_hash", nullable = false)
+    private long scopeHash;
+
+    /** gzip(JSON OverviewRes) */
+    @Column(nullable = false)
+    private byte[] payload;
+}
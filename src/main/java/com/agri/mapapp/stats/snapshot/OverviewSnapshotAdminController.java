@@ -0,0 +1,28 @@
+package com.agri.mapapp.stats.snapshot;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/admin/stats/snapshots")
+@RequiredArgsConstructor
+@PreAuthorize("hasRole('ADMIN')")
+public class OverviewSnapshotAdminController {
+
+    private final OverviewSnapshotService snapshots;
+
+    /** Hit/miss/yozuvlar va har bir scope snapshot’ining holati */
+    @GetMapping
+    public Map<String, Object> status() {
+        return snapshots.stats();
+    }
+
+    /** Jadvalni kutmasdan qayta hisoblash (o‘zgarmagan scope’lar o‘tkazib yuboriladi) */
+    @PostMapping("/refresh")
+    public Map<String, Object> refresh() {
+        return Map.of("written", snapshots.refreshAll());
+    }
+}
@@ -0,0 +1,24 @@
+package com.agri.mapapp.stats.snapshot;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+@Repository
+public interface OverviewSnapshotRepository extends JpaRepository<OverviewSnapshot, Long> {
+
+    /** "as of": berilgan paytdan oldingi eng so‘nggi snapshot */
+    Optional<OverviewSnapshot> findFirstByScopeKeyAndYearAndComputedAtLessThanOrderByComputedAtDesc(
+            String scopeKey, int year, LocalDateTime before);
+
+    @Transactional
+    @Modifying
+    @Query("delete from OverviewSnapshot s where s.computedAt < :cutoff")
+    int deleteOlderThan(@Param("cutoff") LocalDateTime cutoff);
+}
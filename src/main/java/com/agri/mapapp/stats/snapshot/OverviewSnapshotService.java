@@ -0,0 +1,246 @@
+package com.agri.mapapp.stats.snapshot;
+
+import com.agri.mapapp.org.AccessService;
+import com.agri.mapapp.org.OrganizationUnit;
+import com.agri.mapapp.org.OrganizationUnitRepository;
+import com.agri.mapapp.stats.StatsService;
+import com.agri.mapapp.stats.cache.OrgDataVersions;
+import com.agri.mapapp.stats.dto.OverviewRes;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.Year;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Dashboard’ning eng ko‘p ochiladigan ko‘rinishi (joriy yil, barcha turlar) uchun oldindan hisoblangan overview:
+ *  - Jadval bo‘yicha ADMIN scope’i va yuqori darajadagi org subtree’lari hisoblanadi va overview_snapshot’ga yoziladi;
+ *  - So‘rov mos kelsa va stamp hali joriy bo‘lsa — javob to‘g‘ridan-to‘g‘ri snapshot’dan;
+ *  - Saqlangan tarix "as of" (masalan, kechagi) raqamlarni qayta hisoblashsiz beradi.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class OverviewSnapshotService {
+
+    public static final String ALL = "all";
+
+    private final OverviewSnapshotRepository repo;
+    private final StatsService statsService;
+    private final OrgDataVersions versions;
+    private final AccessService accessService;
+    private final OrganizationUnitRepository orgRepo;
+    private final ObjectMapper objectMapper;
+
+    @Value("${app.stats.snapshot.enabled:true}")
+    private boolean enabled;
+    /** 0 => faqat ildiz org’lar, 1 => ildizlar va ularning bevosita bolalari (filiallar) */
+    @Value("${app.stats.snapshot.depth:1}")
+    private int depth;
+    @Value("${app.stats.snapshot.retention-days:90}")
+    private int retentionDays;
+
+    /** scope_key → eng so‘nggi snapshot (dekodlangan) */
+    private final ConcurrentHashMap<String, Current> current = new ConcurrentHashMap<>();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder writes = new LongAdder();
+    private final LongAdder unchanged = new LongAdder();
+
+    private record Current(String key, int year, long stamp, long scopeHash, String epoch,
+                           LocalDateTime computedAt, int payloadBytes, OverviewRes res,
+                           ConcurrentHashMap<Long, OverviewRes> withOrgFilter) {}
+
+    private record Target(String key, Set<Long> scope) {}
+
+    public static String keyFor(Long rootOrgId) {
+        return rootOrgId == null ? ALL : "org:" + rootOrgId;
+    }
+
+    @Scheduled(fixedDelayString = "${app.stats.snapshot.interval-ms:900000}",
+               initialDelayString = "${app.stats.snapshot.initial-delay-ms:30000}")
+    public void scheduledRefresh() {
+        if (!enabled) return;
+        try {
+            int written = refreshAll();
+            log.debug("Overview snapshot’lari yangilandi: {} ta yozildi", written);
+        } catch (Exception e) {
+            log.warn("Overview snapshot’larini yangilab bo‘lmadi: {}", e.getMessage());
+        }
+    }
+
+    /** Barcha scope’larni qayta hisoblash (ma’lumot o‘zgarmaganlari o‘tkazib yuboriladi) */
+    public int refreshAll() {
+        int year = Year.now().getValue();
+        int written = 0;
+        for (Target t : targets()) {
+            if (refresh(t, year)) written++;
+        }
+        repo.deleteOlderThan(LocalDateTime.now().minusDays(retentionDays));
+        return written;
+    }
+
+    /**
+     * So‘rov snapshot’ga mos kelsa (joriy yil, range=year, turlar filtri yo‘q) va stamp joriy bo‘lsa — javob; aks holda null.
+     * Qaytgan obyekt bo‘lishiladi — o‘zgartirmang.
+     */
+    public OverviewRes lookup(String scopeKey, Set<Long> scope, Integer year, List<?> types,
+                              String range, Long orgFilter) {
+        if (!enabled) return null;
+        if ((types != null && !types.isEmpty()) || (range != null && !"year".equalsIgnoreCase(range))) return null;
+        int y = year != null ? year : Year.now().getValue();
+        Current c = current.get(scopeKey);
+        if (c == null || c.year() != y
+                || !c.epoch().equals(versions.epoch())
+                || c.stamp() != versions.stamp(scope)
+                || c.scopeHash() != scopeHash(scope)) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return orgFilter == null ? c.res() : c.withOrgFilter().computeIfAbsent(orgFilter, f -> copyWithOrgFilter(c.res(), f));
+    }
+
+    /**
+     * "As of": berilgan kun oxirigacha hisoblangan eng so‘nggi snapshot (bo‘lmasa null).
+     * Snapshot aynan shu scope uchun hisoblangan bo‘lishi shart (scope_hash) — boshqa ko‘lam ma’lumoti qaytmaydi.
+     */
+    public OverviewRes asOf(String scopeKey, Set<Long> scope, Integer year, LocalDate day, Long orgFilter) {
+        int y = year != null ? year : Year.now().getValue();
+        return repo.findFirstByScopeKeyAndYearAndComputedAtLessThanOrderByComputedAtDesc(
+                        scopeKey, y, day.plusDays(1).atStartOfDay())
+                .filter(s -> s.getScopeHash() == scopeHash(scope))
+                .map(s -> {
+                    OverviewRes res = decode(s.getPayload());
+                    res.setOrgFilter(orgFilter);
+                    return res;
+                })
+                .orElse(null);
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("enabled", enabled);
+        m.put("hits", hits.sum());
+        m.put("misses", misses.sum());
+        m.put("writes", writes.sum());
+        m.put("unchanged", unchanged.sum());
+        List<Map<String, Object>> scopes = new ArrayList<>();
+        for (Current c : new TreeMap<>(current).values()) {
+            Map<String, Object> s = new LinkedHashMap<>();
+            s.put("scopeKey", c.key());
+            s.put("year", c.year());
+            s.put("computedAt", c.computedAt());
+            s.put("payloadBytes", c.payloadBytes());
+            s.put("current", c.epoch().equals(versions.epoch()) && c.stamp() == versions.stamp(scopeOf(c.key())));
+            scopes.add(s);
+        }
+        m.put("scopes", scopes);
+        return m;
+    }
+
+    /* -------------------- Helpers -------------------- */
+
+    private boolean refresh(Target t, int year) {
+        // Stamp hisoblashdan OLDIN: hisoblash paytidagi commit snapshot’ni darhol eskirgan qiladi
+        long stamp = versions.stamp(t.scope());
+        long hash = scopeHash(t.scope());
+        String epoch = versions.epoch();
+        Current prev = current.get(t.key());
+        if (prev != null && prev.year() == year && prev.stamp() == stamp
+                && prev.scopeHash() == hash && prev.epoch().equals(epoch)) {
+            unchanged.increment();
+            return false;
+        }
+        OverviewRes res = statsService.overviewAdvanced(t.scope(), year, null, "year", null, null, null);
+        byte[] payload = encode(res);
+        LocalDateTime now = LocalDateTime.now();
+        repo.save(OverviewSnapshot.builder()
+                .scopeKey(t.key())
+                .year(year)
+                .computedAt(now)
+                .dataEpoch(epoch)
+                .dataStamp(stamp)
+                .scopeHash(hash)
+                .payload(payload)
+                .build());
+        current.put(t.key(), new Current(t.key(), year, stamp, hash, epoch, now, payload.length, res, new ConcurrentHashMap<>()));
+        writes.increment();
+        return true;
+    }
+
+    /** ADMIN (hammasi) + ildiz org’lar va depth darajagacha bolalari subtree’lari */
+    private List<Target> targets() {
+        List<Target> out = new ArrayList<>();
+        out.add(new Target(ALL, null));
+        Map<Long, List<Long>> children = new HashMap<>();
+        List<Long> level = new ArrayList<>();
+        for (OrganizationUnit u : orgRepo.findAll()) {
+            if (u.getParent() == null) level.add(u.getId());
+            else children.computeIfAbsent(u.getParent().getId(), k -> new ArrayList<>()).add(u.getId());
+        }
+        for (int d = 0; d <= depth && !level.isEmpty(); d++) {
+            List<Long> next = new ArrayList<>();
+            for (Long id : level) {
+                out.add(new Target(keyFor(id), accessService.subtreeOf(id)));
+                next.addAll(children.getOrDefault(id, List.of()));
+            }
+            level = next;
+        }
+        return out;
+    }
+
+    private Set<Long> scopeOf(String key) {
+        return ALL.equals(key) ? null : accessService.subtreeOf(Long.valueOf(key.substring("org:".length())));
+    }
+
+    /** Tartibsiz to‘plam uchun barqaror xesh (ADMIN => 0) */
+    private static long scopeHash(Set<Long> scope) {
+        if (scope == null) return 0L;
+        long[] ids = scope.stream().mapToLong(Long::longValue).sorted().toArray();
+        long h = 1125899906842597L;
+        for (long id : ids) h = 31 * h + id;
+        return h;
+    }
+
+    private OverviewRes copyWithOrgFilter(OverviewRes res, Long orgFilter) {
+        OverviewRes copy = objectMapper.convertValue(res, OverviewRes.class);
+        copy.setOrgFilter(orgFilter);
+        return copy;
+    }
+
+    private byte[] encode(OverviewRes res) {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream(4096);
+        try (GZIPOutputStream gz = new GZIPOutputStream(bos)) {
+            objectMapper.writeValue(gz, res);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bos.toByteArray();
+    }
+
+    private OverviewRes decode(byte[] payload) {
+        try (GZIPInputStream gz = new GZIPInputStream(new ByteArrayInputStream(payload))) {
+            OverviewRes res = objectMapper.readValue(gz, OverviewRes.class);
+            if (res.getMode() == null) res.setMode("exact"); // mode maydonidan oldingi snapshotlar
+            return res;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
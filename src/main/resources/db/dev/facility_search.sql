@@ -0,0 +1,6 @@
+-- dev profili (Flyway o'chiq, ddl-auto=create): Hibernate yaratmaydigan qidiruv obyektlari (V9, V11 bilan bir xil)
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+CREATE INDEX IF NOT EXISTS idx_facility_name_norm_trgm ON facility USING gin (name_norm gin_trgm_ops);
+CREATE INDEX IF NOT EXISTS idx_facility_name_words ON facility USING gin (string_to_array(name_norm, ' '));
+CREATE INDEX IF NOT EXISTS idx_facility_name_word_trgm ON facility_name_word USING gin (word gin_trgm_ops);
+CREATE INDEX IF NOT EXISTS idx_facility_name_norm_length ON facility ((length(name_norm)), id);
@@ -0,0 +1,7 @@
+-- Org bo'yicha ma'lumot versiyalari (OrgDataVersions): facility yozgan tranzaksiya ichida +1 qilinadi va ma'lumot bilan
+-- birga commit bo'ladi. Shu sabab boshqa instance'lar, import/bulk yo'llari ham bir xil versiyani ko'radi —
+-- overview keshi, snapshot'lar va ustunli nusxa o'zgarishni qaysi node yozganidan qat'i nazar sezadi.
+CREATE TABLE IF NOT EXISTS org_data_version (
+    org_id  bigint PRIMARY KEY,
+    version bigint NOT NULL
+);
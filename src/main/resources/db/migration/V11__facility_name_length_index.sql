@@ -0,0 +1,3 @@
+-- GET /api/facilities/search probe bosqichi: umumiy so'zlarda jadvalning ixtiyoriy qismi emas, eng qisqa nomli
+-- probe-rows qatori ko'riladi (reytingda teng o'xshashlikda qisqa nom oldin). Indeks shu tartibni saralashsiz beradi.
+CREATE INDEX IF NOT EXISTS idx_facility_name_norm_length ON facility ((length(name_norm)), id);
@@ -0,0 +1,122 @@
+-- Boshlang'ich sxema (V2..dan oldingi holat: jadvallarni avval Hibernate ddl-auto yaratardi).
+-- Bo'sh bazada Flyway Hibernate'dan oldin ishlaydi — keyingi migratsiyalar facility va boshqa jadvallar
+-- mavjud bo'lishiga tayanadi, shuning uchun ular shu yerda yaratiladi.
+-- Mavjud bazada (jadvallar bor, flyway_schema_history yo'q) baseline-on-migrate (versiya 1) bu faylni o'tkazib yuboradi.
+CREATE TABLE IF NOT EXISTS org_unit (
+    id         bigint GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    parent_id  bigint,
+    name       text             NOT NULL,
+    code       varchar(32)      NOT NULL UNIQUE,
+    lat        double precision,
+    lng        double precision,
+    zoom       integer,
+    sort_order integer,
+    CONSTRAINT fk_org_unit_parent FOREIGN KEY (parent_id) REFERENCES org_unit
+);
+
+CREATE TABLE IF NOT EXISTS app_user (
+    id          bigint GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    username    varchar(64)  NOT NULL,
+    password    varchar(255) NOT NULL,
+    role        varchar(32)  NOT NULL CHECK (role IN ('ADMIN', 'USER')),
+    status      varchar(32)  NOT NULL CHECK (status IN ('ACTIVE', 'SUSPENDED', 'TERMINATED')),
+    org_unit_id bigint,
+    full_name   varchar(160),
+    phone       varchar(32),
+    title       varchar(120),
+    position    varchar(120),
+    department  varchar(120),
+    avatar_url  varchar(512),
+    created_at  timestamp(6) with time zone,
+    updated_at  timestamp(6) with time zone,
+    CONSTRAINT ux_user_username UNIQUE (username),
+    CONSTRAINT fk_app_user_org_unit FOREIGN KEY (org_unit_id) REFERENCES org_unit
+);
+CREATE INDEX IF NOT EXISTS ix_user_status ON app_user (status);
+CREATE INDEX IF NOT EXISTS ix_user_role ON app_user (role);
+
+CREATE TABLE IF NOT EXISTS audit_log (
+    id         bigint GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    ts         timestamp(6) with time zone NOT NULL,
+    user_id    bigint,
+    event      varchar(40)  NOT NULL,
+    device_id  varchar(64),
+    ip         varchar(64),
+    user_agent varchar(256),
+    CONSTRAINT fk_audit_log_user FOREIGN KEY (user_id) REFERENCES app_user
+);
+CREATE INDEX IF NOT EXISTS ix_audit_ts ON audit_log (ts);
+CREATE INDEX IF NOT EXISTS ix_audit_user ON audit_log (user_id);
+
+CREATE TABLE IF NOT EXISTS refresh_token (
+    id                     bigint GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    user_id                bigint                      NOT NULL,
+    token                  varchar(64),
+    token_hash             varchar(128),
+    replaced_by_token_hash varchar(128),
+    device_id              varchar(64),
+    ip                     varchar(64),
+    user_agent             varchar(512),
+    revoked                boolean                     NOT NULL,
+    created_at             timestamp(6) with time zone NOT NULL,
+    expires_at             timestamp(6) with time zone NOT NULL,
+    last_seen_at           timestamp(6) with time zone,
+    CONSTRAINT ix_refresh_token_token_hash UNIQUE (token_hash),
+    CONSTRAINT fk_refresh_token_user FOREIGN KEY (user_id) REFERENCES app_user
+);
+CREATE INDEX IF NOT EXISTS ix_refresh_token_user ON refresh_token (user_id);
+CREATE INDEX IF NOT EXISTS ix_refresh_token_user_device ON refresh_token (user_id, device_id);
+
+CREATE TABLE IF NOT EXISTS facility (
+    id         bigint GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    org_id     bigint       NOT NULL,
+    name       text         NOT NULL,
+    type       varchar(255) NOT NULL CHECK (type IN ('GREENHOUSE', 'POULTRY_MEAT', 'POULTRY_EGG', 'TURKEY',
+                                                     'COWSHED', 'SHEEPFOLD', 'WORKSHOP_SAUSAGE', 'WORKSHOP_COOKIE',
+                                                     'AUX_LAND', 'BORDER_LAND', 'FISHPOND')),
+    status     varchar(255) NOT NULL CHECK (status IN ('ACTIVE', 'INACTIVE', 'UNDER_MAINTENANCE')),
+    lat        double precision,
+    lng        double precision,
+    zoom       integer,
+    attributes jsonb,
+    geometry   jsonb,
+    created_at timestamp(6),
+    updated_at timestamp(6),
+    CONSTRAINT fk_facility_org FOREIGN KEY (org_id) REFERENCES org_unit
+);
+CREATE INDEX IF NOT EXISTS idx_facility_org ON facility (org_id);
+CREATE INDEX IF NOT EXISTS idx_facility_type ON facility (type);
+CREATE INDEX IF NOT EXISTS idx_facility_lat_lng ON facility (lat, lng);
+
+CREATE TABLE IF NOT EXISTS facility_image (
+    id                 bigint GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    facility_id        bigint       NOT NULL,
+    filename           varchar(255) NOT NULL,
+    original_name      varchar(255),
+    content_type       varchar(100),
+    size_bytes         bigint,
+    created_by_user_id bigint,
+    created_at         timestamp(6) with time zone,
+    CONSTRAINT fk_facility_image_facility FOREIGN KEY (facility_id) REFERENCES facility
+);
+CREATE INDEX IF NOT EXISTS idx_facility_image_facility ON facility_image (facility_id);
+
+CREATE TABLE IF NOT EXISTS org_image (
+    id                 bigint GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    org_id             bigint       NOT NULL,
+    filename           varchar(255) NOT NULL,
+    original_name      varchar(255),
+    content_type       varchar(100),
+    size_bytes         bigint,
+    created_by_user_id bigint,
+    created_at         timestamp(6) with time zone,
+    CONSTRAINT fk_org_image_org FOREIGN KEY (org_id) REFERENCES org_unit
+);
+CREATE INDEX IF NOT EXISTS idx_org_image_org ON org_image (org_id);
+
+CREATE TABLE IF NOT EXISTS drawing (
+    id         bigint GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    name       varchar(255),
+    geojson    jsonb NOT NULL,
+    created_at timestamp(6)
+);
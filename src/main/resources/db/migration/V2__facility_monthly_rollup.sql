@@ -0,0 +1,17 @@
+-- Stats dashboard uchun oylik rollup (FacilityRollupService yuritadi).
+-- Bo'sh jadval ilova ishga tushganda facility'dan qayta quriladi.
+CREATE TABLE IF NOT EXISTS facility_monthly_rollup (
+    org_id           bigint           NOT NULL,
+    type             varchar(32)      NOT NULL,
+    status           varchar(32)      NOT NULL,
+    year             integer          NOT NULL,
+    month            integer          NOT NULL,
+    facility_count   bigint           NOT NULL,
+    expected_revenue double precision NOT NULL,
+    net_profit       double precision NOT NULL,
+    current_total    double precision NOT NULL,
+    capacity_total   double precision NOT NULL,
+    product_amount   double precision NOT NULL,
+    area_m2          double precision NOT NULL,
+    PRIMARY KEY (org_id, type, status, year, month)
+);
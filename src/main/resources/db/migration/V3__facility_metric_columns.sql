@@ -0,0 +1,58 @@
+-- attributes (jsonb) ichidagi statistik ko'rsatkichlar — tiplangan ustunlar.
+-- Ilova ularni yozishda to'ldiradi (Facility.prePersist/preUpdate, FacilityMetrics qoidalari);
+-- bu yerda faqat mavjud qatorlar bir marta to'ldiriladi (backfill).
+ALTER TABLE IF EXISTS facility
+    ADD COLUMN IF NOT EXISTS expected_revenue double precision NOT NULL DEFAULT 0,
+    ADD COLUMN IF NOT EXISTS net_profit       double precision NOT NULL DEFAULT 0,
+    ADD COLUMN IF NOT EXISTS current_amount   double precision NOT NULL DEFAULT 0,
+    ADD COLUMN IF NOT EXISTS capacity         double precision NOT NULL DEFAULT 0,
+    ADD COLUMN IF NOT EXISTS product_amount   double precision NOT NULL DEFAULT 0,
+    ADD COLUMN IF NOT EXISTS area_m2          double precision NOT NULL DEFAULT 0;
+
+-- jsonb qiymat -> son: number => o'zi, son ko'rinishidagi matn => parse, boshqasi => 0
+CREATE OR REPLACE FUNCTION pg_temp.facility_metric_num(v jsonb) RETURNS double precision
+    LANGUAGE sql IMMUTABLE AS $$
+SELECT CASE jsonb_typeof(v)
+           WHEN 'number' THEN (v #>> '{}')::double precision
+           WHEN 'string' THEN CASE
+               WHEN (v #>> '{}') ~ '^\s*[-+]?([0-9]+\.?[0-9]*|\.[0-9]+)([eE][-+]?[0-9]+)?\s*$'
+                   THEN (v #>> '{}')::double precision
+               ELSE 0 END
+           ELSE 0 END
+$$;
+
+DO $$
+BEGIN
+    IF to_regclass('facility') IS NOT NULL THEN
+        -- Alias: birinchi mavjud (null bo'lmagan) kalit g'olib
+        UPDATE facility f SET
+            expected_revenue = COALESCE(pg_temp.facility_metric_num(COALESCE(
+                    NULLIF(f.attributes -> 'expectedRevenue', 'null'::jsonb),
+                    NULLIF(f.attributes -> 'revenue', 'null'::jsonb))), 0),
+            net_profit = COALESCE(pg_temp.facility_metric_num(COALESCE(
+                    NULLIF(f.attributes -> 'netProfit', 'null'::jsonb),
+                    NULLIF(f.attributes -> 'profit', 'null'::jsonb))), 0),
+            current_amount = COALESCE(pg_temp.facility_metric_num(
+                    NULLIF(f.attributes -> 'current', 'null'::jsonb)), 0),
+            capacity = COALESCE(pg_temp.facility_metric_num(
+                    NULLIF(f.attributes -> 'capacity', 'null'::jsonb)), 0),
+            product_amount = COALESCE(pg_temp.facility_metric_num(COALESCE(
+                    NULLIF(f.attributes -> 'productAmount', 'null'::jsonb),
+                    NULLIF(f.attributes -> 'product_kg', 'null'::jsonb),
+                    NULLIF(f.attributes -> 'yieldAmount', 'null'::jsonb),
+                    NULLIF(f.attributes -> 'yield_amount', 'null'::jsonb),
+                    NULLIF(f.attributes -> 'eggs_per_day', 'null'::jsonb))), 0),
+            area_m2 = CASE
+                WHEN COALESCE(NULLIF(f.attributes -> 'areaM2', 'null'::jsonb),
+                              NULLIF(f.attributes -> 'area_m2', 'null'::jsonb)) IS NOT NULL
+                    THEN pg_temp.facility_metric_num(COALESCE(
+                            NULLIF(f.attributes -> 'areaM2', 'null'::jsonb),
+                            NULLIF(f.attributes -> 'area_m2', 'null'::jsonb)))
+                WHEN NULLIF(f.attributes -> 'totalAreaHa', 'null'::jsonb) IS NOT NULL
+                    THEN pg_temp.facility_metric_num(f.attributes -> 'totalAreaHa') * 10000.0
+                ELSE 0 END;
+
+        CREATE INDEX IF NOT EXISTS idx_facility_expected_revenue ON facility (expected_revenue);
+        CREATE INDEX IF NOT EXISTS idx_facility_net_profit ON facility (net_profit);
+    END IF;
+END $$;
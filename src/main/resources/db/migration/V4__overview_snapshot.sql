@@ -0,0 +1,15 @@
+-- Oldindan hisoblangan overview javoblari (OverviewSnapshotService yozadi).
+-- payload — gzip(JSON OverviewRes); data_epoch/data_stamp — hisoblash paytidagi OrgDataVersions holati.
+CREATE TABLE IF NOT EXISTS overview_snapshot (
+    id          bigserial    PRIMARY KEY,
+    scope_key   varchar(32)  NOT NULL,
+    year        integer      NOT NULL,
+    computed_at timestamp    NOT NULL,
+    data_epoch  varchar(36)  NOT NULL,
+    data_stamp  bigint       NOT NULL,
+    scope_hash  bigint       NOT NULL,
+    payload     bytea        NOT NULL
+);
+
+CREATE INDEX IF NOT EXISTS ix_overview_snapshot_scope_year
+    ON overview_snapshot (scope_key, year, computed_at);
@@ -0,0 +1,29 @@
+-- Asinxron export vazifalari (ExportJobService). Artefaktlar: app.stats.export.jobs.dir/<id>.<ext>
+-- scope_org_ids — topshirish paytidagi ko'lam (vergul bilan; NULL => ADMIN, hammasi).
+CREATE TABLE IF NOT EXISTS export_job (
+    id            varchar(36)   PRIMARY KEY,
+    user_id       bigint        NOT NULL,
+    status        varchar(16)   NOT NULL,
+    format        varchar(16)   NOT NULL,
+    scope_org_ids text,
+    year          integer,
+    range_kind    varchar(16),
+    quarter       integer,
+    date_from     date,
+    date_to       date,
+    types         varchar(512),
+    org_filter    bigint,
+    total_rows    bigint,
+    rows_written  bigint        NOT NULL DEFAULT 0,
+    file_name     varchar(255),
+    file_size     bigint,
+    error         varchar(1000),
+    created_at    timestamp     NOT NULL,
+    started_at    timestamp,
+    heartbeat_at  timestamp,
+    finished_at   timestamp,
+    expires_at    timestamp
+);
+
+CREATE INDEX IF NOT EXISTS ix_export_job_status ON export_job (status, created_at);
+CREATE INDEX IF NOT EXISTS ix_export_job_user ON export_job (user_id, created_at);
@@ -0,0 +1,11 @@
+-- Admin qo'shgan metrika ta'riflari (MetricRegistry). O'rnatilgan metrikalar kodda (FacilityMetrics).
+-- aliases: "key" yoki "key*factor" vergul bilan (birinchi mavjud kalit g'olib); types: NULL => barcha turlar.
+CREATE TABLE IF NOT EXISTS stats_metric (
+    name        varchar(64)   PRIMARY KEY,
+    unit        varchar(32),
+    aliases     varchar(1000) NOT NULL,
+    types       varchar(512),
+    pushdown    boolean       NOT NULL DEFAULT true,
+    created_at  timestamp     NOT NULL,
+    updated_at  timestamp     NOT NULL
+);
@@ -0,0 +1,14 @@
+-- Keyset (cursor) paginatsiya: ORDER BY kalit, id LIMIT n — har bir saralash kaliti uchun (kalit, id) indeksi.
+-- org_id bilan boshlanuvchisi — bitta bo'linma obyektlari ro'yxati uchun.
+-- created_at kursor kaliti — NULL bo'lmasligi kerak (ilova doim to'ldiradi; eski qatorlar updated_at/now bilan).
+DO $$
+BEGIN
+    IF to_regclass('facility') IS NOT NULL THEN
+        UPDATE facility SET created_at = COALESCE(updated_at, now()) WHERE created_at IS NULL;
+        ALTER TABLE facility ALTER COLUMN created_at SET NOT NULL;
+
+        CREATE INDEX IF NOT EXISTS idx_facility_created_id ON facility (created_at, id);
+        CREATE INDEX IF NOT EXISTS idx_facility_org_created_id ON facility (org_id, created_at, id);
+        CREATE INDEX IF NOT EXISTS idx_facility_name_id ON facility (name, id);
+    END IF;
+END $$;
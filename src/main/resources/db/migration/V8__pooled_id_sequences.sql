@@ -0,0 +1,23 @@
+-- IDENTITY o'rniga sequence + pooled-lo (Hibernate JDBC insert batching uchun).
+-- INCREMENT BY = app.jpa.id-allocation-size (Hibernate bir nextval bilan shuncha id oladi).
+-- Mavjud jadvallarda: sequence max(id) dan keyin boshlanadi, IDENTITY/serial default olib tashlanadi —
+-- id'ni faqat ilova beradi (pooled-lo oralig'i bilan to'qnashadigan boshqa manba qolmasin).
+DO $$
+DECLARE
+    t       text;
+    seq     text;
+    next_id bigint;
+BEGIN
+    FOREACH t IN ARRAY ARRAY['facility', 'audit_log', 'refresh_token', 'facility_image', 'org_image', 'drawing', 'org_unit']
+    LOOP
+        seq := t || '_seq';
+        EXECUTE format('CREATE SEQUENCE IF NOT EXISTS %I START WITH 1 INCREMENT BY %s', seq, ${id_allocation_size});
+        EXECUTE format('ALTER SEQUENCE %I INCREMENT BY %s', seq, ${id_allocation_size});
+        IF to_regclass(t) IS NOT NULL THEN
+            EXECUTE format('ALTER TABLE %I ALTER COLUMN id DROP IDENTITY IF EXISTS', t);
+            EXECUTE format('ALTER TABLE %I ALTER COLUMN id DROP DEFAULT', t);
+            EXECUTE format('SELECT COALESCE(max(id), 0) + 1 FROM %I', t) INTO next_id;
+            PERFORM setval(seq, next_id, false);
+        END IF;
+    END LOOP;
+END $$;
@@ -0,0 +1,53 @@
+-- Facility nomi bo'yicha qidiruv: normallashtirilgan nom (name_norm) + trigram GIN indeksi.
+-- Ro'yxat filtri (LIKE '%q%') shu indeksdan foydalanadi.
+-- GET /api/facilities/search: facility_name_word — nomlardagi so'zlar lug'ati (trigram indeksli kichik jadval);
+-- so'rov so'zi shu yerda kengaytiriladi (qism-satr va o'xshash so'zlar), keyin facility'da so'zlar massivi
+-- GIN indeksi (&&) bilan qidiriladi — 1M qatorda ham indeks ishi topilgan qatorlar soniga proporsional.
+-- facility_count — so'z nechta obyekt nomida (taxminiy, ilova davriy qayta sanaydi): qidiruv rejasini tanlash uchun.
+-- Ilova name_norm'ni yozishda to'ldiradi (SearchNormalizer); bu yerda mavjud qatorlar bir marta to'ldiriladi (backfill).
+-- pg_trgm kengaytmasi uchun migratsiya foydalanuvchisida CREATE huquqi kerak.
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+
+-- SearchNormalizer.normalize bilan bir xil: kichik harf, apostroflar olib tashlanadi, kirill -> lotin,
+-- qolgan belgilar (a-z, 0-9 dan boshqasi) bitta bo'shliqqa
+CREATE OR REPLACE FUNCTION pg_temp.search_norm(s text) RETURNS text
+    LANGUAGE sql IMMUTABLE AS $$
+SELECT btrim(regexp_replace(
+           translate(
+               replace(replace(replace(replace(replace(replace(replace(
+                   translate(
+                       translate(lower(s), 'АБВГДЕЁЖЗИЙКЛМНОПРСТУФХЦЧШЩЪЫЬЭЮЯЎҚҒҲ', 'абвгдеёжзийклмнопрстуфхцчшщъыьэюяўқғҳ'),
+                       '''`´‘’ʻʼ', ''),
+                   'ё', 'yo'), 'ц', 'ts'), 'ч', 'ch'), 'ш', 'sh'), 'щ', 'sh'), 'ю', 'yu'), 'я', 'ya'),
+               'абвгдежзийклмнопрстуфхыэўқғҳъь', 'abvgdejziyklmnoprstufxieoqgh'),
+           '[^a-z0-9]+', ' ', 'g'))
+$$;
+
+CREATE TABLE IF NOT EXISTS facility_name_word (
+    word           text PRIMARY KEY,
+    facility_count bigint NOT NULL DEFAULT 0
+);
+CREATE INDEX IF NOT EXISTS idx_facility_name_word_trgm ON facility_name_word USING gin (word gin_trgm_ops);
+
+-- facility V1'da yaratiladi; u yo'q bo'lsa indekslarsiz jimgina o'tib ketmaymiz — migratsiya to'xtaydi
+DO $$
+BEGIN
+    IF to_regclass('facility') IS NULL THEN
+        RAISE EXCEPTION 'facility table is missing: name_norm and search indexes cannot be created';
+    END IF;
+
+    ALTER TABLE facility ADD COLUMN IF NOT EXISTS name_norm text;
+    UPDATE facility SET name_norm = pg_temp.search_norm(name)
+    WHERE name_norm IS DISTINCT FROM pg_temp.search_norm(name);
+    ALTER TABLE facility ALTER COLUMN name_norm SET NOT NULL;
+
+    CREATE INDEX IF NOT EXISTS idx_facility_name_norm_trgm ON facility USING gin (name_norm gin_trgm_ops);
+    CREATE INDEX IF NOT EXISTS idx_facility_name_words ON facility USING gin (string_to_array(name_norm, ' '));
+
+    -- FacilityNameWords.recount bilan bir xil: kamida 3 belgili barcha so'zlar va ular uchraydigan obyektlar soni
+    INSERT INTO facility_name_word (word, facility_count)
+    SELECT w, count(*) FROM facility f, unnest(string_to_array(f.name_norm, ' ')) AS w
+    WHERE length(w) >= 3
+    GROUP BY w
+    ON CONFLICT (word) DO UPDATE SET facility_count = EXCLUDED.facility_count;
+END $$;
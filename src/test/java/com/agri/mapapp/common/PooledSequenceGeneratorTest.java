@@ -0,0 +1,110 @@
+package com.agri.mapapp.common;
+
+import com.agri.mapapp.facility.FacilityService;
+import com.agri.mapapp.facility.FacilityStatus;
+import com.agri.mapapp.facility.FacilityType;
+import com.agri.mapapp.facility.dto.FacilityCreateReq;
+import com.agri.mapapp.facility.importer.FacilityImportDao;
+import com.agri.mapapp.support.FacilityFixtures;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+
+import java.time.LocalDateTime;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * pooled-lo id oraliqlari: V8’dagi INCREMENT BY ↔ app.jpa.id-allocation-size ↔ Hibernate sozlamasi,
+ * va JPA (Hibernate optimizer) bilan COPY import (FacilityImportDao.nextIds) bir sequence’dan to‘qnashmasdan id oladi.
+ */
+@SpringBootTest
+@Import(FacilityFixtures.class)
+class PooledSequenceGeneratorTest {
+
+    private static final List<String> SEQUENCES = List.of(
+            "facility_seq", "audit_log_seq", "refresh_token_seq", "facility_image_seq",
+            "org_image_seq", "drawing_seq", "org_unit_seq");
+
+    @Value("${app.jpa.id-allocation-size}") int allocationSize;
+
+    @Autowired EntityManagerFactory emf;
+    @Autowired FacilityService facilities;
+    @Autowired FacilityFixtures fixtures;
+    @Autowired NamedParameterJdbcTemplate jdbc;
+
+    @AfterEach
+    void cleanup() {
+        fixtures.cleanup();
+    }
+
+    @Test
+    void sequenceIncrementMatchesAllocationSize() {
+        assertTrue(allocationSize > 1, "pooled-lo needs allocationSize > 1");
+        assertEquals(String.valueOf(allocationSize),
+                String.valueOf(emf.getProperties().get(PooledSequenceGenerator.ALLOCATION_SIZE)));
+
+        Map<String, Long> increments = new HashMap<>();
+        jdbc.query("SELECT sequencename, increment_by FROM pg_sequences WHERE sequencename IN (:seqs)",
+                new MapSqlParameterSource("seqs", SEQUENCES),
+                rs -> { increments.put(rs.getString(1), rs.getLong(2)); });
+        for (String seq : SEQUENCES) {
+            assertEquals(Long.valueOf(allocationSize), increments.get(seq), seq);
+        }
+    }
+
+    @Test
+    void jpaAndImportRangesDoNotOverlap() {
+        Long org = fixtures.orgTree(0).get(0);
+        List<Long> jpa = new ArrayList<>();
+        for (int i = 0; i < 3; i++) jpa.add(createViaJpa(org, "JPA before " + i));
+
+        // bir necha blok: nextIds ceil(n / allocationSize) ta nextval oladi
+        int n = allocationSize * 2 + 7;
+        List<FacilityImportDao.Row> rows = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            rows.add(fixtures.row(org, "Imported " + i, FacilityType.COWSHED, FacilityStatus.ACTIVE,
+                    LocalDateTime.of(2025, 5, 1, 8, 0), null));
+        }
+        List<Long> imported = fixtures.insert(rows);
+
+        for (int i = 0; i < 3; i++) jpa.add(createViaJpa(org, "JPA after " + i));
+
+        Set<Long> all = new HashSet<>(jpa);
+        all.addAll(imported);
+        assertEquals(jpa.size() + imported.size(), all.size(), "duplicate ids");
+
+        // import id’lari: har blok [v, v + allocationSize) ichida, bloklar soni ceil(n / allocationSize)
+        List<Long> starts = new ArrayList<>();
+        for (int i = 0; i < imported.size(); i += allocationSize) {
+            long v = imported.get(i);
+            starts.add(v);
+            for (int k = i; k < Math.min(i + allocationSize, imported.size()); k++) {
+                assertEquals(v + (k - i), imported.get(k), "id " + k + " outside its block");
+            }
+        }
+        assertEquals((n + allocationSize - 1) / allocationSize, starts.size());
+
+        // JPA id’lari import bloklariga (shu jumladan oxirgi blokning ishlatilmagan qismiga) tushmaydi
+        for (Long id : jpa) {
+            for (long v : starts) {
+                assertFalse(id >= v && id < v + allocationSize, "JPA id " + id + " inside import block " + v);
+            }
+        }
+        Long max = jdbc.queryForObject("SELECT last_value FROM facility_seq", new MapSqlParameterSource(), Long.class);
+        assertNotNull(max);
+        assertTrue(starts.stream().allMatch(v -> v <= max));
+    }
+
+    private Long createViaJpa(Long orgId, String name) {
+        return facilities.create(new FacilityCreateReq(orgId, name, FacilityType.SHEEPFOLD, FacilityStatus.ACTIVE,
+                41.3, 69.2, 12, null, null)).getId();
+    }
+}
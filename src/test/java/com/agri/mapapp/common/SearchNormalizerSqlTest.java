@@ -0,0 +1,64 @@
+package com.agri.mapapp.common;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * V9’dagi backfill funksiyasi (pg_temp.search_norm) SearchNormalizer bilan bir xil natija beradi:
+ * migratsiyada to‘ldirilgan name_norm ilova yozganidan farq qilmasin.
+ */
+@SpringBootTest
+class SearchNormalizerSqlTest {
+
+    private static final Pattern FUNCTION = Pattern.compile(
+            "CREATE OR REPLACE FUNCTION pg_temp\\.search_norm.*?\\$\\$.*?\\$\\$;", Pattern.DOTALL);
+
+    @Autowired JdbcTemplate jdbc;
+
+    @Test
+    void migrationFunctionMatchesJava() throws Exception {
+        String v9 = new ClassPathResource("db/migration/V9__facility_name_trgm_search.sql")
+                .getContentAsString(StandardCharsets.UTF_8);
+        Matcher m = FUNCTION.matcher(v9);
+        assertTrue(m.find(), "search_norm function not found in V9");
+        String function = m.group();
+
+        // pg_temp — sessiyaga xos: funksiya va chaqiruvlar bitta ulanishda
+        Map<String, String> sql = jdbc.execute((ConnectionCallback<Map<String, String>>) c -> {
+            try (Statement st = c.createStatement()) {
+                st.execute(function);
+            }
+            Map<String, String> out = new LinkedHashMap<>();
+            try (PreparedStatement ps = c.prepareStatement("SELECT pg_temp.search_norm(?)")) {
+                for (String in : SearchNormalizerTest.CASES.keySet()) {
+                    ps.setString(1, in);
+                    try (ResultSet rs = ps.executeQuery()) {
+                        rs.next();
+                        out.put(in, rs.getString(1));
+                    }
+                }
+            }
+            return out;
+        });
+        assertNotNull(sql);
+        SearchNormalizerTest.CASES.forEach((in, expected) -> {
+            assertEquals(expected, sql.get(in), "V9: " + in);
+            assertEquals(SearchNormalizer.normalize(in), sql.get(in), "Java vs V9: " + in);
+        });
+    }
+}
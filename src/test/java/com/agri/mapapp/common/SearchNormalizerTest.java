@@ -0,0 +1,53 @@
+package com.agri.mapapp.common;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/** SearchNormalizer qoidalari: apostroflar, kirill → lotin (katta/kichik harf), tinish belgilari */
+class SearchNormalizerTest {
+
+    /** Kirish → kutilgan natija; SearchNormalizerSqlTest V9 funksiyasini ham shu jadval bilan tekshiradi */
+    static final Map<String, String> CASES = new LinkedHashMap<>();
+    static {
+        // o‘zbek apostrof variantlari
+        CASES.put("O‘zbekiston", "ozbekiston");
+        CASES.put("O'zbekiston", "ozbekiston");
+        CASES.put("Oʻzbekiston", "ozbekiston");
+        CASES.put("O’zbekiston", "ozbekiston");
+        CASES.put("O`zbekiston", "ozbekiston");
+        CASES.put("G‘ALLA SO´Z Oʼq", "galla soz oq");
+        // kirill: kichik va katta harflar
+        CASES.put("Ўзбекистон", "ozbekiston");
+        CASES.put("ЎЗБЕКИСТОН", "ozbekiston");
+        CASES.put("Қўйхона", "qoyxona");
+        CASES.put("ҚЎЙХОНА", "qoyxona");
+        CASES.put("ғалла ҒАЛЛА", "galla galla");
+        CASES.put("ҳовуз ҲОВУЗ", "hovuz hovuz");
+        CASES.put("Шаҳар чорвачилик", "shahar chorvachilik");
+        CASES.put("ШАҲАР ЧОРВАЧИЛИК", "shahar chorvachilik");
+        CASES.put("Ёнғоқ ёнғоқ", "yongoq yongoq");
+        CASES.put("Подъезд ПОДЪЕЗД", "podezd podezd");
+        CASES.put("Мўльжал МЎЛЬЖАЛ", "moljal moljal");
+        CASES.put("Цех Щит Юлдуз Янги", "tsex shit yulduz yangi");
+        // tinish belgilari va bo‘shliqlar bitta bo‘shliqqa, chetlari kesiladi
+        CASES.put("  Issiqxona №5 -- (yangi)!! ", "issiqxona 5 yangi");
+        CASES.put("A/B\tC\nD\r\nE", "a b c d e");
+        CASES.put("Ферма-2024, «Баракат»", "ferma 2024 barakat");
+        CASES.put("...", "");
+        CASES.put("", "");
+    }
+
+    @Test
+    void normalizesAllCases() {
+        CASES.forEach((in, expected) -> assertEquals(expected, SearchNormalizer.normalize(in), in));
+    }
+
+    @Test
+    void nullIsEmpty() {
+        assertEquals("", SearchNormalizer.normalize(null));
+    }
+}
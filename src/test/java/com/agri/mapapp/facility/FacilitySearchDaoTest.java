@@ -0,0 +1,113 @@
+package com.agri.mapapp.facility;
+
+import com.agri.mapapp.facility.dto.FacilitySummaryRes;
+import com.agri.mapapp.facility.importer.FacilityImportDao;
+import com.agri.mapapp.support.FacilityFixtures;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Nom qidiruvi reytingi: nomzodlar chegarasi (candidates) va probe bosqichi mos qatorlarning ixtiyoriy qismini emas,
+ * eng yaxshilarini reytingga olib kelishi; xatoga chidamli bosqich; V9/V11 indekslari mavjudligi.
+ */
+@SpringBootTest
+@Import(FacilityFixtures.class)
+class FacilitySearchDaoTest {
+
+    /** Zaif mos qatorlar (so‘z boshqa so‘zning qismi) — candidates’dan ancha ko‘p va eng yaxshisidan oldin yozilgan */
+    private static final int WEAK = 150;
+
+    @Autowired FacilitySearchDao searchDao;
+    @Autowired FacilityService facilities;
+    @Autowired FacilityFixtures fixtures;
+    @Autowired NamedParameterJdbcTemplate jdbc;
+
+    private Long org;
+    private Long best;
+
+    @BeforeEach
+    void setUp() {
+        org = fixtures.orgTree(0).get(0);
+        List<FacilityImportDao.Row> rows = new ArrayList<>(WEAK);
+        for (int i = 0; i < WEAK; i++) {
+            rows.add(row("Qovunchilik fermasi " + i));
+        }
+        fixtures.insert(rows);
+        best = fixtures.insert(row("Qovun"));
+    }
+
+    @AfterEach
+    void cleanup() {
+        fixtures.cleanup();
+    }
+
+    @Test
+    void searchIndexesExist() {
+        List<String> names = jdbc.queryForList("""
+                SELECT indexname FROM pg_indexes
+                WHERE tablename = 'facility'
+                  AND indexname IN ('idx_facility_name_norm_trgm', 'idx_facility_name_words', 'idx_facility_name_norm_length')
+                """, new MapSqlParameterSource(), String.class);
+        assertEquals(3, names.size(), names.toString());
+    }
+
+    @Test
+    void candidatesCapKeepsBestMatch() {
+        // rareRows katta => INDEX rejasi; 151 mos qatordan faqat 20 tasi reytinglanadi
+        List<FacilitySummaryRes> res = search("qovun", Long.MAX_VALUE, 20000, 20, 3);
+        assertEquals(3, res.size());
+        assertEquals(best, res.get(0).getId());
+        assertEquals(1.0, res.get(0).getScore(), 1e-9);
+        assertTrue(res.get(1).getScore() < 1.0);
+    }
+
+    @Test
+    void probeReadsShortestNames() {
+        // rareRows < 0 => PROBE; probe faqat "qovun" uzunligigacha bo‘lgan nomlarni qamraydi
+        Integer shortNames = jdbc.queryForObject(
+                "SELECT COUNT(*) FROM facility WHERE length(name_norm) <= :len",
+                new MapSqlParameterSource("len", "qovun".length()), Integer.class);
+        assertNotNull(shortNames);
+        List<FacilitySummaryRes> res = search("qovun", -1, shortNames, 20, 1);
+        assertEquals(List.of(best), res.stream().map(FacilitySummaryRes::getId).toList());
+    }
+
+    @Test
+    void fuzzyTierFindsMisspelledWord() {
+        Long issiqxona = fixtures.insert(row("Issiqxona Bahor"));
+        fixtures.insert(row("Molxona Bahor"));
+
+        // "isiqxona" lug‘atda hech bir so‘zning qismi emas — aniq bosqich bo‘sh, natija 2-bosqichdan (o‘xshash so‘z)
+        List<FacilitySummaryRes> res = search("isiqxona", Long.MAX_VALUE, 20000, 20, 5);
+        assertEquals(List.of(issiqxona), res.stream().map(FacilitySummaryRes::getId).toList());
+        assertTrue(res.get(0).getScore() < 1.0);
+
+        // servis orqali: kirillcha so‘rov ham normallashtirilib shu bosqichga tushadi
+        List<FacilitySummaryRes> viaService = facilities.search("Исиқхона баҳор", org, null, null, 5, null);
+        assertEquals(issiqxona, viaService.get(0).getId());
+    }
+
+    /* -------------------- Helpers -------------------- */
+
+    private FacilityImportDao.Row row(String name) {
+        return fixtures.row(org, name, FacilityType.GREENHOUSE, FacilityStatus.ACTIVE,
+                LocalDateTime.of(2025, 6, 1, 12, 0), null);
+    }
+
+    private List<FacilitySummaryRes> search(String q, long rareRows, int probeRows, int candidates, int limit) {
+        return searchDao.search(q, org, null, null, null,
+                new FacilitySearchDao.Options(0.4, 5, 100, rareRows, probeRows, candidates, limit));
+    }
+}
@@ -0,0 +1,96 @@
+package com.agri.mapapp.facility;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * V3’dagi backfill funksiyasi (pg_temp.facility_metric_num) MetricDefinition o‘quvchisi bilan bir xil son beradi:
+ * migratsiya to‘ldirgan ustunlar ilova yozganidan farq qilmasin.
+ */
+@SpringBootTest
+class MetricDefinitionSqlTest {
+
+    /** attributes qiymati (JSON) → kutilgan son */
+    static final Map<String, Double> CASES = new LinkedHashMap<>();
+
+    static {
+        CASES.put("7", 7.0);
+        CASES.put("-2.5", -2.5);
+        CASES.put("\"12\"", 12.0);
+        CASES.put("\" 3.5 \"", 3.5);
+        CASES.put("\"-.5\"", -0.5);
+        CASES.put("\"+1e3\"", 1000.0);
+        CASES.put("\"1.\"", 1.0);
+        CASES.put("\"NaN\"", 0.0);
+        CASES.put("\"Infinity\"", 0.0);
+        CASES.put("\"1d\"", 0.0);
+        CASES.put("\"0x10\"", 0.0);
+        CASES.put("\"1,5\"", 0.0);
+        CASES.put("\"abc\"", 0.0);
+        CASES.put("\"\"", 0.0);
+        CASES.put("true", 0.0);
+        CASES.put("[1]", 0.0);
+    }
+
+    private static final Pattern FUNCTION = Pattern.compile(
+            "CREATE OR REPLACE FUNCTION pg_temp\\.facility_metric_num.*?\\$\\$.*?\\$\\$;", Pattern.DOTALL);
+
+    @Autowired JdbcTemplate jdbc;
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    @Test
+    void migrationFunctionMatchesJava() throws Exception {
+        String v3 = new ClassPathResource("db/migration/V3__facility_metric_columns.sql")
+                .getContentAsString(StandardCharsets.UTF_8);
+        Matcher m = FUNCTION.matcher(v3);
+        assertTrue(m.find(), "facility_metric_num function not found in V3");
+        String function = m.group();
+
+        // pg_temp — sessiyaga xos: funksiya va chaqiruvlar bitta ulanishda
+        Map<String, Double> sql = jdbc.execute((ConnectionCallback<Map<String, Double>>) c -> {
+            try (Statement st = c.createStatement()) {
+                st.execute(function);
+            }
+            Map<String, Double> out = new LinkedHashMap<>();
+            try (PreparedStatement ps = c.prepareStatement("SELECT pg_temp.facility_metric_num(?::jsonb)")) {
+                for (String in : CASES.keySet()) {
+                    ps.setString(1, in);
+                    try (ResultSet rs = ps.executeQuery()) {
+                        rs.next();
+                        out.put(in, rs.getDouble(1));
+                    }
+                }
+            }
+            return out;
+        });
+        assertNotNull(sql);
+        MetricDefinition.Extractor current = FacilityMetrics.CURRENT.compile();
+        for (Map.Entry<String, Double> e : CASES.entrySet()) {
+            double java = current.applyAsDouble(mapper.readTree("{\"current\": " + e.getKey() + "}"));
+            assertEquals(e.getValue(), sql.get(e.getKey()), "V3: " + e.getKey());
+            assertEquals(e.getValue(), java, "Java: " + e.getKey());
+        }
+    }
+
+    @Test
+    void outOfRangeTextIsNotANumber() throws Exception {
+        assertEquals(0.0, FacilityMetrics.CURRENT.compile().applyAsDouble(mapper.readTree("{\"current\": \"1e400\"}")));
+    }
+}
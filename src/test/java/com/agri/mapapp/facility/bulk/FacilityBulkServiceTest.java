@@ -0,0 +1,186 @@
+package com.agri.mapapp.facility.bulk;
+
+import com.agri.mapapp.facility.FacilityStatus;
+import com.agri.mapapp.facility.FacilityType;
+import com.agri.mapapp.facility.dto.FacilityBulkRes;
+import com.agri.mapapp.stats.rollup.FacilityRollupService;
+import com.agri.mapapp.support.FacilityFixtures;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Ommaviy amallar: scope, cheklanmagan tanlovni rad etish, rasmli obyektlarni o‘chirmaslik,
+ * allOrNothing va har amaldan keyin rollup delta’lari izchilligi.
+ */
+@SpringBootTest
+@Import(FacilityFixtures.class)
+class FacilityBulkServiceTest {
+
+    @Autowired FacilityBulkService bulk;
+    @Autowired FacilityRollupService rollup;
+    @Autowired FacilityFixtures fixtures;
+    @Autowired NamedParameterJdbcTemplate jdbc;
+    @Autowired ObjectMapper mapper;
+
+    private List<Long> orgs;   // [root, a, b]
+    private Long a1, a2, b1;
+
+    @BeforeEach
+    void setUp() {
+        orgs = fixtures.orgTree(2);
+        LocalDateTime t = LocalDateTime.of(2025, 4, 10, 9, 0);
+        a1 = fixtures.insert(fixtures.row(orgs.get(1), "Bulk A1", FacilityType.GREENHOUSE, FacilityStatus.ACTIVE, t,
+                "{\"expectedRevenue\": 100}"));
+        a2 = fixtures.insert(fixtures.row(orgs.get(1), "Bulk A2", FacilityType.COWSHED, FacilityStatus.INACTIVE,
+                t.plusMonths(1), "{\"expectedRevenue\": 200, \"capacity\": 10}"));
+        b1 = fixtures.insert(fixtures.row(orgs.get(2), "Bulk B1", FacilityType.COWSHED, FacilityStatus.ACTIVE, t,
+                "{\"expectedRevenue\": 300}"));
+    }
+
+    @AfterEach
+    void cleanup() {
+        fixtures.cleanup();
+    }
+
+    @Test
+    void unboundedSelectionIsRefused() {
+        FacilityBulkFilter none = new FacilityBulkFilter(null, null, List.of(), null, null, null, null);
+        assertTrue(none.isUnbounded());
+        ResponseStatusException e = assertThrows(ResponseStatusException.class, () -> bulk.delete(none));
+        assertEquals(HttpStatus.BAD_REQUEST, e.getStatusCode());
+        assertThrows(ResponseStatusException.class, () -> bulk.updateStatus(none, FacilityStatus.INACTIVE));
+        assertEquals(3, countIn(orgs));
+
+        // bo‘sh ids — cheklangan, lekin hech narsaga tegmaydi
+        FacilityBulkRes empty = bulk.delete(new FacilityBulkFilter(List.of(), null, null, null, null, null, null));
+        assertEquals(0, empty.getMatched());
+        assertEquals(3, countIn(orgs));
+    }
+
+    @Test
+    void scopeLimitsSelectionAndReassignTarget() {
+        Set<Long> onlyA = Set.of(orgs.get(1));
+
+        // scope’dan tashqaridagi id (b1) tanlovga tushmaydi
+        FacilityBulkRes res = bulk.updateStatus(filter(List.of(a1, a2, b1), onlyA), FacilityStatus.UNDER_MAINTENANCE);
+        assertEquals(2, res.getMatched());
+        assertEquals(2, res.getAffected());
+        assertEquals("ACTIVE", status(b1));
+        assertEquals("UNDER_MAINTENANCE", status(a1));
+        assertConsistent("status");
+
+        // qiymati allaqachon shunday — skipped
+        FacilityBulkRes again = bulk.updateStatus(filter(List.of(a1, a2), onlyA), FacilityStatus.UNDER_MAINTENANCE);
+        assertEquals(0, again.getAffected());
+        assertEquals(2, again.getSkipped());
+
+        // bo‘sh scope — hech narsa
+        assertEquals(0, bulk.delete(filter(List.of(a1, a2, b1), Set.of())).getMatched());
+
+        // boshqa bo‘limga ko‘chirish taqiqlanadi
+        assertThrows(AccessDeniedException.class, () -> bulk.reassign(filter(List.of(a1), onlyA), orgs.get(2)));
+        assertEquals(orgs.get(1), orgOf(a1));
+
+        // filtrlar bo‘yicha (ADMIN): a’dagi COWSHED’lar b’ga
+        FacilityBulkRes moved = bulk.reassign(new FacilityBulkFilter(null, orgs.get(1), List.of(FacilityType.COWSHED),
+                null, null, null, null), orgs.get(2));
+        assertEquals(1, moved.getAffected());
+        assertEquals(orgs.get(2), orgOf(a2));
+        assertConsistent("reassign");
+    }
+
+    @Test
+    void deleteSkipsFacilitiesWithImages() {
+        jdbc.update("""
+                INSERT INTO facility_image (id, facility_id, filename, original_name, content_type, size_bytes)
+                VALUES (nextval('facility_image_seq'), :f, 'facilities/test.jpg', 'test.jpg', 'image/jpeg', 1)
+                """, new MapSqlParameterSource("f", a1));
+
+        FacilityBulkRes res = bulk.delete(inOrg(orgs.get(1)));
+        assertEquals(2, res.getMatched());
+        assertEquals(1, res.getAffected());
+        assertEquals(1, res.getSkipped());
+        assertNotNull(status(a1));
+        assertEquals(0, countIn(List.of(a2), "id"));
+        assertConsistent("delete");
+    }
+
+    @Test
+    void attributesPatchRollsBackOnInvalidRow() throws Exception {
+        // GREENHOUSE’ga yaroqli, lekin validator har turdagi expectedRevenue’ni son bo‘lishini talab qiladi
+        FacilityBulkRes bad = bulk.patchAttributes(byIds(List.of(a1, a2)),
+                mapper.readTree("{\"expectedRevenue\": \"ko‘p\"}"), true);
+        assertTrue(bad.isRolledBack());
+        assertEquals(2, bad.getFailed());
+        assertEquals(0, bad.getAffected());
+        assertEquals(100.0, revenue(a1), 1e-9);
+
+        FacilityBulkRes ok = bulk.patchAttributes(byIds(List.of(a1, a2)),
+                mapper.readTree("{\"expectedRevenue\": 555, \"note\": \"Tekshirildi\"}"), true);
+        assertEquals(2, ok.getAffected());
+        assertEquals(555.0, revenue(a2), 1e-9);
+        assertConsistent("attributes");
+    }
+
+    /* -------------------- Helpers -------------------- */
+
+    private static FacilityBulkFilter filter(List<Long> ids, Set<Long> allowed) {
+        return new FacilityBulkFilter(ids, null, null, null, null, null, allowed);
+    }
+
+    private static FacilityBulkFilter byIds(List<Long> ids) {
+        return filter(ids, null);
+    }
+
+    private static FacilityBulkFilter inOrg(Long orgId) {
+        return new FacilityBulkFilter(null, orgId, null, null, null, null, null);
+    }
+
+    private void assertConsistent(String step) {
+        FacilityRollupService.ConsistencyReport r = rollup.check();
+        assertTrue(r.consistent(), step + ": " + r.mismatches());
+    }
+
+    private int countIn(List<Long> orgIds) {
+        return countIn(orgIds, "org_id");
+    }
+
+    private int countIn(List<Long> ids, String column) {
+        Integer n = jdbc.queryForObject("SELECT COUNT(*) FROM facility WHERE " + column + " IN (:ids)",
+                new MapSqlParameterSource("ids", ids), Integer.class);
+        return n == null ? 0 : n;
+    }
+
+    private String status(Long id) {
+        List<String> s = jdbc.queryForList("SELECT status FROM facility WHERE id = :id",
+                new MapSqlParameterSource("id", id), String.class);
+        return s.isEmpty() ? null : s.get(0);
+    }
+
+    private Long orgOf(Long id) {
+        return jdbc.queryForObject("SELECT org_id FROM facility WHERE id = :id",
+                new MapSqlParameterSource("id", id), Long.class);
+    }
+
+    private double revenue(Long id) {
+        Double v = jdbc.queryForObject("SELECT expected_revenue FROM facility WHERE id = :id",
+                new MapSqlParameterSource("id", id), Double.class);
+        return v == null ? 0 : v;
+    }
+}
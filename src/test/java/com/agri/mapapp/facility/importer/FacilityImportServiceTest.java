@@ -0,0 +1,172 @@
+package com.agri.mapapp.facility.importer;
+
+import com.agri.mapapp.common.SearchNormalizer;
+import com.agri.mapapp.facility.FacilityStatus;
+import com.agri.mapapp.facility.FacilityType;
+import com.agri.mapapp.facility.dto.FacilityImportRes;
+import com.agri.mapapp.stats.rollup.FacilityRollupService;
+import com.agri.mapapp.support.FacilityFixtures;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * COPY yo‘li: matn qochirish (tab, qator oxiri, teskari chiziq, "\N"), xato qatorlar hisoboti,
+ * allOrNothing/dryRun va import’dan keyin rollup izchilligi.
+ */
+@SpringBootTest
+@Import(FacilityFixtures.class)
+class FacilityImportServiceTest {
+
+    /** COPY text formatida maxsus ma’noga ega belgilar */
+    private static final List<String> TRICKY = List.of(
+            "tab\there",
+            "line\nbreak",
+            "carriage\r\nreturn",
+            "back\\slash",
+            "\\N",
+            "\\\\N",
+            "ends with backslash \\",
+            "\\t not a tab",
+            "quote \" and ' apostrophe",
+            "Ўзбекча ғ ҳ қ — “yo‘l”");
+
+    @Autowired FacilityImportService importService;
+    @Autowired FacilityRollupService rollup;
+    @Autowired FacilityFixtures fixtures;
+    @Autowired NamedParameterJdbcTemplate jdbc;
+    @Autowired ObjectMapper mapper;
+
+    private List<Long> orgs;
+    private String orgCode;
+
+    @BeforeEach
+    void setUp() {
+        orgs = fixtures.orgTree(1);
+        orgCode = jdbc.queryForObject("SELECT code FROM org_unit WHERE id = :id",
+                new MapSqlParameterSource("id", orgs.get(1)), String.class);
+    }
+
+    @AfterEach
+    void cleanup() {
+        fixtures.cleanup();
+    }
+
+    @Test
+    void geoJsonTextRoundTripsThroughCopy() throws Exception {
+        ObjectNode fc = mapper.createObjectNode().put("type", "FeatureCollection");
+        ArrayNode features = fc.putArray("features");
+        for (int i = 0; i < TRICKY.size(); i++) {
+            ObjectNode f = features.addObject().put("type", "Feature");
+            ObjectNode geom = f.putObject("geometry").put("type", "Point");
+            geom.putArray("coordinates").add(69.2 + i / 100.0).add(41.3);
+            ObjectNode props = f.putObject("properties");
+            props.put("orgId", orgs.get(1));
+            props.put("name", TRICKY.get(i));
+            props.put("type", "GREENHOUSE");
+            props.put("createdAt", "2025-03-0" + (1 + i % 9) + "T10:15:30");
+            props.putObject("attributes")
+                    .put("heatingType", TRICKY.get(i))
+                    .put("expectedRevenue", 1000 + i)
+                    .putObject("nested").put("note", TRICKY.get((i + 1) % TRICKY.size()));
+        }
+
+        FacilityImportRes res = run(mapper.writeValueAsBytes(fc), FacilityImportService.Format.GEOJSON, false, false);
+        assertEquals(TRICKY.size(), res.getImported(), String.valueOf(res.getErrors()));
+        assertEquals(0, res.getFailed());
+
+        Map<String, Map<String, Object>> byName = new HashMap<>();
+        for (Map<String, Object> r : jdbc.queryForList("""
+                SELECT name, name_norm, CAST(attributes AS text) AS attrs, lat, lng, created_at, expected_revenue
+                FROM facility WHERE org_id = :org
+                """, new MapSqlParameterSource("org", orgs.get(1)))) {
+            byName.put((String) r.get("name"), r);
+        }
+        assertEquals(new HashSet<>(TRICKY), byName.keySet());
+        for (int i = 0; i < TRICKY.size(); i++) {
+            String name = TRICKY.get(i);
+            Map<String, Object> r = byName.get(name);
+            assertEquals(SearchNormalizer.normalize(name), r.get("name_norm"), name);
+            JsonNode attrs = mapper.readTree((String) r.get("attrs"));
+            assertEquals(name, attrs.path("heatingType").asText(), name);
+            assertEquals(TRICKY.get((i + 1) % TRICKY.size()), attrs.path("nested").path("note").asText(), name);
+            assertEquals(1000.0 + i, ((Number) r.get("expected_revenue")).doubleValue(), 1e-9);
+            assertEquals(41.3, ((Number) r.get("lat")).doubleValue(), 1e-9);
+        }
+        assertTrue(rollup.check().consistent());
+    }
+
+    @Test
+    void csvQuotedFieldsAndBadRowsAreReported() {
+        String csv = String.join("\r\n",
+                "orgCode;name;type;status;lat;lng;createdAt;expectedRevenue;note",
+                // qo‘shtirnoq ichidagi yangi qator: yozuv 2–3 qatorlarni egallaydi, keyingi xatolar 4-qatordan
+                orgCode + ";\"multi\nline \\N name\";COWSHED;ACTIVE;41.1;69.1;2025-01-01T00:00:00;\" 12.5 \";\"a\\tb\"",
+                orgCode + ";;COWSHED;ACTIVE;;;;;",                       // name yo‘q
+                "NOPE;Unknown org;COWSHED;ACTIVE;;;;;",                  // org kodi noma’lum
+                orgCode + ";Bad type;SPACESHIP;ACTIVE;;;;;",
+                orgCode + ";Bad lat;COWSHED;ACTIVE;123;69;;;",
+                orgCode + ";Plain;SHEEPFOLD;;;;2024-12-31;;",
+                "");
+
+        FacilityImportRes dry = run(csv.getBytes(StandardCharsets.UTF_8), FacilityImportService.Format.CSV, true, false);
+        assertTrue(dry.isDryRun());
+        assertEquals(6, dry.getRowsRead());
+        assertEquals(4, dry.getFailed());
+        assertEquals(List.of(4, 5, 6, 7), dry.getErrors().stream().map(FacilityImportRes.RowError::row).toList());
+        assertEquals(0, countInOrg());
+
+        FacilityImportRes all = run(csv.getBytes(StandardCharsets.UTF_8), FacilityImportService.Format.CSV, false, true);
+        assertTrue(all.isRolledBack());
+        assertEquals(0, all.getImported());
+        assertEquals(0, countInOrg());
+
+        FacilityImportRes res = run(csv.getBytes(StandardCharsets.UTF_8), FacilityImportService.Format.CSV, false, false);
+        assertEquals(2, res.getImported());
+        assertEquals(4, res.getFailed());
+        assertEquals(2, countInOrg());
+
+        Map<String, Object> multi = jdbc.queryForMap("""
+                SELECT name, status, created_at, expected_revenue, CAST(attributes AS text) AS attrs
+                FROM facility WHERE org_id = :org AND type = 'COWSHED'
+                """, new MapSqlParameterSource("org", orgs.get(1)));
+        assertEquals("multi\nline \\N name", multi.get("name"));
+        assertEquals(FacilityStatus.ACTIVE.name(), multi.get("status"));
+        assertEquals(12.5, ((Number) multi.get("expected_revenue")).doubleValue(), 1e-9);
+        assertTrue(((String) multi.get("attrs")).contains("a\\\\tb"), (String) multi.get("attrs"));
+        assertEquals(LocalDateTime.of(2025, 1, 1, 0, 0), ((java.sql.Timestamp) multi.get("created_at")).toLocalDateTime());
+
+        String plainType = jdbc.queryForObject("SELECT type FROM facility WHERE org_id = :org AND name = 'Plain'",
+                new MapSqlParameterSource("org", orgs.get(1)), String.class);
+        assertEquals(FacilityType.SHEEPFOLD.name(), plainType);
+        assertTrue(rollup.check().consistent());
+    }
+
+    /* -------------------- Helpers -------------------- */
+
+    private FacilityImportRes run(byte[] body, FacilityImportService.Format format, boolean dryRun, boolean allOrNothing) {
+        return importService.importFacilities(new ByteArrayInputStream(body), format, dryRun, allOrNothing);
+    }
+
+    private int countInOrg() {
+        Integer n = jdbc.queryForObject("SELECT COUNT(*) FROM facility WHERE org_id IN (:orgs)",
+                new MapSqlParameterSource("orgs", orgs), Integer.class);
+        return n == null ? 0 : n;
+    }
+}
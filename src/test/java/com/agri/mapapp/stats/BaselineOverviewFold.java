@@ -0,0 +1,233 @@
+package com.agri.mapapp.stats;
+
+import com.agri.mapapp.facility.FacilityStatus;
+import com.agri.mapapp.facility.FacilityType;
+import com.agri.mapapp.stats.dto.*;
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Overview’ning SQL’dan oldingi Java hisobi (entity’lar yuklanib, attributes alias’lari readAliases bilan o‘qilardi) —
+ * paritet testlari uchun etalon. Qoidalar o‘zgartirilmagan: oyna cb.between (ikki chegara ham kiradi),
+ * oylar — yil ichidagi created_at oyi, alias — birinchi mavjud (null bo‘lmagan) kalit.
+ * Filtrlash (scope, turlar) chaqiruvchida: rows — scope’dagi ALLOWED turdagi barcha facility’lar.
+ */
+final class BaselineOverviewFold {
+
+    /** Facility’ning fold uchun kerakli qismi */
+    record Row(Long orgId, String orgName, FacilityType type, FacilityStatus status,
+               LocalDateTime createdAt, JsonNode attributes) {}
+
+    private static final List<String> REV_KEYS   = List.of("expectedRevenue", "revenue");
+    private static final List<String> PROF_KEYS  = List.of("netProfit", "profit");
+    private static final List<String> PROD_KEYS  = List.of("productAmount", "product_kg", "yieldAmount", "yield_amount", "eggs_per_day");
+    private static final List<String> AREA_KEYS  = List.of("areaM2", "area_m2");
+    private static final String TOTAL_AREA_HA = "totalAreaHa";
+
+    private BaselineOverviewFold() {}
+
+    static OverviewRes fold(List<Row> base, int y, LocalDateTime winStart, LocalDateTime winEnd) {
+        long total  = base.size();
+        long active = base.stream().filter(f -> f.status() == FacilityStatus.ACTIVE).count();
+        List<Row> inWindow = between(base, winStart, winEnd);
+
+        Map<FacilityType, Long> byType = base.stream()
+                .collect(Collectors.groupingBy(Row::type, Collectors.counting()));
+        List<TypeAgg> typesAgg = byType.entrySet().stream()
+                .map(e -> new TypeAgg(e.getKey(), e.getValue()))
+                .sorted(Comparator.comparingLong(TypeAgg::getCount).reversed())
+                .toList();
+
+        List<Row> thisYear = between(base, LocalDateTime.of(y, 1, 1, 0, 0), LocalDateTime.of(y + 1, 1, 1, 0, 0));
+        long[] monthBuckets = new long[12];
+        for (Row f : thisYear) {
+            LocalDateTime c = f.createdAt();
+            if (c != null && c.getYear() == y) monthBuckets[c.getMonthValue() - 1]++;
+        }
+        List<MonthlyCount> monthly = new ArrayList<>(12);
+        for (int i = 0; i < 12; i++) monthly.add(new MonthlyCount(i + 1, monthBuckets[i]));
+        long yearNewCount = Arrays.stream(monthBuckets).sum();
+
+        int py = y - 1;
+        List<Row> prevYear = between(base, LocalDateTime.of(py, 1, 1, 0, 0), LocalDateTime.of(y, 1, 1, 0, 0));
+        long[] prevBuckets = new long[12];
+        for (Row f : prevYear) {
+            LocalDateTime c = f.createdAt();
+            if (c != null && c.getYear() == py) prevBuckets[c.getMonthValue() - 1]++;
+        }
+        List<MonthlyCount> prevMonthly = new ArrayList<>(12);
+        for (int i = 0; i < 12; i++) prevMonthly.add(new MonthlyCount(i + 1, prevBuckets[i]));
+        long prevYearNewCount = Arrays.stream(prevBuckets).sum();
+        Double yoyNewPct = (prevYearNewCount > 0)
+                ? ((yearNewCount - (double) prevYearNewCount) * 100.0 / prevYearNewCount)
+                : null;
+
+        double[] revYY = new double[12], profYY = new double[12];
+        for (Row f : thisYear) {
+            LocalDateTime c = f.createdAt();
+            if (c == null || c.getYear() != y) continue;
+            int m = c.getMonthValue() - 1;
+            revYY[m]  += readAliases(f, REV_KEYS);
+            profYY[m] += readAliases(f, PROF_KEYS);
+        }
+        double[] revPY = new double[12], profPY = new double[12];
+        for (Row f : prevYear) {
+            LocalDateTime c = f.createdAt();
+            if (c == null || c.getYear() != py) continue;
+            int m = c.getMonthValue() - 1;
+            revPY[m]  += readAliases(f, REV_KEYS);
+            profPY[m] += readAliases(f, PROF_KEYS);
+        }
+        List<MonthlyAmount> revenueMonthly = new ArrayList<>(12), profitMonthly = new ArrayList<>(12);
+        List<MonthlyAmount> revenuePrevMonthly = new ArrayList<>(12), profitPrevMonthly = new ArrayList<>(12);
+        for (int i = 0; i < 12; i++) {
+            revenueMonthly.add(new MonthlyAmount(i + 1, revYY[i]));
+            profitMonthly.add(new MonthlyAmount(i + 1, profYY[i]));
+            revenuePrevMonthly.add(new MonthlyAmount(i + 1, revPY[i]));
+            profitPrevMonthly.add(new MonthlyAmount(i + 1, profPY[i]));
+        }
+
+        double revenueYtd = inWindow.stream().mapToDouble(f -> readAliases(f, REV_KEYS)).sum();
+        double profitYtd  = inWindow.stream().mapToDouble(f -> readAliases(f, PROF_KEYS)).sum();
+        List<Row> inPrevWindow = between(base, winStart.minusYears(1), winEnd.minusYears(1));
+        double revenuePrevYtd = inPrevWindow.stream().mapToDouble(f -> readAliases(f, REV_KEYS)).sum();
+        double profitPrevYtd  = inPrevWindow.stream().mapToDouble(f -> readAliases(f, PROF_KEYS)).sum();
+        Double yoyRevenuePct = (revenuePrevYtd > 0) ? ((revenueYtd - revenuePrevYtd) * 100.0 / revenuePrevYtd) : null;
+        Double yoyProfitPct  = (profitPrevYtd  > 0) ? ((profitYtd  - profitPrevYtd ) * 100.0 / profitPrevYtd ) : null;
+
+        Map<Long, Long> cntPerOrg = new HashMap<>();
+        Map<Long, String> namePerOrg = new HashMap<>();
+        for (Row f : base) {
+            cntPerOrg.merge(f.orgId(), 1L, Long::sum);
+            namePerOrg.putIfAbsent(f.orgId(), f.orgName());
+        }
+        List<OrgAgg> orgs = cntPerOrg.entrySet().stream()
+                .map(e -> new OrgAgg(e.getKey(), namePerOrg.get(e.getKey()), e.getValue()))
+                .sorted(Comparator.comparingLong(OrgAgg::getCount).reversed())
+                .toList();
+
+        double sumCurrent = 0.0, sumCapacity = 0.0, sumProduct = 0.0, sumAreaM2 = 0.0;
+        for (Row f : base) {
+            sumCurrent  += readSingle(f, "current");
+            sumCapacity += readSingle(f, "capacity");
+            sumProduct  += readAliases(f, PROD_KEYS);
+            sumAreaM2   += readAreaM2(f);
+        }
+
+        Map<FacilityType, TypeKpiAgg> typeKpisMap = new EnumMap<>(FacilityType.class);
+        for (Row f : inWindow) {
+            TypeKpiAgg agg = typeKpisMap.computeIfAbsent(f.type(),
+                    k -> new TypeKpiAgg(k, 0L, 0.0, 0.0, 0.0, 0.0, null));
+            agg.setCount(agg.getCount() + 1);
+            agg.setRevenue(agg.getRevenue() + readAliases(f, REV_KEYS));
+            agg.setProfit(agg.getProfit() + readAliases(f, PROF_KEYS));
+            agg.setCurrent(agg.getCurrent() + readSingle(f, "current"));
+            agg.setCapacity(agg.getCapacity() + readSingle(f, "capacity"));
+        }
+        List<TypeKpiAgg> typeKpis = typeKpisMap.values().stream()
+                .peek(a -> a.setUtilPct(a.getCapacity() > 0 ? (a.getCurrent() * 100.0 / a.getCapacity()) : null))
+                .sorted(Comparator.comparingDouble(TypeKpiAgg::getRevenue).reversed())
+                .toList();
+
+        Map<Long, OrgRevenueAgg> byOrgRev = new HashMap<>();
+        for (Row f : inWindow) {
+            OrgRevenueAgg agg = byOrgRev.computeIfAbsent(f.orgId(),
+                    k -> new OrgRevenueAgg(f.orgId(), f.orgName(), 0L, 0.0, 0.0));
+            agg.setCount(agg.getCount() + 1);
+            agg.setRevenue(agg.getRevenue() + readAliases(f, REV_KEYS));
+            agg.setProfit(agg.getProfit() + readAliases(f, PROF_KEYS));
+        }
+        List<OrgRevenueAgg> topOrgRevenue = byOrgRev.values().stream()
+                .sorted(Comparator.comparingDouble(OrgRevenueAgg::getRevenue).reversed())
+                .limit(10)
+                .toList();
+
+        OverviewRes res = new OverviewRes();
+        res.setTotal(total);
+        res.setActive(active);
+        res.setTypes(typesAgg);
+        res.setMonthly(monthly);
+        res.setPrevMonthly(prevMonthly);
+        res.setYearNewCount(yearNewCount);
+        res.setPrevYearNewCount(prevYearNewCount);
+        res.setYoyNewPct(yoyNewPct);
+        res.setRevenueMonthly(revenueMonthly);
+        res.setRevenuePrevMonthly(revenuePrevMonthly);
+        res.setRevenueYtd(revenueYtd);
+        res.setRevenuePrevYtd(revenuePrevYtd);
+        res.setYoyRevenuePct(yoyRevenuePct);
+        res.setProfitMonthly(profitMonthly);
+        res.setProfitPrevMonthly(profitPrevMonthly);
+        res.setProfitYtd(profitYtd);
+        res.setProfitPrevYtd(profitPrevYtd);
+        res.setYoyProfitPct(yoyProfitPct);
+        res.setCapacityUtilPct(sumCapacity > 0 ? (sumCurrent * 100.0 / sumCapacity) : null);
+        res.setProductivityKgPerM2(sumAreaM2 > 0 ? (sumProduct / sumAreaM2) : null);
+        res.setTypeKpis(typeKpis);
+        res.setTopOrgRevenue(topOrgRevenue);
+        res.setOrgs(orgs);
+        return res;
+    }
+
+    /** cb.between: from <= created_at <= to */
+    private static List<Row> between(List<Row> rows, LocalDateTime from, LocalDateTime to) {
+        return rows.stream()
+                .filter(f -> f.createdAt() != null && !f.createdAt().isBefore(from) && !f.createdAt().isAfter(to))
+                .toList();
+    }
+
+    /* -------------------- Attribute readers (alias-aware) -------------------- */
+
+    private static double readAliases(Row f, List<String> keys) {
+        JsonNode attrs = f.attributes();
+        for (String k : keys) {
+            double v = readFrom(attrs, k);
+            if (v != 0.0) return v;
+            if (existsAsZero(attrs, k)) return 0.0;
+        }
+        return 0.0;
+    }
+
+    private static double readAreaM2(Row f) {
+        JsonNode attrs = f.attributes();
+        for (String k : AREA_KEYS) {
+            double v = readFrom(attrs, k);
+            if (v != 0.0) return v;
+            if (existsAsZero(attrs, k)) return 0.0;
+        }
+        double ha = readFrom(attrs, TOTAL_AREA_HA);
+        if (ha != 0.0 || existsAsZero(attrs, TOTAL_AREA_HA)) return ha * 10_000.0;
+        return 0.0;
+    }
+
+    private static double readSingle(Row f, String key) {
+        return readFrom(f.attributes(), key);
+    }
+
+    private static boolean existsAsZero(JsonNode node, String key) {
+        if (node == null) return false;
+        JsonNode n = node.get(key);
+        return n != null && !n.isNull();
+    }
+
+    private static double readFrom(JsonNode node, String key) {
+        if (node == null) return 0.0;
+        JsonNode n = node.get(key);
+        if (n != null && !n.isNull()) {
+            if (n.isNumber()) return n.asDouble();
+            if (n.isTextual()) return parseDouble(n.asText());
+        }
+        return 0.0;
+    }
+
+    private static double parseDouble(String s) {
+        try {
+            return Double.parseDouble(s.trim());
+        } catch (Exception e) {
+            return 0.0;
+        }
+    }
+}
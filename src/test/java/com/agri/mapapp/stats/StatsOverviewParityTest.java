@@ -0,0 +1,336 @@
+package com.agri.mapapp.stats;
+
+import com.agri.mapapp.facility.FacilityStatus;
+import com.agri.mapapp.facility.FacilityType;
+import com.agri.mapapp.facility.importer.FacilityImportDao;
+import com.agri.mapapp.stats.dto.*;
+import com.agri.mapapp.stats.rollup.FacilityRollupService;
+import com.agri.mapapp.stats.rollup.RollupAggregateDao;
+import com.agri.mapapp.support.FacilityFixtures;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * StatsService.overviewAdvanced (guruhlangan SQL / oylik rollup) ↔ eski Java hisobi (BaselineOverviewFold) pariteti.
+ * Ma’lumot — alohida org daraxtida, alias variantlari (revenue/profit, matnli son, null, "abc", totalAreaHa ...) bilan;
+ * oyga tekislangan oynalar rollup’dan, custom kunlar — xom jadvaldan o‘qiladi, ikkalasi ham tekshiriladi.
+ */
+@SpringBootTest
+@Import(FacilityFixtures.class)
+class StatsOverviewParityTest {
+
+    private static final double EPS = 1e-6;
+
+    @Autowired StatsService stats;
+    @Autowired FacilityRollupService rollup;
+    @Autowired StatsAggregateDao rawDao;
+    @Autowired RollupAggregateDao rollupDao;
+    @Autowired FacilityFixtures fixtures;
+    @Autowired NamedParameterJdbcTemplate jdbc;
+    @Autowired ObjectMapper mapper;
+
+    private Set<Long> scope;
+
+    @BeforeEach
+    void seed() {
+        List<Long> orgs = fixtures.orgTree(3);
+        scope = new HashSet<>(orgs);
+        Random rnd = new Random(42);
+        FacilityType[] types = FacilityType.values();
+        FacilityStatus[] statuses = FacilityStatus.values();
+        LocalDateTime start = LocalDateTime.of(2024, 1, 1, 0, 0);
+        List<FacilityImportDao.Row> rows = new ArrayList<>();
+        for (int i = 0; i < 400; i++) {
+            // soniyalar 1..86399 — kun/oy chegarasiga tushmaydi (chegaraviy qatorlar alohida testda)
+            LocalDateTime created = start.plusDays(rnd.nextInt(3 * 365 + 1)).plusSeconds(1 + rnd.nextInt(86_399));
+            rows.add(fixtures.row(orgs.get(rnd.nextInt(orgs.size())), "Parity " + i,
+                    types[rnd.nextInt(types.length)], statuses[rnd.nextInt(statuses.length)],
+                    created, attributes(rnd)));
+        }
+        fixtures.insert(rows);
+    }
+
+    @AfterEach
+    void cleanup() {
+        fixtures.cleanup();
+    }
+
+    @Test
+    void yearWindowsMatchBaseline() {
+        assertTrue(rollup.isReady(), "oyga tekislangan oynalar rollup’dan o‘qilishi kerak");
+        for (int y : new int[]{2024, 2025, 2026}) {
+            assertParity(y, null, "year", null, null, null);
+        }
+    }
+
+    @Test
+    void quarterWindowsMatchBaseline() {
+        for (int q = 1; q <= 4; q++) {
+            assertParity(2025, null, "quarter", q, null, null);
+        }
+    }
+
+    @Test
+    void customWindowMatchesBaseline() {
+        assertParity(2025, null, "custom", null, LocalDate.of(2025, 3, 5), LocalDate.of(2026, 2, 10));
+        assertParity(2026, null, "custom", null, LocalDate.of(2026, 1, 1), LocalDate.of(2026, 1, 31));
+    }
+
+    @Test
+    void typeFilterMatchesBaseline() {
+        List<FacilityType> types = List.of(FacilityType.COWSHED, FacilityType.GREENHOUSE, FacilityType.FISHPOND);
+        assertParity(2025, types, "year", null, null, null);
+        assertParity(2025, types, "custom", null, LocalDate.of(2025, 2, 14), LocalDate.of(2025, 11, 3));
+    }
+
+    @Test
+    void subtreeScopeMatchesBaseline() {
+        Long child = scope.stream().sorted().skip(1).findFirst().orElseThrow();
+        Set<Long> all = scope;
+        try {
+            scope = Set.of(child);
+            assertParity(2025, null, "year", null, null, null);
+        } finally {
+            scope = all;
+        }
+    }
+
+    /** Aynan davr chegarasida (00:00) yaratilgan qatorlar: BETWEEN — ikki chegara ham kiradi, xom SQL va rollup bir xil */
+    @Test
+    void periodBoundaryRowsAreInclusiveOnEverySource() {
+        Long org = scope.iterator().next();
+        List<FacilityImportDao.Row> rows = new ArrayList<>();
+        int i = 0;
+        for (LocalDateTime t : List.of(
+                LocalDateTime.of(2024, 1, 1, 0, 0), LocalDateTime.of(2025, 1, 1, 0, 0),
+                LocalDateTime.of(2025, 4, 1, 0, 0), LocalDateTime.of(2025, 7, 1, 0, 0),
+                LocalDateTime.of(2026, 1, 1, 0, 0), LocalDateTime.of(2026, 4, 1, 0, 0))) {
+            for (FacilityType type : List.of(FacilityType.COWSHED, FacilityType.GREENHOUSE)) {
+                rows.add(fixtures.row(org, "Boundary " + i++, type, FacilityStatus.ACTIVE, t,
+                        "{\"expectedRevenue\": " + (1000 + i) + ", \"netProfit\": " + (100 + i)
+                                + ", \"current\": 5, \"capacity\": 10}"));
+            }
+        }
+        fixtures.insert(rows);
+
+        List<StatsAggregateSource.Period> periods = List.of(
+                new StatsAggregateSource.Period(LocalDateTime.of(2025, 1, 1, 0, 0), LocalDateTime.of(2026, 1, 1, 0, 0)),
+                new StatsAggregateSource.Period(LocalDateTime.of(2025, 4, 1, 0, 0), LocalDateTime.of(2025, 7, 1, 0, 0)),
+                new StatsAggregateSource.Period(LocalDateTime.of(2024, 1, 1, 0, 0), LocalDateTime.of(2025, 1, 1, 0, 0)));
+        assertTrue(RollupAggregateDao.supports(periods));
+        List<FacilityType> types = Arrays.asList(FacilityType.values());
+        assertEquals(periodTotals(rawDao.periodBuckets(scope, types, periods)),
+                periodTotals(rollupDao.periodBuckets(scope, types, periods)), "raw vs rollup period buckets");
+
+        assertParity(2025, null, "year", null, null, null);
+        assertParity(2025, null, "quarter", 2, null, null);
+        assertParity(2026, null, "quarter", 1, null, null);
+        assertParity(2025, null, "custom", null, LocalDate.of(2025, 1, 1), LocalDate.of(2025, 3, 31));
+    }
+
+    /* -------------------- Helpers -------------------- */
+
+    private void assertParity(int year, List<FacilityType> types, String range, Integer quarter,
+                              LocalDate from, LocalDate to) {
+        OverviewRes actual = stats.overviewAdvanced(scope, year, types, range, quarter, from, to);
+        LocalDateTime[] w = window(year, range, quarter, from, to);
+        OverviewRes expected = BaselineOverviewFold.fold(load(types), year, w[0], w[1]);
+        String ctx = range + " " + year + (quarter != null ? " q" + quarter : "") + (from != null ? " " + from + ".." + to : "");
+        assertOverview(expected, actual, ctx);
+    }
+
+    /** Eski resolveWindow: [start, keyingi davr boshi] */
+    static LocalDateTime[] window(int y, String range, Integer quarter, LocalDate from, LocalDate to) {
+        return switch (range) {
+            case "quarter" -> new LocalDateTime[]{LocalDate.of(y, (quarter - 1) * 3 + 1, 1).atStartOfDay(),
+                    LocalDate.of(y, (quarter - 1) * 3 + 1, 1).plusMonths(3).atStartOfDay()};
+            case "custom" -> new LocalDateTime[]{from.atStartOfDay(), to.plusDays(1).atStartOfDay()};
+            default -> new LocalDateTime[]{LocalDate.of(y, 1, 1).atStartOfDay(), LocalDate.of(y + 1, 1, 1).atStartOfDay()};
+        };
+    }
+
+    private List<BaselineOverviewFold.Row> load(List<FacilityType> types) {
+        List<String> names = (types == null || types.isEmpty())
+                ? Arrays.stream(FacilityType.values()).map(Enum::name).toList()
+                : types.stream().map(Enum::name).toList();
+        return jdbc.query("""
+                SELECT f.org_id, o.name AS org_name, f.type, f.status, f.created_at, CAST(f.attributes AS text) AS attrs
+                FROM facility f JOIN org_unit o ON o.id = f.org_id
+                WHERE f.org_id IN (:orgIds) AND f.type IN (:types)
+                """, new MapSqlParameterSource().addValue("orgIds", scope).addValue("types", names),
+                (rs, i) -> {
+                    try {
+                        String a = rs.getString("attrs");
+                        return new BaselineOverviewFold.Row(rs.getLong("org_id"), rs.getString("org_name"),
+                                FacilityType.valueOf(rs.getString("type")), FacilityStatus.valueOf(rs.getString("status")),
+                                rs.getObject("created_at", LocalDateTime.class), a == null ? null : mapper.readTree(a));
+                    } catch (Exception e) {
+                        throw new IllegalStateException(e);
+                    }
+                });
+    }
+
+    /** Alias qoidalarining turli holatlari */
+    private static String attributes(Random rnd) {
+        if (rnd.nextInt(15) == 0) return null;
+        List<String> kv = new ArrayList<>();
+        double rev = money(rnd), prof = money(rnd) - 50_000;
+        switch (rnd.nextInt(7)) {
+            case 0 -> kv.add("\"expectedRevenue\": " + rev);
+            case 1 -> kv.add("\"revenue\": " + rev);
+            case 2 -> kv.add("\"expectedRevenue\": \" " + rev + " \"");
+            case 3 -> kv.add("\"expectedRevenue\": null, \"revenue\": " + rev);
+            case 4 -> kv.add("\"expectedRevenue\": 0, \"revenue\": " + rev);
+            case 5 -> kv.add("\"expectedRevenue\": \"abc\", \"revenue\": " + rev);
+            default -> { }
+        }
+        switch (rnd.nextInt(4)) {
+            case 0 -> kv.add("\"netProfit\": " + prof);
+            case 1 -> kv.add("\"profit\": " + prof);
+            case 2 -> kv.add("\"netProfit\": \"" + prof + "\", \"profit\": 1");
+            default -> { }
+        }
+        if (rnd.nextInt(5) > 0) kv.add("\"current\": " + rnd.nextInt(900));
+        switch (rnd.nextInt(4)) {
+            case 0 -> kv.add("\"capacity\": " + (500 + rnd.nextInt(1000)));
+            case 1 -> kv.add("\"capacity\": \"" + (500 + rnd.nextInt(1000)) + "\"");
+            case 2 -> kv.add("\"capacity\": null");
+            default -> { }
+        }
+        String[] prodKeys = {"productAmount", "product_kg", "yieldAmount", "yield_amount", "eggs_per_day"};
+        if (rnd.nextBoolean()) kv.add("\"" + prodKeys[rnd.nextInt(prodKeys.length)] + "\": " + rnd.nextInt(5000));
+        switch (rnd.nextInt(5)) {
+            case 0 -> kv.add("\"areaM2\": " + (100 + rnd.nextInt(9000)));
+            case 1 -> kv.add("\"area_m2\": \"" + (100 + rnd.nextInt(9000)) + "\"");
+            case 2 -> kv.add("\"totalAreaHa\": " + (rnd.nextInt(50) / 10.0));
+            case 3 -> kv.add("\"areaM2\": \"x\", \"totalAreaHa\": 2");
+            default -> { }
+        }
+        kv.add("\"note\": {\"nested\": true}");
+        return "{" + String.join(", ", kv) + "}";
+    }
+
+    private static double money(Random rnd) {
+        return Math.round(rnd.nextDouble() * 10_000_000) / 100.0;
+    }
+
+    static void assertOverview(OverviewRes e, OverviewRes a, String ctx) {
+        assertEquals(e.getTotal(), a.getTotal(), ctx + ": total");
+        assertEquals(e.getActive(), a.getActive(), ctx + ": active");
+        assertEquals(byKey(e.getTypes(), TypeAgg::getType, TypeAgg::getCount),
+                byKey(a.getTypes(), TypeAgg::getType, TypeAgg::getCount), ctx + ": types");
+        assertEquals(byKey(e.getOrgs(), OrgAgg::getOrgId, o -> o.getOrgName() + "/" + o.getCount()),
+                byKey(a.getOrgs(), OrgAgg::getOrgId, o -> o.getOrgName() + "/" + o.getCount()), ctx + ": orgs");
+
+        assertEquals(counts(e.getMonthly()), counts(a.getMonthly()), ctx + ": monthly");
+        assertEquals(counts(e.getPrevMonthly()), counts(a.getPrevMonthly()), ctx + ": prevMonthly");
+        assertEquals(e.getYearNewCount(), a.getYearNewCount(), ctx + ": yearNewCount");
+        assertEquals(e.getPrevYearNewCount(), a.getPrevYearNewCount(), ctx + ": prevYearNewCount");
+        close(e.getYoyNewPct(), a.getYoyNewPct(), ctx + ": yoyNewPct");
+
+        amounts(e.getRevenueMonthly(), a.getRevenueMonthly(), ctx + ": revenueMonthly");
+        amounts(e.getRevenuePrevMonthly(), a.getRevenuePrevMonthly(), ctx + ": revenuePrevMonthly");
+        amounts(e.getProfitMonthly(), a.getProfitMonthly(), ctx + ": profitMonthly");
+        amounts(e.getProfitPrevMonthly(), a.getProfitPrevMonthly(), ctx + ": profitPrevMonthly");
+        close(e.getRevenueYtd(), a.getRevenueYtd(), ctx + ": revenueYtd");
+        close(e.getRevenuePrevYtd(), a.getRevenuePrevYtd(), ctx + ": revenuePrevYtd");
+        close(e.getYoyRevenuePct(), a.getYoyRevenuePct(), ctx + ": yoyRevenuePct");
+        close(e.getProfitYtd(), a.getProfitYtd(), ctx + ": profitYtd");
+        close(e.getProfitPrevYtd(), a.getProfitPrevYtd(), ctx + ": profitPrevYtd");
+        close(e.getYoyProfitPct(), a.getYoyProfitPct(), ctx + ": yoyProfitPct");
+        close(e.getCapacityUtilPct(), a.getCapacityUtilPct(), ctx + ": capacityUtilPct");
+        close(e.getProductivityKgPerM2(), a.getProductivityKgPerM2(), ctx + ": productivityKgPerM2");
+
+        // teng tushumli (masalan, 0) yozuvlar tartibi aniqlanmagan — kalit bo‘yicha solishtirib, tartibni alohida tekshiramiz
+        Map<FacilityType, TypeKpiAgg> eKpi = byKey(e.getTypeKpis(), TypeKpiAgg::getType, k -> k);
+        Map<FacilityType, TypeKpiAgg> aKpi = byKey(a.getTypeKpis(), TypeKpiAgg::getType, k -> k);
+        assertEquals(eKpi.keySet(), aKpi.keySet(), ctx + ": typeKpis");
+        eKpi.forEach((type, x) -> {
+            TypeKpiAgg y = aKpi.get(type);
+            String c = ctx + ": typeKpis[" + type + "]";
+            assertEquals(x.getCount(), y.getCount(), c);
+            close(x.getRevenue(), y.getRevenue(), c + ".revenue");
+            close(x.getProfit(), y.getProfit(), c + ".profit");
+            close(x.getCurrent(), y.getCurrent(), c + ".current");
+            close(x.getCapacity(), y.getCapacity(), c + ".capacity");
+            close(x.getUtilPct(), y.getUtilPct(), c + ".utilPct");
+        });
+        assertSortedDesc(a.getTypeKpis().stream().map(TypeKpiAgg::getRevenue).toList(), ctx + ": typeKpis order");
+
+        // test daraxtida org’lar 10 tadan kam — limit kesmaydi
+        Map<Long, OrgRevenueAgg> eTop = byKey(e.getTopOrgRevenue(), OrgRevenueAgg::getOrgId, o -> o);
+        Map<Long, OrgRevenueAgg> aTop = byKey(a.getTopOrgRevenue(), OrgRevenueAgg::getOrgId, o -> o);
+        assertEquals(eTop.keySet(), aTop.keySet(), ctx + ": topOrgRevenue");
+        eTop.forEach((orgId, x) -> {
+            OrgRevenueAgg y = aTop.get(orgId);
+            String c = ctx + ": topOrgRevenue[" + orgId + "]";
+            assertEquals(x.getOrgName(), y.getOrgName(), c);
+            assertEquals(x.getCount(), y.getCount(), c);
+            close(x.getRevenue(), y.getRevenue(), c + ".revenue");
+            close(x.getProfit(), y.getProfit(), c + ".profit");
+        });
+        assertSortedDesc(a.getTopOrgRevenue().stream().map(OrgRevenueAgg::getRevenue).toList(), ctx + ": topOrgRevenue order");
+    }
+
+    private static void assertSortedDesc(List<Double> values, String ctx) {
+        for (int i = 1; i < values.size(); i++) {
+            assertTrue(values.get(i - 1) >= values.get(i) - EPS * Math.max(1.0, Math.abs(values.get(i))), ctx);
+        }
+    }
+
+    private static Map<String, String> periodTotals(List<StatsAggregateSource.PeriodBucket> buckets) {
+        Map<String, double[]> acc = new TreeMap<>();
+        for (StatsAggregateSource.PeriodBucket b : buckets) {
+            double[] a = acc.computeIfAbsent(b.period() + "/" + b.type() + "/" + b.orgId(), k -> new double[5]);
+            a[0] += b.count();
+            a[1] += b.revenue();
+            a[2] += b.profit();
+            a[3] += b.current();
+            a[4] += b.capacity();
+        }
+        Map<String, String> out = new TreeMap<>();
+        // yaxlitlash: yig‘indi tartibi manbaga bog‘liq
+        acc.forEach((k, a) -> out.put(k, String.format(Locale.ROOT, "%.0f %.4f %.4f %.4f %.4f", a[0], a[1], a[2], a[3], a[4])));
+        return out;
+    }
+
+    private static <T, K, V> Map<K, V> byKey(List<T> list, Function<T, K> key, Function<T, V> value) {
+        return list.stream().collect(Collectors.toMap(key, value));
+    }
+
+    private static List<Long> counts(List<MonthlyCount> list) {
+        return list.stream().map(MonthlyCount::getCount).toList();
+    }
+
+    private static void amounts(List<MonthlyAmount> e, List<MonthlyAmount> a, String ctx) {
+        assertEquals(e.size(), a.size(), ctx);
+        for (int i = 0; i < e.size(); i++) {
+            assertEquals(e.get(i).getMonth(), a.get(i).getMonth(), ctx);
+            close(e.get(i).getAmount(), a.get(i).getAmount(), ctx + "[" + i + "]");
+        }
+    }
+
+    /** double yig‘indilari tartibga bog‘liq — nisbiy xatolik bilan */
+    private static void close(Double e, Double a, String ctx) {
+        if (e == null || a == null) {
+            assertEquals(e, a, ctx);
+            return;
+        }
+        assertEquals(e, a, EPS * Math.max(1.0, Math.abs(e)), ctx);
+    }
+}
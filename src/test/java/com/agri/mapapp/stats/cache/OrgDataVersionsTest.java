@@ -0,0 +1,157 @@
+package com.agri.mapapp.stats.cache;
+
+import com.agri.mapapp.facility.FacilityStatus;
+import com.agri.mapapp.facility.FacilityType;
+import com.agri.mapapp.facility.importer.FacilityImportDao;
+import com.agri.mapapp.stats.columnar.FacilityColumnStore;
+import com.agri.mapapp.stats.dto.OverviewRes;
+import com.agri.mapapp.support.FacilityFixtures;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Versiyalar DB’da: yozuv tranzaksiyasi bilan birga commit/rollback bo‘ladi va boshqa instance’ning
+ * OrgDataVersions’i (alohida bean — bir xil jadval) oshirgan versiya keshlar tomonidan seziladi.
+ * Kesh kaliti hal qilingan oyna va turlar to‘plamidan quriladi — bir xil natijali so‘rovlar bitta yozuvni bo‘lishadi.
+ */
+@SpringBootTest
+@Import(FacilityFixtures.class)
+class OrgDataVersionsTest {
+
+    @Autowired OrgDataVersions versions;
+    @Autowired OverviewCache cache;
+    @Autowired FacilityFixtures fixtures;
+    @Autowired NamedParameterJdbcTemplate jdbc;
+    @Autowired TransactionTemplate tx;
+    @Autowired DataSource dataSource;
+    @Autowired PlatformTransactionManager txManager;
+
+    private List<Long> orgs;
+    private Set<Long> scope;
+
+    @BeforeEach
+    void setUp() {
+        orgs = fixtures.orgTree(1);
+        scope = new HashSet<>(orgs);
+    }
+
+    @AfterEach
+    void cleanup() {
+        fixtures.cleanup();
+    }
+
+    @Test
+    void versionCommitsAndRollsBackWithTheWrite() {
+        long s0 = versions.stamp(scope), all0 = versions.stamp(null);
+        fixtures.insert(row(orgs.get(1), "V1"));
+        assertEquals(s0 + 1, versions.stamp(scope));
+        assertEquals(all0 + 1, versions.stamp(null));
+        assertEquals(1L, versions.versions(List.of(orgs.get(1))).get(orgs.get(1)));
+        assertEquals(0L, versions.versions(List.of(orgs.get(0))).get(orgs.get(0)));
+
+        assertThrows(IllegalStateException.class, () -> tx.executeWithoutResult(status -> {
+            versions.bump(Set.of(orgs.get(0), orgs.get(1)));
+            throw new IllegalStateException("rollback");
+        }));
+        assertEquals(s0 + 1, versions.stamp(scope));
+    }
+
+    @Test
+    void bumpFromAnotherInstanceIsVisible() {
+        OrgDataVersions otherNode = new OrgDataVersions(jdbc);
+        long s0 = versions.stamp(scope);
+        otherNode.bump(Set.of(orgs.get(0)));
+        assertEquals(s0 + 1, versions.stamp(scope));
+        assertEquals(versions.epoch(), otherNode.epoch());
+    }
+
+    @Test
+    void overviewCacheSeesCommittedWrites() {
+        fixtures.insert(row(orgs.get(1), "C1"));
+        assertEquals(1L, overview().getTotal());
+        assertEquals(1L, overview().getTotal()); // hit
+
+        fixtures.insert(row(orgs.get(0), "C2"));
+        // stale-while-revalidate: eskirgan javob bir marta qaytishi mumkin, fonda yangilanadi
+        awaitTrue(() -> overview().getTotal() == 2L, "cache refreshed after write");
+    }
+
+    @Test
+    void equivalentRequestsShareOneCacheEntry() {
+        fixtures.insert(row(orgs.get(1), "K1"));
+        long misses0 = misses();
+        OverviewRes first = cache.get(scope, 2025, List.of(FacilityType.COWSHED, FacilityType.GREENHOUSE),
+                "year", null, null, null, null, List.of());
+        assertEquals(misses0 + 1, misses());
+
+        // range yozilishi, ortiqcha chorak/from/to, turlar tartibi va takrori — oyna va to‘plam bir xil
+        assertSame(first, cache.get(scope, 2025, List.of(FacilityType.GREENHOUSE, FacilityType.COWSHED, FacilityType.COWSHED),
+                "YEAR", 3, LocalDate.of(2025, 2, 1), LocalDate.of(2025, 3, 1), null, List.of()));
+        assertSame(first, cache.get(scope, 2025, List.of(FacilityType.COWSHED, FacilityType.GREENHOUSE),
+                "custom", null, LocalDate.of(2025, 6, 1), null, null, List.of())); // to yo‘q => year
+        assertEquals(misses0 + 1, misses());
+
+        OverviewRes q2 = cache.get(scope, 2025, null, "quarter", 2, null, null, null, List.of());
+        assertSame(q2, cache.get(scope, 2025, null, "Quarter", 2, LocalDate.of(2025, 1, 1), null, null, List.of()));
+        assertEquals(2, q2.getQuarter());
+        assertEquals(misses0 + 2, misses());
+    }
+
+    @Test
+    void columnStoreFallsBackAndResyncsWhenBehindTheDatabase() {
+        FacilityColumnStore store = new FacilityColumnStore(dataSource, txManager, versions, true, 60, 0, 1000);
+        store.bootstrap();
+        assertTrue(store.isCurrent());
+
+        // boshqa instance yozdi: bu nusxaga event kelmaydi, faqat DB versiyasi oshadi
+        new OrgDataVersions(jdbc).bump(Set.of(orgs.get(1)));
+        assertFalse(store.isCurrent());
+        awaitTrue(store::isCurrent, "column store resynced");
+        assertEquals(1L, ((Number) store.footprint().get("resyncs")).longValue());
+    }
+
+    /* -------------------- Helpers -------------------- */
+
+    private long misses() {
+        return ((Number) cache.stats().get("misses")).longValue();
+    }
+
+    private OverviewRes overview() {
+        return cache.get(scope, 2025, null, "year", null, null, null, null, List.of());
+    }
+
+    private FacilityImportDao.Row row(Long orgId, String name) {
+        return fixtures.row(orgId, name, FacilityType.COWSHED, FacilityStatus.ACTIVE,
+                LocalDateTime.of(2025, 5, 5, 10, 0), "{\"expectedRevenue\": 10}");
+    }
+
+    private static void awaitTrue(BooleanSupplier condition, String what) {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() > deadline) fail("timeout: " + what);
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                fail(e);
+            }
+        }
+    }
+}
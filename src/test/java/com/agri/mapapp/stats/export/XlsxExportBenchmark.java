@@ -0,0 +1,70 @@
+package com.agri.mapapp.stats.export;
+
+import com.agri.mapapp.facility.FacilityMetrics;
+import com.agri.mapapp.facility.FacilityType;
+import com.agri.mapapp.stats.StatsExportDao.ExportRow;
+
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.time.LocalDateTime;
+
+/**
+ * XlsxExportWriter xotira benchmark’i (DB’siz, sintetik qatorlar): har 100k qatorda GC’dan keyingi band heap chiqariladi.
+ * Test emas (surefire ishga tushirmaydi) — qo‘lda:
+ *   mvn -q test-compile && java -Xmx256m -cp target/classes:target/test-classes:$(cat cp.txt) \
+ *       com.agri.mapapp.stats.export.XlsxExportBenchmark [rows=1000000] [windowRows=100]
+ */
+public class XlsxExportBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        long rows = args.length > 0 ? Long.parseLong(args[0]) : 1_000_000L;
+        int window = args.length > 1 ? Integer.parseInt(args[1]) : 100;
+        MemoryMXBean mem = ManagementFactory.getMemoryMXBean();
+        FacilityType[] types = FacilityType.values();
+        LocalDateTime base = LocalDateTime.of(2026, 1, 1, 0, 0);
+
+        CountingStream out = new CountingStream();
+        long minHeap = Long.MAX_VALUE, maxHeap = 0;
+        long t0 = System.nanoTime();
+        System.out.printf("%12s %12s%n", "rows", "heapUsedMB");
+        try (XlsxExportWriter w = new XlsxExportWriter(out, window)) {
+            for (long i = 1; i <= rows; i++) {
+                long org = 1 + i % 40;
+                w.add(new ExportRow(org, "Org " + org, types[(int) (i % types.length)],
+                        base.plusMinutes(i % 525_600),
+                        new FacilityMetrics(i * 1.5, i * 0.25, i % 1000, 1000, i % 77, 120.5)));
+                if (i % 100_000 == 0) {
+                    long used = usedAfterGc(mem);
+                    minHeap = Math.min(minHeap, used);
+                    maxHeap = Math.max(maxHeap, used);
+                    System.out.printf("%12d %12.1f%n", i, used / 1048576.0);
+                }
+            }
+            w.finish();
+        }
+        double secs = (System.nanoTime() - t0) / 1e9;
+        System.out.printf("rows=%d window=%d xlsxBytes=%d time=%.1fs (%.0f rows/s) heapMB min=%.1f max=%.1f%n",
+                rows, window, out.count, secs, rows / secs, minHeap / 1048576.0, maxHeap / 1048576.0);
+    }
+
+    private static long usedAfterGc(MemoryMXBean mem) {
+        System.gc();
+        return mem.getHeapMemoryUsage().getUsed();
+    }
+
+    /** Natijani faqat sanaydi — disk emas, writer xotirasini o‘lchaymiz */
+    private static final class CountingStream extends OutputStream {
+        long count;
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count += len;
+        }
+    }
+}
@@ -0,0 +1,185 @@
+package com.agri.mapapp.stats.rollup;
+
+import com.agri.mapapp.facility.FacilityService;
+import com.agri.mapapp.facility.FacilityStatus;
+import com.agri.mapapp.facility.FacilityType;
+import com.agri.mapapp.facility.dto.FacilityCreateReq;
+import com.agri.mapapp.facility.dto.FacilityPatchReq;
+import com.agri.mapapp.facility.dto.FacilityPutReq;
+import com.agri.mapapp.facility.importer.FacilityImportDao;
+import com.agri.mapapp.support.FacilityFixtures;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * facility_monthly_rollup delta’lari: har bir yozish yo‘lidan (create/put/patch/delete, import) keyin
+ * check() xom jadval bilan farq topmasligi kerak; rebuild() buzilgan rollup’ni tiklaydi.
+ */
+@SpringBootTest
+@Import(FacilityFixtures.class)
+class FacilityRollupServiceTest {
+
+    @Autowired FacilityRollupService rollup;
+    @Autowired FacilityService facilities;
+    @Autowired FacilityFixtures fixtures;
+    @Autowired NamedParameterJdbcTemplate jdbc;
+    @Autowired ObjectMapper mapper;
+
+    private List<Long> orgs;
+
+    @BeforeEach
+    void setUp() {
+        orgs = fixtures.orgTree(2);
+        assertConsistent("boshlang‘ich holat");
+    }
+
+    @AfterEach
+    void cleanup() {
+        fixtures.cleanup();
+        assertConsistent("cleanup");
+    }
+
+    @Test
+    void crudKeepsRollupConsistent() {
+        Long a = facilities.create(create(orgs.get(1), "Rollup A", FacilityType.COWSHED, FacilityStatus.ACTIVE,
+                "{\"expectedRevenue\": 1200.5, \"netProfit\": 300, \"current\": 40, \"capacity\": 100}")).getId();
+        Long b = facilities.create(create(orgs.get(1), "Rollup B", FacilityType.GREENHOUSE, FacilityStatus.INACTIVE,
+                "{\"expectedRevenue\": 800, \"totalAreaHa\": 1.5}")).getId();
+        Long c = facilities.create(create(orgs.get(2), "Rollup C", FacilityType.FISHPOND, FacilityStatus.ACTIVE, null)).getId();
+        assertConsistent("create");
+        assertEquals(2L, count(orgs.get(1)));
+        assertEquals(2000.5, revenue(orgs.get(1)), 1e-9);
+
+        // PUT: tur va org almashadi, atributlar to‘liq almashtiriladi
+        facilities.put(a, new FacilityPutReq(orgs.get(2), "Rollup A", FacilityType.SHEEPFOLD, FacilityStatus.ACTIVE,
+                null, null, null, json("{\"expectedRevenue\": 50, \"capacity\": 10}"), null));
+        assertConsistent("put");
+        assertEquals(800.0, revenue(orgs.get(1)), 1e-9);
+        assertEquals(50.0, revenue(orgs.get(2)), 1e-9);
+
+        // PATCH: holat, metrika (deep-merge) va org — alohida-alohida
+        facilities.patch(b, patch(p -> p.setStatus(FacilityStatus.UNDER_MAINTENANCE)));
+        assertConsistent("patch status");
+        facilities.patch(b, patch(p -> p.setAttributes(json("{\"expectedRevenue\": 950, \"netProfit\": -20}"))));
+        assertConsistent("patch metrics");
+        assertEquals(950.0, revenue(orgs.get(1)), 1e-9);
+        facilities.patch(c, patch(p -> {
+            p.setOrgId(orgs.get(0));
+            p.setType(FacilityType.TURKEY);
+        }));
+        assertConsistent("patch org/type");
+        assertEquals(1L, count(orgs.get(0)));
+
+        // nom o‘zgarishi — rollup kaliti va metrikalar bir xil, qator yozilmaydi
+        long rows = rollupRows();
+        facilities.patch(b, patch(p -> p.setName("Rollup B2")));
+        assertEquals(rows, rollupRows());
+        assertConsistent("patch name");
+
+        facilities.delete(a);
+        facilities.delete(b);
+        assertConsistent("delete");
+        assertEquals(0L, count(orgs.get(1)));
+        assertEquals(0L, count(orgs.get(2)));
+        // bo‘sh qolgan kesimlar o‘chiriladi
+        assertEquals(0, jdbc.queryForObject("SELECT COUNT(*) FROM facility_monthly_rollup WHERE org_id IN (:orgs)",
+                new MapSqlParameterSource("orgs", orgs.subList(1, 3)), Integer.class));
+    }
+
+    @Test
+    void importedRowsLandInTheirCreatedMonth() {
+        List<FacilityImportDao.Row> rows = new ArrayList<>();
+        for (int m = 1; m <= 12; m++) {
+            rows.add(fixtures.row(orgs.get(m % 3), "Import " + m, FacilityType.POULTRY_EGG, FacilityStatus.ACTIVE,
+                    LocalDateTime.of(2024, m, 28, 23, 59, 59), "{\"revenue\": \"" + (m * 10) + "\"}"));
+        }
+        fixtures.insert(rows);
+        assertConsistent("import");
+        Map<String, Object> dec = jdbc.queryForMap("""
+                SELECT SUM(facility_count) AS cnt, SUM(expected_revenue) AS rev FROM facility_monthly_rollup
+                WHERE org_id IN (:orgs) AND year = 2024 AND month = 12
+                """, new MapSqlParameterSource("orgs", orgs));
+        assertEquals(1L, ((Number) dec.get("cnt")).longValue());
+        assertEquals(120.0, ((Number) dec.get("rev")).doubleValue(), 1e-9);
+    }
+
+    @Test
+    void checkDetectsDriftAndRebuildRepairsIt() {
+        Long id = facilities.create(create(orgs.get(0), "Drift", FacilityType.COWSHED, FacilityStatus.ACTIVE,
+                "{\"expectedRevenue\": 10}")).getId();
+        assertNotNull(id);
+        jdbc.update("UPDATE facility_monthly_rollup SET facility_count = facility_count + 5, expected_revenue = 0 WHERE org_id = :org",
+                new MapSqlParameterSource("org", orgs.get(0)));
+
+        FacilityRollupService.ConsistencyReport broken = rollup.check();
+        assertFalse(broken.consistent());
+        assertEquals(1, broken.mismatchCount());
+        FacilityRollupService.Mismatch m = broken.mismatches().get(0);
+        assertEquals(orgs.get(0), m.orgId());
+        assertEquals(1L, m.expectedCount());
+        assertEquals(6L, m.rollupCount());
+
+        assertTrue(rollup.rebuild() > 0);
+        assertConsistent("rebuild");
+        assertEquals(1L, count(orgs.get(0)));
+    }
+
+    /* -------------------- Helpers -------------------- */
+
+    private void assertConsistent(String step) {
+        FacilityRollupService.ConsistencyReport r = rollup.check();
+        assertTrue(r.consistent(), step + ": " + r.mismatches());
+        assertEquals(0, r.mismatchCount(), step);
+    }
+
+    private long count(Long orgId) {
+        Long n = jdbc.queryForObject("SELECT COALESCE(SUM(facility_count), 0) FROM facility_monthly_rollup WHERE org_id = :org",
+                new MapSqlParameterSource("org", orgId), Long.class);
+        return n == null ? 0 : n;
+    }
+
+    private double revenue(Long orgId) {
+        Double v = jdbc.queryForObject("SELECT COALESCE(SUM(expected_revenue), 0) FROM facility_monthly_rollup WHERE org_id = :org",
+                new MapSqlParameterSource("org", orgId), Double.class);
+        return v == null ? 0 : v;
+    }
+
+    private long rollupRows() {
+        Long n = jdbc.queryForObject("SELECT COUNT(*) FROM facility_monthly_rollup", new MapSqlParameterSource(), Long.class);
+        return n == null ? 0 : n;
+    }
+
+    private FacilityCreateReq create(Long orgId, String name, FacilityType type, FacilityStatus status, String attrs) {
+        return new FacilityCreateReq(orgId, name, type, status, 41.3, 69.2, 12, json(attrs), null);
+    }
+
+    private static FacilityPatchReq patch(Consumer<FacilityPatchReq> c) {
+        FacilityPatchReq p = new FacilityPatchReq();
+        c.accept(p);
+        return p;
+    }
+
+    private JsonNode json(String s) {
+        try {
+            return s == null ? null : mapper.readTree(s);
+        } catch (Exception e) {
+            throw new IllegalArgumentException(e);
+        }
+    }
+}
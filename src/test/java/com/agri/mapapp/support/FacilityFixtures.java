@@ -0,0 +1,126 @@
+package com.agri.mapapp.support;
+
+import com.agri.mapapp.facility.*;
+import com.agri.mapapp.facility.importer.FacilityImportDao;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.test.context.TestComponent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * Integratsion testlar uchun ma’lumot: o‘z org daraxti (boshqa ma’lumotlarga tegmaslik uchun testlar shu scope bilan
+ * ishlaydi) va created_at’i aniq berilgan facility qatorlari (import COPY yo‘li orqali — ilova yozadigan metrika
+ * ustunlari va name_norm bilan). Yozish/o‘chirish FacilityChangedEvent bilan — rollup va versiyalar izchil qoladi.
+ * cleanup() yaratilgan org’lar va ulardagi barcha facility’larni o‘chiradi.
+ */
+@TestComponent
+@RequiredArgsConstructor
+public class FacilityFixtures {
+
+    private final JdbcTemplate jdbc;
+    private final NamedParameterJdbcTemplate named;
+    private final FacilityImportDao importDao;
+    private final ApplicationEventPublisher events;
+    private final TransactionTemplate tx;
+    private final ObjectMapper mapper;
+
+    private final List<Long> orgs = new ArrayList<>();
+
+    /** Ildiz + children ta bola org; ro‘yxat: [ildiz, bola1, ...] */
+    public List<Long> orgTree(int children) {
+        String tag = UUID.randomUUID().toString().substring(0, 8);
+        List<Long> ids = new ArrayList<>();
+        Long root = org(null, "Test " + tag, "T" + tag);
+        ids.add(root);
+        for (int i = 1; i <= children; i++) ids.add(org(root, "Test " + tag + " / " + i, "T" + tag + "-" + i));
+        return ids;
+    }
+
+    private Long org(Long parentId, String name, String code) {
+        // pooled-lo: nextval oralig‘ining boshi — ilova bilan to‘qnashmaydi
+        Long id = jdbc.queryForObject("SELECT nextval('org_unit_seq')", Long.class);
+        jdbc.update("INSERT INTO org_unit (id, parent_id, name, code) VALUES (?, ?, ?, ?)", id, parentId, name, code);
+        orgs.add(id);
+        return id;
+    }
+
+    public FacilityImportDao.Row row(Long orgId, String name, FacilityType type, FacilityStatus status,
+                                     LocalDateTime createdAt, String attributesJson) {
+        JsonNode attrs = json(attributesJson);
+        return new FacilityImportDao.Row(orgId, name, type, status, null, null, null, attrs, null,
+                createdAt, FacilityMetrics.of(attrs));
+    }
+
+    /** Qatorlarni yozadi (bitta tranzaksiya, bitta event); yaratilgan id’lar — rows tartibida */
+    public List<Long> insert(List<FacilityImportDao.Row> rows) {
+        return tx.execute(status -> {
+            List<FacilitySnapshot> created = importDao.insert(rows);
+            List<FacilityChangedEvent.Change> changes = new ArrayList<>(created.size());
+            for (FacilitySnapshot s : created) changes.add(new FacilityChangedEvent.Change(null, s));
+            events.publishEvent(new FacilityChangedEvent(changes));
+            return created.stream().map(FacilitySnapshot::id).toList();
+        });
+    }
+
+    public Long insert(FacilityImportDao.Row row) {
+        return insert(List.of(row)).get(0);
+    }
+
+    /** DB’dagi holat (metrika ustunlaridan) — delta testlari uchun */
+    public List<FacilitySnapshot> snapshots(Collection<Long> orgIds) {
+        if (orgIds.isEmpty()) return List.of();
+        return named.query("""
+                SELECT id, org_id, type, status, created_at, expected_revenue, net_profit, current_amount,
+                       capacity, product_amount, area_m2
+                FROM facility WHERE org_id IN (:orgIds)
+                """, new MapSqlParameterSource("orgIds", orgIds), (rs, i) -> new FacilitySnapshot(
+                rs.getLong("id"), rs.getLong("org_id"),
+                FacilityType.valueOf(rs.getString("type")), FacilityStatus.valueOf(rs.getString("status")),
+                rs.getObject("created_at", LocalDateTime.class),
+                new FacilityMetrics(rs.getDouble("expected_revenue"), rs.getDouble("net_profit"),
+                        rs.getDouble("current_amount"), rs.getDouble("capacity"),
+                        rs.getDouble("product_amount"), rs.getDouble("area_m2"))));
+    }
+
+    public void setCreatedAt(Long facilityId, LocalDateTime createdAt) {
+        jdbc.update("UPDATE facility SET created_at = ? WHERE id = ?", Timestamp.valueOf(createdAt), facilityId);
+    }
+
+    /** Yaratilgan org’lar va ulardagi facility’lar (rasmlari bilan) o‘chiriladi */
+    public void cleanup() {
+        if (orgs.isEmpty()) return;
+        tx.executeWithoutResult(status -> {
+            List<FacilitySnapshot> left = snapshots(orgs);
+            if (!left.isEmpty()) {
+                MapSqlParameterSource p = new MapSqlParameterSource("orgIds", orgs);
+                named.update("DELETE FROM facility_image WHERE facility_id IN (SELECT id FROM facility WHERE org_id IN (:orgIds))", p);
+                named.update("DELETE FROM facility WHERE org_id IN (:orgIds)", p);
+                events.publishEvent(new FacilityChangedEvent(
+                        left.stream().map(s -> new FacilityChangedEvent.Change(s, null)).toList()));
+            }
+            List<Long> reversed = new ArrayList<>(orgs);
+            Collections.reverse(reversed); // bolalar avval
+            for (Long id : reversed) jdbc.update("DELETE FROM org_unit WHERE id = ?", id);
+        });
+        orgs.clear();
+    }
+
+    private JsonNode json(String s) {
+        if (s == null) return null;
+        try {
+            return mapper.readTree(s);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException(e);
+        }
+    }
+}